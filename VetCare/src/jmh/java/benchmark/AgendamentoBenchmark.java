@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import agendamento.Agendamento;
+import agendamento.AgendamentoDAO;
+import util.Calendario;
+
+/**
+ * Criação de agendamentos: validação de calendário, as duas verificações de
+ * sobreposição (animal e serviço) e a inserção.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AgendamentoBenchmark {
+
+    /** Marca dos agendamentos criados pelo benchmark, removidos a cada iteração. */
+    private static final String MOTIVO = "benchmark";
+
+    private List<Timestamp> slots;
+    private int i;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Horários válidos (dias úteis, fora de feriados) para que save() chegue sempre às verificações
+        slots = new ArrayList<>();
+        for (LocalDate d = LocalDate.of(2026, 1, 5); slots.size() < 20000; d = d.plusDays(1)) {
+            if (d.getDayOfWeek() == DayOfWeek.SATURDAY || d.getDayOfWeek() == DayOfWeek.SUNDAY
+                    || !Calendario.getDescricaoCompleta(d).isEmpty())
+                continue;
+            for (int m = 0; m < 16; m++)
+                slots.add(Timestamp.valueOf(LocalDateTime.of(d.getYear(), d.getMonth(), d.getDayOfMonth(), 9, 0)
+                        .plusMinutes(30L * m)));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void limpar(BenchDatabase db) {
+        db.executar("DELETE FROM Agendamento WHERE Motivo = '" + MOTIVO + "'");
+    }
+
+    @Benchmark
+    public int save(BenchDatabase db) {
+        int n = i++ & 0x7fffffff;
+        Agendamento a = new Agendamento();
+        a.setDataHoraInicio(slots.get(n % slots.size()));
+        a.setMotivo(MOTIVO);
+        a.setClienteNif(BenchDatabase.nif(n % db.clientes));
+        a.setAnimalId(1 + n % db.animais);
+        a.setHorarioId(1 + n % 50);
+        a.setClinicaId(1 + n % BenchDatabase.CLINICAS);
+        a.setTipoServicoId(1 + n % BenchDatabase.SERVICOS);
+        return AgendamentoDAO.save(a);
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Compara um resultado JMH (formato JSON, {@code -rf json}) com uma linha de
+ * base guardada e termina com código 1 se algum benchmark regredir mais do que
+ * a tolerância.
+ *
+ * Utilização: {@code Baseline <base.json> <atual.json> [tolerância %]}.
+ */
+public final class Baseline {
+
+    private Baseline() {
+    }
+
+    public static void main(String[] args) throws IOException, JSONException {
+        if (args.length < 2) {
+            System.err.println("Utilização: Baseline <base.json> <atual.json> [tolerância %]");
+            System.exit(2);
+        }
+        double tolerancia = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JSONObject> base = ler(Path.of(args[0]));
+        Map<String, JSONObject> atual = ler(Path.of(args[1]));
+
+        int regressoes = 0;
+        for (Map.Entry<String, JSONObject> e : atual.entrySet()) {
+            JSONObject antes = base.get(e.getKey());
+            if (antes == null) {
+                System.out.printf("%-70s novo%n", e.getKey());
+                continue;
+            }
+            double a = antes.getJSONObject("primaryMetric").getDouble("score");
+            double b = e.getValue().getJSONObject("primaryMetric").getDouble("score");
+            // Em throughput valores maiores são melhores; nos restantes modos, menores
+            boolean maiorMelhor = "thrpt".equals(e.getValue().getString("mode"));
+            double variacao = a == 0 ? 0 : (b - a) / a * 100.0;
+            boolean regrediu = maiorMelhor ? variacao < -tolerancia : variacao > tolerancia;
+            if (regrediu)
+                regressoes++;
+            System.out.printf("%-70s %12.3f -> %12.3f %s (%+.1f%%)%s%n", e.getKey(), a, b,
+                    e.getValue().getJSONObject("primaryMetric").getString("scoreUnit"), variacao,
+                    regrediu ? "  REGRESSÃO" : "");
+        }
+        System.out.println(regressoes == 0 ? "Sem regressões." : regressoes + " regressão(ões) acima de "
+                + tolerancia + "%.");
+        System.exit(regressoes == 0 ? 0 : 1);
+    }
+
+    /**
+     * Lê os resultados indexados pelo nome do benchmark e respetivos parâmetros.
+     */
+    private static Map<String, JSONObject> ler(Path ficheiro) throws IOException, JSONException {
+        Map<String, JSONObject> map = new LinkedHashMap<>();
+        JSONArray arr = new JSONArray(Files.readString(ficheiro));
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject r = arr.getJSONObject(i);
+            StringBuilder chave = new StringBuilder(r.getString("benchmark"));
+            JSONObject params = r.optJSONObject("params");
+            if (params != null) {
+                List<String> nomes = new ArrayList<>();
+                for (Iterator<?> it = params.keys(); it.hasNext();)
+                    nomes.add(String.valueOf(it.next()));
+                Collections.sort(nomes);
+                for (String k : nomes)
+                    chave.append(' ').append(k).append('=').append(params.get(k));
+            }
+            map.put(chave.toString(), r);
+        }
+        return map;
+    }
+}
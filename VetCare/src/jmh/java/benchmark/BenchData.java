@@ -0,0 +1,24 @@
+package benchmark;
+
+/**
+ * Dados fixos partilhados pelos benchmarks.
+ */
+final class BenchData {
+
+    /** Nomes completos com acentos, partículas, hífens e apóstrofos. */
+    static final String[] NOMES = {
+            "maria do céu benedita frôscolo d'almeida",
+            "JOÃO-DE-DEUS ACÁCIO TECHEREMUNGA TEXUGEIRO",
+            "Capitulina andrioleta da Conceicao do Corte-geral",
+            "ana luisa gonçalves dos santos e silva",
+            "josé manuel van der berg",
+            "Profirio Luis Pereira da Costa",
+            "beatriz   ferreira  de   oliveira",
+            "Manarimba Bupatcha Medronheira",
+            "rui pedro MARTINS-TEIXEIRA",
+            "Inês de Sá e Menezes"
+    };
+
+    private BenchData() {
+    }
+}
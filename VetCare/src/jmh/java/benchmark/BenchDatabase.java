@@ -0,0 +1,295 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import agendamento.AgendamentoDAO;
+import animal.AnimalDAO;
+import manager.ResumoDAO;
+import util.Configura;
+
+/**
+ * Base de dados de substituição para os benchmarks.
+ * Cria uma base de dados H2 em memória (modo MySQL), aponta o {@link Configura}
+ * para ela através de um {@code config.properties} temporário e semeia-a com
+ * volumes configuráveis, de forma determinística (semente fixa).
+ * Depois do esquema base e dos dados, corre as mesmas preparações do esquema
+ * que o arranque da aplicação ({@link util.Bootstrap}): coluna de versão dos
+ * agendamentos, resumo da fotografia e tabelas de resumo.
+ *
+ * Os volumes são parâmetros JMH, por exemplo:
+ * {@code -p animais=5000 -p agendamentos=100000}.
+ *
+ * Classpath necessário: classes da aplicação, WEB-INF/lib, jakarta.servlet-api,
+ * jmh-core, jmh-generator-annprocess (processador de anotações) e h2.
+ */
+@State(Scope.Benchmark)
+public class BenchDatabase {
+
+    /** Número de tutores. */
+    @Param({ "200" })
+    public int clientes;
+
+    /** Número de animais. */
+    @Param({ "1000" })
+    public int animais;
+
+    /** Número de agendamentos existentes. */
+    @Param({ "10000" })
+    public int agendamentos;
+
+    /** Número de registos de histórico clínico. */
+    @Param({ "20000" })
+    public int historico;
+
+    /** Número de linhas da tabela usada pelas exportações e importações. */
+    @Param({ "1000" })
+    public int linhas;
+
+    static final int CLINICAS = 5;
+    static final int SERVICOS = 6;
+    static final String[] ESPECIES = { "Cão", "Gato", "Coelho", "Papagaio", "Hamster" };
+    static final String[] TIPOS = { "Consulta", "ExameFisico", "Vacinacao", "Desparasitacao", "Cirurgia" };
+
+    /** Tempo máximo (ms) de espera pela primeira reconciliação dos resumos. */
+    private static final long ESPERA_RESUMOS_MS = 60_000;
+
+    private Path raiz;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        raiz = Files.createTempDirectory("vetcare-bench");
+        Files.createDirectories(raiz.resolve("WEB-INF"));
+        Files.writeString(raiz.resolve("WEB-INF/config.properties"), String.join("\n",
+                "db.sgbd=MySQL",
+                "db.url=jdbc:h2:mem:vetcare;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "db.driver=org.h2.Driver",
+                "db.user=sa",
+                "db.password=",
+                "db.pool.min=2",
+                "db.pool.max=20",
+                ""));
+        Files.createDirectories(raiz.resolve("import"));
+        Files.createDirectories(raiz.resolve("export"));
+        Configura.bootstrap(raiz.toString());
+
+        try (Connection con = new Configura().getConnection(false)) {
+            criarEsquema(con);
+            semear(con);
+            con.commit();
+        }
+        prepararEsquema();
+    }
+
+    /**
+     * Corre as preparações do esquema feitas pelo arranque da aplicação e
+     * espera que as tabelas de resumo fiquem prontas.
+     */
+    private static void prepararEsquema() {
+        AgendamentoDAO.ensureSchema();
+        AnimalDAO.ensureSchema();
+        if (!AgendamentoDAO.isVersioned())
+            throw new IllegalStateException("Coluna Versao não criada");
+        ResumoDAO.start(Configura.snapshot().getInt("report.reconcileMinutes", 60));
+        long limite = System.currentTimeMillis() + ESPERA_RESUMOS_MS;
+        while (!ResumoDAO.isReady()) {
+            if (System.currentTimeMillis() > limite)
+                throw new IllegalStateException("Tabelas de resumo não preparadas");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        ResumoDAO.stop();
+        try (Connection con = new Configura().getConnection();
+                Statement st = con.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        Configura.shutdown();
+    }
+
+    /**
+     * Esquema base com as tabelas e colunas usadas pelos caminhos medidos; as
+     * colunas e tabelas acrescentadas pela aplicação no arranque são criadas
+     * por {@link #prepararEsquema()}.
+     */
+    private static void criarEsquema(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            // O H2 não tem MD5, usado pelo dialeto MySQL no resumo das fotografias
+            st.execute("CREATE ALIAS MD5 FOR \"benchmark.BenchDatabase.md5\"");
+            st.execute("CREATE TABLE TipoServico (IDServico INT PRIMARY KEY, Nome VARCHAR(60))");
+            st.execute("CREATE TABLE Clinica (IDClinica INT PRIMARY KEY, Nome VARCHAR(60), Localidade VARCHAR(60))");
+            st.execute("CREATE TABLE Catalogo (NomeComum VARCHAR(60) PRIMARY KEY, ExpectativaVida INT, "
+                    + "PesoAdulto DECIMAL(6,2))");
+            st.execute("CREATE TABLE Cliente (NIF VARCHAR(9) PRIMARY KEY, NomeCompleto VARCHAR(120), "
+                    + "Email VARCHAR(120))");
+            st.execute("CREATE TABLE Animal (IDAnimal INT AUTO_INCREMENT PRIMARY KEY, Nome VARCHAR(60), "
+                    + "Raca VARCHAR(60), Sexo VARCHAR(1), Filiacao VARCHAR(120), EstadoReprodutivo VARCHAR(30), "
+                    + "Alergias VARCHAR(255), Cores VARCHAR(60), CaracteristicasDistintivas VARCHAR(255), "
+                    + "NumeroTransponder VARCHAR(30), Fotografia BLOB, "
+                    + "Cliente_NIF VARCHAR(9), Catalogo_NomeComum VARCHAR(60), DataNascimento DATE, "
+                    + "PesoAtual DECIMAL(6,2))");
+            st.execute("CREATE TABLE Agendamento (IDAgendamento INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "DataHoraInicio TIMESTAMP, DataHoraFim TIMESTAMP, Motivo VARCHAR(255), "
+                    + "Status VARCHAR(20) DEFAULT 'Pendente', Custo DECIMAL(10,2), Cliente_NIF VARCHAR(9), "
+                    + "Animal_IDAnimal INT, IDHorario INT, Clinica_IDClinica INT, TipoServico_IDServico INT)");
+            st.execute("CREATE INDEX IdxAgendamentoAnimal ON Agendamento (Animal_IDAnimal, DataHoraInicio)");
+            st.execute("CREATE INDEX IdxAgendamentoServico ON Agendamento "
+                    + "(Clinica_IDClinica, TipoServico_IDServico, DataHoraInicio)");
+            st.execute("CREATE TABLE PrestacaoServico (IDPrestacao INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "Animal_IDAnimal INT, DataHora TIMESTAMP, TipoDiscriminador VARCHAR(30), "
+                    + "TipoServico_IDServico INT, Detalhes VARCHAR(255))");
+            st.execute("CREATE INDEX IdxPrestacaoAnimal ON PrestacaoServico (Animal_IDAnimal, DataHora)");
+            st.execute("CREATE VIEW HistoricoClinico AS SELECT ps.Animal_IDAnimal AS IDAnimal, "
+                    + "ps.TipoDiscriminador AS Tipo, ps.DataHora, ts.Nome AS TipoGenerico, ps.Detalhes "
+                    + "FROM PrestacaoServico ps JOIN TipoServico ts ON ps.TipoServico_IDServico = ts.IDServico");
+            // Tabela alvo das importações: mesma forma que Agendamento, com chave explícita
+            st.execute("CREATE TABLE Importacao (IDAgendamento INT PRIMARY KEY, DataHoraInicio TIMESTAMP, "
+                    + "DataHoraFim TIMESTAMP, Motivo VARCHAR(255), Status VARCHAR(20), Custo DECIMAL(10,2), "
+                    + "Cliente_NIF VARCHAR(9), Animal_IDAnimal INT, IDHorario INT, Clinica_IDClinica INT, "
+                    + "TipoServico_IDServico INT)");
+        }
+    }
+
+    private void semear(Connection con) throws SQLException {
+        Random rnd = new Random(42);
+        try (Statement st = con.createStatement()) {
+            for (int i = 1; i <= SERVICOS; i++)
+                st.addBatch("INSERT INTO TipoServico VALUES (" + i + ", '" + TIPOS[(i - 1) % TIPOS.length] + " " + i
+                        + "')");
+            for (int i = 1; i <= CLINICAS; i++)
+                st.addBatch("INSERT INTO Clinica VALUES (" + i + ", 'Clínica " + i + "', 'Lisboa')");
+            for (int i = 0; i < ESPECIES.length; i++)
+                st.addBatch("INSERT INTO Catalogo VALUES ('" + ESPECIES[i] + "', " + (5 + 3 * i) + ", "
+                        + (2 + 5 * i) + ")");
+            st.executeBatch();
+        }
+
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO Cliente VALUES (?, ?, ?)")) {
+            for (int i = 0; i < clientes; i++) {
+                ps.setString(1, nif(i));
+                ps.setString(2, BenchData.NOMES[i % BenchData.NOMES.length]);
+                ps.setString(3, "cliente" + i + "@vetcare.pt");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO Animal (Nome, Cliente_NIF, Catalogo_NomeComum, DataNascimento, PesoAtual) "
+                        + "VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < animais; i++) {
+                ps.setString(1, "Animal " + i);
+                ps.setString(2, nif(rnd.nextInt(clientes)));
+                ps.setString(3, ESPECIES[rnd.nextInt(ESPECIES.length)]);
+                ps.setDate(4, java.sql.Date.valueOf(LocalDate.of(2005, 1, 1).plusDays(rnd.nextInt(7000))));
+                ps.setDouble(5, 1 + rnd.nextInt(4000) / 100.0);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        String ag = "(DataHoraInicio, DataHoraFim, Motivo, Status, Custo, Cliente_NIF, Animal_IDAnimal, IDHorario, "
+                + "Clinica_IDClinica, TipoServico_IDServico) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        inserirAgendamentos(con, "INSERT INTO Agendamento " + ag, agendamentos, rnd, false);
+        inserirAgendamentos(con, "INSERT INTO Importacao (IDAgendamento, " + ag.substring(1).replace("VALUES (",
+                "VALUES (?, "), linhas, rnd, true);
+
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO PrestacaoServico "
+                + "(Animal_IDAnimal, DataHora, TipoDiscriminador, TipoServico_IDServico, Detalhes) "
+                + "VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < historico; i++) {
+                int servico = 1 + rnd.nextInt(SERVICOS);
+                ps.setInt(1, 1 + rnd.nextInt(animais));
+                ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 9, 0).plusHours(rnd.nextInt(40000))));
+                ps.setString(3, TIPOS[(servico - 1) % TIPOS.length]);
+                ps.setInt(4, servico);
+                ps.setString(5, "Registo clínico " + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void inserirAgendamentos(Connection con, String sql, int n, Random rnd, boolean comId)
+            throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < n; i++) {
+                int c = 1;
+                if (comId)
+                    ps.setInt(c++, i + 1);
+                LocalDateTime inicio = LocalDateTime.of(2023, 1, 2, 9, 0).plusDays(rnd.nextInt(900))
+                        .plusMinutes(30L * rnd.nextInt(16));
+                ps.setTimestamp(c++, Timestamp.valueOf(inicio));
+                ps.setTimestamp(c++, Timestamp.valueOf(inicio.plusMinutes(30)));
+                ps.setString(c++, "Motivo " + i);
+                ps.setString(c++, rnd.nextInt(10) == 0 ? "Cancelado" : "Pendente");
+                ps.setBigDecimal(c++, java.math.BigDecimal.valueOf(1000 + rnd.nextInt(9000), 2));
+                ps.setString(c++, nif(rnd.nextInt(clientes)));
+                ps.setInt(c++, 1 + rnd.nextInt(animais));
+                ps.setInt(c++, 1 + rnd.nextInt(50));
+                ps.setInt(c++, 1 + rnd.nextInt(CLINICAS));
+                ps.setInt(c++, 1 + rnd.nextInt(SERVICOS));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Executa um comando SQL de manutenção (ex.: limpar a tabela de importação).
+     *
+     * @param sql Comando a executar.
+     */
+    public void executar(String sql) {
+        try (Connection con = new Configura().getConnection();
+                Statement st = con.createStatement()) {
+            st.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** @return Diretório usado como raiz da aplicação. */
+    public Path getRaiz() {
+        return raiz;
+    }
+
+    /**
+     * Resumo MD5 em hexadecimal, usado pela função MD5 criada no H2.
+     *
+     * @param dados Dados (pode ser nulo).
+     * @return Resumo ou nulo.
+     * @throws java.security.NoSuchAlgorithmException Se o MD5 não existir.
+     */
+    public static String md5(byte[] dados) throws java.security.NoSuchAlgorithmException {
+        return dados == null ? null
+                : java.util.HexFormat.of().formatHex(java.security.MessageDigest.getInstance("MD5").digest(dados));
+    }
+
+    static String nif(int i) {
+        return String.valueOf(200000000 + i);
+    }
+}
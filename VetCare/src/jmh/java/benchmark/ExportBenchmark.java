@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.DataTransfer;
+
+/**
+ * Geradores de exportação do DataTransfer (gerarCsv, gerarJson, gerarXml,
+ * gerarHtml, gerarTxt e gerarSql), medidos sobre a tabela Importacao.
+ * A saída é descartada, pelo que se mede a leitura e a formatação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    static final String TABELA = "Importacao";
+
+    @Param({ "csv", "json", "xml", "html", "txt", "sql" })
+    public String formato;
+
+    @Benchmark
+    public boolean exportar(BenchDatabase db) {
+        return exportar(formato, new PrintWriter(Writer.nullWriter()));
+    }
+
+    /**
+     * Exporta a tabela de referência no formato indicado.
+     *
+     * @param formato Formato de exportação.
+     * @param writer  Destino.
+     * @return Verdadeiro se a exportação for bem-sucedida.
+     */
+    static boolean exportar(String formato, PrintWriter writer) {
+        switch (formato) {
+            case "csv":
+                return DataTransfer.exportToCsv(TABELA, writer);
+            case "json":
+                return DataTransfer.exportToJson(TABELA, writer);
+            case "xml":
+                return DataTransfer.exportToXml(TABELA, writer);
+            case "html":
+                return DataTransfer.exportToHtml(TABELA, writer);
+            case "txt":
+                return DataTransfer.exportToTxt(TABELA, writer);
+            case "sql":
+                return DataTransfer.exportToSql(TABELA, writer);
+            default:
+                throw new IllegalArgumentException("Formato desconhecido: " + formato);
+        }
+    }
+}
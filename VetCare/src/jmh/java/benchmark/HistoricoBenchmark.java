@@ -0,0 +1,36 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import historico.HistoricoDAO;
+
+/**
+ * Leitura do histórico clínico de um animal através da vista HistoricoClinico.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoricoBenchmark {
+
+    private int i;
+
+    @Benchmark
+    public List<Map<String, Object>> getHistoryByAnimal(BenchDatabase db) {
+        return HistoricoDAO.getHistoryByAnimal(1 + (i++ & 0x7fffffff) % db.animais);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.DataTransfer;
+
+/**
+ * Caminhos de importação do DataTransfer. O conteúdo a importar é gerado uma
+ * vez pela exportação da tabela Importacao, que é esvaziada antes de cada
+ * invocação para que todas as linhas sejam efetivamente inseridas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param({ "csv", "json", "xml", "sql" })
+    public String formato;
+
+    private byte[] conteudo;
+
+    @Setup(Level.Trial)
+    public void gerar(BenchDatabase db) {
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            if (!ExportBenchmark.exportar(formato, pw))
+                throw new IllegalStateException("Falha ao gerar o conteúdo " + formato);
+        }
+        conteudo = sw.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void limpar(BenchDatabase db) {
+        db.executar("DELETE FROM " + ExportBenchmark.TABELA);
+    }
+
+    @Benchmark
+    public boolean importar() {
+        InputStream in = new ByteArrayInputStream(conteudo);
+        switch (formato) {
+            case "csv":
+                return DataTransfer.importFromCsv(ExportBenchmark.TABELA, in);
+            case "json":
+                return DataTransfer.importFromJson(ExportBenchmark.TABELA, in);
+            case "xml":
+                return DataTransfer.importFromXml(ExportBenchmark.TABELA, in);
+            case "sql":
+                return DataTransfer.importFromSql(ExportBenchmark.TABELA, in);
+            default:
+                throw new IllegalArgumentException("Formato desconhecido: " + formato);
+        }
+    }
+}
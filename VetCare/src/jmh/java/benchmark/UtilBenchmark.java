@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.Calendario;
+import util.IdadeCalculator;
+import util.Name;
+import util.SqlMetrics;
+
+/**
+ * Caminhos quentes dos utilitários que não acedem à base de dados.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    private int i;
+    private LocalDate[] datas;
+    private Date[] nascimentos;
+    private String[] comandos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Um ano inteiro, para cobrir dias úteis, feriados fixos, móveis e municipais
+        datas = new LocalDate[366];
+        for (int d = 0; d < datas.length; d++)
+            datas[d] = LocalDate.of(2024, 1, 1).plusDays(d);
+        nascimentos = new Date[64];
+        for (int d = 0; d < nascimentos.length; d++)
+            nascimentos[d] = java.sql.Date.valueOf(LocalDate.of(2008, 3, 7).plusDays(97L * d));
+        // Comandos gerados para lotes de tamanhos diferentes devem ter o mesmo modelo
+        comandos = new String[] { lote("SELECT IDAgendamento FROM Agendamento WHERE IDAgendamento IN (", "?", 1, ")"),
+                lote("SELECT IDAgendamento FROM Agendamento WHERE IDAgendamento IN (", "?", 50, ")"),
+                lote("INSERT INTO Agendamento (DataHoraInicio, Motivo) VALUES ", "(?, ?)", 1, ""),
+                lote("INSERT INTO Agendamento (DataHoraInicio, Motivo) VALUES ", "(?, ?)", 200, "") };
+        for (int k = 0; k < comandos.length; k += 2)
+            if (!SqlMetrics.template(comandos[k]).equals(SqlMetrics.template(comandos[k + 1])))
+                throw new IllegalStateException("Modelos diferentes para o mesmo comando: " + comandos[k]);
+    }
+
+    private static String lote(String inicio, String elemento, int n, String fim) {
+        StringBuilder sb = new StringBuilder(inicio);
+        for (int k = 0; k < n; k++)
+            sb.append(k == 0 ? "" : ", ").append(elemento);
+        return sb.append(fim).toString();
+    }
+
+    private int next() {
+        return i++ & 0x7fffffff;
+    }
+
+    @Benchmark
+    public String nameNormalize() {
+        return Name.normalize(BenchData.NOMES[next() % BenchData.NOMES.length]);
+    }
+
+    @Benchmark
+    public String nameGetGender() {
+        return Name.getGender(BenchData.NOMES[next() % BenchData.NOMES.length]);
+    }
+
+    @Benchmark
+    public String sqlTemplate() {
+        return SqlMetrics.template(comandos[next() % comandos.length]);
+    }
+
+    @Benchmark
+    public String calendarioDescricaoCompleta() {
+        return Calendario.getDescricaoCompleta(datas[next() % datas.length]);
+    }
+
+    @Benchmark
+    public String idadeFormatada() {
+        return IdadeCalculator.getIdadeFormatada(nascimentos[next() % nascimentos.length]);
+    }
+
+    @Benchmark
+    public String idadeDetalhada() {
+        return IdadeCalculator.getIdadeDetalhada(nascimentos[next() % nascimentos.length]);
+    }
+
+    @Benchmark
+    public String escalaoEtario() {
+        return IdadeCalculator.getEscalaoEtario(nascimentos[next() % nascimentos.length], 12);
+    }
+}
@@ -0,0 +1,215 @@
+package agendamento;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import clinica.Clinica;
+import clinica.ClinicaDAO;
+import clinica.TipoServico;
+import util.Configura;
+
+/**
+ * Publica a agenda de um veterinário ou de uma clínica em formato iCalendar
+ * (RFC 5545), para subscrição a partir de aplicações de calendário.
+ * Os agendamentos são escritos na resposta à medida que são lidos da base de
+ * dados, sem carregar o histórico em memória. Suporta pedidos condicionais
+ * ({@code If-None-Match}, com um ETag calculado pela base de dados),
+ * respondendo 304 sem ler os agendamentos quando nada mudou desde a última
+ * consulta. Se a leitura falhar a meio, a resposta é interrompida sem o fim
+ * do calendário, para que o cliente não guarde uma agenda incompleta.
+ * Parâmetros: {@code vet} (licença) e/ou {@code clinica}, e opcionalmente
+ * {@code de}, {@code ate} e {@code status}.
+ */
+@WebServlet("/agenda.ics")
+public class AgendaServlet extends HttpServlet {
+    /** Identificador de versão para serialização. */
+    private static final long serialVersionUID = 1L;
+    /** Dias anteriores a hoje incluídos por omissão. */
+    private static final int DIAS_ANTES = 30;
+    /** Dias posteriores a hoje incluídos por omissão. */
+    private static final int DIAS_DEPOIS = 365;
+    /** Intervalo máximo (dias) que pode ser pedido. */
+    private static final int MAX_DIAS = 3 * 366;
+    /** Duração por omissão (min) de um agendamento sem fim definido. */
+    private static final int SLOT_MIN = 30;
+    /** Formato das datas em UTC. */
+    private static final DateTimeFormatter UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    /**
+     * Devolve o calendário, ou 304 se o cliente já tiver a versão atual.
+     *
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     * @throws ServletException Em caso de erro no processamento do servlet.
+     * @throws IOException      Em caso de erro de entrada/saída.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        FiltroAgendamento f = new FiltroAgendamento(request);
+        f.setCursor(null);
+        if (f.getVeterinario() == null && f.getClinicaId() == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Indique o veterinário (vet) ou a clínica (clinica)");
+            return;
+        }
+        LocalDate hoje = LocalDate.now();
+        if (f.getDe() == null)
+            f.setDe(hoje.minusDays(DIAS_ANTES));
+        if (f.getAte() == null)
+            f.setAte(hoje.plusDays(DIAS_DEPOIS));
+        if (f.getAte().isAfter(f.getDe().plusDays(MAX_DIAS)))
+            f.setAte(f.getDe().plusDays(MAX_DIAS));
+
+        String versao = AgendamentoDAO.getFingerprint(f);
+        if (versao == null) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        String etag = "W/\"" + Integer.toHexString(f.toQuery().hashCode()) + "-" + versao + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (naoModificado(request, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        Map<Integer, String> servicos = new HashMap<>();
+        for (TipoServico t : AgendamentoDAO.getTiposServico())
+            servicos.put(t.getIdServico(), t.getNome());
+        Map<Integer, String> clinicas = new HashMap<>();
+        for (Clinica c : ClinicaDAO.getAll())
+            clinicas.put(c.getIdClinica(), c.getLocalidade());
+        int slot = Math.max(5, Configura.snapshot().getInt("agenda.slotMinutes", SLOT_MIN));
+        String dtstamp = UTC.format(java.time.Instant.now());
+
+        response.setContentType("text/calendar; charset=UTF-8");
+        response.setHeader("Content-Disposition", "inline; filename=\"agenda.ics\"");
+        PrintWriter out = response.getWriter();
+        linha(out, "BEGIN", "VCALENDAR");
+        linha(out, "VERSION", "2.0");
+        linha(out, "PRODID", "-//VetCare//Agenda//PT");
+        linha(out, "CALSCALE", "GREGORIAN");
+        linha(out, "METHOD", "PUBLISH");
+        propriedade(out, "X-WR-CALNAME", "VetCare - " + (f.getVeterinario() != null ? f.getVeterinario()
+                : clinicas.getOrDefault(f.getClinicaId(), "Clínica " + f.getClinicaId())));
+
+        int n = AgendamentoDAO.stream(f, a -> {
+            Timestamp fim = a.getDataHoraFim() != null ? a.getDataHoraFim()
+                    : new Timestamp(a.getDataHoraInicio().getTime() + slot * 60_000L);
+            linha(out, "BEGIN", "VEVENT");
+            linha(out, "UID", "agendamento-" + a.getIdAgendamento() + "@vetcare");
+            linha(out, "DTSTAMP", dtstamp);
+            linha(out, "DTSTART", UTC.format(a.getDataHoraInicio().toInstant()));
+            linha(out, "DTEND", UTC.format(fim.toInstant()));
+            propriedade(out, "SUMMARY", servicos.getOrDefault(a.getTipoServicoId(), "Agendamento")
+                    + (a.getAnimalId() != null ? " (animal " + a.getAnimalId() + ")" : ""));
+            if (a.getMotivo() != null && !a.getMotivo().isEmpty())
+                propriedade(out, "DESCRIPTION", a.getMotivo());
+            if (clinicas.containsKey(a.getClinicaId()))
+                propriedade(out, "LOCATION", clinicas.get(a.getClinicaId()));
+            linha(out, "STATUS", estado(a.getStatus()));
+            if (a.getVersao() != null)
+                linha(out, "SEQUENCE", String.valueOf(a.getVersao()));
+            linha(out, "END", "VEVENT");
+            // Interrompe a leitura se o cliente tiver fechado a ligação
+            return !out.checkError();
+        });
+        if (n < 0) {
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            // Já enviada em parte: sem o fim do calendário e com a ligação interrompida
+            throw new ServletException("Leitura da agenda interrompida");
+        }
+        linha(out, "END", "VCALENDAR");
+    }
+
+    /**
+     * Avalia o cabeçalho {@code If-None-Match}. Não se usa
+     * {@code If-Modified-Since}: a data da última alteração só é conhecida pela
+     * instância que a fez.
+     */
+    private static boolean naoModificado(HttpServletRequest request, String etag) {
+        String inm = request.getHeader("If-None-Match");
+        if (inm == null)
+            return false;
+        String forte = etag.substring(2);
+        for (String t : inm.split(",")) {
+            t = t.trim();
+            if (t.equals("*") || t.equals(etag) || t.equals(forte) || t.equals("W/" + forte))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Converte o estado do agendamento no estado do evento.
+     */
+    private static String estado(String status) {
+        if ("Confirmado".equals(status))
+            return "CONFIRMED";
+        if ("Cancelado".equals(status) || "Rejeitado".equals(status))
+            return "CANCELLED";
+        return "TENTATIVE";
+    }
+
+    /**
+     * Escreve uma propriedade de texto, escapando os caracteres reservados.
+     */
+    private static void propriedade(PrintWriter out, String nome, String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 8);
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '\\': case ';': case ',':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        linha(out, nome, sb.toString());
+    }
+
+    /**
+     * Escreve uma linha terminada em CRLF, dobrando-a a cada 75 octetos como
+     * exige o formato.
+     */
+    private static void linha(PrintWriter out, String nome, String valor) {
+        String s = nome + ":" + valor;
+        int octetos = 0, inicio = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLowSurrogate(c))
+                continue;
+            int n = Character.isHighSurrogate(c) ? 4 : c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if (octetos + n > 75) {
+                out.write(s, inicio, i - inicio);
+                out.write("\r\n ");
+                inicio = i;
+                octetos = 1;
+            }
+            octetos += n;
+        }
+        out.write(s, inicio, s.length() - inicio);
+        out.write("\r\n");
+    }
+}
@@ -34,6 +34,8 @@ public class Agendamento {
     private Integer clinicaId;
     /** Identificador do tipo de serviço a prestar. */
     private Integer tipoServicoId;
+    /** Versão do registo, incrementada a cada alteração de estado. */
+    private Integer versao;
 
     /**
      * Construtor por omissão.
@@ -61,6 +63,8 @@ public class Agendamento {
         this.horarioId = rs.getInt("IDHorario");
         this.clinicaId = rs.getInt("Clinica_IDClinica");
         this.tipoServicoId = rs.getInt("TipoServico_IDServico");
+        if (AgendamentoDAO.isVersioned())
+            this.versao = rs.getInt("Versao");
     }
 
     /**
@@ -180,4 +184,14 @@ public class Agendamento {
     public void setTipoServicoId(Integer tipoServicoId) {
         this.tipoServicoId = tipoServicoId;
     }
+
+    /** @return Versão do registo (nula se desconhecida). */
+    public Integer getVersao() {
+        return versao;
+    }
+
+    /** @param versao Define a versão do registo. */
+    public void setVersao(Integer versao) {
+        this.versao = versao;
+    }
 }
@@ -4,11 +4,17 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import util.Configura;
+import util.Feriados;
+import util.Log;
+import util.ReferenceCache;
+import util.Regiao;
+import manager.OcupacaoDAO;
+import manager.ResumoDAO;
 import clinica.TipoServico;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Map;
 import java.util.HashMap;
@@ -20,6 +26,37 @@ import java.util.HashMap;
  */
 public class AgendamentoDAO {
 
+    /** Resultado: o agendamento não existe. */
+    public static final int NAO_EXISTE = -5;
+    /** Resultado: o agendamento foi alterado por outro utilizador. */
+    public static final int CONFLITO_VERSAO = -6;
+    /** Resultado: a mudança de estado não é permitida. */
+    public static final int TRANSICAO_INVALIDA = -7;
+    /** Resultado: o agendamento já foi indicado antes no mesmo pedido. */
+    public static final int REPETIDO = -8;
+
+    /** Número máximo de registos por consulta ou lote de atualização. */
+    private static final int MAX_LOTE = 500;
+
+    /** Mudanças de estado permitidas, por estado de origem. */
+    private static final Map<String, java.util.Set<String>> TRANSICOES = Map.of(
+            "Pendente", java.util.Set.of("Confirmado", "Cancelado", "Rejeitado"),
+            "Agendado", java.util.Set.of("Confirmado", "Cancelado", "Rejeitado"),
+            "Confirmado", java.util.Set.of("Cancelado", "Rejeitado"));
+
+    /** Indica se a tabela Agendamento tem a coluna Versao (ver {@link #ensureSchema()}). */
+    private static volatile boolean versionado = false;
+
+    /** Horários das clínicas, partilhados pelos formulários. */
+    private static final ReferenceCache<clinica.Horario> HORARIOS = new ReferenceCache<>("horarios",
+            AgendamentoDAO::lerHorarios);
+    /** Tipos de serviço, partilhados pelos formulários. */
+    private static final ReferenceCache<TipoServico> TIPOS = new ReferenceCache<>("tiposServico",
+            AgendamentoDAO::lerTiposServico);
+
+    /** Instante (ms) da última alteração feita pela aplicação a agendamentos. */
+    private static volatile long ultimaAlteracao = System.currentTimeMillis();
+
     /**
      * Recupera todos os agendamentos registados.
      * 
@@ -28,26 +65,182 @@ public class AgendamentoDAO {
     public static List<Agendamento> getAll() {
         List<Agendamento> list = new ArrayList<>();
         String sql = "SELECT * FROM Agendamento ORDER BY DataHoraInicio DESC";
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next())
                 list.add(new Agendamento(rs));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar agendamentos: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao listar agendamentos", e);
         }
         return list;
     }
 
+    /**
+     * Recupera uma página de agendamentos, com paginação por chave
+     * (DataHoraInicio, IDAgendamento). Sem veterinário, a lista é ordenada do
+     * mais recente para o mais antigo; com veterinário, cronologicamente (tal
+     * como {@link #getByVeterinario(String)}).
+     * 
+     * @param f      Filtros e posição (último registo da página anterior).
+     * @param linhas Número de registos por página.
+     * @return Até {@code linhas + 1} agendamentos; a existência do registo
+     *         adicional indica que há uma página seguinte.
+     */
+    public static List<Agendamento> getPage(FiltroAgendamento f, int linhas) {
+        List<Agendamento> list = new ArrayList<>();
+        Configura cfg = new Configura();
+        boolean asc = f.getVeterinario() != null;
+        StringBuilder sql = new StringBuilder("SELECT a.* FROM Agendamento a");
+        appendFiltro(sql, f);
+        if (f.getAposData() != null) {
+            String op = asc ? ">" : "<";
+            sql.append(" AND (a.DataHoraInicio ").append(op).append(" ? OR (a.DataHoraInicio = ? AND a.IDAgendamento ")
+                    .append(op).append(" ?))");
+        }
+        String dir = asc ? "ASC" : "DESC";
+        sql.append(" ORDER BY a.DataHoraInicio ").append(dir).append(", a.IDAgendamento ").append(dir);
+
+        try (Connection con = cfg.getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement(cfg.getDialect().limit(sql.toString(), linhas + 1))) {
+            int i = bindFiltro(ps, f);
+            if (f.getAposData() != null) {
+                ps.setTimestamp(i++, f.getAposData());
+                ps.setTimestamp(i++, f.getAposData());
+                ps.setInt(i++, f.getAposId());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(new Agendamento(rs));
+            }
+        } catch (SQLException e) {
+            Log.error(AgendamentoDAO.class, "Erro ao listar agendamentos", e);
+        }
+        return list;
+    }
+
+    /**
+     * Percorre os agendamentos que satisfazem os filtros, por ordem
+     * cronológica, entregando cada um ao destino à medida que é lido. A
+     * consulta usa um cursor só de leitura e de sentido único, pelo que a
+     * memória usada não depende do número de registos.
+     * 
+     * @param f       Filtros (veterinário, clínica, estado e intervalo de datas;
+     *                a posição é ignorada).
+     * @param destino Recebe cada agendamento; devolve falso para interromper a
+     *                leitura (ex.: o cliente fechou a ligação).
+     * @return Número de agendamentos entregues ou -1 em caso de erro.
+     */
+    public static int stream(FiltroAgendamento f, java.util.function.Predicate<Agendamento> destino) {
+        Configura cfg = new Configura();
+        StringBuilder sql = new StringBuilder("SELECT a.* FROM Agendamento a");
+        appendFiltro(sql, f);
+        sql.append(" ORDER BY a.DataHoraInicio, a.IDAgendamento");
+        int n = 0;
+        try (Connection con = cfg.getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            try {
+                ps.setFetchSize(cfg.getDialect().streamingFetchSize());
+            } catch (SQLException e) {
+                // Controlador sem leitura progressiva: usa o tamanho por omissão
+            }
+            bindFiltro(ps, f);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    n++;
+                    if (!destino.test(new Agendamento(rs)))
+                        break;
+                }
+            }
+        } catch (SQLException e) {
+            Log.error(AgendamentoDAO.class, "Erro ao percorrer agendamentos", e);
+            return -1;
+        }
+        return n;
+    }
+
+    /**
+     * Identificador do estado atual dos agendamentos que satisfazem os filtros,
+     * obtido com uma única consulta agregada. Muda sempre que um agendamento é
+     * criado, removido ou (com a coluna de versão) alterado; sem a coluna de
+     * versão inclui também o instante da última alteração feita pela aplicação.
+     * 
+     * @param f Filtros (a posição é ignorada).
+     * @return Identificador ou nulo em caso de erro.
+     */
+    public static String getFingerprint(FiltroAgendamento f) {
+        Configura cfg = new Configura();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*), MAX(a.IDAgendamento)")
+                .append(versionado ? ", SUM(a.Versao)" : "").append(" FROM Agendamento a");
+        appendFiltro(sql, f);
+        try (Connection con = cfg.getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement(sql.toString())) {
+            bindFiltro(ps, f);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1) + "-" + rs.getLong(2) + "-"
+                        + (versionado ? String.valueOf(rs.getLong(3)) : "t" + ultimaAlteracao);
+            }
+        } catch (SQLException e) {
+            Log.error(AgendamentoDAO.class, "Erro ao verificar alterações de agendamentos", e);
+            return null;
+        }
+    }
+
+    /**
+     * Acrescenta as junções e condições dos filtros (exceto a posição) a uma
+     * consulta sobre {@code Agendamento a}.
+     */
+    private static void appendFiltro(StringBuilder sql, FiltroAgendamento f) {
+        if (f.getVeterinario() != null)
+            sql.append(" JOIN Escalonamento e ON a.IDHorario = e.IDHorario AND a.TipoServico_IDServico = e.IDServico");
+        sql.append(" WHERE 1 = 1");
+        if (f.getVeterinario() != null)
+            sql.append(" AND e.NLicenca = ?");
+        if (f.getClinicaId() != null)
+            sql.append(" AND a.Clinica_IDClinica = ?");
+        if (f.getStatus() != null)
+            sql.append(" AND a.Status = ?");
+        if (f.getDe() != null)
+            sql.append(" AND a.DataHoraInicio >= ?");
+        if (f.getAte() != null)
+            sql.append(" AND a.DataHoraInicio < ?");
+    }
+
+    /**
+     * Define os parâmetros acrescentados por {@link #appendFiltro}.
+     * 
+     * @return Índice do parâmetro seguinte.
+     */
+    private static int bindFiltro(PreparedStatement ps, FiltroAgendamento f) throws SQLException {
+        int i = 1;
+        if (f.getVeterinario() != null)
+            ps.setString(i++, f.getVeterinario());
+        if (f.getClinicaId() != null)
+            ps.setInt(i++, f.getClinicaId());
+        if (f.getStatus() != null)
+            ps.setString(i++, f.getStatus());
+        if (f.getDe() != null)
+            ps.setTimestamp(i++, java.sql.Timestamp.valueOf(f.getDe().atStartOfDay()));
+        if (f.getAte() != null)
+            ps.setTimestamp(i++, java.sql.Timestamp.valueOf(f.getAte().plusDays(1).atStartOfDay()));
+        return i;
+    }
+
     /**
      * Recupera todos os horários configurados no sistema.
      * 
-     * @return Lista de horários disponíveis.
+     * @return Lista imutável de horários disponíveis.
      */
     public static List<clinica.Horario> getAllHorarios() {
+        return HORARIOS.get();
+    }
+
+    private static List<clinica.Horario> lerHorarios() {
         List<clinica.Horario> list = new ArrayList<>();
         String sql = "SELECT h.*, c.Localidade FROM Horario h JOIN Clinica c ON h.Clinica_IDClinica = c.IDClinica ORDER BY c.Localidade, h.DiaSemana, h.HoraInicio";
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -56,7 +249,7 @@ public class AgendamentoDAO {
                 list.add(h);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar horarios: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao listar horarios", e);
         }
         return list;
     }
@@ -65,124 +258,254 @@ public class AgendamentoDAO {
      * Armazena um novo agendamento, validando restrições de calendário.
      * 
      * @param a Objeto contendo os dados do agendamento.
-     * @return Número de registos afetados ou -2 se a data for inválida.
+     * @return Número de registos afetados, -2 se a data for inválida, -3 se o
+     *         animal já tiver agendamento no intervalo, -4 se o serviço já
+     *         estiver ocupado na clínica ou -1 em caso de erro.
+     * @see #saveAll(List)
      */
     public static int save(Agendamento a) {
-        if (isWeekendOrHoliday(a.getDataHoraInicio())) {
-            System.err.println("Erro: Data de agendamento coincide com período de encerramento.");
-            return -2;
-        }
-
-        // Validação de Sobreposição (Overlap)
-        // Assume duração padrão de 30 minutos se a DataHoraFim não estiver definida (o
-        // que é comum antes de gravar)
-        long durationMs = 30 * 60 * 1000;
-        java.sql.Timestamp startNew = a.getDataHoraInicio();
-        java.sql.Timestamp endNew = (a.getDataHoraFim() != null) ? a.getDataHoraFim()
-                : new java.sql.Timestamp(startNew.getTime() + durationMs);
+        return saveAll(List.of(a))[0];
+    }
 
-        if (checkAnimalOverlap(a.getAnimalId(), startNew, endNew)) {
-            return -3; // Animal overlap
-        }
+    /**
+     * Armazena um conjunto de agendamentos (marcações recorrentes ou de vários
+     * animais) numa única transação.
+     * Todas as ocorrências são validadas de uma só vez: o calendário em
+     * memória, as sobreposições com agendamentos existentes numa única
+     * consulta e as sobreposições entre as próprias ocorrências. As válidas são
+     * inseridas num único lote; as restantes são devolvidas com o motivo.
+     * As linhas das clínicas e dos animais envolvidos são bloqueadas para
+     * escrita (sempre por esta ordem e por identificador crescente), pelo que
+     * marcações concorrentes para a mesma clínica ou para o mesmo animal são
+     * serializadas e a segunda já vê a primeira.
+     * 
+     * @param lista Agendamentos a gravar.
+     * @return Resultado de cada ocorrência, pela ordem recebida: 1 se foi
+     *         gravada, -2 se a data for inválida, -3 se o animal já estiver
+     *         ocupado, -4 se o serviço já estiver ocupado ou -1 em caso de erro.
+     */
+    public static int[] saveAll(List<Agendamento> lista) {
+        int[] res = new int[lista.size()];
+        java.sql.Timestamp[] fim = new java.sql.Timestamp[lista.size()];
+        List<Integer> validas = new ArrayList<>();
 
-        if (checkServiceOverlap(a.getTipoServicoId(), a.getClinicaId(), startNew, endNew)) {
-            return -4; // Service overlap
+        for (int k = 0; k < lista.size(); k++) {
+            Agendamento a = lista.get(k);
+            if (isWeekendOrHoliday(a.getDataHoraInicio(), a.getClinicaId())) {
+                Log.error(AgendamentoDAO.class, "Data de agendamento coincide com período de encerramento.");
+                res[k] = -2;
+                continue;
+            }
+            // Assume duração padrão de 30 minutos se a DataHoraFim não estiver definida (o
+            // que é comum antes de gravar)
+            long durationMs = 30 * 60 * 1000;
+            fim[k] = (a.getDataHoraFim() != null) ? a.getDataHoraFim()
+                    : new java.sql.Timestamp(a.getDataHoraInicio().getTime() + durationMs);
+            validas.add(k);
         }
+        if (validas.isEmpty())
+            return res;
 
         String sql = "INSERT INTO Agendamento (DataHoraInicio, Motivo, Cliente_NIF, Animal_IDAnimal, IDHorario, Clinica_IDClinica, TipoServico_IDServico) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setTimestamp(1, a.getDataHoraInicio());
-            ps.setString(2, a.getMotivo());
-            ps.setString(3, a.getClienteNif());
+        Configura cfg = new Configura();
+        Connection con = null;
+        List<Integer> gravadas = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        try {
+            con = cfg.getConnection(false);
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+            java.util.TreeSet<Integer> clinicas = new java.util.TreeSet<>();
+            java.util.TreeSet<Integer> animais = new java.util.TreeSet<>();
+            for (int k : validas) {
+                clinicas.add(lista.get(k).getClinicaId());
+                if (lista.get(k).getAnimalId() != null)
+                    animais.add(lista.get(k).getAnimalId());
+            }
+            for (int id : clinicas)
+                lock(con, cfg, "Clinica", "IDClinica", id);
+            for (int id : animais)
+                lock(con, cfg, "Animal", "IDAnimal", id);
 
-            if (a.getAnimalId() != null)
-                ps.setInt(4, a.getAnimalId());
-            else
-                ps.setNull(4, java.sql.Types.INTEGER);
+            int[] conflitos = checkOverlap(con, lista, fim, validas);
+            for (int k : validas) {
+                int conflito = conflitos[k] != 0 ? conflitos[k] : checkOverlap(lista, fim, gravadas, k);
+                if (conflito != 0)
+                    res[k] = conflito;
+                else
+                    gravadas.add(k);
+            }
+
+            if (!gravadas.isEmpty()) {
+                try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    for (int k : gravadas) {
+                        Agendamento a = lista.get(k);
+                        ps.setTimestamp(1, a.getDataHoraInicio());
+                        ps.setString(2, a.getMotivo());
+                        ps.setString(3, a.getClienteNif());
 
-            ps.setInt(5, a.getHorarioId());
-            ps.setInt(6, a.getClinicaId());
-            ps.setInt(7, a.getTipoServicoId());
+                        if (a.getAnimalId() != null)
+                            ps.setInt(4, a.getAnimalId());
+                        else
+                            ps.setNull(4, java.sql.Types.INTEGER);
 
-            return ps.executeUpdate();
+                        ps.setInt(5, a.getHorarioId());
+                        ps.setInt(6, a.getClinicaId());
+                        ps.setInt(7, a.getTipoServicoId());
+                        ps.addBatch();
+                    }
+                    int[] n = ps.executeBatch();
+                    for (int i = 0; i < n.length; i++)
+                        res[gravadas.get(i)] = n[i] == Statement.SUCCESS_NO_INFO ? 1 : n[i];
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        while (rs.next())
+                            ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            con.commit();
+            ultimaAlteracao = System.currentTimeMillis();
         } catch (SQLException e) {
-            System.err.println("Erro ao criar agendamento: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao criar agendamento", e);
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (SQLException ex) {
+                Log.error(AgendamentoDAO.class, "Erro ao fazer rollback", ex);
+            }
+            for (int k : validas)
+                res[k] = -1;
+            return res;
+        } finally {
+            Configura.close(con);
+        }
+
+        java.util.Set<String> dias = new java.util.HashSet<>();
+        for (int k : gravadas) {
+            Agendamento a = lista.get(k);
+            java.time.LocalDate dia = a.getDataHoraInicio().toLocalDateTime().toLocalDate();
+            if (dias.add(dia + "/" + a.getTipoServicoId())) {
+                ResumoDAO.refreshAgenda(dia, a.getTipoServicoId());
+                OcupacaoDAO.invalidate(dia);
+            }
+        }
+        if (ids.size() == gravadas.size()) {
+            for (int i = 0; i < ids.size(); i++) {
+                Agendamento a = lista.get(gravadas.get(i));
+                Disponibilidade.add(ids.get(i), a.getDataHoraInicio(), fim[gravadas.get(i)], a.getAnimalId(),
+                        a.getClinicaId(), a.getTipoServicoId());
+                Alteracoes.criado(ids.get(i), a);
+            }
+        } else {
+            // O controlador não devolveu todas as chaves do lote
+            Disponibilidade.invalidate();
+            Alteracoes.recarregar();
+        }
+        return res;
+    }
+
+    /**
+     * Bloqueia uma linha para escrita até ao fim da transação.
+     */
+    private static void lock(Connection con, Configura cfg, String tabela, String chave, int id)
+            throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                cfg.getDialect().selectForUpdate(tabela, chave, chave + " = ?"))) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+            }
         }
-        return -1;
     }
 
     /**
-     * Verifica se existe algum agendamento conflituoso.
+     * Verifica, numa única consulta, se as ocorrências indicadas colidem com
+     * agendamentos existentes.
      * Regras de Colisão:
      * 1. O mesmo Animal não pode estar em dois sítios ao mesmo tempo.
      * 2. O mesmo Serviço (na mesma Clínica) não pode ter sobreposição (Capacidade =
      * 1).
      * 
-     * @param animalId      Identificador do animal.
-     * @param tipoServicoId Identificador do tipo de serviço.
-     * @param clinicaId     Identificador da clínica.
-     * @param start         Data/Hora de início.
-     * @param end           Data/Hora de fim estimada.
-     * @return true se houver conflito.
+     * @param con     Ligação da transação em curso.
+     * @param lista   Agendamentos a gravar.
+     * @param fim     Data/Hora de fim estimada de cada agendamento.
+     * @param validas Posições a verificar.
+     * @return Para cada posição: 0 se não houver conflito, -3 se o animal
+     *         estiver ocupado ou -4 se o serviço estiver ocupado.
      */
-    /**
-     * Verifica se o Animal já tem agendamento no intervalo.
-     */
-    private static boolean checkAnimalOverlap(Integer animalId, java.sql.Timestamp start, java.sql.Timestamp end) {
-        if (animalId == null)
-            return false;
-        String sql = "SELECT COUNT(*) FROM Agendamento " +
-                "WHERE Animal_IDAnimal = ? " +
-                "AND Status NOT IN ('Cancelado', 'Rejeitado') " +
-                "AND (DataHoraInicio < ? AND DataHoraFim > ?)";
-        try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, animalId);
-            ps.setTimestamp(2, end);
-            ps.setTimestamp(3, start);
+    private static int[] checkOverlap(Connection con, List<Agendamento> lista, java.sql.Timestamp[] fim,
+            List<Integer> validas) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (int k : validas) {
+            if (sql.length() > 0)
+                sql.append(" UNION ALL ");
+            if (lista.get(k).getAnimalId() != null)
+                sql.append("SELECT ").append(k).append(", -3 FROM Agendamento ")
+                        .append("WHERE Animal_IDAnimal = ? ")
+                        .append("AND Status NOT IN ('Cancelado', 'Rejeitado') ")
+                        .append("AND (DataHoraInicio < ? AND DataHoraFim > ?) UNION ALL ");
+            sql.append("SELECT ").append(k).append(", -4 FROM Agendamento ")
+                    .append("WHERE TipoServico_IDServico = ? AND Clinica_IDClinica = ? ")
+                    .append("AND Status NOT IN ('Cancelado', 'Rejeitado') ")
+                    .append("AND (DataHoraInicio < ? AND DataHoraFim > ?)");
+        }
+        int[] res = new int[lista.size()];
+        try (PreparedStatement ps = con.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (int k : validas) {
+                Agendamento a = lista.get(k);
+                if (a.getAnimalId() != null) {
+                    ps.setInt(i++, a.getAnimalId());
+                    ps.setTimestamp(i++, fim[k]);
+                    ps.setTimestamp(i++, a.getDataHoraInicio());
+                }
+                ps.setInt(i++, a.getTipoServicoId());
+                ps.setInt(i++, a.getClinicaId());
+                ps.setTimestamp(i++, fim[k]);
+                ps.setTimestamp(i++, a.getDataHoraInicio());
+            }
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next())
-                    return rs.getInt(1) > 0;
+                while (rs.next()) {
+                    int k = rs.getInt(1);
+                    if (res[k] != -3)
+                        res[k] = rs.getInt(2);
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Erro checkAnimalOverlap: " + e.getMessage());
         }
-        return false;
+        return res;
     }
 
     /**
-     * Verifica se o Serviço já está ocupado nesta clínica no intervalo.
+     * Verifica se uma ocorrência colide com as ocorrências do mesmo lote já
+     * aceites, segundo as mesmas regras da verificação na base de dados.
      */
-    private static boolean checkServiceOverlap(Integer tipoServicoId, Integer clinicaId, java.sql.Timestamp start,
-            java.sql.Timestamp end) {
-        String sql = "SELECT COUNT(*) FROM Agendamento " +
-                "WHERE TipoServico_IDServico = ? AND Clinica_IDClinica = ? " +
-                "AND Status NOT IN ('Cancelado', 'Rejeitado') " +
-                "AND (DataHoraInicio < ? AND DataHoraFim > ?)";
-        try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, tipoServicoId);
-            ps.setInt(2, clinicaId);
-            ps.setTimestamp(3, end);
-            ps.setTimestamp(4, start);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next())
-                    return rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            System.err.println("Erro checkServiceOverlap: " + e.getMessage());
+    private static int checkOverlap(List<Agendamento> lista, java.sql.Timestamp[] fim, List<Integer> aceites,
+            int k) {
+        Agendamento a = lista.get(k);
+        int res = 0;
+        for (int j : aceites) {
+            Agendamento b = lista.get(j);
+            if (!(b.getDataHoraInicio().before(fim[k]) && fim[j].after(a.getDataHoraInicio())))
+                continue;
+            if (a.getAnimalId() != null && a.getAnimalId().equals(b.getAnimalId()))
+                return -3;
+            if (a.getTipoServicoId().equals(b.getTipoServicoId()) && a.getClinicaId().equals(b.getClinicaId()))
+                res = -4;
         }
-        return false;
+        return res;
     }
 
     /**
      * Recupera a lista de tipos de serviço disponíveis.
      * 
-     * @return Lista de serviços.
+     * @return Lista imutável de serviços.
      */
     public static List<TipoServico> getTiposServico() {
+        return TIPOS.get();
+    }
+
+    private static List<TipoServico> lerTiposServico() {
         List<TipoServico> tipos = new ArrayList<>();
         String sql = "SELECT * FROM TipoServico";
         try (Connection con = new Configura().getConnection();
@@ -191,7 +514,7 @@ public class AgendamentoDAO {
             while (rs.next())
                 tipos.add(new TipoServico(rs));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar tipos servico: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao listar tipos servico", e);
         }
         return tipos;
     }
@@ -210,7 +533,7 @@ public class AgendamentoDAO {
                 "WHERE e.NLicenca = ? " +
                 "ORDER BY a.DataHoraInicio ASC";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, nLicenca);
             try (ResultSet rs = ps.executeQuery()) {
@@ -218,29 +541,265 @@ public class AgendamentoDAO {
                     list.add(new Agendamento(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar agendamentos por veterinario: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao listar agendamentos por veterinario", e);
         }
         return list;
     }
 
     /**
-     * Altera o estado de um agendamento.
+     * Altera o estado de um agendamento, se a transição for permitida.
      * 
      * @param id     Identificador do agendamento.
      * @param status Novo estado a aplicar.
-     * @return Número de registos atualizados.
+     * @return Número de registos atualizados, {@link #NAO_EXISTE},
+     *         {@link #TRANSICAO_INVALIDA} ou -1 em caso de erro.
      */
     public static int updateStatus(int id, String status) {
-        String sql = "UPDATE Agendamento SET Status = ? WHERE IDAgendamento = ?";
+        Agendamento a = new Agendamento();
+        a.setIdAgendamento(id);
+        return updateStatusAll(List.of(a), status)[0];
+    }
+
+    /**
+     * Indica se a mudança de estado é permitida. Os estados Cancelado e
+     * Rejeitado são finais.
+     * 
+     * @param atual Estado atual (nulo equivale a Pendente).
+     * @param novo  Estado pretendido.
+     * @return Verdadeiro se a transição for válida.
+     */
+    public static boolean isTransicaoValida(String atual, String novo) {
+        java.util.Set<String> destinos = TRANSICOES.get(atual == null ? "Pendente" : atual);
+        return destinos != null && destinos.contains(novo);
+    }
+
+    /**
+     * Altera o estado de vários agendamentos numa única transação.
+     * Os registos são lidos e bloqueados por ordem de identificador, para que
+     * lotes concorrentes não se bloqueiem mutuamente; cada um é validado
+     * (existência, versão e transição de estado) e os válidos são atualizados
+     * num único lote, incrementando a versão. Quando a versão esperada é
+     * indicada ({@link Agendamento#getVersao()}), um registo alterado entretanto
+     * por outro utilizador não é modificado (concorrência otimista).
+     * 
+     * @param alvos  Agendamentos a alterar (identificador e, opcionalmente,
+     *               versão esperada).
+     * @param status Novo estado.
+     * @return Resultado de cada agendamento, pela ordem recebida: 1 se foi
+     *         alterado, {@link #NAO_EXISTE}, {@link #CONFLITO_VERSAO},
+     *         {@link #TRANSICAO_INVALIDA}, {@link #REPETIDO} ou -1 em caso de
+     *         erro.
+     */
+    public static int[] updateStatusAll(List<Agendamento> alvos, String status) {
+        int[] res = new int[alvos.size()];
+        if (alvos.isEmpty())
+            return res;
+        Configura cfg = new Configura();
+        Connection con = null;
+        Map<Integer, Agendamento> atuais = new HashMap<>();
+        List<Integer> alterar = new ArrayList<>();
+        try {
+            con = cfg.getConnection(false);
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            java.util.TreeSet<Integer> ids = new java.util.TreeSet<>();
+            for (Agendamento a : alvos)
+                ids.add(a.getIdAgendamento());
+            lockAll(con, cfg, new ArrayList<>(ids), atuais);
+
+            java.util.Set<Integer> vistos = new java.util.HashSet<>();
+            for (int k = 0; k < alvos.size(); k++) {
+                Agendamento pedido = alvos.get(k);
+                Agendamento atual = atuais.get(pedido.getIdAgendamento());
+                if (!vistos.add(pedido.getIdAgendamento()))
+                    res[k] = REPETIDO;
+                else if (atual == null)
+                    res[k] = NAO_EXISTE;
+                else if (versionado && pedido.getVersao() != null && !pedido.getVersao().equals(atual.getVersao()))
+                    res[k] = CONFLITO_VERSAO;
+                else if (!isTransicaoValida(atual.getStatus(), status))
+                    res[k] = TRANSICAO_INVALIDA;
+                else
+                    alterar.add(atual.getIdAgendamento());
+            }
+
+            if (!alterar.isEmpty()) {
+                String sql = versionado
+                        ? "UPDATE Agendamento SET Status = ?, Versao = Versao + 1 WHERE IDAgendamento = ? AND Versao = ?"
+                        : "UPDATE Agendamento SET Status = ? WHERE IDAgendamento = ?";
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (int id : alterar) {
+                        ps.setString(1, status);
+                        ps.setInt(2, id);
+                        if (versionado)
+                            ps.setInt(3, atuais.get(id).getVersao());
+                        ps.addBatch();
+                    }
+                    int[] n = ps.executeBatch();
+                    for (int i = 0; i < n.length; i++)
+                        if (n[i] == 0)
+                            alterar.set(i, null);
+                }
+            }
+            con.commit();
+            ultimaAlteracao = System.currentTimeMillis();
+        } catch (SQLException e) {
+            Log.error(AgendamentoDAO.class, "Erro ao atualizar status agendamento", e);
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (SQLException ex) {
+                Log.error(AgendamentoDAO.class, "Erro ao fazer rollback", ex);
+            }
+            java.util.Arrays.fill(res, -1);
+            return res;
+        } finally {
+            Configura.close(con);
+        }
+
+        java.util.Set<String> tutores = new java.util.HashSet<>();
+        java.util.Set<String> dias = new java.util.HashSet<>();
+        for (int k = 0; k < alvos.size(); k++) {
+            if (res[k] != 0)
+                continue;
+            int id = alvos.get(k).getIdAgendamento();
+            if (!alterar.contains(id)) {
+                // Alterado por outra transação entre a leitura e a atualização
+                res[k] = CONFLITO_VERSAO;
+                continue;
+            }
+            res[k] = 1;
+            Agendamento a = atuais.get(id);
+            if (a.getClienteNif() != null && tutores.add(a.getClienteNif()))
+                ResumoDAO.refreshCancelamentos(a.getClienteNif());
+            if (a.getDataHoraInicio() != null) {
+                java.time.LocalDate dia = a.getDataHoraInicio().toLocalDateTime().toLocalDate();
+                if (dias.add(dia + "/" + a.getTipoServicoId()))
+                    ResumoDAO.refreshAgenda(dia, a.getTipoServicoId());
+                OcupacaoDAO.invalidate(dia);
+            }
+            Disponibilidade.statusChanged(id, status);
+            a.setStatus(status);
+            if (versionado)
+                a.setVersao(a.getVersao() + 1);
+            Alteracoes.estadoAlterado(a);
+        }
+        return res;
+    }
+
+    /**
+     * Altera o estado de todos os agendamentos ativos de uma clínica num dia
+     * (ex.: encerramento imprevisto). Os que não admitirem a transição ficam
+     * inalterados.
+     * 
+     * @param clinicaId Identificador da clínica.
+     * @param dia       Dia afetado.
+     * @param status    Novo estado.
+     * @return Identificador e resultado de cada agendamento do dia (ver
+     *         {@link #updateStatusAll(List, String)}).
+     */
+    public static Map<Integer, Integer> updateStatusByDay(int clinicaId, java.time.LocalDate dia, String status) {
+        Map<Integer, Integer> res = new java.util.LinkedHashMap<>();
+        List<Agendamento> alvos = new ArrayList<>();
+        String sql = "SELECT IDAgendamento" + (versionado ? ", Versao" : "") + " FROM Agendamento "
+                + "WHERE Clinica_IDClinica = ? AND DataHoraInicio >= ? AND DataHoraInicio < ? "
+                + "AND (Status IS NULL OR Status NOT IN ('Cancelado', 'Rejeitado')) ORDER BY DataHoraInicio";
         try (Connection con = new Configura().getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, status);
-            ps.setInt(2, id);
-            return ps.executeUpdate();
+            ps.setInt(1, clinicaId);
+            ps.setTimestamp(2, java.sql.Timestamp.valueOf(dia.atStartOfDay()));
+            ps.setTimestamp(3, java.sql.Timestamp.valueOf(dia.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Agendamento a = new Agendamento();
+                    a.setIdAgendamento(rs.getInt(1));
+                    if (versionado)
+                        a.setVersao(rs.getInt(2));
+                    alvos.add(a);
+                }
+            }
         } catch (SQLException e) {
-            System.err.println("Erro ao atualizar status agendamento: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao listar agendamentos do dia", e);
+            return res;
+        }
+        for (int i = 0; i < alvos.size(); i += MAX_LOTE) {
+            List<Agendamento> parte = alvos.subList(i, Math.min(alvos.size(), i + MAX_LOTE));
+            int[] r = updateStatusAll(parte, status);
+            for (int k = 0; k < r.length; k++)
+                res.put(parte.get(k).getIdAgendamento(), r[k]);
         }
-        return -1;
+        return res;
+    }
+
+    /**
+     * Lê e bloqueia para escrita os agendamentos indicados, em consultas de
+     * até {@link #MAX_LOTE} identificadores.
+     */
+    private static void lockAll(Connection con, Configura cfg, List<Integer> ids, Map<Integer, Agendamento> atuais)
+            throws SQLException {
+        String colunas = "IDAgendamento, Status, Cliente_NIF, DataHoraInicio, Clinica_IDClinica, TipoServico_IDServico"
+                + (versionado ? ", Versao" : "");
+        for (int i = 0; i < ids.size(); i += MAX_LOTE) {
+            List<Integer> parte = ids.subList(i, Math.min(ids.size(), i + MAX_LOTE));
+            StringBuilder in = new StringBuilder("IDAgendamento IN (");
+            for (int k = 0; k < parte.size(); k++)
+                in.append(k == 0 ? "?" : ", ?");
+            in.append(')');
+            try (PreparedStatement ps = con.prepareStatement(
+                    cfg.getDialect().selectForUpdate("Agendamento", colunas, in.toString()))) {
+                for (int k = 0; k < parte.size(); k++)
+                    ps.setInt(k + 1, parte.get(k));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Agendamento a = new Agendamento();
+                        a.setIdAgendamento(rs.getInt("IDAgendamento"));
+                        a.setStatus(rs.getString("Status"));
+                        a.setClienteNif(rs.getString("Cliente_NIF"));
+                        a.setDataHoraInicio(rs.getTimestamp("DataHoraInicio"));
+                        a.setClinicaId(rs.getInt("Clinica_IDClinica"));
+                        a.setTipoServicoId(rs.getInt("TipoServico_IDServico"));
+                        if (versionado)
+                            a.setVersao(rs.getInt("Versao"));
+                        atuais.put(a.getIdAgendamento(), a);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Acrescenta a coluna de versão à tabela Agendamento, se ainda não existir.
+     * Sem ela, as alterações de estado continuam a funcionar mas sem deteção de
+     * conflitos.
+     */
+    public static void ensureSchema() {
+        Configura cfg = new Configura();
+        try (Connection con = cfg.getConnection()) {
+            boolean existe = false;
+            java.sql.DatabaseMetaData md = con.getMetaData();
+            for (String t : new String[] { "Agendamento", "AGENDAMENTO", "agendamento" }) {
+                try (ResultSet rs = md.getColumns(con.getCatalog(), null, t, null)) {
+                    while (rs.next())
+                        existe |= "Versao".equalsIgnoreCase(rs.getString("COLUMN_NAME"));
+                }
+            }
+            if (!existe) {
+                try (Statement st = con.createStatement()) {
+                    st.execute(cfg.getDialect().addColumn("Agendamento", "Versao", "INT NOT NULL DEFAULT 0"));
+                }
+                Log.info(AgendamentoDAO.class, "Coluna Versao acrescentada à tabela Agendamento");
+            }
+            versionado = true;
+        } catch (SQLException e) {
+            versionado = false;
+            Log.error(AgendamentoDAO.class, "Impossível acrescentar a coluna Versao; alterações sem controlo de versão", e);
+        }
+    }
+
+    /**
+     * @return Verdadeiro se a tabela Agendamento tiver a coluna de versão.
+     */
+    public static boolean isVersioned() {
+        return versionado;
     }
 
     /**
@@ -259,13 +818,14 @@ public class AgendamentoDAO {
                     return new Agendamento(rs);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao ler agendamento por ID: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao ler agendamento por ID", e);
         }
         return null;
     }
 
     /**
-     * Verifica se uma data corresponde a um fim de semana ou feriado nacional.
+     * Verifica se uma data corresponde a um fim de semana ou feriado nacional
+     * (fixo ou móvel).
      * 
      * @param date Data a ser validada.
      * @return Verdadeiro se a data coincidir com um período de encerramento.
@@ -273,38 +833,27 @@ public class AgendamentoDAO {
     public static boolean isWeekendOrHoliday(Date date) {
         if (date == null)
             return false;
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-
-        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
-        if (dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY)
-            return true;
-
-        int month = cal.get(Calendar.MONTH);
-        int day = cal.get(Calendar.DAY_OF_MONTH);
-
-        if (month == Calendar.JANUARY && day == 1)
-            return true; // Ano Novo
-        if (month == Calendar.APRIL && day == 25)
-            return true; // Dia da Liberdade
-        if (month == Calendar.MAY && day == 1)
-            return true; // Dia do Trabalhador
-        if (month == Calendar.JUNE && day == 10)
-            return true; // Dia de Portugal
-        if (month == Calendar.AUGUST && day == 15)
-            return true; // Assunção de Nossa Senhora
-        if (month == Calendar.OCTOBER && day == 5)
-            return true; // Implantação da República
-        if (month == Calendar.NOVEMBER && day == 1)
-            return true; // Todos os Santos
-        if (month == Calendar.DECEMBER && day == 1)
-            return true; // Restauração da Independência
-        if (month == Calendar.DECEMBER && day == 8)
-            return true; // Imaculada Conceição
-        if (month == Calendar.DECEMBER && day == 25)
-            return true; // Natal
-
-        return false;
+        return Feriados.isEncerrado(toLocalDate(date), (Regiao) null);
+    }
+
+    /**
+     * Verifica se uma clínica está encerrada numa data (fim de semana, feriado
+     * nacional ou feriado municipal da região da clínica).
+     * 
+     * @param date      Data a ser validada.
+     * @param clinicaId Identificador da clínica.
+     * @return Verdadeiro se a data coincidir com um período de encerramento.
+     */
+    public static boolean isWeekendOrHoliday(Date date, int clinicaId) {
+        if (date == null)
+            return false;
+        return Feriados.isEncerrado(toLocalDate(date), clinicaId);
+    }
+
+    private static java.time.LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date)
+            return ((java.sql.Date) date).toLocalDate();
+        return date.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
     }
 
     /**
@@ -315,15 +864,16 @@ public class AgendamentoDAO {
      */
     public static List<Map<String, Object>> getFutureAppointments(int animalId) {
         List<Map<String, Object>> list = new ArrayList<>();
+        Configura cfg = new Configura();
         String sql = "SELECT a.DataHoraInicio, a.Motivo, ts.Nome as Servico " +
                 "FROM Agendamento a " +
                 "JOIN TipoServico ts ON a.TipoServico_IDServico = ts.IDServico " +
                 "WHERE a.Animal_IDAnimal = ? " +
-                "AND a.DataHoraInicio > NOW() " +
+                "AND a.DataHoraInicio > " + cfg.getDialect().now() + " " +
                 "AND a.Status NOT IN ('Cancelado', 'Rejeitado') " +
                 "ORDER BY a.DataHoraInicio ASC";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = cfg.getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, animalId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -336,7 +886,7 @@ public class AgendamentoDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar agendamentos futuros: " + e.getMessage());
+            Log.error(AgendamentoDAO.class, "Erro ao listar agendamentos futuros", e);
         }
         return list;
     }
@@ -5,7 +5,10 @@ import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -15,6 +18,10 @@ import animal.Animal;
 import animal.AnimalDAO;
 import cliente.ClienteDAO;
 import clinica.ClinicaDAO;
+import util.Calendario;
+import util.Feriados;
+import util.Log;
+import util.ParallelQueries;
 
 /**
  * Controlador responsável pela gestão do agendamento de serviços clínicos.
@@ -25,6 +32,14 @@ import clinica.ClinicaDAO;
 public class AgendamentoServlet extends HttpServlet {
     /** Identificador de versão para serialização. */
     private static final long serialVersionUID = 1L;
+    /** Número máximo de repetições numa marcação recorrente. */
+    private static final int MAX_REPETICOES = 52;
+    /** Número máximo de ocorrências gravadas num único pedido. */
+    private static final int MAX_LOTE = 100;
+    /** Registos por página na lista de agendamentos. */
+    private static final int LINHAS_PAGINA = 50;
+    /** Máximo de registos por página que pode ser pedido. */
+    private static final int MAX_LINHAS = 500;
 
     /**
      * Processa os pedidos GET para navegação e operações de agendamento.
@@ -56,43 +71,82 @@ public class AgendamentoServlet extends HttpServlet {
                 request.setAttribute("agendamento", AgendamentoDAO.getById(Integer.parseInt(id)));
             }
             showNewForm(request, response);
+        } else if ("slots".equals(action)) {
+            listSlots(request, response);
         } else {
             listAgendamentos(request, response);
         }
     }
 
     /**
-     * Prepara e exibe a lista de agendamentos.
-     * Permite a filtragem por veterinário quando o respetivo parâmetro é fornecido.
+     * Prepara e exibe uma página da lista de agendamentos.
+     * Permite a filtragem por clínica, estado, intervalo de datas e
+     * veterinário; a página seguinte é pedida com o parâmetro {@code apos}.
      * 
      * @param request  Pedido HTTP.
      * @param response Resposta HTTP.
      */
     private void listAgendamentos(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        String vetLicenca = request.getParameter("vet");
-        List<Agendamento> list;
-        if (vetLicenca != null) {
-            list = AgendamentoDAO.getByVeterinario(vetLicenca);
-        } else {
-            list = AgendamentoDAO.getAll();
+        FiltroAgendamento filtro = new FiltroAgendamento(request);
+        int linhas = Math.max(1, Math.min(parseInt(request.getParameter("linhas"), LINHAS_PAGINA), MAX_LINHAS));
+        ParallelQueries q = new ParallelQueries()
+                .add("listaAgendamentos", () -> AgendamentoDAO.getPage(filtro, linhas), new ArrayList<Agendamento>())
+                .add("listaClinicas", ClinicaDAO::getAll, List.of());
+        q.run().forEach(request::setAttribute);
+
+        @SuppressWarnings("unchecked")
+        List<Agendamento> list = (List<Agendamento>) request.getAttribute("listaAgendamentos");
+        if (list.size() > linhas) {
+            list = list.subList(0, linhas);
+            request.setAttribute("listaAgendamentos", list);
+            request.setAttribute("proximaPagina", FiltroAgendamento.cursorOf(list.get(linhas - 1)));
         }
-        request.setAttribute("listaAgendamentos", list);
+        request.setAttribute("filtro", filtro);
         request.getRequestDispatcher("agendamento/lista.jsp").forward(request, response);
     }
 
+    /**
+     * Devolve em JSON as próximas vagas livres para o serviço, clínica e animal
+     * indicados (parâmetros {@code ClinicaID}, {@code TipoServico},
+     * {@code Animal_IDAnimal}, {@code desde} e {@code n}).
+     * 
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     */
+    private void listSlots(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<LocalDateTime> vagas;
+        try {
+            int clinicaId = Integer.parseInt(request.getParameter("ClinicaID"));
+            int servicoId = Integer.parseInt(request.getParameter("TipoServico"));
+            String animal = request.getParameter("Animal_IDAnimal");
+            String desde = request.getParameter("desde");
+            String n = request.getParameter("n");
+            vagas = Disponibilidade.nextFreeSlots(clinicaId, servicoId,
+                    animal == null || animal.isEmpty() ? null : Integer.valueOf(animal),
+                    desde == null || desde.isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(desde),
+                    n == null || n.isEmpty() ? 5 : Integer.parseInt(n));
+        } catch (NumberFormatException | java.time.format.DateTimeParseException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(Disponibilidade.toJson(vagas));
+    }
+
     /**
      * Apresenta o formulário para criação ou edição de agendamentos.
      * Carrega as informações necessárias para o preenchimento dos seletores de
-     * interface.
+     * interface; clientes e animais são pesquisados pela página à medida que se
+     * escreve ({@code clientes?p=pesquisa} e {@code animais?p=pesquisa}).
      * 
      * @param request  Pedido HTTP.
      * @param response Resposta HTTP.
      */
     private void showNewForm(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        request.setAttribute("listaAnimais", AnimalDAO.getAll());
-        request.setAttribute("listaClientes", ClienteDAO.getAll());
         request.setAttribute("listaTipos", AgendamentoDAO.getTiposServico());
         request.setAttribute("listaClinicas", ClinicaDAO.getAll());
 
@@ -101,8 +155,8 @@ public class AgendamentoServlet extends HttpServlet {
 
         if (idAnimal != null)
             request.setAttribute("selectedAnimalId", Integer.parseInt(idAnimal));
-        if (idCliente != null)
-            request.setAttribute("selectedClienteNif", idCliente);
+        if (idCliente != null && !idCliente.isEmpty())
+            request.setAttribute("selectedCliente", ClienteDAO.getByNif(idCliente));
 
         request.getRequestDispatcher("agendamento/novo.jsp").forward(request, response);
     }
@@ -117,6 +171,11 @@ public class AgendamentoServlet extends HttpServlet {
      */
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
+        if ("estado".equals(request.getParameter("p"))) {
+            updateStatusBulk(request, response);
+            return;
+        }
+
         Agendamento a = new Agendamento();
 
         a.setMotivo(request.getParameter("Motivo"));
@@ -144,11 +203,19 @@ public class AgendamentoServlet extends HttpServlet {
         }
 
         String dataStr = request.getParameter("DataHoraInicio");
+        String[] animais = request.getParameterValues("Animal_IDAnimal");
+        int repeticoes = parseInt(request.getParameter("Repeticoes"), 1);
+        if (dataStr != null && !dataStr.isEmpty() && (repeticoes > 1 || (animais != null && animais.length > 1))) {
+            saveBulk(request, response, a, LocalDateTime.parse(dataStr), animais, repeticoes,
+                    parseInt(request.getParameter("IntervaloDias"), 7));
+            return;
+        }
+
         if (dataStr != null && !dataStr.isEmpty()) {
             LocalDateTime ldt = LocalDateTime.parse(dataStr);
             LocalDate localDate = ldt.toLocalDate();
 
-            if (util.Calendario.fimDeSemana(localDate) || !util.Calendario.getDescricaoCompleta(localDate).isEmpty()) {
+            if (Feriados.isEncerrado(localDate, a.getClinicaId())) {
                 response.sendRedirect("agendamentos?p=new&error=weekend_holiday");
                 return;
             }
@@ -158,7 +225,7 @@ public class AgendamentoServlet extends HttpServlet {
             int derivedHorarioId = deriveHorarioId(ldt, a.getTipoServicoId(), a.getClinicaId());
 
             if (derivedHorarioId == -1) {
-                String dayName = getDayName(ldt.getDayOfWeek());
+                String dayName = Calendario.nomeDia(ldt.getDayOfWeek());
                 String hours = getWorkingHours(a.getClinicaId(), dayName);
                 String msg = "A clínica está fechada neste horário."
                         + (hours.isEmpty() ? "" : " Horário de funcionamento: " + hours);
@@ -184,28 +251,212 @@ public class AgendamentoServlet extends HttpServlet {
     }
 
     /**
-     * Converte o dia da semana (enum) para o nome do dia em formato string.
-     * Utilizado para mapeamento com a base de dados.
+     * Altera o estado de vários agendamentos de uma só vez: os selecionados na
+     * lista (parâmetro {@code sel} com {@code id:versao}) ou, se indicados
+     * {@code clinica} e {@code dia}, todos os ativos dessa clínica nesse dia.
+     * O resultado de cada agendamento fica na sessão ({@code resultadoLote}).
+     * 
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     */
+    private void updateStatusBulk(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String status = request.getParameter("status");
+        if (!"Confirmado".equals(status) && !"Cancelado".equals(status) && !"Rejeitado".equals(status)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Estado inválido");
+            return;
+        }
+
+        Map<Integer, Integer> resultados = new LinkedHashMap<>();
+        int clinicaId = parseInt(request.getParameter("clinica"), -1);
+        String dia = request.getParameter("dia");
+        if (clinicaId > 0 && dia != null && !dia.isEmpty()) {
+            try {
+                resultados = AgendamentoDAO.updateStatusByDay(clinicaId, LocalDate.parse(dia), status);
+            } catch (java.time.format.DateTimeParseException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Data inválida");
+                return;
+            }
+        } else {
+            String[] sel = request.getParameterValues("sel");
+            List<Agendamento> alvos = new ArrayList<>();
+            if (sel != null) {
+                for (String v : sel) {
+                    if (alvos.size() >= MAX_LINHAS)
+                        break;
+                    String[] partes = v.split(":");
+                    int id = parseInt(partes[0], -1);
+                    if (id <= 0)
+                        continue;
+                    Agendamento a = new Agendamento();
+                    a.setIdAgendamento(id);
+                    if (partes.length > 1)
+                        a.setVersao(parseInt(partes[1], 0));
+                    alvos.add(a);
+                }
+            }
+            int[] r = AgendamentoDAO.updateStatusAll(alvos, status);
+            for (int k = 0; k < r.length; k++)
+                resultados.putIfAbsent(alvos.get(k).getIdAgendamento(), r[k]);
+        }
+
+        List<String> resultado = new ArrayList<>();
+        if (resultados.isEmpty())
+            resultado.add("Nenhum agendamento a alterar.");
+        for (Map.Entry<Integer, Integer> e : resultados.entrySet()) {
+            int codigo = e.getValue();
+            String estado;
+            if (codigo > 0)
+                estado = status;
+            else if (codigo == AgendamentoDAO.NAO_EXISTE)
+                estado = "Não existe";
+            else if (codigo == AgendamentoDAO.CONFLITO_VERSAO)
+                estado = "Alterado entretanto por outro utilizador";
+            else if (codigo == AgendamentoDAO.TRANSICAO_INVALIDA)
+                estado = "Mudança de estado não permitida";
+            else if (codigo == AgendamentoDAO.REPETIDO)
+                estado = "Indicado mais de uma vez";
+            else
+                estado = "Erro ao gravar";
+            resultado.add("Agendamento " + e.getKey() + ": " + estado);
+        }
+        request.getSession().setAttribute("resultadoLote", resultado);
+        response.sendRedirect("agendamentos");
+    }
+
+    /**
+     * Grava uma marcação recorrente e/ou para vários animais do mesmo tutor.
+     * As ocorrências repetem-se a cada {@code intervaloDias}; dentro de cada
+     * ocorrência os animais são marcados em vagas consecutivas de 30 minutos.
+     * O resultado de cada ocorrência fica na sessão ({@code resultadoLote}) e é
+     * apresentado na lista de agendamentos.
+     * 
+     * @param request       Pedido HTTP.
+     * @param response      Resposta HTTP.
+     * @param base          Dados comuns (motivo, tutor, serviço e clínica).
+     * @param inicio        Data/hora da primeira ocorrência.
+     * @param animais       Identificadores dos animais (pode ser nulo).
+     * @param repeticoes    Número de repetições.
+     * @param intervaloDias Dias entre repetições.
+     */
+    private void saveBulk(HttpServletRequest request, HttpServletResponse response, Agendamento base,
+            LocalDateTime inicio, String[] animais, int repeticoes, int intervaloDias) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        if (animais != null) {
+            for (String s : animais) {
+                if (s == null || s.isEmpty())
+                    continue;
+                int animalId = Integer.parseInt(s);
+                Animal animal = AnimalDAO.getById(animalId);
+                if (animal != null && !animal.getClienteNif().equals(base.getClienteNif())) {
+                    response.sendRedirect("agendamentos?error=invalid_tutor");
+                    return;
+                }
+                if (!ids.contains(animalId))
+                    ids.add(animalId);
+            }
+        }
+        if (ids.isEmpty())
+            ids.add(null);
+        repeticoes = Math.max(1, Math.min(repeticoes, MAX_REPETICOES));
+        intervaloDias = Math.max(1, intervaloDias);
+        if (repeticoes * ids.size() > MAX_LOTE) {
+            response.sendRedirect("agendamentos?p=new&error=bulk_too_large");
+            return;
+        }
+
+        List<clinica.Horario> horarios = new ArrayList<>();
+        for (clinica.Horario h : AgendamentoDAO.getAllHorarios())
+            if (base.getClinicaId().equals(h.getClinicaId()))
+                horarios.add(h);
+
+        List<LocalDateTime> datas = new ArrayList<>();
+        List<Integer> animaisOc = new ArrayList<>();
+        List<Agendamento> lote = new ArrayList<>();
+        List<Integer> posicao = new ArrayList<>();
+        for (int r = 0; r < repeticoes; r++) {
+            for (int i = 0; i < ids.size(); i++) {
+                LocalDateTime ldt = inicio.plusDays((long) r * intervaloDias).plusMinutes(30L * i);
+                datas.add(ldt);
+                animaisOc.add(ids.get(i));
+                if (Feriados.isEncerrado(ldt.toLocalDate(), base.getClinicaId())) {
+                    posicao.add(-2);
+                    continue;
+                }
+                int horarioId = findHorarioId(horarios, ldt);
+                if (horarioId == -1) {
+                    posicao.add(-5);
+                    continue;
+                }
+                Agendamento a = new Agendamento();
+                a.setMotivo(base.getMotivo());
+                a.setClienteNif(base.getClienteNif());
+                a.setAnimalId(ids.get(i));
+                a.setTipoServicoId(base.getTipoServicoId());
+                a.setClinicaId(base.getClinicaId());
+                a.setDataHoraInicio(Timestamp.valueOf(ldt));
+                a.setHorarioId(horarioId);
+                posicao.add(lote.size());
+                lote.add(a);
+            }
+        }
+
+        int[] res = lote.isEmpty() ? new int[0] : AgendamentoDAO.saveAll(lote);
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        List<String> resultado = new ArrayList<>();
+        for (int k = 0; k < datas.size(); k++) {
+            int codigo = posicao.get(k) < 0 ? posicao.get(k) : res[posicao.get(k)];
+            String estado;
+            if (codigo > 0)
+                estado = "Marcado";
+            else if (codigo == -2)
+                estado = "Fim de semana ou feriado";
+            else if (codigo == -3)
+                estado = "Animal já tem agendamento neste horário";
+            else if (codigo == -4)
+                estado = "Serviço já ocupado neste horário";
+            else if (codigo == -5)
+                estado = "Clínica fechada neste horário";
+            else
+                estado = "Erro ao gravar";
+            resultado.add(datas.get(k).format(fmt)
+                    + (animaisOc.get(k) != null ? " (animal " + animaisOc.get(k) + ")" : "") + ": " + estado);
+        }
+        request.getSession().setAttribute("resultadoLote", resultado);
+        response.sendRedirect("agendamentos");
+    }
+
+    /**
+     * Identifica, entre os horários já carregados da clínica, o que contém a
+     * data e hora indicadas.
      * 
-     * @param day Dia da semana.
-     * @return Nome do dia (Ex: "Segunda", "Terca").
+     * @param horarios Horários da clínica.
+     * @param ldt      Data e hora em processamento.
+     * @return Identificador do horário encontrado ou -1 se fechado.
      */
-    private String getDayName(java.time.DayOfWeek day) {
-        if (day == java.time.DayOfWeek.MONDAY)
-            return "Segunda";
-        if (day == java.time.DayOfWeek.TUESDAY)
-            return "Terca";
-        if (day == java.time.DayOfWeek.WEDNESDAY)
-            return "Quarta";
-        if (day == java.time.DayOfWeek.THURSDAY)
-            return "Quinta";
-        if (day == java.time.DayOfWeek.FRIDAY)
-            return "Sexta";
-        if (day == java.time.DayOfWeek.SATURDAY)
-            return "Sabado";
-        if (day == java.time.DayOfWeek.SUNDAY)
-            return "Domingo";
-        return "";
+    private int findHorarioId(List<clinica.Horario> horarios, LocalDateTime ldt) {
+        String dayName = Calendario.nomeDia(ldt.getDayOfWeek());
+        java.time.LocalTime t = ldt.toLocalTime();
+        for (clinica.Horario h : horarios) {
+            if (dayName.equals(h.getDiaSemana()) && !t.isBefore(h.getHoraInicio().toLocalTime())
+                    && t.isBefore(h.getHoraFim().toLocalTime()))
+                return h.getIdHorario();
+        }
+        return -1;
+    }
+
+    /**
+     * @param valor       Texto a converter.
+     * @param alternativa Valor por omissão.
+     * @return Inteiro representado ou o valor por omissão.
+     */
+    private static int parseInt(String valor, int alternativa) {
+        if (valor == null || valor.isEmpty())
+            return alternativa;
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            return alternativa;
+        }
     }
 
     /**
@@ -235,7 +486,7 @@ public class AgendamentoServlet extends HttpServlet {
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error(AgendamentoServlet.class, "Erro ao listar horários", e);
         }
         return sb.toString();
     }
@@ -250,7 +501,7 @@ public class AgendamentoServlet extends HttpServlet {
      * @return Identificador do horário encontrado ou -1 se fechado.
      */
     private int deriveHorarioId(LocalDateTime ldt, int serviceId, int clinicId) {
-        String dayName = getDayName(ldt.getDayOfWeek());
+        String dayName = Calendario.nomeDia(ldt.getDayOfWeek());
         if (dayName.isEmpty())
             return -1;
 
@@ -268,7 +519,7 @@ public class AgendamentoServlet extends HttpServlet {
                     return rs.getInt("IDHorario");
             }
         } catch (java.sql.SQLException e) {
-            e.printStackTrace();
+            Log.error(AgendamentoServlet.class, "Erro ao identificar o horário", e);
         }
         return -1;
     }
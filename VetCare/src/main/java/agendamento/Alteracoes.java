@@ -0,0 +1,167 @@
+package agendamento;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import util.Log;
+
+/**
+ * Registo em memória das alterações a agendamentos (criações e mudanças de
+ * estado), emitidas pelo {@link AgendamentoDAO} depois de cada transação.
+ * Cada alteração recebe um número sequencial; as mais recentes ficam
+ * guardadas para que um cliente que perdeu a ligação possa recuperar as que
+ * não recebeu. Os interessados são avisados de forma síncrona, pela ordem dos
+ * números e com o registo bloqueado, pelo que devem limitar-se a encaminhar o
+ * evento.
+ */
+public final class Alteracoes {
+
+    /** Número de alterações guardadas para recuperação. */
+    private static final int CAPACIDADE = 512;
+
+    /** Alterações recentes (buffer circular). */
+    private static final Evento[] recentes = new Evento[CAPACIDADE];
+    /** Número da última alteração. */
+    private static long ultimo = 0;
+    /** Interessados nas alterações. */
+    private static final List<Consumer<Evento>> ouvintes = new CopyOnWriteArrayList<>();
+
+    private Alteracoes() {
+    }
+
+    /**
+     * Alteração publicada: número sequencial, tipo e dados em JSON.
+     */
+    public static final class Evento {
+        /** Número sequencial. */
+        public final long id;
+        /** Tipo ({@code novo}, {@code estado} ou {@code recarregar}). */
+        public final String tipo;
+        /** Clínica do agendamento (nula se desconhecida). */
+        public final Integer clinicaId;
+        /** Dados do agendamento em JSON. */
+        public final String json;
+
+        Evento(long id, String tipo, Integer clinicaId, String json) {
+            this.id = id;
+            this.tipo = tipo;
+            this.clinicaId = clinicaId;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Regista um interessado nas alterações.
+     *
+     * @param ouvinte Recebe cada alteração, na thread de quem a publica e pela
+     *                ordem dos números.
+     */
+    public static void ouvir(Consumer<Evento> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * @param ouvinte Interessado a remover.
+     */
+    public static void deixarDeOuvir(Consumer<Evento> ouvinte) {
+        ouvintes.remove(ouvinte);
+    }
+
+    /**
+     * @return Número da última alteração publicada.
+     */
+    public static synchronized long ultimo() {
+        return ultimo;
+    }
+
+    /**
+     * Alterações publicadas depois de uma dada.
+     *
+     * @param id Número da última alteração recebida.
+     * @return Alterações seguintes, por ordem, ou nulo se algumas já não
+     *         estiverem guardadas.
+     */
+    public static synchronized List<Evento> desde(long id) {
+        if (id > ultimo || ultimo - id > CAPACIDADE)
+            return null;
+        List<Evento> res = new ArrayList<>((int) (ultimo - id));
+        for (long i = id + 1; i <= ultimo; i++)
+            res.add(recentes[(int) (i % CAPACIDADE)]);
+        return res;
+    }
+
+    /**
+     * Publica um agendamento criado.
+     *
+     * @param id Identificador atribuído.
+     * @param a  Agendamento gravado.
+     */
+    static void criado(int id, Agendamento a) {
+        StringBuilder sb = new StringBuilder("{\"id\":").append(id);
+        campo(sb, "inicio", a.getDataHoraInicio());
+        campo(sb, "motivo", a.getMotivo());
+        campo(sb, "animal", a.getAnimalId());
+        campo(sb, "cliente", a.getClienteNif());
+        campo(sb, "clinica", a.getClinicaId());
+        campo(sb, "servico", a.getTipoServicoId());
+        campo(sb, "status", a.getStatus() != null ? a.getStatus() : "Pendente");
+        campo(sb, "versao", AgendamentoDAO.isVersioned() ? (Object) 0 : null);
+        publicar("novo", a.getClinicaId(), sb.append('}').toString());
+    }
+
+    /**
+     * Publica uma mudança de estado.
+     *
+     * @param a Agendamento com o novo estado e versão.
+     */
+    static void estadoAlterado(Agendamento a) {
+        StringBuilder sb = new StringBuilder("{\"id\":").append(a.getIdAgendamento());
+        campo(sb, "status", a.getStatus());
+        campo(sb, "versao", a.getVersao());
+        publicar("estado", a.getClinicaId(), sb.append('}').toString());
+    }
+
+    /**
+     * Avisa que houve alterações que não puderam ser descritas (os clientes
+     * devem recarregar a lista).
+     */
+    static void recarregar() {
+        publicar("recarregar", null, "{}");
+    }
+
+    private static synchronized void publicar(String tipo, Integer clinicaId, String json) {
+        Evento e = new Evento(++ultimo, tipo, clinicaId, json);
+        recentes[(int) (e.id % CAPACIDADE)] = e;
+        // Avisados dentro do bloqueio, para que recebam as alterações pela ordem dos números
+        for (Consumer<Evento> o : ouvintes) {
+            try {
+                o.accept(e);
+            } catch (RuntimeException ex) {
+                Log.error(Alteracoes.class, "Erro ao encaminhar alteração de agendamento", ex);
+            }
+        }
+    }
+
+    private static void campo(StringBuilder sb, String nome, Object valor) {
+        if (valor == null)
+            return;
+        sb.append(",\"").append(nome).append("\":");
+        if (valor instanceof Number) {
+            sb.append(valor);
+            return;
+        }
+        String s = valor.toString();
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,359 @@
+package agendamento;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import util.Calendario;
+import util.Configura;
+import util.Feriados;
+import util.Log;
+
+/**
+ * Índice em memória da ocupação da agenda, usado para sugerir horários livres
+ * sem tentar gravar marcações que seriam recusadas.
+ * Os agendamentos ativos a partir de hoje são indexados por intervalo, por
+ * (clínica, serviço) e por animal, e mantidos atualizados pelo
+ * {@link AgendamentoDAO}. O índice é reconstruído periodicamente
+ * ({@code agenda.reloadSeconds}) para refletir alterações feitas por outras
+ * instâncias ou diretamente na base de dados; a base de dados continua a ser a
+ * autoridade final na gravação.
+ */
+public final class Disponibilidade {
+
+    /** Duração de cada vaga por omissão, em minutos ({@code agenda.slotMinutes}). */
+    private static final int SLOT_MIN = 30;
+    /** Intervalo de reconstrução por omissão, em segundos ({@code agenda.reloadSeconds}). */
+    private static final int RELOAD_S = 300;
+    /** Número máximo de dias pesquisados à procura de vagas. */
+    private static final int HORIZONTE_DIAS = 90;
+    /** Número máximo de vagas devolvidas num pedido. */
+    public static final int MAX_VAGAS = 50;
+
+    /** Índice em vigor (substituído por inteiro em cada reconstrução). */
+    private static volatile Indice atual = null;
+    /** Instante (ms) da última reconstrução. */
+    private static volatile long carregadoEm = 0;
+    /** Alterações feitas durante uma reconstrução, aplicadas ao novo índice. */
+    private static List<Intervalo> pendentes = null;
+    /** Serializa as reconstruções. */
+    private static final Object CARGA = new Object();
+
+    private Disponibilidade() {
+    }
+
+    /**
+     * Agendamento ativo. Um intervalo com {@code fim == 0} representa a remoção
+     * do agendamento (apenas nas alterações pendentes).
+     */
+    private static final class Intervalo {
+        final int id;
+        final long inicio;
+        final long fim;
+        final Integer animal;
+        final long servico;
+
+        Intervalo(int id, long inicio, long fim, Integer animal, long servico) {
+            this.id = id;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.animal = animal;
+            this.servico = servico;
+        }
+    }
+
+    /**
+     * Intervalos de um recurso (serviço numa clínica ou animal), ordenados pelo
+     * início. Como se conhece a maior duração registada, os intervalos que
+     * podem intersetar [a, b) são apenas os que começam em [a - maior, b).
+     */
+    private static final class Ocupacao {
+        private final TreeMap<Long, List<Intervalo>> porInicio = new TreeMap<>();
+        private long maiorDuracao = 0;
+
+        synchronized void add(Intervalo i) {
+            porInicio.computeIfAbsent(i.inicio, k -> new ArrayList<>(1)).add(i);
+            maiorDuracao = Math.max(maiorDuracao, i.fim - i.inicio);
+        }
+
+        synchronized void remove(Intervalo i) {
+            List<Intervalo> l = porInicio.get(i.inicio);
+            if (l != null && l.removeIf(x -> x.id == i.id) && l.isEmpty())
+                porInicio.remove(i.inicio);
+        }
+
+        /**
+         * @return Fim do intervalo mais tardio que interseta [a, b), ou -1 se o
+         *         recurso estiver livre.
+         */
+        synchronized long conflito(long a, long b) {
+            long fim = -1;
+            for (List<Intervalo> l : porInicio.subMap(a - maiorDuracao, false, b, false).values())
+                for (Intervalo i : l)
+                    if (i.fim > a)
+                        fim = Math.max(fim, i.fim);
+            return fim;
+        }
+    }
+
+    /**
+     * Estado completo do índice.
+     */
+    private static final class Indice {
+        final Map<Integer, Intervalo> porId = new ConcurrentHashMap<>();
+        final Map<Long, Ocupacao> porServico = new ConcurrentHashMap<>();
+        final Map<Integer, Ocupacao> porAnimal = new ConcurrentHashMap<>();
+        /** Janelas de funcionamento por clínica e dia da semana. */
+        final Map<Integer, Map<DayOfWeek, List<LocalTime[]>>> horarios = new HashMap<>();
+
+        synchronized void add(Intervalo i) {
+            remove(i.id);
+            porId.put(i.id, i);
+            porServico.computeIfAbsent(i.servico, k -> new Ocupacao()).add(i);
+            if (i.animal != null)
+                porAnimal.computeIfAbsent(i.animal, k -> new Ocupacao()).add(i);
+        }
+
+        synchronized void remove(int id) {
+            Intervalo i = porId.remove(id);
+            if (i == null)
+                return;
+            Ocupacao o = porServico.get(i.servico);
+            if (o != null)
+                o.remove(i);
+            if (i.animal != null && (o = porAnimal.get(i.animal)) != null)
+                o.remove(i);
+        }
+
+        void apply(Intervalo i) {
+            if (i.fim == 0)
+                remove(i.id);
+            else
+                add(i);
+        }
+    }
+
+    private static long chave(int clinicaId, int servicoId) {
+        return ((long) clinicaId << 32) | (servicoId & 0xFFFFFFFFL);
+    }
+
+    private static long ms(LocalDateTime ldt) {
+        return Timestamp.valueOf(ldt).getTime();
+    }
+
+    /**
+     * Regista um agendamento acabado de gravar.
+     *
+     * @param id        Identificador do agendamento.
+     * @param inicio    Data/hora de início.
+     * @param fim       Data/hora de fim.
+     * @param animalId  Identificador do animal (pode ser nulo).
+     * @param clinicaId Identificador da clínica.
+     * @param servicoId Identificador do tipo de serviço.
+     */
+    static void add(int id, Timestamp inicio, Timestamp fim, Integer animalId, int clinicaId, int servicoId) {
+        if (fim.getTime() <= ms(LocalDate.now().atStartOfDay()))
+            return;
+        apply(new Intervalo(id, inicio.getTime(), fim.getTime(), animalId, chave(clinicaId, servicoId)));
+    }
+
+    /**
+     * Atualiza o índice após a mudança de estado de um agendamento.
+     *
+     * @param id     Identificador do agendamento.
+     * @param status Novo estado.
+     */
+    static void statusChanged(int id, String status) {
+        if (atual == null)
+            return;
+        if ("Cancelado".equals(status) || "Rejeitado".equals(status)) {
+            apply(new Intervalo(id, 0, 0, null, 0));
+        } else if (!atual.porId.containsKey(id)) {
+            Agendamento a = AgendamentoDAO.getById(id);
+            if (a != null && a.getDataHoraInicio() != null)
+                add(id, a.getDataHoraInicio(), fimDe(a.getDataHoraInicio(), a.getDataHoraFim()),
+                        a.getAnimalId(), a.getClinicaId(), a.getTipoServicoId());
+        }
+    }
+
+    private static void apply(Intervalo i) {
+        synchronized (CARGA) {
+            if (pendentes != null)
+                pendentes.add(i);
+        }
+        Indice idx = atual;
+        if (idx != null)
+            idx.apply(i);
+    }
+
+    private static Timestamp fimDe(Timestamp inicio, Timestamp fim) {
+        return fim != null ? fim : new Timestamp(inicio.getTime() + SLOT_MIN * 60_000L);
+    }
+
+    /**
+     * Devolve o índice em vigor, reconstruindo-o se ainda não existir ou se
+     * tiver expirado.
+     */
+    private static Indice indice() {
+        Indice idx = atual;
+        long validade = Configura.snapshot().getInt("agenda.reloadSeconds", RELOAD_S) * 1000L;
+        if (idx != null && System.currentTimeMillis() - carregadoEm < validade)
+            return idx;
+        synchronized (Disponibilidade.class) {
+            if (atual != idx)
+                return atual;
+            try {
+                return reload();
+            } catch (SQLException e) {
+                Log.error(Disponibilidade.class, "Erro ao carregar a ocupação da agenda", e);
+                carregadoEm = System.currentTimeMillis();
+                return idx;
+            }
+        }
+    }
+
+    /**
+     * Reconstrói o índice a partir da base de dados. As alterações registadas
+     * durante a leitura são aplicadas ao novo índice antes de este entrar em
+     * vigor.
+     */
+    private static Indice reload() throws SQLException {
+        long t0 = System.currentTimeMillis();
+        synchronized (CARGA) {
+            pendentes = new ArrayList<>();
+        }
+        Indice novo = new Indice();
+        try (Connection con = new Configura().getConnection();
+                Statement st = con.createStatement()) {
+            try (PreparedStatement ps = con.prepareStatement("SELECT IDAgendamento, DataHoraInicio, DataHoraFim, "
+                    + "Animal_IDAnimal, Clinica_IDClinica, TipoServico_IDServico FROM Agendamento "
+                    + "WHERE DataHoraInicio >= ? AND Status NOT IN ('Cancelado', 'Rejeitado')")) {
+                ps.setTimestamp(1, Timestamp.valueOf(LocalDate.now().atStartOfDay()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp inicio = rs.getTimestamp(2);
+                        int animal = rs.getInt(4);
+                        novo.add(new Intervalo(rs.getInt(1), inicio.getTime(),
+                                fimDe(inicio, rs.getTimestamp(3)).getTime(), rs.wasNull() ? null : animal,
+                                chave(rs.getInt(5), rs.getInt(6))));
+                    }
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT Clinica_IDClinica, DiaSemana, HoraInicio, HoraFim "
+                    + "FROM Horario ORDER BY HoraInicio")) {
+                while (rs.next()) {
+                    DayOfWeek dia = Calendario.diaSemana(rs.getString(2));
+                    if (dia == null || rs.getTime(3) == null || rs.getTime(4) == null)
+                        continue;
+                    novo.horarios.computeIfAbsent(rs.getInt(1), k -> new EnumMap<>(DayOfWeek.class))
+                            .computeIfAbsent(dia, k -> new ArrayList<>())
+                            .add(new LocalTime[] { rs.getTime(3).toLocalTime(), rs.getTime(4).toLocalTime() });
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (CARGA) {
+                pendentes = null;
+            }
+            throw e;
+        }
+        synchronized (CARGA) {
+            pendentes.forEach(novo::apply);
+            pendentes = null;
+            atual = novo;
+            carregadoEm = System.currentTimeMillis();
+        }
+        Log.debug(Disponibilidade.class, "Ocupação da agenda carregada: " + novo.porId.size()
+                + " agendamentos em " + (System.currentTimeMillis() - t0) + "ms");
+        return novo;
+    }
+
+    /**
+     * Força a reconstrução do índice no próximo acesso.
+     */
+    public static void invalidate() {
+        carregadoEm = 0;
+    }
+
+    /**
+     * Procura as próximas vagas livres para um serviço numa clínica.
+     * Uma vaga é válida se couber numa janela do horário de funcionamento, não
+     * calhar num fim de semana ou feriado e não se sobrepuser a outro
+     * agendamento do mesmo serviço na clínica nem do animal indicado.
+     *
+     * @param clinicaId Identificador da clínica.
+     * @param servicoId Identificador do tipo de serviço.
+     * @param animalId  Identificador do animal (pode ser nulo).
+     * @param desde     Instante a partir do qual se procura.
+     * @param n         Número de vagas pretendidas (máximo {@link #MAX_VAGAS}).
+     * @return Início das vagas encontradas, por ordem cronológica.
+     */
+    public static List<LocalDateTime> nextFreeSlots(int clinicaId, int servicoId, Integer animalId,
+            LocalDateTime desde, int n) {
+        List<LocalDateTime> vagas = new ArrayList<>();
+        Indice idx = indice();
+        if (idx == null || n <= 0)
+            return vagas;
+        n = Math.min(n, MAX_VAGAS);
+        Map<DayOfWeek, List<LocalTime[]>> horario = idx.horarios.get(clinicaId);
+        if (horario == null)
+            return vagas;
+
+        int slotMin = Math.max(5, Configura.snapshot().getInt("agenda.slotMinutes", SLOT_MIN));
+        long slotMs = slotMin * 60_000L;
+        Ocupacao servico = idx.porServico.get(chave(clinicaId, servicoId));
+        Ocupacao animal = animalId == null ? null : idx.porAnimal.get(animalId);
+
+        LocalDate dia = desde.toLocalDate();
+        for (int d = 0; d < HORIZONTE_DIAS && vagas.size() < n; d++, dia = dia.plusDays(1)) {
+            List<LocalTime[]> janelas = horario.get(dia.getDayOfWeek());
+            if (janelas == null || Feriados.isEncerrado(dia, clinicaId))
+                continue;
+            for (LocalTime[] j : janelas) {
+                long fimJanela = ms(dia.atTime(j[1]));
+                long t = ms(dia.atTime(j[0]));
+                long minimo = ms(desde);
+                if (t < minimo)
+                    t += (minimo - t + slotMs - 1) / slotMs * slotMs;
+                while (t + slotMs <= fimJanela && vagas.size() < n) {
+                    long ocupado = Math.max(servico == null ? -1 : servico.conflito(t, t + slotMs),
+                            animal == null ? -1 : animal.conflito(t, t + slotMs));
+                    if (ocupado < 0) {
+                        vagas.add(new Timestamp(t).toLocalDateTime());
+                        t += slotMs;
+                    } else {
+                        // Salta para o primeiro início da grelha depois do fim do conflito
+                        t += Math.max(1, (ocupado - t + slotMs - 1) / slotMs) * slotMs;
+                    }
+                }
+            }
+        }
+        return vagas;
+    }
+
+    /**
+     * @return Vagas em formato JSON (lista de datas ISO sem segundos, tal como
+     *         aceites por um campo {@code datetime-local}).
+     */
+    static String toJson(List<LocalDateTime> vagas) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < vagas.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append('"').append(vagas.get(i).toString(), 0, 16).append('"');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,286 @@
+package agendamento;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import util.Configura;
+
+/**
+ * Canal de eventos (Server-Sent Events) com as alterações aos agendamentos,
+ * usado pela lista de agendamentos para se atualizar sem recarregar a página.
+ * Cada ligação é processada de forma assíncrona: a thread do pedido é
+ * libertada logo após a subscrição e os eventos são distribuídos por uma
+ * única thread, que também envia um sinal periódico para detetar ligações
+ * fechadas. A escrita não bloqueia: cada ligação tem uma fila de mensagens,
+ * escoada quando o contentor indica que a ligação aceita dados, e uma ligação
+ * cuja fila enche (cliente que não lê) é fechada, sem atrasar as restantes.
+ * Um cliente que volte a ligar-se (cabeçalho {@code Last-Event-ID}) recebe as
+ * alterações que perdeu, se ainda estiverem guardadas em {@link Alteracoes};
+ * caso contrário recebe o evento {@code recarregar}.
+ * Parâmetro opcional: {@code clinica}.
+ */
+@WebServlet(urlPatterns = "/agendamentos/eventos", asyncSupported = true)
+public class EventosServlet extends HttpServlet {
+    /** Identificador de versão para serialização. */
+    private static final long serialVersionUID = 1L;
+    /** Duração máxima (ms) de uma ligação; o navegador volta a ligar-se. */
+    private static final long TIMEOUT_MS = 10 * 60 * 1000L;
+    /** Intervalo (s) entre sinais de atividade. */
+    private static final int SINAL_S = 20;
+    /** Número máximo de ligações por omissão ({@code agenda.sseMaxClients}). */
+    private static final int MAX_CLIENTES = 500;
+    /** Mensagens por enviar a partir das quais uma ligação é fechada. */
+    private static final int MAX_PENDENTES = 256;
+
+    /**
+     * Ligação aberta. A escrita e o fecho são sincronizados para que nada seja
+     * escrito numa resposta que o contentor já reciclou; como a saída não
+     * bloqueia, o bloqueio é sempre breve.
+     */
+    private static final class Cliente {
+        final AsyncContext ctx;
+        final ServletOutputStream out;
+        final Integer clinicaId;
+        /** Última alteração enviada (só usada na thread de envio). */
+        long ultimo;
+        /** Mensagens à espera de que a ligação aceite dados. */
+        private final ArrayDeque<byte[]> pendentes = new ArrayDeque<>();
+        private boolean fechado = false;
+
+        Cliente(AsyncContext ctx, ServletOutputStream out, Integer clinicaId) {
+            this.ctx = ctx;
+            this.out = out;
+            this.clinicaId = clinicaId;
+        }
+
+        /**
+         * Põe uma mensagem na fila e escreve o que a ligação aceitar.
+         *
+         * @return Falso se a ligação estiver fechada, a fila cheia ou a escrita
+         *         falhar.
+         */
+        synchronized boolean escrever(String texto) {
+            if (fechado || pendentes.size() >= MAX_PENDENTES)
+                return false;
+            pendentes.add(texto.getBytes(StandardCharsets.UTF_8));
+            return escoar();
+        }
+
+        /**
+         * Escreve as mensagens em fila enquanto a ligação as aceitar; o resto é
+         * escrito quando o contentor chamar {@link WriteListener#onWritePossible()}.
+         *
+         * @return Falso se a ligação estiver fechada ou a escrita falhar.
+         */
+        synchronized boolean escoar() {
+            if (fechado)
+                return false;
+            try {
+                while (out.isReady()) {
+                    byte[] b = pendentes.poll();
+                    if (b == null)
+                        return true;
+                    out.write(b);
+                    if (out.isReady())
+                        out.flush();
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+
+        synchronized void fechar() {
+            if (fechado)
+                return;
+            fechado = true;
+            try {
+                ctx.complete();
+            } catch (IllegalStateException e) {
+                // Já terminada pelo contentor
+            }
+        }
+    }
+
+    /** Ligações abertas. */
+    private final transient List<Cliente> clientes = new CopyOnWriteArrayList<>();
+    /** Thread que escreve os eventos. */
+    private transient ScheduledExecutorService envio;
+    /** Encaminha as alterações para a thread de envio. */
+    private transient Consumer<Alteracoes.Evento> ouvinte;
+
+    @Override
+    public void init() throws ServletException {
+        envio = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "VetCare-Eventos");
+            t.setDaemon(true);
+            return t;
+        });
+        // Só põe o evento na fila da thread de envio: não atrasa quem o publica
+        ouvinte = e -> envio.execute(() -> enviar(e));
+        Alteracoes.ouvir(ouvinte);
+        envio.scheduleWithFixedDelay(this::sinal, SINAL_S, SINAL_S, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        Alteracoes.deixarDeOuvir(ouvinte);
+        envio.shutdownNow();
+        for (Cliente c : clientes)
+            fechar(c);
+    }
+
+    /**
+     * Abre o canal de eventos.
+     *
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     * @throws ServletException Em caso de erro no processamento do servlet.
+     * @throws IOException      Em caso de erro de entrada/saída.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (clientes.size() >= Configura.snapshot().getInt("agenda.sseMaxClients", MAX_CLIENTES)) {
+            response.setHeader("Retry-After", "30");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        Integer clinicaId = null;
+        long ultimo = -1;
+        try {
+            String v = request.getParameter("clinica");
+            if (v != null && !v.isEmpty())
+                clinicaId = Integer.valueOf(v);
+            v = request.getHeader("Last-Event-ID");
+            if (v != null && !v.isEmpty())
+                ultimo = Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext ctx = request.startAsync();
+        ctx.setTimeout(TIMEOUT_MS);
+        ServletOutputStream out = response.getOutputStream();
+        Cliente c = new Cliente(ctx, out, clinicaId);
+        ctx.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                clientes.remove(c);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                fechar(c);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                fechar(c);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                if (!c.escoar())
+                    fechar(c);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fechar(c);
+            }
+        });
+        long desde = ultimo;
+        // A subscrição corre na thread de envio para não se cruzar com os eventos
+        envio.execute(() -> subscrever(c, desde));
+    }
+
+    /**
+     * Envia ao novo cliente as alterações que perdeu e passa a incluí-lo no
+     * envio.
+     */
+    private void subscrever(Cliente c, long desde) {
+        long atual = Alteracoes.ultimo();
+        List<Alteracoes.Evento> perdidos = desde < 0 ? null : Alteracoes.desde(desde);
+        StringBuilder sb = new StringBuilder("retry: 3000\n");
+        if (perdidos == null) {
+            // Primeira ligação (só fixa a posição) ou alterações já descartadas
+            sb.append("id: ").append(atual).append(desde < 0 ? "\n\n" : "\nevent: recarregar\ndata: {}\n\n");
+            c.ultimo = atual;
+        } else {
+            sb.append('\n');
+            c.ultimo = desde;
+            for (Alteracoes.Evento e : perdidos)
+                formatar(sb, c, e);
+        }
+        if (c.escrever(sb.toString()))
+            clientes.add(c);
+        else
+            fechar(c);
+    }
+
+    private void enviar(Alteracoes.Evento e) {
+        for (Cliente c : clientes) {
+            StringBuilder sb = new StringBuilder();
+            formatar(sb, c, e);
+            if (sb.length() > 0 && !c.escrever(sb.toString()))
+                fechar(c);
+        }
+    }
+
+    /**
+     * Acrescenta o evento, se ainda não tiver sido enviado ao cliente e
+     * respeitar o seu filtro.
+     */
+    private static void formatar(StringBuilder sb, Cliente c, Alteracoes.Evento e) {
+        if (e.id <= c.ultimo)
+            return;
+        c.ultimo = e.id;
+        if (c.clinicaId != null && e.clinicaId != null && !c.clinicaId.equals(e.clinicaId))
+            return;
+        sb.append("id: ").append(e.id).append("\nevent: ").append(e.tipo).append("\ndata: ").append(e.json)
+                .append("\n\n");
+    }
+
+    /**
+     * Envia um comentário a todas as ligações, para as manter abertas e
+     * descartar as que o cliente já fechou.
+     */
+    private void sinal() {
+        for (Cliente c : clientes)
+            if (!c.escrever(":\n\n"))
+                fechar(c);
+    }
+
+    private void fechar(Cliente c) {
+        clientes.remove(c);
+        c.fechar();
+    }
+}
@@ -0,0 +1,199 @@
+package agendamento;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Critérios de filtragem e posição de uma página da lista de agendamentos.
+ * A paginação é feita por chave (DataHoraInicio, IDAgendamento): cada página
+ * começa depois do último registo da anterior, pelo que o custo de uma página
+ * não depende de quantas já foram percorridas nem do volume do histórico.
+ */
+public class FiltroAgendamento {
+
+    /** Estados aceites no filtro, pela ordem apresentada na lista. */
+    public static final List<String> ESTADOS = List.of("Pendente", "Agendado", "Confirmado", "Cancelado",
+            "Rejeitado");
+
+    /** Identificador da clínica (nulo para todas). */
+    private Integer clinicaId;
+
+    /** Estado do agendamento (nulo para todos). */
+    private String status;
+
+    /** Primeiro dia incluído (nulo sem limite). */
+    private LocalDate de;
+
+    /** Último dia incluído (nulo sem limite). */
+    private LocalDate ate;
+
+    /** Licença do veterinário (nulo para todos). */
+    private String veterinario;
+
+    /** Início do último registo da página anterior (nulo na primeira página). */
+    private Timestamp aposData;
+
+    /** Identificador do último registo da página anterior. */
+    private Integer aposId;
+
+    /**
+     * Construtor padrão (sem filtros, primeira página).
+     */
+    public FiltroAgendamento() {
+    }
+
+    /**
+     * Inicializa os critérios a partir dos parâmetros de um pedido HTTP
+     * ({@code clinica}, {@code status}, {@code de}, {@code ate}, {@code vet} e
+     * {@code apos}). Valores inválidos são ignorados.
+     *
+     * @param request Pedido HTTP.
+     */
+    public FiltroAgendamento(HttpServletRequest request) {
+        String v = request.getParameter("clinica");
+        if (v != null && !v.isEmpty()) {
+            try {
+                this.clinicaId = Integer.valueOf(v);
+            } catch (NumberFormatException e) {
+                // ignora o filtro
+            }
+        }
+        v = request.getParameter("status");
+        if (v != null && ESTADOS.contains(v))
+            this.status = v;
+        this.de = parseData(request.getParameter("de"));
+        this.ate = parseData(request.getParameter("ate"));
+        v = request.getParameter("vet");
+        if (v != null && !v.isEmpty())
+            this.veterinario = v;
+        cursor(request.getParameter("apos"));
+    }
+
+    private static LocalDate parseData(String v) {
+        if (v == null || v.isEmpty())
+            return null;
+        try {
+            return LocalDate.parse(v);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Define a posição a partir do cursor devolvido por {@link #cursorOf}.
+     *
+     * @param cursor Cursor no formato {@code milissegundos_id}.
+     */
+    public void setCursor(String cursor) {
+        cursor(cursor);
+    }
+
+    private void cursor(String cursor) {
+        this.aposData = null;
+        this.aposId = null;
+        if (cursor == null)
+            return;
+        int i = cursor.indexOf('_');
+        if (i <= 0)
+            return;
+        try {
+            this.aposData = new Timestamp(Long.parseLong(cursor.substring(0, i)));
+            this.aposId = Integer.valueOf(cursor.substring(i + 1));
+        } catch (NumberFormatException e) {
+            this.aposData = null;
+        }
+    }
+
+    /**
+     * @param a Último agendamento de uma página.
+     * @return Cursor que identifica a página seguinte.
+     */
+    public static String cursorOf(Agendamento a) {
+        return a.getDataHoraInicio().getTime() + "_" + a.getIdAgendamento();
+    }
+
+    /**
+     * @return Parâmetros dos filtros (sem a posição) para construir ligações,
+     *         começados por {@code &} ou vazios.
+     */
+    public String toQuery() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, "clinica", clinicaId);
+        append(sb, "status", status);
+        append(sb, "de", de);
+        append(sb, "ate", ate);
+        append(sb, "vet", veterinario);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String nome, Object valor) {
+        if (valor != null)
+            sb.append('&').append(nome).append('=')
+                    .append(URLEncoder.encode(valor.toString(), StandardCharsets.UTF_8));
+    }
+
+    /** @return Identificador da clínica. */
+    public Integer getClinicaId() {
+        return clinicaId;
+    }
+
+    /** @param clinicaId Identificador da clínica a filtrar. */
+    public void setClinicaId(Integer clinicaId) {
+        this.clinicaId = clinicaId;
+    }
+
+    /** @return Estado a filtrar. */
+    public String getStatus() {
+        return status;
+    }
+
+    /** @param status Estado a filtrar (ignorado se não for um estado conhecido). */
+    public void setStatus(String status) {
+        this.status = status != null && ESTADOS.contains(status) ? status : null;
+    }
+
+    /** @return Primeiro dia incluído. */
+    public LocalDate getDe() {
+        return de;
+    }
+
+    /** @param de Primeiro dia incluído. */
+    public void setDe(LocalDate de) {
+        this.de = de;
+    }
+
+    /** @return Último dia incluído. */
+    public LocalDate getAte() {
+        return ate;
+    }
+
+    /** @param ate Último dia incluído. */
+    public void setAte(LocalDate ate) {
+        this.ate = ate;
+    }
+
+    /** @return Licença do veterinário. */
+    public String getVeterinario() {
+        return veterinario;
+    }
+
+    /** @param veterinario Licença do veterinário a filtrar. */
+    public void setVeterinario(String veterinario) {
+        this.veterinario = veterinario;
+    }
+
+    /** @return Início do último registo da página anterior. */
+    public Timestamp getAposData() {
+        return aposData;
+    }
+
+    /** @return Identificador do último registo da página anterior. */
+    public Integer getAposId() {
+        return aposId;
+    }
+}
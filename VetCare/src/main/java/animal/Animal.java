@@ -54,6 +54,9 @@ public class Animal {
     /** Dados binários da fotografia (armazenados em BLOB na BD). */
     private byte[] fotografia;
 
+    /** Indica se o animal tem fotografia (mesmo que não tenha sido lida). */
+    private boolean temFotografia;
+
     /** NIF do cliente que detém a tutoria do animal. */
     private String clienteNif;
 
@@ -71,6 +74,8 @@ public class Animal {
 
     /**
      * Construtor que inicializa o objeto a partir de um registo da base de dados.
+     * O registo deve ter as colunas de {@link AnimalDAO#COLUNAS}: a fotografia
+     * não é lida, apenas o indicador TemFotografia.
      * 
      * @param rs ResultSet posicionado no registo.
      * @throws SQLException Caso ocorra um erro no mapeamento dos campos.
@@ -88,7 +93,7 @@ public class Animal {
         this.pesoAtual = rs.getBigDecimal("PesoAtual");
         this.caracteristicasDistintivas = rs.getString("CaracteristicasDistintivas");
         this.numeroTransponder = rs.getString("NumeroTransponder");
-        this.fotografia = rs.getBytes("Fotografia");
+        this.temFotografia = rs.getInt("TemFotografia") != 0;
         this.clienteNif = rs.getString("Cliente_NIF");
         this.catalogoNomeComum = rs.getString("Catalogo_NomeComum");
 
@@ -251,7 +256,7 @@ public class Animal {
         this.numeroTransponder = numeroTransponder;
     }
 
-    /** @return Dados binários da fotografia. */
+    /** @return Dados binários da fotografia (nulos se não tiverem sido lidos). */
     public byte[] getFotografia() {
         return fotografia;
     }
@@ -259,17 +264,12 @@ public class Animal {
     /** @param fotografia Define os dados binários da foto. */
     public void setFotografia(byte[] fotografia) {
         this.fotografia = fotografia;
+        this.temFotografia = fotografia != null && fotografia.length > 0;
     }
 
-    /**
-     * Retorna a fotografia convertida para Base64 para exibição em HTML.
-     * 
-     * @return String no formato "data:image/jpeg;base64,..." ou null.
-     */
-    public String getFotografiaBase64() {
-        if (fotografia == null || fotografia.length == 0)
-            return null;
-        return "data:image/jpeg;base64," + java.util.Base64.getEncoder().encodeToString(fotografia);
+    /** @return Verdadeiro se o animal tiver fotografia (servida por {@link FotografiaServlet}). */
+    public boolean hasFotografia() {
+        return temFotografia;
     }
 
     /** @return NIF do tutor. */
@@ -1,12 +1,21 @@
 package animal;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import util.Configura;
+import util.Log;
+import util.PrefixIndex;
+import util.ReferenceCache;
+import util.SqlDialect;
+import manager.ResumoDAO;
 
 /**
  * Responsável por todas as operações de persistência relacionadas à entidade
@@ -17,6 +26,22 @@ import util.Configura;
 public class AnimalDAO {
     private static String lastError = "";
 
+    /** Catálogo de espécies, partilhado pelos formulários. */
+    private static final ReferenceCache<Catalogo> ESPECIES = new ReferenceCache<>("especies", AnimalDAO::lerEspecies);
+    /**
+     * Colunas de Animal (alias {@code a}) lidas pelas consultas, sem a
+     * fotografia: em vez dela é lido o indicador TemFotografia. A fotografia é
+     * enviada ao navegador por {@link FotografiaServlet}.
+     */
+    public static final String COLUNAS = "a.IDAnimal, a.Nome, a.Raca, a.Sexo, a.DataNascimento, a.Filiacao, "
+            + "a.EstadoReprodutivo, a.Alergias, a.Cores, a.PesoAtual, a.CaracteristicasDistintivas, "
+            + "a.NumeroTransponder, a.Cliente_NIF, a.Catalogo_NomeComum, "
+            + "CASE WHEN a.Fotografia IS NULL THEN 0 ELSE 1 END AS TemFotografia";
+    /** Índice de pesquisa por nome ou transponder; o grupo é o NIF do tutor. */
+    private static final PrefixIndex NOMES = new PrefixIndex("animais", AnimalDAO::lerNomes);
+    /** Indica se a tabela Animal tem a coluna FotografiaHash (ver {@link #ensureSchema()}). */
+    private static volatile boolean comHash = false;
+
     public static String getLastError() {
         return lastError;
     }
@@ -51,8 +76,10 @@ public class AnimalDAO {
             return -2;
         }
 
-        String sql = "INSERT INTO Animal (Nome, Raca, Sexo, DataNascimento, Filiacao, EstadoReprodutivo, Alergias, Cores, PesoAtual, CaracteristicasDistintivas, NumeroTransponder, Fotografia, Cliente_NIF, Catalogo_NomeComum) "
-                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        boolean hash = comHash;
+        String sql = "INSERT INTO Animal (Nome, Raca, Sexo, DataNascimento, Filiacao, EstadoReprodutivo, Alergias, Cores, PesoAtual, CaracteristicasDistintivas, NumeroTransponder, Fotografia, Cliente_NIF, Catalogo_NomeComum"
+                + (hash ? ", FotografiaHash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                        : ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
 
         try (Connection con = new Configura().getConnection();
                 PreparedStatement ps = con.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS)) {
@@ -71,23 +98,30 @@ public class AnimalDAO {
             ps.setBytes(12, a.getFotografia());
             ps.setString(13, a.getClienteNif());
             ps.setString(14, a.getCatalogoNomeComum());
+            if (hash)
+                ps.setString(15, md5(a.getFotografia()));
 
             ps.executeUpdate();
+            ResumoDAO.refreshObesidade(a.getClienteNif());
 
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
-                    return rs.getInt(1);
+                    int id = rs.getInt(1);
+                    NOMES.put(entrada(id, a));
+                    return id;
                 }
             }
         } catch (SQLException e) {
             lastError = e.getMessage();
-            System.err.println("Erro ao gravar registo de Animal: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro ao gravar registo de Animal", e);
         }
         return -1;
     }
 
     /**
      * Atualiza os dados de um animal existente na base de dados.
+     * A fotografia só é substituída se o animal trouxer uma nova; caso
+     * contrário mantém-se a que está gravada.
      * 
      * @param a Objeto animal com os dados atualizados.
      * @return Número de registos modificados.
@@ -96,8 +130,11 @@ public class AnimalDAO {
         if (a == null || !a.valid())
             return -1;
 
-        String sql = "UPDATE Animal SET Nome=?, Raca=?, Sexo=?, DataNascimento=?, Filiacao=?, EstadoReprodutivo=?, Alergias=?, Cores=?, PesoAtual=?, CaracteristicasDistintivas=?, NumeroTransponder=?, Fotografia=?, Cliente_NIF=?, Catalogo_NomeComum=? WHERE IDAnimal=?";
+        boolean hash = comHash;
+        String sql = "UPDATE Animal SET Nome=?, Raca=?, Sexo=?, DataNascimento=?, Filiacao=?, EstadoReprodutivo=?, Alergias=?, Cores=?, PesoAtual=?, CaracteristicasDistintivas=?, NumeroTransponder=?, Fotografia=COALESCE(?, Fotografia), Cliente_NIF=?, Catalogo_NomeComum=?"
+                + (hash ? ", FotografiaHash=COALESCE(?, FotografiaHash)" : "") + " WHERE IDAnimal=?";
 
+        String tutorAnterior = ResumoDAO.isReady() ? getTutorNif(a.getIdAnimal()) : null;
         try (Connection con = new Configura().getConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
 
@@ -115,16 +152,84 @@ public class AnimalDAO {
             ps.setBytes(12, a.getFotografia());
             ps.setString(13, a.getClienteNif());
             ps.setString(14, a.getCatalogoNomeComum());
-            ps.setInt(15, a.getIdAnimal());
+            if (hash)
+                ps.setString(15, md5(a.getFotografia()));
+            ps.setInt(hash ? 16 : 15, a.getIdAnimal());
 
-            return ps.executeUpdate();
+            int n = ps.executeUpdate();
+            NOMES.put(entrada(a.getIdAnimal(), a));
+            ResumoDAO.refreshObesidade(a.getClienteNif());
+            if (tutorAnterior != null && !tutorAnterior.equals(a.getClienteNif()))
+                ResumoDAO.refreshObesidade(tutorAnterior);
+            return n;
         } catch (SQLException e) {
             lastError = e.getMessage();
-            System.err.println("Erro ao atualizar registo de Animal: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro ao atualizar registo de Animal", e);
         }
         return -1;
     }
 
+    /**
+     * Acrescenta a coluna FotografiaHash (resumo MD5 da fotografia, usado como
+     * ETag por {@link FotografiaServlet}) à tabela Animal, se ainda não existir,
+     * e preenche-a para as fotografias já gravadas.
+     */
+    public static void ensureSchema() {
+        Configura cfg = new Configura();
+        try (Connection con = cfg.getConnection()) {
+            boolean existe = false;
+            java.sql.DatabaseMetaData md = con.getMetaData();
+            for (String t : new String[] { "Animal", "ANIMAL", "animal" }) {
+                try (ResultSet rs = md.getColumns(con.getCatalog(), null, t, null)) {
+                    while (rs.next())
+                        existe |= "FotografiaHash".equalsIgnoreCase(rs.getString("COLUMN_NAME"));
+                }
+            }
+            if (!existe) {
+                try (Statement st = con.createStatement()) {
+                    st.execute(cfg.getDialect().addColumn("Animal", "FotografiaHash", "VARCHAR(32) NULL"));
+                }
+                Log.info(AnimalDAO.class, "Coluna FotografiaHash acrescentada à tabela Animal");
+                // Sem o preenchimento o resumo em falta é calculado a cada pedido (ver hashSql)
+                try (Statement st = con.createStatement()) {
+                    st.executeUpdate("UPDATE Animal SET FotografiaHash = " + cfg.getDialect().md5Hex("Fotografia")
+                            + " WHERE Fotografia IS NOT NULL");
+                } catch (SQLException e) {
+                    Log.warn(AnimalDAO.class, "Impossível preencher FotografiaHash: " + e.getMessage());
+                }
+            }
+            comHash = true;
+        } catch (SQLException e) {
+            comHash = false;
+            Log.error(AnimalDAO.class, "Impossível acrescentar a coluna FotografiaHash; ETag calculado pela base de dados", e);
+        }
+    }
+
+    /**
+     * Expressão SQL com o resumo MD5 (hexadecimal) da fotografia de um animal:
+     * o valor gravado em FotografiaHash, calculado pela base de dados só se
+     * faltar (fotografias gravadas por outra via) ou se a coluna não existir.
+     *
+     * @param d Dialeto da base de dados.
+     * @return Expressão sobre a tabela Animal (sem alias).
+     */
+    public static String hashSql(SqlDialect d) {
+        return comHash ? "COALESCE(FotografiaHash, " + d.md5Hex("Fotografia") + ")" : d.md5Hex("Fotografia");
+    }
+
+    /**
+     * @return Resumo MD5 em hexadecimal (minúsculas), ou nulo sem fotografia.
+     */
+    private static String md5(byte[] dados) {
+        if (dados == null || dados.length == 0)
+            return null;
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(dados));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Recupera a lista completa de animais registados.
      * Realiza a junção com o catálogo biológico para obter dados de longevidade.
@@ -133,16 +238,51 @@ public class AnimalDAO {
      */
     public static List<Animal> getAll() {
         List<Animal> list = new ArrayList<>();
-        String sql = "SELECT a.*, c.ExpectativaVida FROM Animal a " +
+        String sql = "SELECT " + COLUNAS + ", c.ExpectativaVida FROM Animal a " +
                 "LEFT JOIN Catalogo c ON a.Catalogo_NomeComum = c.NomeComum " +
                 "ORDER BY a.Nome";
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next())
                 list.add(new Animal(rs));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar animais: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro ao listar animais", e);
+        }
+        return list;
+    }
+
+    /**
+     * Pesquisa animais pelo início do nome ou do número de transponder, sem
+     * distinguir maiúsculas nem acentos, sem consultar a base de dados.
+     * 
+     * @param q          Texto escrito (pode ser vazio se houver tutor).
+     * @param clienteNif Restringe aos animais deste tutor, ou nulo.
+     * @param n          Número máximo de resultados.
+     * @return Identificador, nome e NIF do tutor dos animais encontrados.
+     */
+    public static List<PrefixIndex.Entrada> searchByPrefix(String q, String clienteNif, int n) {
+        return NOMES.search(q, clienteNif, n);
+    }
+
+    private static PrefixIndex.Entrada entrada(int id, Animal a) {
+        return new PrefixIndex.Entrada(String.valueOf(id), a.getNome(), a.getClienteNif(), a.getNumeroTransponder());
+    }
+
+    /**
+     * Lê as colunas usadas pelo índice de pesquisa (sem fotografias).
+     */
+    private static List<PrefixIndex.Entrada> lerNomes() {
+        List<PrefixIndex.Entrada> list = new ArrayList<>();
+        String sql = "SELECT IDAnimal, Nome, Cliente_NIF, NumeroTransponder FROM Animal";
+        try (Connection con = new Configura().getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                list.add(new PrefixIndex.Entrada(rs.getString("IDAnimal"), rs.getString("Nome"),
+                        rs.getString("Cliente_NIF"), rs.getString("NumeroTransponder")));
+        } catch (SQLException e) {
+            Log.error(AnimalDAO.class, "Erro ao ler o índice de pesquisa de animais", e);
         }
         return list;
     }
@@ -150,12 +290,16 @@ public class AnimalDAO {
     /**
      * Recupera as espécies configuradas no catálogo biológico de referência.
      * 
-     * @return Lista de objetos descrevendo as espécies.
+     * @return Lista imutável de objetos descrevendo as espécies.
      */
     public static List<Catalogo> getEspecies() {
+        return ESPECIES.get();
+    }
+
+    private static List<Catalogo> lerEspecies() {
         List<Catalogo> list = new ArrayList<>();
         String sql = "SELECT * FROM Catalogo ORDER BY NomeComum";
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -167,11 +311,29 @@ public class AnimalDAO {
                 list.add(c);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar catálogo de espécies: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro ao listar catálogo de espécies", e);
         }
         return list;
     }
 
+    /**
+     * @param id Identificador do animal.
+     * @return NIF do tutor atual do animal ou nulo se não for encontrado.
+     */
+    private static String getTutorNif(int id) {
+        try (Connection con = new Configura().getConnection();
+                PreparedStatement ps = con.prepareStatement("SELECT Cliente_NIF FROM Animal WHERE IDAnimal = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    return rs.getString(1);
+            }
+        } catch (SQLException e) {
+            Log.error(AnimalDAO.class, "Erro ao obter o tutor do animal", e);
+        }
+        return null;
+    }
+
     /**
      * Obtém um animal específico através do seu identificador único.
      * 
@@ -179,7 +341,7 @@ public class AnimalDAO {
      * @return Objeto Animal ou nulo se não for encontrado.
      */
     public static Animal getById(int id) {
-        String sql = "SELECT a.*, c.ExpectativaVida FROM Animal a " +
+        String sql = "SELECT " + COLUNAS + ", c.ExpectativaVida FROM Animal a " +
                 "JOIN Catalogo c ON a.Catalogo_NomeComum = c.NomeComum " +
                 "WHERE a.IDAnimal = ?";
         try (Connection con = new Configura().getConnection();
@@ -191,7 +353,7 @@ public class AnimalDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao recuperar animal por identificador: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro ao recuperar animal por identificador", e);
         }
         return null;
     }
@@ -204,7 +366,7 @@ public class AnimalDAO {
      */
     public static List<Animal> searchByTutor(String tutorName) {
         List<Animal> list = new ArrayList<>();
-        String sql = "SELECT a.*, cat.ExpectativaVida FROM Animal a " +
+        String sql = "SELECT " + COLUNAS + ", cat.ExpectativaVida FROM Animal a " +
                 "JOIN Cliente c ON a.Cliente_NIF = c.NIF " +
                 "LEFT JOIN Catalogo cat ON a.Catalogo_NomeComum = cat.NomeComum " +
                 "WHERE c.NomeCompleto LIKE ? ORDER BY a.Nome";
@@ -216,7 +378,7 @@ public class AnimalDAO {
                     list.add(new Animal(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Erro na pesquisa de animais por tutor: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro na pesquisa de animais por tutor", e);
         }
         return list;
     }
@@ -228,7 +390,7 @@ public class AnimalDAO {
      * @return Objeto Animal correspondente.
      */
     public static Animal getByTransponder(String transponder) {
-        String sql = "SELECT a.*, c.ExpectativaVida FROM Animal a " +
+        String sql = "SELECT " + COLUNAS + ", c.ExpectativaVida FROM Animal a " +
                 "JOIN Catalogo c ON a.Catalogo_NomeComum = c.NomeComum " +
                 "WHERE a.NumeroTransponder = ?";
         try (Connection con = new Configura().getConnection();
@@ -239,7 +401,7 @@ public class AnimalDAO {
                     return new Animal(rs);
             }
         } catch (SQLException e) {
-            System.err.println("Erro na localização por transponder: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro na localização por transponder", e);
         }
         return null;
     }
@@ -253,7 +415,7 @@ public class AnimalDAO {
      * @return Objeto Animal ou nulo se não for encontrado.
      */
     public static Animal getByNomeAndNif(String nome, String nif) {
-        String sql = "SELECT a.*, c.ExpectativaVida FROM Animal a " +
+        String sql = "SELECT " + COLUNAS + ", c.ExpectativaVida FROM Animal a " +
                 "JOIN Catalogo c ON a.Catalogo_NomeComum = c.NomeComum " +
                 "WHERE a.Nome = ? AND a.Cliente_NIF = ?";
         try (Connection con = new Configura().getConnection();
@@ -265,7 +427,7 @@ public class AnimalDAO {
                     return new Animal(rs);
             }
         } catch (SQLException e) {
-            System.err.println("Erro na localização por nome+NIF: " + e.getMessage());
+            Log.error(AnimalDAO.class, "Erro na localização por nome+NIF", e);
         }
         return null;
     }
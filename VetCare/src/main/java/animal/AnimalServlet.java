@@ -12,6 +12,8 @@ import jakarta.servlet.http.Part;
 import java.util.Scanner;
 import cliente.ClienteDAO;
 import util.Configura;
+import util.Log;
+import util.PrefixIndex;
 
 /**
  * Servlet responsável pela gestão de animais no sistema VetCare.
@@ -26,7 +28,9 @@ public class AnimalServlet extends HttpServlet {
     /**
      * Processa os pedidos HTTP GET.
      * Suporta operações de listagem, pesquisa, visualização de formulário de edição
-     * e visualização de genealogia.
+     * e visualização de genealogia. Com {@code p=pesquisa} devolve em JSON os
+     * animais cujo nome começa por {@code q} (opcionalmente só os do
+     * {@code tutor}).
      * 
      * @param request  O objeto HttpServletRequest que contém o pedido do cliente.
      * @param response O objeto HttpServletResponse que contém a resposta do
@@ -42,6 +46,10 @@ public class AnimalServlet extends HttpServlet {
 
         if ("edit".equals(action)) {
             showEditForm(request, response);
+        } else if ("pesquisa".equals(action)) {
+            String tutor = request.getParameter("tutor");
+            PrefixIndex.send(response, AnimalDAO.searchByPrefix(request.getParameter("q"),
+                    tutor == null || tutor.isEmpty() ? null : tutor, PrefixIndex.limit(request.getParameter("n"))));
         } else if ("genealogia".equals(action)) {
             String id = request.getParameter("id");
             if (id != null) {
@@ -95,8 +103,6 @@ public class AnimalServlet extends HttpServlet {
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        System.out.println(">>> AnimalServlet: Processando POST");
-
         String nome = trimToNull(getFieldValue(request, "Nome"));
         String raca = trimToNull(getFieldValue(request, "Raca"));
         String sexo = trimToNull(getFieldValue(request, "Sexo"));
@@ -113,11 +119,9 @@ public class AnimalServlet extends HttpServlet {
         String caract = trimToNull(getFieldValue(request, "CaracteristicasDistintivas"));
         String microchip = trimToNull(getFieldValue(request, "NumeroTransponder"));
 
-        System.out.println("    [DEBUG] Dados Recebidos:");
-        System.out.println("    - Nome: " + nome);
-        System.out.println("    - EstadoReprodutivo: [" + (estadoRep == null ? "NULL" : estadoRep) + "] Len="
-                + (estadoRep != null ? estadoRep.length() : 0));
-        System.out.println("    - Cores: " + cores);
+        if (Log.isEnabled(Log.Level.DEBUG))
+            Log.event(Log.Level.DEBUG, AnimalServlet.class, "Dados recebidos", "nome", nome,
+                    "estadoReprodutivo", estadoRep, "cores", cores);
 
         Animal a = new Animal();
         if (idStr != null)
@@ -140,7 +144,7 @@ public class AnimalServlet extends HttpServlet {
             try {
                 a.setPesoAtual(new java.math.BigDecimal(pesoStr.replace(",", ".")));
             } catch (Exception e) {
-                System.err.println("    Erro peso: " + pesoStr);
+                Log.warn(AnimalServlet.class, "Peso inválido: " + pesoStr);
             }
         }
 
@@ -150,17 +154,11 @@ public class AnimalServlet extends HttpServlet {
                 try (java.io.InputStream input = filePart.getInputStream()) {
                     byte[] bytes = input.readAllBytes();
                     a.setFotografia(bytes);
-                    System.out.println("    [DEBUG] Foto lida para binário: " + bytes.length + " bytes");
-                }
-            } else {
-                if (idStr != null) {
-                    Animal ant = AnimalDAO.getById(Integer.parseInt(idStr));
-                    if (ant != null)
-                        a.setFotografia(ant.getFotografia());
+                    Log.debug(AnimalServlet.class, "Foto lida para binário: " + bytes.length + " bytes");
                 }
             }
         } catch (Exception e) {
-            System.err.println("    Erro upload: " + e.getMessage());
+            Log.error(AnimalServlet.class, "Erro no carregamento da fotografia", e);
         }
 
         StringBuilder erros = new StringBuilder();
@@ -0,0 +1,153 @@
+package animal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import util.Configura;
+import util.Log;
+import util.SqlDialect;
+
+/**
+ * Envia a fotografia de um animal (parâmetro {@code id}).
+ * A fotografia é copiada da base de dados para a resposta à medida que é
+ * lida, sem ser carregada em memória. A resposta leva um ETag forte (resumo
+ * MD5 gravado com a fotografia, ver {@link AnimalDAO#hashSql}), pelo que o
+ * navegador pode guardá-la e revalidá-la: se o conteúdo não mudou responde-se
+ * 304 lendo apenas o resumo.
+ */
+@WebServlet("/animais/foto")
+public class FotografiaServlet extends HttpServlet {
+    /** Identificador de versão para serialização. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Devolve a fotografia, 304 se o navegador já tiver a versão atual ou 404
+     * se o animal não existir ou não tiver fotografia.
+     *
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     * @throws ServletException Em caso de erro no processamento do servlet.
+     * @throws IOException      Em caso de erro de entrada/saída.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        int id;
+        try {
+            id = Integer.parseInt(request.getParameter("id"));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        Configura cfg = new Configura();
+        SqlDialect d = cfg.getDialect();
+        String inm = request.getHeader("If-None-Match");
+        try (Connection con = cfg.getReadOnlyConnection()) {
+            if (inm != null) {
+                String etag = etag(con, d, id);
+                if (etag == null) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+                if (corresponde(inm, etag)) {
+                    cabecalhos(response, etag);
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+            enviar(con, d, id, response);
+        } catch (SQLException e) {
+            Log.error(FotografiaServlet.class, "Erro ao ler a fotografia do animal " + id, e);
+            if (!response.isCommitted())
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * @return ETag da fotografia ou nulo se não existir.
+     */
+    private static String etag(Connection con, SqlDialect d, int id) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT " + AnimalDAO.hashSql(d) + " FROM Animal WHERE IDAnimal = ? AND Fotografia IS NOT NULL")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getString(1) != null ? "\"" + rs.getString(1).toLowerCase() + "\"" : null;
+            }
+        }
+    }
+
+    /**
+     * Copia a fotografia para a resposta.
+     */
+    private static void enviar(Connection con, SqlDialect d, int id, HttpServletResponse response)
+            throws SQLException, IOException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT " + AnimalDAO.hashSql(d)
+                + ", Fotografia FROM Animal WHERE IDAnimal = ? AND Fotografia IS NOT NULL",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            try {
+                ps.setFetchSize(d.streamingFetchSize());
+            } catch (SQLException e) {
+                // Controlador sem leitura progressiva: usa o tamanho por omissão
+            }
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+                String etag = "\"" + rs.getString(1).toLowerCase() + "\"";
+                try (InputStream in = rs.getBinaryStream(2)) {
+                    byte[] inicio = in.readNBytes(12);
+                    if (inicio.length == 0) {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                        return;
+                    }
+                    cabecalhos(response, etag);
+                    response.setContentType(tipo(inicio));
+                    OutputStream out = response.getOutputStream();
+                    out.write(inicio);
+                    in.transferTo(out);
+                }
+            }
+        }
+    }
+
+    private static void cabecalhos(HttpServletResponse response, String etag) {
+        response.setHeader("ETag", etag);
+        // Guardada pelo navegador, mas sempre revalidada (a fotografia pode mudar)
+        response.setHeader("Cache-Control", "private, no-cache");
+    }
+
+    private static boolean corresponde(String inm, String etag) {
+        for (String t : inm.split(",")) {
+            t = t.trim();
+            if (t.equals("*") || t.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Identifica o formato da imagem pelos primeiros bytes.
+     */
+    private static String tipo(byte[] b) {
+        if (b.length >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G')
+            return "image/png";
+        if (b.length >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F')
+            return "image/gif";
+        if (b.length >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F' && b[8] == 'W'
+                && b[9] == 'E' && b[10] == 'B' && b[11] == 'P')
+            return "image/webp";
+        // Formato guardado pela aplicação até aqui
+        return "image/jpeg";
+    }
+}
@@ -7,6 +7,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import util.Configura;
+import util.Log;
+import util.PrefixIndex;
 
 /**
  * Gere a persistência da hierarquia de clientes na base de dados.
@@ -15,6 +17,9 @@ import util.Configura;
  */
 public class ClienteDAO {
 
+    /** Índice de pesquisa por nome ou NIF. */
+    private static final PrefixIndex NOMES = new PrefixIndex("clientes", ClienteDAO::lerNomes);
+
     /**
      * Persiste um cliente, efetuando a gravação ou atualização conforme necessário.
      * Utiliza transações para garantir atomicidade entre as tabelas base e
@@ -67,13 +72,14 @@ public class ClienteDAO {
             }
 
             con.commit();
+            NOMES.put(new PrefixIndex.Entrada(c.getNif(), c.getNomeCompleto(), null, c.getNif()));
         } catch (SQLException e) {
-            System.err.println("Erro ao gravar registo de cliente: " + e.getMessage());
+            Log.error(ClienteDAO.class, "Erro ao gravar registo de cliente", e);
             try {
                 if (con != null)
                     con.rollback();
             } catch (SQLException ex) {
-                ex.printStackTrace();
+                Log.error(ClienteDAO.class, "Erro ao fazer rollback", ex);
             }
             return -1;
         } finally {
@@ -122,13 +128,14 @@ public class ClienteDAO {
             }
 
             con.commit();
+            NOMES.put(new PrefixIndex.Entrada(c.getNif(), c.getNomeCompleto(), null, c.getNif()));
         } catch (SQLException e) {
-            System.err.println("Erro ao atualizar registo de cliente: " + e.getMessage());
+            Log.error(ClienteDAO.class, "Erro ao atualizar registo de cliente", e);
             try {
                 if (con != null)
                     con.rollback();
             } catch (SQLException ex) {
-                ex.printStackTrace();
+                Log.error(ClienteDAO.class, "Erro ao fazer rollback", ex);
             }
             return -1;
         } finally {
@@ -151,7 +158,7 @@ public class ClienteDAO {
                 "LEFT JOIN ClienteEmpresa ce ON c.NIF = ce.NIF " +
                 "ORDER BY c.NomeCompleto";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
@@ -167,7 +174,36 @@ public class ClienteDAO {
                     list.add(c);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar registos de clientes: " + e.getMessage());
+            Log.error(ClienteDAO.class, "Erro ao listar registos de clientes", e);
+        }
+        return list;
+    }
+
+    /**
+     * Pesquisa clientes pelo início do nome ou do NIF, sem distinguir
+     * maiúsculas nem acentos, sem consultar a base de dados.
+     * 
+     * @param q Texto escrito.
+     * @param n Número máximo de resultados.
+     * @return NIF e nome dos clientes encontrados.
+     */
+    public static List<PrefixIndex.Entrada> searchByPrefix(String q, int n) {
+        return NOMES.search(q, null, n);
+    }
+
+    /**
+     * Lê as colunas usadas pelo índice de pesquisa.
+     */
+    private static List<PrefixIndex.Entrada> lerNomes() {
+        List<PrefixIndex.Entrada> list = new ArrayList<>();
+        try (Connection con = new Configura().getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement("SELECT NIF, NomeCompleto FROM Cliente");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                list.add(new PrefixIndex.Entrada(rs.getString("NIF"), rs.getString("NomeCompleto"), null,
+                        rs.getString("NIF")));
+        } catch (SQLException e) {
+            Log.error(ClienteDAO.class, "Erro ao ler o índice de pesquisa de clientes", e);
         }
         return list;
     }
@@ -198,7 +234,7 @@ public class ClienteDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao recuperar registo de cliente por NIF: " + e.getMessage());
+            Log.error(ClienteDAO.class, "Erro ao recuperar registo de cliente por NIF", e);
         }
         return null;
     }
@@ -7,6 +7,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import util.PrefixIndex;
 
 /**
  * Servlet responsável pela gestão do ciclo de vida dos clientes (tutores) no
@@ -27,6 +28,8 @@ public class ClienteServlet extends HttpServlet {
 
     /**
      * Processa pedidos HTTP GET para listagem e edição de clientes.
+     * Com {@code p=pesquisa} devolve em JSON os clientes cujo nome ou NIF
+     * começa por {@code q}.
      * 
      * @param request  Objeto de pedido HTTP contendo parâmetros e atributos.
      * @param response Objeto de resposta HTTP para envio de dados ao cliente.
@@ -46,6 +49,10 @@ public class ClienteServlet extends HttpServlet {
             case "edit":
                 showEditForm(request, response);
                 break;
+            case "pesquisa":
+                PrefixIndex.send(response, ClienteDAO.searchByPrefix(request.getParameter("q"),
+                        PrefixIndex.limit(request.getParameter("n"))));
+                break;
             default:
                 listClientes(request, response);
                 break;
@@ -4,6 +4,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import jakarta.servlet.http.HttpServletRequest;
 
+import util.Log;
+
 /**
  * Representa uma unidade física de prestação de serviços veteriniários.
  * Contém informações sobre a localização geográfica e morada da clínica.
@@ -56,7 +58,7 @@ public class Clinica {
             this.moradaCompleta = rs.getString("MoradaCompleta");
             this.coordenadasGeograficas = rs.getString("CoordenadasGeograficas");
         } catch (SQLException e) {
-            System.err.println("Erro ao converter ResultSet para Clinica: " + e.getMessage());
+            Log.error(Clinica.class, "Erro ao converter ResultSet para Clinica", e);
         }
     }
 
@@ -7,6 +7,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import util.Configura;
+import util.Log;
+import util.ReferenceCache;
 
 /**
  * Responsável pela persistência e gestão dos dados das unidades físicas
@@ -15,6 +17,9 @@ import util.Configura;
  */
 public class ClinicaDAO {
 
+    /** Clínicas, partilhadas pelos formulários. */
+    private static final ReferenceCache<Clinica> CLINICAS = new ReferenceCache<>("clinicas", ClinicaDAO::lerTodas);
+
     /**
      * Regista uma nova unidade clínica no sistema.
      * 
@@ -36,8 +41,9 @@ public class ClinicaDAO {
             ps.setString(3, c.getCoordenadasGeograficas());
 
             nRows = ps.executeUpdate();
+            CLINICAS.invalidate();
         } catch (SQLException e) {
-            System.err.println("Erro ao inserir clínica: " + e.getMessage());
+            Log.error(ClinicaDAO.class, "Erro ao inserir clínica", e);
         }
         return nRows;
     }
@@ -62,7 +68,7 @@ public class ClinicaDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao obter clínica por identificador: " + e.getMessage());
+            Log.error(ClinicaDAO.class, "Erro ao obter clínica por identificador", e);
         }
         return c;
     }
@@ -70,13 +76,17 @@ public class ClinicaDAO {
     /**
      * Lista todas as clínicas registadas no sistema, ordenadas por localidade.
      * 
-     * @return Lista de objetos Clinica.
+     * @return Lista imutável de objetos Clinica.
      */
     public static List<Clinica> getAll() {
+        return CLINICAS.get();
+    }
+
+    private static List<Clinica> lerTodas() {
         List<Clinica> list = new ArrayList<>();
         String sql = "SELECT * FROM Clinica ORDER BY Localidade";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
@@ -84,7 +94,7 @@ public class ClinicaDAO {
                 list.add(new Clinica(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar clínicas: " + e.getMessage());
+            Log.error(ClinicaDAO.class, "Erro ao listar clínicas", e);
         }
         return list;
     }
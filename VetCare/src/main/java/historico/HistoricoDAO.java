@@ -4,6 +4,7 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import util.Configura;
+import util.Log;
 
 /**
  * Responsável pela persistência e gestão dos dados do histórico clínico.
@@ -119,7 +120,7 @@ public class HistoricoDAO {
 
             con.commit();
         } catch (SQLException e) {
-            System.err.println("Erro ao gravar histórico clínico: " + e.getMessage());
+            Log.error(HistoricoDAO.class, "Erro ao gravar histórico clínico", e);
             try {
                 if (con != null)
                     con.rollback();
@@ -163,30 +164,32 @@ public class HistoricoDAO {
                         + list.size() + " rows.");
             }
 
-            try (PreparedStatement psRaw = con
-                    .prepareStatement("SELECT count(*) FROM PrestacaoServico WHERE Animal_IDAnimal = ?")) {
-                psRaw.setInt(1, animalId);
-                try (ResultSet rsRaw = psRaw.executeQuery()) {
-                    if (rsRaw.next()) {
-                        logDebug("Raw count in 'PrestacaoServico' for animal " + animalId + ": " + rsRaw.getInt(1));
+            if (Log.isEnabled(Log.Level.DEBUG)) {
+                try (PreparedStatement psRaw = con
+                        .prepareStatement("SELECT count(*) FROM PrestacaoServico WHERE Animal_IDAnimal = ?")) {
+                    psRaw.setInt(1, animalId);
+                    try (ResultSet rsRaw = psRaw.executeQuery()) {
+                        if (rsRaw.next()) {
+                            logDebug("Raw count in 'PrestacaoServico' for animal " + animalId + ": " + rsRaw.getInt(1));
+                        }
                     }
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao ler histórico clínico: " + e.getMessage());
+            Log.error(HistoricoDAO.class, "Erro ao ler histórico clínico", e);
         }
         return list;
     }
 
     /**
-     * Regista mensagens de depuração na consola.
+     * Regista mensagens de depuração (nível DEBUG).
      * Útil para rastrear a execução de operações complexas como a leitura de
      * vistas.
      * 
      * @param msg Mensagem a ser registada.
      */
     public static void logDebug(String msg) {
-        System.out.println("[HistoricoDAO] " + msg);
+        Log.debug(HistoricoDAO.class, msg);
     }
 
 }
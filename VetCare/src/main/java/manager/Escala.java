@@ -20,4 +20,6 @@ public class Escala {
   public String vetNome;
   /** Localidade/Nome da clínica. */
   public String clinica;
+  /** Identificador da clínica. */
+  public int idClinica;
 }
@@ -4,9 +4,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.ResultSet;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import util.Configura;
+import util.Log;
 
 /**
  * Responsável pela gestão dos turnos e alocação de profissionais veterinários.
@@ -15,85 +19,310 @@ import util.Configura;
  */
 public class EscalonamentoDAO {
 
+    /** Resultado: o horário não existe. */
+    public static final int HORARIO_INEXISTENTE = -3;
+    /** Resultado: o veterinário não existe. */
+    public static final int VETERINARIO_INEXISTENTE = -4;
+    /** Resultado: o turno foi preenchido por outro pedido entretanto. */
+    public static final int OCUPADO = -5;
+
+    /** Número máximo de identificadores por consulta. */
+    private static final int MAX_IN = 500;
+
     /**
-     * Atribui um veterinário a um determinado horário e serviço clínico.
-     * Realiza uma verificação prévia de sobreposições para assegurar que o
-     * profissional não está alocado a turnos simultâneos.
+     * Atribuição de um turno (horário e serviço) a um veterinário, com o dia e
+     * as horas do horário.
+     */
+    private static final class Turno {
+        final int idHorario;
+        final int idServico;
+        final String dia;
+        final LocalTime inicio;
+        final LocalTime fim;
+
+        Turno(int idHorario, int idServico, String dia, LocalTime inicio, LocalTime fim) {
+            this.idHorario = idHorario;
+            this.idServico = idServico;
+            this.dia = dia;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        boolean mesmoLugar(int horario, int servico) {
+            return idHorario == horario && idServico == servico;
+        }
+
+        boolean sobrepoe(Turno t) {
+            return dia != null && dia.equals(t.dia) && inicio.isBefore(t.fim) && fim.isAfter(t.inicio)
+                    && !mesmoLugar(t.idHorario, t.idServico);
+        }
+    }
+
+    /**
+     * Atribui um veterinário a um determinado horário e serviço clínico,
+     * substituindo quem lá estivesse. A verificação de sobreposições e a
+     * gravação decorrem numa única transação.
      * 
      * @param idHorario Identificador do horário pretendido.
      * @param idServico Identificador do serviço a prestar.
      * @param nLicenca  Número da licença do veterinário.
-     * @return 1 se bem-sucedido, -2 se existir sobreposição, -1 em caso de erro
-     *         técnico.
+     * @return 1 se bem-sucedido, -2 se existir sobreposição,
+     *         {@link #HORARIO_INEXISTENTE}, {@link #VETERINARIO_INEXISTENTE} ou
+     *         -1 em caso de erro técnico.
      */
     public static int atribuir(int idHorario, int idServico, String nLicenca) {
-        String sqlTarget = "SELECT DiaSemana, HoraInicio, HoraFim FROM Horario WHERE IDHorario = ?";
-        String diaTarget = "";
-        java.sql.Time inicioTarget = null;
-        java.sql.Time fimTarget = null;
+        return gravar(List.of(escala(idHorario, idServico, nLicenca)), null, false)[0];
+    }
 
+    /**
+     * Atribui vários turnos (ex.: a escala de uma semana) numa única
+     * transação. Os horários e as escalas atuais dos veterinários envolvidos
+     * são lidos uma só vez, as sobreposições são verificadas em memória
+     * (incluindo entre os turnos do próprio lote, pela ordem recebida) e os
+     * turnos válidos são gravados num único lote. Cada turno substitui quem
+     * estivesse atribuído ao mesmo horário e serviço.
+     * 
+     * @param turnos Turnos a atribuir ({@code idHorario}, {@code idServico} e
+     *               {@code nLicenca}).
+     * @return Resultado de cada turno, pela ordem recebida (códigos de
+     *         {@link #atribuir(int, int, String)}).
+     */
+    public static int[] atribuirTodos(List<Escala> turnos) {
+        return gravar(turnos, null, false);
+    }
+
+    /**
+     * Gera automaticamente a escala em falta (ver {@link GeradorEscala}) e
+     * grava-a numa única transação. Os horários, serviços, veterinários e
+     * atribuições existentes são lidos uma só vez. Os turnos preenchidos por
+     * outro pedido depois dessa leitura são mantidos e indicados em
+     * {@link GeradorEscala.Resultado#ocupadas}.
+     * 
+     * @return Resultado da geração, ou nulo em caso de erro na leitura.
+     */
+    public static GeradorEscala.Resultado gerarEscala() {
+        List<clinica.Horario> horarios = new ArrayList<>();
+        List<Integer> servicos = new ArrayList<>();
+        List<String> vets = new ArrayList<>();
+        List<Escala> fixas = new ArrayList<>();
         try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sqlTarget)) {
-            ps.setInt(1, idHorario);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    diaTarget = rs.getString("DiaSemana");
-                    inicioTarget = rs.getTime("HoraInicio");
-                    fimTarget = rs.getTime("HoraFim");
-                }
+                java.sql.Statement st = con.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT * FROM Horario")) {
+                while (rs.next())
+                    horarios.add(new clinica.Horario(rs));
+            }
+            try (ResultSet rs = st.executeQuery("SELECT IDServico FROM TipoServico ORDER BY IDServico")) {
+                while (rs.next())
+                    servicos.add(rs.getInt(1));
+            }
+            try (ResultSet rs = st.executeQuery("SELECT NLicenca FROM Veterinario ORDER BY NLicenca")) {
+                while (rs.next())
+                    vets.add(rs.getString(1));
+            }
+            try (ResultSet rs = st.executeQuery("SELECT IDHorario, IDServico, NLicenca FROM Escalonamento")) {
+                while (rs.next())
+                    fixas.add(escala(rs.getInt(1), rs.getInt(2), rs.getString(3)));
             }
         } catch (SQLException e) {
-            return -1;
+            Log.error(EscalonamentoDAO.class, "Erro ao ler dados para gerar a escala", e);
+            return null;
         }
 
-        String sqlCheck = "SELECT COUNT(*) FROM Escalonamento e " +
-                "JOIN Horario h ON e.IDHorario = h.IDHorario " +
-                "WHERE e.NLicenca = ? AND h.DiaSemana = ? " +
-                "AND (h.HoraInicio < ? AND h.HoraFim > ?) " +
-                "AND (e.IDHorario <> ? OR e.IDServico <> ?)";
+        GeradorEscala.Resultado res = GeradorEscala.resolver(horarios, servicos, vets, fixas);
+        // A gravação volta a validar cada turno, caso a escala tenha mudado entretanto
+        int[] r = gravar(res.atribuicoes, null, true);
+        for (int k = 0; k < r.length; k++)
+            if (r[k] == 1)
+                res.gravadas++;
+            else if (r[k] == OCUPADO)
+                res.ocupadas.add(res.atribuicoes.get(k));
+        return res;
+    }
 
-        try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sqlCheck)) {
-            ps.setString(1, nLicenca);
-            ps.setString(2, diaTarget);
-            ps.setTime(3, fimTarget);
-            ps.setTime(4, inicioTarget);
-            ps.setInt(5, idHorario);
-            ps.setInt(6, idServico);
-
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next() && rs.getInt(1) > 0) {
-                    return -2;
+    private static Escala escala(int idHorario, int idServico, String nLicenca) {
+        Escala e = new Escala();
+        e.idHorario = idHorario;
+        e.idServico = idServico;
+        e.nLicenca = nLicenca;
+        return e;
+    }
+
+    /**
+     * Grava turnos numa única transação, removendo antes (se indicada) uma
+     * atribuição antiga. Com atribuição antiga, a operação só é confirmada se
+     * todos os turnos forem válidos. Com {@code soVagos}, os turnos que já
+     * tenham veterinário (relidos depois do bloqueio dos horários) não são
+     * substituídos e ficam com {@link #OCUPADO}.
+     */
+    private static int[] gravar(List<Escala> turnos, Escala antiga, boolean soVagos) {
+        int[] res = new int[turnos.size()];
+        if (turnos.isEmpty())
+            return res;
+        Configura cfg = new Configura();
+        Connection con = null;
+        try {
+            con = cfg.getConnection(false);
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+            java.util.Set<Integer> idsHorario = new java.util.TreeSet<>();
+            java.util.Set<String> vets = new java.util.TreeSet<>();
+            for (Escala e : turnos) {
+                idsHorario.add(e.idHorario);
+                if (e.nLicenca != null)
+                    vets.add(e.nLicenca);
+            }
+            // Bloqueia os veterinários e horários envolvidos até ao fim da transação
+            java.util.Set<String> existentes = new java.util.HashSet<>();
+            for (List<String> parte : partes(new ArrayList<>(vets))) {
+                try (PreparedStatement ps = con.prepareStatement(cfg.getDialect().selectForUpdate("Veterinario",
+                        "NLicenca", "NLicenca IN (" + marcadores(parte.size()) + ")"))) {
+                    for (int i = 0; i < parte.size(); i++)
+                        ps.setString(i + 1, parte.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            existentes.add(rs.getString(1));
+                    }
+                }
+            }
+            Map<Integer, Turno> horarios = new HashMap<>();
+            for (List<Integer> parte : partes(new ArrayList<>(idsHorario))) {
+                try (PreparedStatement ps = con.prepareStatement(cfg.getDialect().selectForUpdate("Horario",
+                        "IDHorario, DiaSemana, HoraInicio, HoraFim", "IDHorario IN (" + marcadores(parte.size()) + ")"))) {
+                    for (int i = 0; i < parte.size(); i++)
+                        ps.setInt(i + 1, parte.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            horarios.put(rs.getInt(1), new Turno(rs.getInt(1), 0, rs.getString(2),
+                                    rs.getTime(3).toLocalTime(), rs.getTime(4).toLocalTime()));
+                    }
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace(); // Added debug
-            System.err.println("Erro ao validar sobreposição: " + e.getMessage());
-        }
 
-        String sqlDel = "DELETE FROM Escalonamento WHERE IDHorario=? AND IDServico=?";
-        try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sqlDel)) {
-            ps.setInt(1, idHorario);
-            ps.setInt(2, idServico);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            // Turnos já preenchidos, relidos com os horários bloqueados
+            java.util.Set<Long> ocupados = new java.util.HashSet<>();
+            if (soVagos) {
+                for (List<Integer> parte : partes(new ArrayList<>(horarios.keySet()))) {
+                    try (PreparedStatement ps = con.prepareStatement("SELECT IDHorario, IDServico FROM Escalonamento "
+                            + "WHERE IDHorario IN (" + marcadores(parte.size()) + ")")) {
+                        for (int i = 0; i < parte.size(); i++)
+                            ps.setInt(i + 1, parte.get(i));
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next())
+                                ocupados.add(chave(rs.getInt(1), rs.getInt(2)));
+                        }
+                    }
+                }
+            }
 
-        }
+            // Escala atual dos veterinários envolvidos
+            Map<String, List<Turno>> porVet = new HashMap<>();
+            for (List<String> parte : partes(new ArrayList<>(existentes))) {
+                String sql = "SELECT e.IDHorario, e.IDServico, e.NLicenca, h.DiaSemana, h.HoraInicio, h.HoraFim "
+                        + "FROM Escalonamento e JOIN Horario h ON e.IDHorario = h.IDHorario "
+                        + "WHERE e.NLicenca IN (" + marcadores(parte.size()) + ")";
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (int i = 0; i < parte.size(); i++)
+                        ps.setString(i + 1, parte.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            porVet.computeIfAbsent(rs.getString(3), k -> new ArrayList<>())
+                                    .add(new Turno(rs.getInt(1), rs.getInt(2), rs.getString(4),
+                                            rs.getTime(5).toLocalTime(), rs.getTime(6).toLocalTime()));
+                    }
+                }
+            }
+            if (antiga != null)
+                for (List<Turno> l : porVet.values())
+                    l.removeIf(t -> t.mesmoLugar(antiga.idHorario, antiga.idServico));
 
-        String sqlIns = "INSERT INTO Escalonamento (IDHorario, IDServico, NLicenca) VALUES (?, ?, ?)";
-        try (Connection con = new Configura().getConnection();
-                PreparedStatement ps = con.prepareStatement(sqlIns)) {
-            ps.setInt(1, idHorario);
-            ps.setInt(2, idServico);
-            ps.setString(3, nLicenca);
-            return ps.executeUpdate();
+            // Validação em memória, pela ordem recebida
+            Map<Long, Escala> finais = new java.util.LinkedHashMap<>();
+            for (int k = 0; k < turnos.size(); k++) {
+                Escala e = turnos.get(k);
+                Turno h = horarios.get(e.idHorario);
+                if (h == null) {
+                    res[k] = HORARIO_INEXISTENTE;
+                    continue;
+                }
+                if (!existentes.contains(e.nLicenca)) {
+                    res[k] = VETERINARIO_INEXISTENTE;
+                    continue;
+                }
+                if (ocupados.contains(chave(e.idHorario, e.idServico))) {
+                    res[k] = OCUPADO;
+                    continue;
+                }
+                Turno t = new Turno(e.idHorario, e.idServico, h.dia, h.inicio, h.fim);
+                List<Turno> doVet = porVet.computeIfAbsent(e.nLicenca, v -> new ArrayList<>());
+                if (doVet.stream().anyMatch(t::sobrepoe)) {
+                    res[k] = -2;
+                    continue;
+                }
+                for (List<Turno> l : porVet.values())
+                    l.removeIf(x -> x.mesmoLugar(t.idHorario, t.idServico));
+                doVet.add(t);
+                finais.put(chave(e.idHorario, e.idServico), e);
+                res[k] = 1;
+            }
+
+            if (antiga != null && finais.size() < turnos.size()) {
+                con.rollback();
+                return res;
+            }
+            try (PreparedStatement del = con.prepareStatement(
+                    "DELETE FROM Escalonamento WHERE IDHorario = ? AND IDServico = ?");
+                    PreparedStatement ins = con.prepareStatement(
+                            "INSERT INTO Escalonamento (IDHorario, IDServico, NLicenca) VALUES (?, ?, ?)")) {
+                if (antiga != null) {
+                    del.setInt(1, antiga.idHorario);
+                    del.setInt(2, antiga.idServico);
+                    del.addBatch();
+                }
+                for (Escala e : finais.values()) {
+                    del.setInt(1, e.idHorario);
+                    del.setInt(2, e.idServico);
+                    del.addBatch();
+                    ins.setInt(1, e.idHorario);
+                    ins.setInt(2, e.idServico);
+                    ins.setString(3, e.nLicenca);
+                    ins.addBatch();
+                }
+                del.executeBatch();
+                if (!finais.isEmpty())
+                    ins.executeBatch();
+            }
+            con.commit();
         } catch (SQLException e) {
-            e.printStackTrace(); // Added debug
-            System.err.println("Erro ao gravar escalonamento: " + e.getMessage());
+            Log.error(EscalonamentoDAO.class, "Erro ao gravar escalonamento", e);
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (SQLException ex) {
+                Log.error(EscalonamentoDAO.class, "Erro ao fazer rollback", ex);
+            }
+            java.util.Arrays.fill(res, -1);
+        } finally {
+            Configura.close(con);
         }
-        return -1;
+        return res;
+    }
+
+    private static long chave(int idHorario, int idServico) {
+        return ((long) idHorario << 32) | (idServico & 0xFFFFFFFFL);
+    }
+
+    private static <T> List<List<T>> partes(List<T> lista) {
+        List<List<T>> res = new ArrayList<>();
+        for (int i = 0; i < lista.size(); i += MAX_IN)
+            res.add(lista.subList(i, Math.min(lista.size(), i + MAX_IN)));
+        return res;
+    }
+
+    private static String marcadores(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            sb.append(i == 0 ? "?" : ", ?");
+        return sb.toString();
     }
 
     /**
@@ -103,14 +332,14 @@ public class EscalonamentoDAO {
      */
     public static List<Escala> getAll() {
         List<Escala> list = new ArrayList<>();
-        String sql = "SELECT e.*, h.DiaSemana, h.HoraInicio, c.Localidade, ts.Nome as Servico, v.Nome as Vet " +
+        String sql = "SELECT e.*, h.DiaSemana, h.HoraInicio, h.Clinica_IDClinica, c.Localidade, ts.Nome as Servico, v.Nome as Vet " +
                 "FROM Escalonamento e " +
                 "JOIN Horario h ON e.IDHorario = h.IDHorario " +
                 "JOIN Clinica c ON h.Clinica_IDClinica = c.IDClinica " + // Added join
                 "JOIN TipoServico ts ON e.IDServico = ts.IDServico " +
                 "JOIN Veterinario v ON e.NLicenca = v.NLicenca " +
                 "ORDER BY c.Localidade, h.DiaSemana"; // Ordered by clinic too
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -121,12 +350,13 @@ public class EscalonamentoDAO {
                 es.dia = rs.getString("DiaSemana");
                 es.hora = rs.getTime("HoraInicio").toString();
                 es.clinica = rs.getString("Localidade");
+                es.idClinica = rs.getInt("Clinica_IDClinica");
                 es.servicoNome = rs.getString("Servico");
                 es.vetNome = rs.getString("Vet");
                 list.add(es);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao listar escalonamento: " + e.getMessage());
+            Log.error(EscalonamentoDAO.class, "Erro ao listar escalonamento", e);
         }
         return list;
     }
@@ -141,92 +371,10 @@ public class EscalonamentoDAO {
      * @param newHorario Novo ID de horário.
      * @param newServico Novo ID de serviço.
      * @param nLicenca   Licença do veterinário.
-     * @return 1 (Sucesso), -2 (Sobreposição), -1 (Erro).
+     * @return 1 (Sucesso), -2 (Sobreposição), {@link #HORARIO_INEXISTENTE},
+     *         {@link #VETERINARIO_INEXISTENTE} ou -1 (Erro).
      */
     public static int update(int oldHorario, int oldServico, int newHorario, int newServico, String nLicenca) {
-        Connection con = null;
-        try {
-            con = new Configura().getConnection();
-            con.setAutoCommit(false);
-
-            String sqlDel = "DELETE FROM Escalonamento WHERE IDHorario=? AND IDServico=?";
-            try (PreparedStatement ps = con.prepareStatement(sqlDel)) {
-                ps.setInt(1, oldHorario);
-                ps.setInt(2, oldServico);
-                ps.executeUpdate();
-            }
-
-            String sqlTarget = "SELECT DiaSemana, HoraInicio, HoraFim FROM Horario WHERE IDHorario = ?";
-            String diaTarget = "";
-            java.sql.Time inicioTarget = null;
-            java.sql.Time fimTarget = null;
-
-            try (PreparedStatement ps = con.prepareStatement(sqlTarget)) {
-                ps.setInt(1, newHorario);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        diaTarget = rs.getString("DiaSemana");
-                        inicioTarget = rs.getTime("HoraInicio");
-                        fimTarget = rs.getTime("HoraFim");
-                    }
-                }
-            }
-
-            String sqlCheck = "SELECT COUNT(*) FROM Escalonamento e " +
-                    "JOIN Horario h ON e.IDHorario = h.IDHorario " +
-                    "WHERE e.NLicenca = ? AND h.DiaSemana = ? " +
-                    "AND (h.HoraInicio < ? AND h.HoraFim > ?) " +
-                    "AND (e.IDHorario <> ? OR e.IDServico <> ?)";
-
-            boolean conflict = false;
-            try (PreparedStatement ps = con.prepareStatement(sqlCheck)) {
-                ps.setString(1, nLicenca);
-                ps.setString(2, diaTarget);
-                ps.setTime(3, fimTarget);
-                ps.setTime(4, inicioTarget);
-                ps.setInt(5, newHorario);
-                ps.setInt(6, newServico);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next() && rs.getInt(1) > 0)
-                        conflict = true;
-                }
-            }
-
-            if (conflict) {
-                con.rollback();
-                return -2;
-            }
-
-            String sqlIns = "INSERT INTO Escalonamento (IDHorario, IDServico, NLicenca) VALUES (?, ?, ?)";
-            try (PreparedStatement ps = con.prepareStatement(sqlIns)) {
-                ps.setInt(1, newHorario);
-                ps.setInt(2, newServico);
-                ps.setString(3, nLicenca);
-                ps.executeUpdate();
-            }
-
-            con.commit();
-            return 1;
-
-        } catch (SQLException e) {
-            System.err.println("Erro no update de escala: " + e.getMessage());
-            if (con != null) {
-                try {
-                    con.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
-            return -1;
-        } finally {
-            if (con != null) {
-                try {
-                    con.setAutoCommit(true);
-                    con.close();
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        return gravar(List.of(escala(newHorario, newServico, nLicenca)), escala(oldHorario, oldServico, null), false)[0];
     }
 }
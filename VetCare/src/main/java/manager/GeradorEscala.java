@@ -0,0 +1,163 @@
+package manager;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import clinica.Horario;
+
+/**
+ * Geração automática da escala de veterinários.
+ * Preenche todos os turnos (horário e serviço) ainda sem veterinário, sem
+ * atribuir a ninguém dois turnos sobrepostos no mesmo dia e mantendo as
+ * atribuições existentes. Os turnos de cada dia são percorridos por hora de
+ * início e cada um é entregue ao veterinário livre com menos horas na semana
+ * (de preferência um que já esteja nessa clínica nesse dia). Sem
+ * atribuições prévias, percorrer os turnos por ordem de início garante que só
+ * fica por preencher o que não tem solução.
+ * Todo o cálculo é feito em memória.
+ */
+public final class GeradorEscala {
+
+    /**
+     * Resultado da geração.
+     */
+    public static final class Resultado {
+        /** Novas atribuições. */
+        public final List<Escala> atribuicoes = new ArrayList<>();
+        /** Turnos sem veterinário disponível. */
+        public final List<Escala> porPreencher = new ArrayList<>();
+        /** Minutos semanais por veterinário (incluindo as atribuições existentes). */
+        public final Map<String, Integer> minutos = new HashMap<>();
+        /** Atribuições gravadas na base de dados. */
+        public int gravadas;
+        /** Atribuições não gravadas por o turno ter sido preenchido entretanto. */
+        public final List<Escala> ocupadas = new ArrayList<>();
+        /** Duração do cálculo, em milissegundos. */
+        public long duracaoMs;
+    }
+
+    /**
+     * Ocupação de um veterinário num dia: início e fim (minutos) e clínica.
+     */
+    private static final class Ocupacao {
+        final int inicio, fim, clinica;
+
+        Ocupacao(int inicio, int fim, int clinica) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.clinica = clinica;
+        }
+    }
+
+    private GeradorEscala() {
+    }
+
+    /**
+     * Calcula as atribuições em falta.
+     *
+     * @param horarios Horários de todas as clínicas.
+     * @param servicos Identificadores dos tipos de serviço.
+     * @param vets     Licenças dos veterinários disponíveis.
+     * @param fixas    Atribuições existentes, que não são alteradas.
+     * @return Novas atribuições, turnos por preencher e carga de cada
+     *         veterinário.
+     */
+    static Resultado resolver(List<Horario> horarios, List<Integer> servicos, List<String> vets, List<Escala> fixas) {
+        long inicio = System.nanoTime();
+        Resultado res = new Resultado();
+        Map<Integer, Horario> porId = new HashMap<>();
+        for (Horario h : horarios)
+            if (h.getHoraInicio() != null && h.getHoraFim() != null && h.getDiaSemana() != null)
+                porId.put(h.getIdHorario(), h);
+
+        Map<String, Map<String, List<Ocupacao>>> ocupacao = new HashMap<>();
+        for (String v : vets) {
+            ocupacao.put(v, new HashMap<>());
+            res.minutos.put(v, 0);
+        }
+        Set<Long> preenchidos = new HashSet<>();
+        for (Escala e : fixas) {
+            preenchidos.add(chave(e.idHorario, e.idServico));
+            Horario h = porId.get(e.idHorario);
+            if (h == null || !ocupacao.containsKey(e.nLicenca))
+                continue;
+            ocupar(res, ocupacao, e.nLicenca, h);
+        }
+
+        List<Escala> turnos = new ArrayList<>();
+        for (Horario h : porId.values())
+            for (int s : servicos)
+                if (!preenchidos.contains(chave(h.getIdHorario(), s))) {
+                    Escala e = new Escala();
+                    e.idHorario = h.getIdHorario();
+                    e.idServico = s;
+                    e.dia = h.getDiaSemana();
+                    e.hora = h.getHoraInicio().toString();
+                    turnos.add(e);
+                }
+        turnos.sort(Comparator.<Escala, String>comparing(e -> e.dia)
+                .thenComparing(e -> porId.get(e.idHorario).getHoraInicio())
+                .thenComparing(e -> porId.get(e.idHorario).getHoraFim())
+                .thenComparingInt(e -> e.idHorario).thenComparingInt(e -> e.idServico));
+
+        for (Escala e : turnos) {
+            Horario h = porId.get(e.idHorario);
+            int a = minutos(h.getHoraInicio().toLocalTime()), b = minutos(h.getHoraFim().toLocalTime());
+            int clinica = h.getClinicaId() != null ? h.getClinicaId() : 0;
+            String melhor = null;
+            int melhorMin = 0;
+            boolean melhorLocal = false;
+            for (String v : vets) {
+                List<Ocupacao> dia = ocupacao.get(v).get(h.getDiaSemana());
+                boolean livre = true, local = false;
+                if (dia != null) {
+                    for (Ocupacao o : dia) {
+                        if (o.inicio < b && o.fim > a) {
+                            livre = false;
+                            break;
+                        }
+                        local |= o.clinica == clinica;
+                    }
+                }
+                if (!livre)
+                    continue;
+                int m = res.minutos.get(v);
+                if (melhor == null || m < melhorMin || (m == melhorMin && local && !melhorLocal)) {
+                    melhor = v;
+                    melhorMin = m;
+                    melhorLocal = local;
+                }
+            }
+            if (melhor == null) {
+                res.porPreencher.add(e);
+                continue;
+            }
+            e.nLicenca = melhor;
+            ocupar(res, ocupacao, melhor, h);
+            res.atribuicoes.add(e);
+        }
+        res.duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        return res;
+    }
+
+    private static void ocupar(Resultado res, Map<String, Map<String, List<Ocupacao>>> ocupacao, String vet,
+            Horario h) {
+        int a = minutos(h.getHoraInicio().toLocalTime()), b = minutos(h.getHoraFim().toLocalTime());
+        ocupacao.get(vet).computeIfAbsent(h.getDiaSemana(), d -> new ArrayList<>())
+                .add(new Ocupacao(a, b, h.getClinicaId() != null ? h.getClinicaId() : 0));
+        res.minutos.merge(vet, b - a, Integer::sum);
+    }
+
+    private static int minutos(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    private static long chave(int idHorario, int idServico) {
+        return ((long) idHorario << 32) | (idServico & 0xFFFFFFFFL);
+    }
+}
@@ -6,7 +6,11 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import util.DataTransfer;
+import util.ParallelQueries;
 
 /**
  * Controlador central para as operações de gestão administrativa da clínica.
@@ -36,10 +40,13 @@ public class ManagerServlet extends HttpServlet {
 
         if ("dashboard".equals(action)) {
 
-            request.setAttribute("animaisVelhos", RelatorioDAO.getAnimaisExcedentes());
-            request.setAttribute("tutoresObesos", RelatorioDAO.getTutoresAnimaisObesos());
-            request.setAttribute("topCancelamentos", RelatorioDAO.getTutoresCancelamentos());
-            request.setAttribute("agendaSemana", RelatorioDAO.getAgendaProximaSemana());
+            ParallelQueries q = new ParallelQueries()
+                    .add("animaisVelhos", RelatorioDAO::getAnimaisExcedentes, List.of())
+                    .add("tutoresObesos", RelatorioDAO::getTutoresAnimaisObesos, Map.of())
+                    .add("topCancelamentos", RelatorioDAO::getTutoresCancelamentos, List.of())
+                    .add("agendaSemana", RelatorioDAO::getAgendaProximaSemana, Map.of());
+            q.run().forEach(request::setAttribute);
+            request.setAttribute("consultasExpiradas", q.getExpired());
             request.getRequestDispatcher("manager/dashboard.jsp").forward(request, response);
         } else if ("horarios".equals(action)) {
 
@@ -62,19 +69,18 @@ public class ManagerServlet extends HttpServlet {
             }
             request.setAttribute("selectedClinicaId", selectedClinicaId);
 
-            java.util.List<clinica.Horario> allHorarios = agendamento.AgendamentoDAO.getAllHorarios();
             java.util.List<clinica.Horario> filteredHorarios = new java.util.ArrayList<>();
 
-            if (allHorarios != null) {
-                for (clinica.Horario h : allHorarios) {
-                    if (h.getClinicaId() == selectedClinicaId) {
-                        filteredHorarios.add(h);
-                    }
+            for (clinica.Horario h : agendamento.AgendamentoDAO.getAllHorarios()) {
+                if (h.getClinicaId() == selectedClinicaId) {
+                    filteredHorarios.add(h);
                 }
             }
             request.setAttribute("listaHorarios", filteredHorarios);
 
             request.getRequestDispatcher("manager/horarios.jsp").forward(request, response);
+        } else if ("ocupacao".equals(action)) {
+            showOcupacao(request, response);
         } else if ("xml".equals(action)) {
             exportFullProfile(request, response, "xml");
         } else if ("json".equals(action)) {
@@ -84,6 +90,49 @@ public class ManagerServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Apresenta o mapa de ocupação por dia da semana e hora (parâmetros
+     * {@code de}, {@code ate}, {@code clinica} e {@code servico}). Com
+     * {@code formato=json} o mapa é devolvido em JSON.
+     * 
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     */
+    private void showOcupacao(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        LocalDate de, ate;
+        Integer clinicaId, servicoId;
+        try {
+            String v = request.getParameter("de");
+            de = v == null || v.isEmpty() ? LocalDate.now() : LocalDate.parse(v);
+            v = request.getParameter("ate");
+            ate = v == null || v.isEmpty() ? de.plusDays(27) : LocalDate.parse(v);
+            v = request.getParameter("clinica");
+            clinicaId = v == null || v.isEmpty() ? null : Integer.valueOf(v);
+            v = request.getParameter("servico");
+            servicoId = v == null || v.isEmpty() ? null : Integer.valueOf(v);
+        } catch (NumberFormatException | java.time.format.DateTimeParseException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        MapaOcupacao mapa = OcupacaoDAO.getMapa(de, ate, clinicaId, servicoId);
+        if ("json".equals(request.getParameter("formato"))) {
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(mapa.toJson());
+            return;
+        }
+        new ParallelQueries()
+                .add("listaClinicas", clinica.ClinicaDAO::getAll, List.of())
+                .add("listaTipos", agendamento.AgendamentoDAO::getTiposServico, List.of())
+                .run().forEach(request::setAttribute);
+        request.setAttribute("mapa", mapa);
+        request.setAttribute("clinicaId", clinicaId);
+        request.setAttribute("servicoId", servicoId);
+        request.getRequestDispatcher("manager/ocupacao.jsp").forward(request, response);
+    }
+
     /**
      * Processa a importação de perfis de animais em formato XML ou JSON.
      * 
@@ -177,12 +226,87 @@ public class ManagerServlet extends HttpServlet {
             String msg = "Operação realizada com sucesso!";
             if (result == -2) {
                 msg = "Aviso: Existe sobreposição de horários para este profissional.";
+            } else if (result == EscalonamentoDAO.HORARIO_INEXISTENTE) {
+                msg = "Erro: O horário selecionado já não existe.";
+            } else if (result == EscalonamentoDAO.VETERINARIO_INEXISTENTE) {
+                msg = "Erro: O veterinário selecionado não existe.";
             } else if (result == -1) {
                 msg = "Erro técnico ao gravar escala.";
             }
 
             response.sendRedirect("manager?p=horarios&msg=" + java.net.URLEncoder.encode(msg, "UTF-8")
                     + "&filterClinica=" + request.getParameter("filterClinica"));
+        } else if ("atribuirLote".equals(action)) {
+            atribuirLote(request, response);
+        } else if ("gerarEscala".equals(action)) {
+            GeradorEscala.Resultado res = EscalonamentoDAO.gerarEscala();
+            String msg;
+            if (res == null) {
+                msg = "Erro técnico ao gerar escala.";
+            } else {
+                int min = Integer.MAX_VALUE, max = 0;
+                for (int m : res.minutos.values()) {
+                    min = Math.min(min, m);
+                    max = Math.max(max, m);
+                }
+                msg = res.gravadas + " turno(s) atribuído(s) automaticamente em " + res.duracaoMs + " ms."
+                        + (res.porPreencher.isEmpty() ? ""
+                                : " " + res.porPreencher.size() + " turno(s) sem veterinário disponível.")
+                        + (res.ocupadas.isEmpty() ? ""
+                                : " " + res.ocupadas.size() + " turno(s) preenchido(s) entretanto, mantido(s).")
+                        + (res.minutos.isEmpty() ? ""
+                                : " Carga semanal por veterinário: " + min / 60 + "h a " + max / 60 + "h.");
+            }
+            response.sendRedirect("manager?p=horarios&msg=" + java.net.URLEncoder.encode(msg, "UTF-8")
+                    + "&filterClinica=" + request.getParameter("filterClinica"));
+        }
+    }
+
+    /**
+     * Atribui a um veterinário vários horários e serviços de uma só vez (ex.:
+     * a escala da semana), numa única transação.
+     * 
+     * @param request  Pedido HTTP com {@code NLicenca} e os valores de
+     *                 {@code IDHorario} e {@code IDServico} selecionados.
+     * @param response Resposta HTTP.
+     * @throws IOException Em caso de erro de entrada/saída.
+     */
+    private void atribuirLote(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String nLicenca = request.getParameter("NLicenca");
+        String[] horarios = request.getParameterValues("IDHorario");
+        String[] servicos = request.getParameterValues("IDServico");
+        List<Escala> turnos = new java.util.ArrayList<>();
+        if (nLicenca != null && horarios != null && servicos != null) {
+            try {
+                for (String h : horarios)
+                    for (String sv : servicos) {
+                        Escala e = new Escala();
+                        e.idHorario = Integer.parseInt(h);
+                        e.idServico = Integer.parseInt(sv);
+                        e.nLicenca = nLicenca;
+                        turnos.add(e);
+                    }
+            } catch (NumberFormatException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+        }
+
+        int[] res = EscalonamentoDAO.atribuirTodos(turnos);
+        int ok = 0, sobrepostos = 0, erros = 0;
+        for (int r : res) {
+            if (r == 1)
+                ok++;
+            else if (r == -2)
+                sobrepostos++;
+            else
+                erros++;
         }
+        String msg = turnos.isEmpty() ? "Selecione pelo menos um horário e um serviço."
+                : ok + " turno(s) atribuído(s)."
+                        + (sobrepostos > 0 ? " " + sobrepostos + " não atribuído(s) por sobreposição de horários." : "")
+                        + (erros > 0 ? " " + erros + " com erro." : "");
+        response.sendRedirect("manager?p=horarios&msg=" + java.net.URLEncoder.encode(msg, "UTF-8")
+                + "&filterClinica=" + request.getParameter("filterClinica"));
     }
 }
@@ -0,0 +1,121 @@
+package manager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Mapa de ocupação por dia da semana e hora num intervalo de datas.
+ * Para cada célula guarda os minutos marcados e os minutos disponíveis
+ * segundo o horário de funcionamento (excluindo os dias de encerramento).
+ */
+public class MapaOcupacao {
+
+    /** Primeiro dia incluído. */
+    private final LocalDate de;
+
+    /** Último dia incluído. */
+    private final LocalDate ate;
+
+    /** Minutos marcados por dia da semana (0 = segunda) e hora. */
+    private final int[][] marcados = new int[7][24];
+
+    /** Minutos disponíveis por dia da semana (0 = segunda) e hora. */
+    private final int[][] capacidade = new int[7][24];
+
+    /**
+     * @param de  Primeiro dia incluído.
+     * @param ate Último dia incluído.
+     */
+    public MapaOcupacao(LocalDate de, LocalDate ate) {
+        this.de = de;
+        this.ate = ate;
+    }
+
+    void addMarcados(DayOfWeek dia, int hora, int minutos) {
+        marcados[dia.getValue() - 1][hora] += minutos;
+    }
+
+    void addCapacidade(DayOfWeek dia, int hora, int minutos) {
+        capacidade[dia.getValue() - 1][hora] += minutos;
+    }
+
+    /** @return Primeiro dia incluído. */
+    public LocalDate getDe() {
+        return de;
+    }
+
+    /** @return Último dia incluído. */
+    public LocalDate getAte() {
+        return ate;
+    }
+
+    /**
+     * @param dia  Dia da semana.
+     * @param hora Hora (0-23).
+     * @return Minutos marcados.
+     */
+    public int getMarcados(DayOfWeek dia, int hora) {
+        return marcados[dia.getValue() - 1][hora];
+    }
+
+    /**
+     * @param dia  Dia da semana.
+     * @param hora Hora (0-23).
+     * @return Minutos disponíveis.
+     */
+    public int getCapacidade(DayOfWeek dia, int hora) {
+        return capacidade[dia.getValue() - 1][hora];
+    }
+
+    /**
+     * @param dia  Dia da semana.
+     * @param hora Hora (0-23).
+     * @return Taxa de ocupação (pode exceder 1 se houver marcações fora do
+     *         horário) ou -1 se não houver capacidade nem marcações.
+     */
+    public double getRacio(DayOfWeek dia, int hora) {
+        int c = getCapacidade(dia, hora), m = getMarcados(dia, hora);
+        if (c == 0)
+            return m == 0 ? -1 : 1;
+        return (double) m / c;
+    }
+
+    /**
+     * @return Primeira e última hora (inclusive) com capacidade ou marcações,
+     *         ou {@code {0, -1}} se o mapa estiver vazio.
+     */
+    public int[] getHoras() {
+        int min = 24, max = -1;
+        for (int d = 0; d < 7; d++)
+            for (int h = 0; h < 24; h++)
+                if (capacidade[d][h] > 0 || marcados[d][h] > 0) {
+                    min = Math.min(min, h);
+                    max = Math.max(max, h);
+                }
+        return max < 0 ? new int[] { 0, -1 } : new int[] { min, max };
+    }
+
+    /**
+     * @return Mapa em JSON: intervalo e lista de células não vazias.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"de\":\"").append(de).append("\",\"ate\":\"").append(ate).append("\",\"celulas\":[");
+        boolean primeira = true;
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            for (int h = 0; h < 24; h++) {
+                double r = getRacio(dia, h);
+                if (r < 0)
+                    continue;
+                if (!primeira)
+                    sb.append(',');
+                primeira = false;
+                sb.append("{\"dia\":").append(dia.getValue()).append(",\"hora\":").append(h)
+                        .append(",\"marcados\":").append(getMarcados(dia, h))
+                        .append(",\"capacidade\":").append(getCapacidade(dia, h))
+                        .append(",\"racio\":").append(Math.round(r * 1000) / 1000.0).append('}');
+            }
+        }
+        return sb.append("]}").toString();
+    }
+}
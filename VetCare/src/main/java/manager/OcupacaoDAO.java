@@ -0,0 +1,228 @@
+package manager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import util.Calendario;
+import util.Configura;
+import util.Feriados;
+import util.Log;
+import util.SqlDialect;
+
+/**
+ * Mapa de ocupação das clínicas por dia da semana e hora.
+ * As marcações são lidas com uma única consulta agrupada por (clínica,
+ * serviço, dia, hora) e guardadas por dia; cada pedido só consulta a base de
+ * dados para os dias em falta ou expirados ({@code report.heatmapTtlSeconds}).
+ * As alterações a agendamentos invalidam apenas o dia afetado.
+ * A capacidade de cada serviço numa clínica é o tempo de funcionamento
+ * definido na tabela Horario (um atendimento de cada vez).
+ */
+public class OcupacaoDAO {
+
+    /** Validade por omissão (s) dos dias guardados. */
+    private static final int TTL_S = 300;
+    /** Duração por omissão (min) de cada marcação ({@code agenda.slotMinutes}). */
+    private static final int SLOT_MIN = 30;
+    /** Número máximo de dias de um mapa. */
+    public static final int MAX_DIAS = 366;
+    /** Número máximo de dias guardados. */
+    private static final int MAX_CACHE = 2000;
+
+    /** Marcações por dia: chave (clínica, serviço) e contagem por hora. */
+    private static final Map<LocalDate, Dia> DIAS = new ConcurrentHashMap<>();
+    /** Horário de funcionamento e serviços, partilhados por todos os pedidos. */
+    private static volatile Capacidade capacidade = null;
+
+    /**
+     * Marcações de um dia.
+     */
+    private static final class Dia {
+        final long carregado = System.currentTimeMillis();
+        final Map<Long, int[]> porServico = new HashMap<>();
+    }
+
+    /**
+     * Minutos de funcionamento por clínica, dia da semana e hora, e serviços
+     * existentes.
+     */
+    private static final class Capacidade {
+        final long carregado = System.currentTimeMillis();
+        final Map<Integer, Map<DayOfWeek, int[]>> minutos = new HashMap<>();
+        final List<Integer> servicos = new ArrayList<>();
+    }
+
+    private static long chave(int clinicaId, int servicoId) {
+        return ((long) clinicaId << 32) | (servicoId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Calcula o mapa de ocupação num intervalo de datas.
+     *
+     * @param de        Primeiro dia incluído.
+     * @param ate       Último dia incluído (no máximo {@link #MAX_DIAS} depois).
+     * @param clinicaId Clínica (nula para todas).
+     * @param servicoId Tipo de serviço (nulo para todos).
+     * @return Mapa de ocupação.
+     */
+    public static MapaOcupacao getMapa(LocalDate de, LocalDate ate, Integer clinicaId, Integer servicoId) {
+        if (ate.isBefore(de))
+            ate = de;
+        if (ate.isAfter(de.plusDays(MAX_DIAS - 1)))
+            ate = de.plusDays(MAX_DIAS - 1);
+        MapaOcupacao mapa = new MapaOcupacao(de, ate);
+        long ttl = Configura.snapshot().getInt("report.heatmapTtlSeconds", TTL_S) * 1000L;
+        int slot = Math.max(5, Configura.snapshot().getInt("agenda.slotMinutes", SLOT_MIN));
+
+        Map<LocalDate, Dia> dias = carregar(de, ate, ttl);
+        Capacidade cap = capacidade(ttl);
+
+        for (LocalDate d = de; !d.isAfter(ate); d = d.plusDays(1)) {
+            DayOfWeek dow = d.getDayOfWeek();
+            Dia dia = dias.get(d);
+            if (dia != null) {
+                for (Map.Entry<Long, int[]> e : dia.porServico.entrySet()) {
+                    int c = (int) (e.getKey() >>> 32), s = (int) (long) e.getKey();
+                    if ((clinicaId != null && c != clinicaId) || (servicoId != null && s != servicoId))
+                        continue;
+                    for (int h = 0; h < 24; h++)
+                        if (e.getValue()[h] > 0)
+                            mapa.addMarcados(dow, h, e.getValue()[h] * slot);
+                }
+            }
+            if (cap == null)
+                continue;
+            int nServicos = servicoId != null ? 1 : cap.servicos.size();
+            for (Map.Entry<Integer, Map<DayOfWeek, int[]>> e : cap.minutos.entrySet()) {
+                if (clinicaId != null && !clinicaId.equals(e.getKey()))
+                    continue;
+                int[] min = e.getValue().get(dow);
+                if (min == null || Feriados.isEncerrado(d, e.getKey()))
+                    continue;
+                for (int h = 0; h < 24; h++)
+                    if (min[h] > 0)
+                        mapa.addCapacidade(dow, h, min[h] * nServicos);
+            }
+        }
+        return mapa;
+    }
+
+    /**
+     * Devolve as marcações dos dias pedidos, consultando a base de dados numa
+     * única consulta para o intervalo que cobre os dias em falta ou expirados.
+     */
+    private static Map<LocalDate, Dia> carregar(LocalDate de, LocalDate ate, long ttl) {
+        Map<LocalDate, Dia> res = new HashMap<>();
+        LocalDate primeiro = null, ultimo = null;
+        long agora = System.currentTimeMillis();
+        for (LocalDate d = de; !d.isAfter(ate); d = d.plusDays(1)) {
+            Dia dia = DIAS.get(d);
+            if (dia != null && agora - dia.carregado < ttl) {
+                res.put(d, dia);
+            } else {
+                if (primeiro == null)
+                    primeiro = d;
+                ultimo = d;
+            }
+        }
+        if (primeiro == null)
+            return res;
+
+        Map<LocalDate, Dia> novos = new HashMap<>();
+        for (LocalDate d = primeiro; !d.isAfter(ultimo); d = d.plusDays(1))
+            novos.put(d, new Dia());
+
+        Configura cfg = new Configura();
+        SqlDialect dl = cfg.getDialect();
+        String sql = "SELECT Clinica_IDClinica, TipoServico_IDServico, CAST(DataHoraInicio AS DATE), "
+                + dl.hour("DataHoraInicio") + ", COUNT(*) FROM Agendamento "
+                + "WHERE DataHoraInicio >= ? AND DataHoraInicio < ? AND Status NOT IN ('Cancelado', 'Rejeitado') "
+                + "GROUP BY Clinica_IDClinica, TipoServico_IDServico, CAST(DataHoraInicio AS DATE), "
+                + dl.hour("DataHoraInicio");
+        try (Connection con = cfg.getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(primeiro));
+            ps.setDate(2, java.sql.Date.valueOf(ultimo.plusDays(1)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Dia dia = novos.get(rs.getDate(3).toLocalDate());
+                    if (dia != null)
+                        dia.porServico.computeIfAbsent(chave(rs.getInt(1), rs.getInt(2)), k -> new int[24])[rs
+                                .getInt(4)] += rs.getInt(5);
+                }
+            }
+        } catch (SQLException e) {
+            Log.error(OcupacaoDAO.class, "Erro no cálculo do mapa de ocupação", e);
+            return res;
+        }
+        if (DIAS.size() + novos.size() > MAX_CACHE)
+            DIAS.entrySet().removeIf(e -> agora - e.getValue().carregado >= ttl);
+        if (DIAS.size() + novos.size() <= MAX_CACHE)
+            DIAS.putAll(novos);
+        for (LocalDate d = de; !d.isAfter(ate); d = d.plusDays(1))
+            res.putIfAbsent(d, novos.get(d));
+        return res;
+    }
+
+    /**
+     * Devolve o horário de funcionamento, relendo-o quando expirado.
+     */
+    private static Capacidade capacidade(long ttl) {
+        Capacidade cap = capacidade;
+        if (cap != null && System.currentTimeMillis() - cap.carregado < ttl)
+            return cap;
+        Capacidade nova = new Capacidade();
+        try (Connection con = new Configura().getReadOnlyConnection();
+                Statement st = con.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT Clinica_IDClinica, DiaSemana, HoraInicio, HoraFim FROM Horario")) {
+                while (rs.next()) {
+                    DayOfWeek dia = Calendario.diaSemana(rs.getString(2));
+                    if (dia == null || rs.getTime(3) == null || rs.getTime(4) == null)
+                        continue;
+                    int[] min = nova.minutos.computeIfAbsent(rs.getInt(1), k -> new EnumMap<>(DayOfWeek.class))
+                            .computeIfAbsent(dia, k -> new int[24]);
+                    acumular(min, rs.getTime(3).toLocalTime(), rs.getTime(4).toLocalTime());
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT IDServico FROM TipoServico")) {
+                while (rs.next())
+                    nova.servicos.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            Log.error(OcupacaoDAO.class, "Erro ao ler o horário de funcionamento", e);
+            return cap;
+        }
+        capacidade = nova;
+        return nova;
+    }
+
+    /**
+     * Soma a cada hora os minutos da janela [inicio, fim) que nela caem.
+     */
+    private static void acumular(int[] min, LocalTime inicio, LocalTime fim) {
+        int a = inicio.toSecondOfDay() / 60, b = fim.toSecondOfDay() / 60;
+        for (int h = a / 60; h < 24 && h * 60 < b; h++)
+            min[h] += Math.min(b, (h + 1) * 60) - Math.max(a, h * 60);
+    }
+
+    /**
+     * Invalida as marcações guardadas de um dia (após gravar ou alterar um
+     * agendamento).
+     *
+     * @param dia Dia afetado.
+     */
+    public static void invalidate(LocalDate dia) {
+        DIAS.remove(dia);
+    }
+}
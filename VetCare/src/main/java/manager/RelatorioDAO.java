@@ -4,12 +4,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import util.Configura;
+import util.Log;
+import util.SqlDialect;
 import animal.Animal;
+import animal.AnimalDAO;
 
 /**
  * Fornece métodos analíticos para a geração de relatórios estatísticos.
@@ -26,18 +30,21 @@ public class RelatorioDAO {
      */
     public static List<Animal> getAnimaisExcedentes() {
         List<Animal> list = new ArrayList<>();
-        String sql = "SELECT a.*, c.NomeComum as Catalogo_NomeComum FROM Animal a " +
+        Configura cfg = new Configura();
+        SqlDialect d = cfg.getDialect();
+        String idade = d.yearsBetween("a.DataNascimento", d.currentDate());
+        String sql = "SELECT " + AnimalDAO.COLUNAS + " FROM Animal a " +
                 "JOIN Catalogo c ON a.Catalogo_NomeComum = c.NomeComum " +
-                "WHERE TIMESTAMPDIFF(YEAR, a.DataNascimento, CURDATE()) > c.ExpectativaVida " +
-                "ORDER BY TIMESTAMPDIFF(YEAR, a.DataNascimento, CURDATE()) DESC";
+                "WHERE " + idade + " > c.ExpectativaVida " +
+                "ORDER BY " + idade + " DESC";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = cfg.getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next())
                 list.add(new Animal(rs));
         } catch (SQLException e) {
-            System.err.println("Erro na geração de relatório etário: " + e.getMessage());
+            Log.error(RelatorioDAO.class, "Erro na geração de relatório etário", e);
         }
         return list;
     }
@@ -51,22 +58,27 @@ public class RelatorioDAO {
      */
     public static Map<String, Integer> getTutoresAnimaisObesos() {
         Map<String, Integer> map = new HashMap<>();
-        String sql = "SELECT cl.NomeCompleto, COUNT(*) as Qtd " +
-                "FROM Animal a " +
-                "JOIN Catalogo cap ON a.Catalogo_NomeComum = cap.NomeComum " +
-                "JOIN Cliente cl ON a.Cliente_NIF = cl.NIF " +
-                "WHERE a.PesoAtual > cap.PesoAdulto " +
-                "GROUP BY cl.NomeCompleto " +
-                "ORDER BY cl.NomeCompleto ASC";
+        String sql = ResumoDAO.isReady()
+                ? "SELECT cl.NomeCompleto, SUM(r.Qtd) as Qtd " +
+                        "FROM ResumoObesidade r " +
+                        "JOIN Cliente cl ON r.Cliente_NIF = cl.NIF " +
+                        "GROUP BY cl.NomeCompleto"
+                : "SELECT cl.NomeCompleto, COUNT(*) as Qtd " +
+                        "FROM Animal a " +
+                        "JOIN Catalogo cap ON a.Catalogo_NomeComum = cap.NomeComum " +
+                        "JOIN Cliente cl ON a.Cliente_NIF = cl.NIF " +
+                        "WHERE a.PesoAtual > cap.PesoAdulto " +
+                        "GROUP BY cl.NomeCompleto " +
+                        "ORDER BY cl.NomeCompleto ASC";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 map.put(rs.getString("NomeCompleto"), rs.getInt("Qtd"));
             }
         } catch (SQLException e) {
-            System.err.println("Erro na geração de relatório de obesidade: " + e.getMessage());
+            Log.error(RelatorioDAO.class, "Erro na geração de relatório de obesidade", e);
         }
         return map;
     }
@@ -80,22 +92,28 @@ public class RelatorioDAO {
      */
     public static List<String> getTutoresCancelamentos() {
         List<String> list = new ArrayList<>();
-        String sql = "SELECT cl.NomeCompleto, COUNT(*) as Qtd " +
-                "FROM Agendamento ag " +
-                "JOIN Cliente cl ON ag.Cliente_NIF = cl.NIF " +
-                "WHERE ag.Status = 'Cancelado' " +
-                "GROUP BY cl.NomeCompleto " +
-                "ORDER BY Qtd DESC, MAX(ag.DataHoraInicio) DESC " +
-                "LIMIT 3";
+        Configura cfg = new Configura();
+        String sql = cfg.getDialect().limit(ResumoDAO.isReady()
+                ? "SELECT cl.NomeCompleto, SUM(r.Qtd) as Qtd " +
+                        "FROM ResumoCancelamentos r " +
+                        "JOIN Cliente cl ON r.Cliente_NIF = cl.NIF " +
+                        "GROUP BY cl.NomeCompleto " +
+                        "ORDER BY SUM(r.Qtd) DESC, MAX(r.Ultimo) DESC"
+                : "SELECT cl.NomeCompleto, COUNT(*) as Qtd " +
+                        "FROM Agendamento ag " +
+                        "JOIN Cliente cl ON ag.Cliente_NIF = cl.NIF " +
+                        "WHERE ag.Status = 'Cancelado' " +
+                        "GROUP BY cl.NomeCompleto " +
+                        "ORDER BY COUNT(*) DESC, MAX(ag.DataHoraInicio) DESC", 3);
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = cfg.getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 list.add(rs.getString("NomeCompleto") + " (" + rs.getInt("Qtd") + ")");
             }
         } catch (SQLException e) {
-            System.err.println("Erro na geração de relatório de cancelamentos: " + e.getMessage());
+            Log.error(RelatorioDAO.class, "Erro na geração de relatório de cancelamentos", e);
         }
         return list;
     }
@@ -108,22 +126,54 @@ public class RelatorioDAO {
      *         previstos.
      */
     public static Map<String, Integer> getAgendaProximaSemana() {
+        if (ResumoDAO.isReady())
+            return getAgendaProximaSemanaResumo();
         Map<String, Integer> map = new HashMap<>();
+        Configura cfg = new Configura();
+        SqlDialect d = cfg.getDialect();
         String sql = "SELECT ts.Nome, COUNT(*) as Qtd " +
                 "FROM Agendamento a " +
                 "JOIN TipoServico ts ON a.TipoServico_IDServico = ts.IDServico " +
-                "WHERE a.DataHoraInicio BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL 7 DAY) " +
+                "WHERE a.DataHoraInicio BETWEEN " + d.currentDate() + " AND " + d.addDays(d.currentDate(), 7) + " " +
                 "AND a.Status NOT IN ('Cancelado', 'Rejeitado') " +
                 "GROUP BY ts.Nome";
 
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = cfg.getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 map.put(rs.getString("Nome"), rs.getInt("Qtd"));
             }
         } catch (SQLException e) {
-            System.err.println("Erro na geração de relatório de agenda: " + e.getMessage());
+            Log.error(RelatorioDAO.class, "Erro na geração de relatório de agenda", e);
+        }
+        return map;
+    }
+
+    /**
+     * Versão de {@link #getAgendaProximaSemana()} servida pela tabela de resumo
+     * {@code ResumoAgenda} (sete dias a partir de hoje).
+     */
+    private static Map<String, Integer> getAgendaProximaSemanaResumo() {
+        Map<String, Integer> map = new HashMap<>();
+        String sql = "SELECT ts.Nome, SUM(r.Qtd) as Qtd " +
+                "FROM ResumoAgenda r " +
+                "JOIN TipoServico ts ON r.TipoServico_IDServico = ts.IDServico " +
+                "WHERE r.Dia >= ? AND r.Dia < ? " +
+                "GROUP BY ts.Nome";
+
+        LocalDate hoje = LocalDate.now();
+        try (Connection con = new Configura().getReadOnlyConnection();
+                PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(hoje));
+            ps.setDate(2, java.sql.Date.valueOf(hoje.plusDays(7)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    map.put(rs.getString("Nome"), rs.getInt("Qtd"));
+                }
+            }
+        } catch (SQLException e) {
+            Log.error(RelatorioDAO.class, "Erro na geração de relatório de agenda", e);
         }
         return map;
     }
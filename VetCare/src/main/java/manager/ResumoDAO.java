@@ -0,0 +1,298 @@
+package manager;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import util.Configura;
+import util.Log;
+import util.SqlDialect;
+
+/**
+ * Mantém as tabelas de resumo usadas pelo dashboard de gestão, de modo a que a
+ * leitura dos indicadores dependa apenas do tamanho do resultado e não do
+ * volume de agendamentos e animais.
+ *
+ * <ul>
+ * <li>{@code ResumoCancelamentos}: cancelamentos por tutor;</li>
+ * <li>{@code ResumoObesidade}: animais com excesso de peso por tutor;</li>
+ * <li>{@code ResumoAgenda}: agendamentos ativos por dia e tipo de serviço
+ * (apenas a partir do dia atual).</li>
+ * </ul>
+ *
+ * Cada escrita em Agendamento ou Animal recalcula apenas as linhas de resumo
+ * das chaves afetadas (tutor, dia e serviço). Uma reconciliação completa
+ * periódica corrige qualquer divergência, por exemplo após alterações ao
+ * catálogo de espécies ou escritas feitas fora da aplicação.
+ */
+public class ResumoDAO {
+
+    /** Número de bloqueios usados para serializar o recálculo de cada chave. */
+    private static final int LOCKS = 64;
+    private static final Object[] LOCK = new Object[LOCKS];
+    /** Estados que não contam como carga de trabalho prevista. */
+    private static final String INATIVOS = "('Cancelado', 'Rejeitado')";
+
+    /** Verdadeiro depois de as tabelas terem sido criadas e reconciliadas. */
+    private static volatile boolean ready = false;
+    /** Tarefa periódica de reconciliação. */
+    private static ScheduledExecutorService reconciliacao = null;
+
+    static {
+        for (int i = 0; i < LOCKS; i++)
+            LOCK[i] = new Object();
+    }
+
+    /**
+     * @return Verdadeiro se as tabelas de resumo estiverem disponíveis.
+     */
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Cria as tabelas de resumo (se necessário), efetua a primeira
+     * reconciliação em segundo plano e agenda as seguintes.
+     *
+     * @param periodoMin Intervalo entre reconciliações, em minutos.
+     */
+    public static synchronized void start(int periodoMin) {
+        if (reconciliacao != null)
+            return;
+        reconciliacao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "VetCare-Resumos");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciliacao.execute(() -> {
+            if (ensureSchema())
+                ready = reconcile();
+        });
+        reconciliacao.scheduleWithFixedDelay(() -> {
+            if (ready)
+                reconcile();
+        }, periodoMin, Math.max(1, periodoMin), TimeUnit.MINUTES);
+    }
+
+    /**
+     * Termina a reconciliação periódica.
+     */
+    public static synchronized void stop() {
+        if (reconciliacao != null) {
+            reconciliacao.shutdownNow();
+            reconciliacao = null;
+        }
+        ready = false;
+    }
+
+    /**
+     * Cria as tabelas de resumo que ainda não existam.
+     *
+     * @return Verdadeiro se as tabelas estiverem disponíveis.
+     */
+    static boolean ensureSchema() {
+        SqlDialect d = new Configura().getDialect();
+        try (Connection con = new Configura().getConnection();
+                Statement st = con.createStatement()) {
+            st.execute(d.createTableIfNotExists("ResumoCancelamentos",
+                    "Cliente_NIF VARCHAR(20) NOT NULL PRIMARY KEY, Qtd INT NOT NULL, Ultimo DATETIME NULL"));
+            st.execute(d.createTableIfNotExists("ResumoObesidade",
+                    "Cliente_NIF VARCHAR(20) NOT NULL PRIMARY KEY, Qtd INT NOT NULL"));
+            st.execute(d.createTableIfNotExists("ResumoAgenda",
+                    "Dia DATE NOT NULL, TipoServico_IDServico INT NOT NULL, Qtd INT NOT NULL, "
+                            + "PRIMARY KEY (Dia, TipoServico_IDServico)"));
+            return true;
+        } catch (SQLException e) {
+            Log.error(ResumoDAO.class, "Impossível criar as tabelas de resumo", e);
+        }
+        return false;
+    }
+
+    /**
+     * Reconstrói todas as tabelas de resumo numa única transação.
+     *
+     * @return Verdadeiro se a reconciliação for bem-sucedida.
+     */
+    public static boolean reconcile() {
+        long inicio = System.currentTimeMillis();
+        Connection con = null;
+        try {
+            con = new Configura().getConnection(false);
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            try (Statement st = con.createStatement()) {
+                st.executeUpdate("DELETE FROM ResumoCancelamentos");
+                st.executeUpdate("INSERT INTO ResumoCancelamentos (Cliente_NIF, Qtd, Ultimo) "
+                        + "SELECT Cliente_NIF, COUNT(*), MAX(DataHoraInicio) FROM Agendamento "
+                        + "WHERE Status = 'Cancelado' AND Cliente_NIF IS NOT NULL GROUP BY Cliente_NIF");
+                st.executeUpdate("DELETE FROM ResumoObesidade");
+                st.executeUpdate("INSERT INTO ResumoObesidade (Cliente_NIF, Qtd) "
+                        + "SELECT a.Cliente_NIF, COUNT(*) FROM Animal a "
+                        + "JOIN Catalogo cap ON a.Catalogo_NomeComum = cap.NomeComum "
+                        + "WHERE a.PesoAtual > cap.PesoAdulto GROUP BY a.Cliente_NIF");
+            }
+            try (Statement st = con.createStatement();
+                    PreparedStatement ps = con.prepareStatement("INSERT INTO ResumoAgenda "
+                            + "(Dia, TipoServico_IDServico, Qtd) SELECT CAST(DataHoraInicio AS DATE), "
+                            + "TipoServico_IDServico, COUNT(*) FROM Agendamento WHERE DataHoraInicio >= ? "
+                            + "AND Status NOT IN " + INATIVOS + " "
+                            + "GROUP BY CAST(DataHoraInicio AS DATE), TipoServico_IDServico")) {
+                st.executeUpdate("DELETE FROM ResumoAgenda");
+                ps.setTimestamp(1, Timestamp.valueOf(LocalDate.now().atStartOfDay()));
+                ps.executeUpdate();
+            }
+            con.commit();
+            Log.debug(ResumoDAO.class, "Resumos reconciliados em " + (System.currentTimeMillis() - inicio) + "ms");
+            return true;
+        } catch (SQLException e) {
+            Log.error(ResumoDAO.class, "Erro na reconciliação dos resumos", e);
+            try {
+                if (con != null)
+                    con.rollback();
+            } catch (SQLException ex) {
+                Log.error(ResumoDAO.class, "Erro ao fazer rollback", ex);
+            }
+            return false;
+        } finally {
+            Configura.close(con);
+        }
+    }
+
+    /**
+     * Recalcula o número de cancelamentos de um tutor.
+     *
+     * @param nif NIF do tutor.
+     */
+    public static void refreshCancelamentos(String nif) {
+        if (!ready || nif == null)
+            return;
+        String sql = "SELECT COUNT(*), MAX(DataHoraInicio) FROM Agendamento WHERE Cliente_NIF = ? AND Status = 'Cancelado'";
+        synchronized (lock("C" + nif)) {
+            Configura cfg = new Configura();
+            try (Connection con = cfg.getConnection();
+                    PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setString(1, nif);
+                int qtd;
+                Timestamp ultimo;
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    qtd = rs.getInt(1);
+                    ultimo = rs.getTimestamp(2);
+                }
+                if (qtd == 0) {
+                    delete(con, "DELETE FROM ResumoCancelamentos WHERE Cliente_NIF = ?", nif);
+                } else {
+                    try (PreparedStatement up = con.prepareStatement(cfg.getDialect().upsert("ResumoCancelamentos",
+                            new String[] { "Cliente_NIF", "Qtd", "Ultimo" }, "Cliente_NIF"))) {
+                        up.setString(1, nif);
+                        up.setInt(2, qtd);
+                        up.setTimestamp(3, ultimo);
+                        up.executeUpdate();
+                    }
+                }
+            } catch (SQLException e) {
+                Log.error(ResumoDAO.class, "Erro ao atualizar resumo de cancelamentos", e);
+            }
+        }
+    }
+
+    /**
+     * Recalcula o número de animais com excesso de peso de um tutor.
+     *
+     * @param nif NIF do tutor.
+     */
+    public static void refreshObesidade(String nif) {
+        if (!ready || nif == null)
+            return;
+        String sql = "SELECT COUNT(*) FROM Animal a JOIN Catalogo cap ON a.Catalogo_NomeComum = cap.NomeComum "
+                + "WHERE a.Cliente_NIF = ? AND a.PesoAtual > cap.PesoAdulto";
+        synchronized (lock("O" + nif)) {
+            Configura cfg = new Configura();
+            try (Connection con = cfg.getConnection();
+                    PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setString(1, nif);
+                int qtd;
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    qtd = rs.getInt(1);
+                }
+                if (qtd == 0) {
+                    delete(con, "DELETE FROM ResumoObesidade WHERE Cliente_NIF = ?", nif);
+                } else {
+                    try (PreparedStatement up = con.prepareStatement(cfg.getDialect().upsert("ResumoObesidade",
+                            new String[] { "Cliente_NIF", "Qtd" }, "Cliente_NIF"))) {
+                        up.setString(1, nif);
+                        up.setInt(2, qtd);
+                        up.executeUpdate();
+                    }
+                }
+            } catch (SQLException e) {
+                Log.error(ResumoDAO.class, "Erro ao atualizar resumo de obesidade", e);
+            }
+        }
+    }
+
+    /**
+     * Recalcula a carga de um tipo de serviço num dia. Os dias passados não são
+     * mantidos.
+     *
+     * @param dia     Dia do agendamento.
+     * @param servico Identificador do tipo de serviço.
+     */
+    public static void refreshAgenda(LocalDate dia, int servico) {
+        if (!ready || dia == null || dia.isBefore(LocalDate.now()))
+            return;
+        String sql = "SELECT COUNT(*) FROM Agendamento WHERE TipoServico_IDServico = ? "
+                + "AND DataHoraInicio >= ? AND DataHoraInicio < ? AND Status NOT IN " + INATIVOS;
+        synchronized (lock("A" + dia + servico)) {
+            Configura cfg = new Configura();
+            try (Connection con = cfg.getConnection();
+                    PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setInt(1, servico);
+                ps.setTimestamp(2, Timestamp.valueOf(dia.atStartOfDay()));
+                ps.setTimestamp(3, Timestamp.valueOf(dia.plusDays(1).atStartOfDay()));
+                int qtd;
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    qtd = rs.getInt(1);
+                }
+                if (qtd == 0) {
+                    try (PreparedStatement del = con.prepareStatement(
+                            "DELETE FROM ResumoAgenda WHERE Dia = ? AND TipoServico_IDServico = ?")) {
+                        del.setDate(1, Date.valueOf(dia));
+                        del.setInt(2, servico);
+                        del.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement up = con.prepareStatement(cfg.getDialect().upsert("ResumoAgenda",
+                            new String[] { "Dia", "TipoServico_IDServico", "Qtd" }, "Dia",
+                            "TipoServico_IDServico"))) {
+                        up.setDate(1, Date.valueOf(dia));
+                        up.setInt(2, servico);
+                        up.setInt(3, qtd);
+                        up.executeUpdate();
+                    }
+                }
+            } catch (SQLException e) {
+                Log.error(ResumoDAO.class, "Erro ao atualizar resumo da agenda", e);
+            }
+        }
+    }
+
+    private static void delete(Connection con, String sql, String nif) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, nif);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Object lock(String chave) {
+        return LOCK[(chave.hashCode() & 0x7fffffff) % LOCKS];
+    }
+}
@@ -0,0 +1,51 @@
+package util;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+import agendamento.AgendamentoDAO;
+import animal.AnimalDAO;
+import manager.ResumoDAO;
+
+/**
+ * Arranque e encerramento da aplicação web.
+ * Resolve a raiz da aplicação a partir do {@link ServletContext}, carrega a
+ * configuração, prepara o pool de ligações e os recursos partilhados antes do
+ * primeiro pedido, de modo a que o tempo de arranque seja previsível.
+ */
+@WebListener
+public class Bootstrap implements ServletContextListener {
+
+    /**
+     * Executado pelo contentor antes de qualquer servlet ser inicializado.
+     *
+     * @param sce Evento de inicialização do contexto.
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        long inicio = System.currentTimeMillis();
+        String raiz = sce.getServletContext().getRealPath("/");
+
+        Configura.bootstrap(raiz);
+        AgendamentoDAO.ensureSchema();
+        AnimalDAO.ensureSchema();
+        ResumoDAO.start(Configura.snapshot().getInt("report.reconcileMinutes", 60));
+        if (raiz != null)
+            Name.initialize(raiz + (raiz.endsWith("/") || raiz.endsWith("\\") ? "" : "/") + "WEB-INF/resources/");
+
+        Log.info(Bootstrap.class, "VetCare iniciado em " + (System.currentTimeMillis() - inicio) + "ms (raiz: " + raiz
+                + ", " + new Configura().getPoolStats() + ")");
+    }
+
+    /**
+     * Executado pelo contentor no encerramento da aplicação.
+     *
+     * @param sce Evento de destruição do contexto.
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ResumoDAO.stop();
+        Configura.shutdown();
+    }
+}
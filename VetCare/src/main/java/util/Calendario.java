@@ -2,7 +2,6 @@ package util;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.Month;
 import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
 import java.util.*;
@@ -34,6 +33,10 @@ public class Calendario {
     /** Formatador curto para dia e mês. */
     private static final DateTimeFormatter FORMATO_CURTO = DateTimeFormatter.ofPattern("dd/MM");
 
+    /** Nomes dos dias da semana usados na tabela Horario, de segunda a domingo. */
+    private static final String[] NOMES_DIAS = { "Segunda", "Terca", "Quarta", "Quinta", "Sexta", "Sabado",
+            "Domingo" };
+
     /** Regiões suportadas para feriados municipais. */
 
     /**
@@ -54,15 +57,7 @@ public class Calendario {
      * @return Verdadeiro se coincidir com um feriado municipal da região.
      */
     public static boolean feriadoMunicipal(LocalDate data, Regiao regiao) {
-        if (regiao == null)
-            return false;
-        if (regiao == Regiao.LISBOA)
-            return data.getMonth() == Month.JUNE && data.getDayOfMonth() == 13;
-        if (regiao == Regiao.PORTO || regiao == Regiao.BRAGA)
-            return data.getMonth() == Month.JUNE && data.getDayOfMonth() == 24;
-        if (regiao == Regiao.SINTRA || regiao == Regiao.EVORA)
-            return data.getMonth() == Month.JUNE && data.getDayOfMonth() == 29;
-        return false;
+        return Feriados.isMunicipal(data, regiao);
     }
 
     /**
@@ -70,46 +65,33 @@ public class Calendario {
      * 
      * @param data A data a analisar.
      * @return Descrição do feriado ou uma string vazia se não for feriado.
+     * @see Feriados#descricao(LocalDate)
      */
     public static String getDescricaoCompleta(LocalDate data) {
-        if (data.getMonth() == Month.JANUARY && data.getDayOfMonth() == 1)
-            return "Ano Novo";
-        if (data.getMonth() == Month.APRIL && data.getDayOfMonth() == 25)
-            return "Dia da Liberdade";
-        if (data.getMonth() == Month.MAY && data.getDayOfMonth() == 1)
-            return "Dia do Trabalhador";
-        if (data.getMonth() == Month.JUNE && data.getDayOfMonth() == 10)
-            return "Dia de Portugal";
-        if (data.getMonth() == Month.AUGUST && data.getDayOfMonth() == 15)
-            return "Assunção de Nossa Senhora";
-        if (data.getMonth() == Month.OCTOBER && data.getDayOfMonth() == 5)
-            return "Implantação da República";
-        if (data.getMonth() == Month.NOVEMBER && data.getDayOfMonth() == 1)
-            return "Todos os Santos";
-        if (data.getMonth() == Month.DECEMBER && data.getDayOfMonth() == 1)
-            return "Restauração da Independência";
-        if (data.getMonth() == Month.DECEMBER && data.getDayOfMonth() == 8)
-            return "Imaculada Conceição";
-        if (data.getMonth() == Month.DECEMBER && data.getDayOfMonth() == 25)
-            return "Natal";
-
-        LocalDate pascoa = getDomingoPascoa(data.getYear());
-        if (data.equals(pascoa.minusDays(47)))
-            return "Carnaval";
-        if (data.equals(pascoa.minusDays(2)))
-            return "Sexta-feira Santa";
-        if (data.equals(pascoa))
-            return "Páscoa";
-        if (data.equals(pascoa.plusDays(60)))
-            return "Corpo de Deus";
-
-        List<String> locais = new ArrayList<>();
-        for (Regiao r : Regiao.values()) {
-            if (feriadoMunicipal(data, r)) {
-                locais.add(r.name());
-            }
-        }
-        return locais.isEmpty() ? "" : "Feriado Local: " + String.join(", ", locais);
+        return Feriados.descricao(data);
+    }
+
+    /**
+     * Converte o dia da semana para o nome usado na tabela Horario.
+     * 
+     * @param dia Dia da semana.
+     * @return Nome do dia (Ex: "Segunda", "Terca").
+     */
+    public static String nomeDia(DayOfWeek dia) {
+        return NOMES_DIAS[dia.getValue() - 1];
+    }
+
+    /**
+     * Converte o nome do dia usado na tabela Horario para o dia da semana.
+     * 
+     * @param nome Nome do dia (Ex: "Segunda", "Terca").
+     * @return Dia da semana ou nulo se o nome não for reconhecido.
+     */
+    public static DayOfWeek diaSemana(String nome) {
+        for (int i = 0; i < NOMES_DIAS.length; i++)
+            if (NOMES_DIAS[i].equals(nome))
+                return DayOfWeek.of(i + 1);
+        return null;
     }
 
     /**
@@ -275,7 +257,7 @@ public class Calendario {
         try (PrintWriter w = new PrintWriter(new FileWriter(nomeFicheiro))) {
             appendCalendarContent(w, ano, opcaoModelo);
         } catch (IOException e) {
-            System.err.println("Erro na geração do ficheiro de calendário: " + e.getMessage());
+            Log.error(Calendario.class, "Erro na geração do ficheiro de calendário", e);
         }
     }
 
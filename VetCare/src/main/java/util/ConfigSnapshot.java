@@ -0,0 +1,272 @@
+package util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Fotografia imutável da configuração da aplicação.
+ * É carregada uma única vez a partir do ficheiro de propriedades e partilhada
+ * por todas as instâncias de {@link Configura}; uma alteração ao ficheiro dá
+ * origem a uma nova fotografia que substitui a anterior de forma atómica.
+ */
+public final class ConfigSnapshot {
+
+    /** Nome da base de dados por omissão. */
+    private static final String DEFAULT_DATABASE = "VetCare";
+
+    /** SGBD configurado. */
+    private final SGBD sgbd;
+    /** Endereço do servidor da base de dados. */
+    private final String server;
+    /** Porto do servidor (0 para o porto por omissão do SGBD). */
+    private final int port;
+    /** URL JDBC explícito, que substitui o gerado pelo dialeto (opcional). */
+    private final String url;
+    /** Classe do driver JDBC explícita (opcional). */
+    private final String driver;
+    /** Nome da base de dados. */
+    private final String database;
+    /** Identificador do utilizador para acesso. */
+    private final String user;
+    /** Credencial de acesso do utilizador. */
+    private final String password;
+    /** Parâmetros do pool de ligações. */
+    private final ConnectionPool.Settings poolSettings;
+    /** Indica se os comandos SQL são instrumentados ({@link SqlMetrics}). */
+    private final boolean metrics;
+    /** Limite (ms) a partir do qual um comando SQL é registado como lento (0 desativa). */
+    private final int slowQueryMs;
+    /** Endereço do servidor réplica só de leitura (opcional). */
+    private final String replicaServer;
+    /** Porto da réplica (0 para o porto por omissão do SGBD). */
+    private final int replicaPort;
+    /** URL JDBC explícito da réplica (opcional). */
+    private final String replicaUrl;
+    /** Utilizador de acesso à réplica (por omissão, o do primário). */
+    private final String replicaUser;
+    /** Credencial de acesso à réplica (por omissão, a do primário). */
+    private final String replicaPassword;
+    /** Atraso máximo de replicação aceite, em segundos. */
+    private final int replicaMaxLag;
+    /** Intervalo entre verificações do estado da réplica (ms). */
+    private final int replicaCheckMs;
+    /** Cópia privada de todas as propriedades lidas. */
+    private final Properties properties;
+    /** Instante em que a fotografia foi criada. */
+    private final long loadedAt;
+
+    private ConfigSnapshot(Properties properties, String database) {
+        this.properties = properties;
+        this.sgbd = parseSGBD(properties.getProperty("db.sgbd"));
+        this.server = trim(properties.getProperty("db.server"), "localhost");
+        this.port = getInt("db.port", 0);
+        this.url = get("db.url");
+        this.driver = get("db.driver");
+        this.database = database != null ? database.trim() : trim(properties.getProperty("db.database"), DEFAULT_DATABASE);
+        this.user = trim(properties.getProperty("db.user"), "root");
+        this.password = trim(properties.getProperty("db.password"), "Danone2005$");
+        this.poolSettings = new ConnectionPool.Settings(
+                getInt("db.pool.min", 2),
+                getInt("db.pool.max", 20),
+                getInt("db.pool.timeout", 10000),
+                getInt("db.pool.validation", 5000),
+                getInt("db.pool.leakDetection", 60000),
+                getInt("db.pool.idleTimeout", 300000));
+        this.metrics = !"false".equalsIgnoreCase(get("db.metrics"));
+        this.slowQueryMs = Math.max(0, getInt("db.slowQueryMs", 500));
+        this.replicaServer = get("db.replica.server");
+        this.replicaPort = getInt("db.replica.port", this.port);
+        this.replicaUrl = get("db.replica.url");
+        this.replicaUser = trim(properties.getProperty("db.replica.user"), this.user);
+        this.replicaPassword = trim(properties.getProperty("db.replica.password"), this.password);
+        this.replicaMaxLag = Math.max(0, getInt("db.replica.maxLag", 10));
+        this.replicaCheckMs = Math.max(1000, getInt("db.replica.checkInterval", 5000));
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Carrega uma nova fotografia a partir de um ficheiro de propriedades.
+     * Se o ficheiro não puder ser lido, são usados os valores por omissão.
+     *
+     * @param filePath Caminho do ficheiro de configuração.
+     * @return Fotografia carregada.
+     */
+    public static ConfigSnapshot load(String filePath) {
+        Properties properties = new Properties();
+        if (filePath != null) {
+            try (FileInputStream fis = new FileInputStream(filePath)) {
+                properties.load(fis);
+            } catch (IOException e) {
+                Log.error(ConfigSnapshot.class, "Falha ao carregar o ficheiro de configuração", e);
+            }
+        }
+        return new ConfigSnapshot(properties, null);
+    }
+
+    /**
+     * Cria uma cópia desta fotografia com outra base de dados.
+     *
+     * @param str Nome da base de dados.
+     * @return Nova fotografia.
+     */
+    public ConfigSnapshot withDatabase(String str) {
+        Properties copia = new Properties();
+        copia.putAll(properties);
+        return new ConfigSnapshot(copia, str);
+    }
+
+    /** @return SGBD configurado. */
+    public SGBD getSGBD() {
+        return sgbd;
+    }
+
+    /** @return Porto do servidor ou 0 para o porto por omissão. */
+    public int getPort() {
+        return port;
+    }
+
+    /** @return URL JDBC explícito ou nulo para usar o do dialeto. */
+    public String getUrl() {
+        return url;
+    }
+
+    /** @return Classe do driver JDBC explícita ou nulo para usar a do dialeto. */
+    public String getDriver() {
+        return driver;
+    }
+
+    /** @return Endereço do servidor. */
+    public String getServer() {
+        return server;
+    }
+
+    /** @return Nome da base de dados. */
+    public String getDatabase() {
+        return database;
+    }
+
+    /** @return Utilizador de acesso. */
+    public String getUser() {
+        return user;
+    }
+
+    /** @return Credencial de acesso. */
+    public String getPassword() {
+        return password;
+    }
+
+    /** @return Parâmetros do pool de ligações. */
+    public ConnectionPool.Settings getPoolSettings() {
+        return poolSettings;
+    }
+
+    /** @return Verdadeiro se os comandos SQL forem instrumentados. */
+    public boolean isMetricsEnabled() {
+        return metrics;
+    }
+
+    /** @return Limite (ms) para o registo de consultas lentas ou 0 se desativado. */
+    public int getSlowQueryMs() {
+        return slowQueryMs;
+    }
+
+    /** @return Verdadeiro se estiver configurada uma réplica só de leitura. */
+    public boolean hasReplica() {
+        return (replicaServer != null && !replicaServer.isEmpty()) || (replicaUrl != null && !replicaUrl.isEmpty());
+    }
+
+    /** @return Endereço do servidor réplica ou nulo. */
+    public String getReplicaServer() {
+        return replicaServer;
+    }
+
+    /** @return Porto da réplica ou 0 para o porto por omissão. */
+    public int getReplicaPort() {
+        return replicaPort;
+    }
+
+    /** @return URL JDBC explícito da réplica ou nulo para usar o do dialeto. */
+    public String getReplicaUrl() {
+        return replicaUrl;
+    }
+
+    /** @return Utilizador de acesso à réplica. */
+    public String getReplicaUser() {
+        return replicaUser;
+    }
+
+    /** @return Credencial de acesso à réplica. */
+    public String getReplicaPassword() {
+        return replicaPassword;
+    }
+
+    /** @return Atraso máximo de replicação aceite, em segundos. */
+    public int getReplicaMaxLag() {
+        return replicaMaxLag;
+    }
+
+    /** @return Intervalo entre verificações do estado da réplica (ms). */
+    public int getReplicaCheckMs() {
+        return replicaCheckMs;
+    }
+
+    /** @return Instante (ms) em que a fotografia foi carregada. */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @param key Nome da propriedade.
+     * @return Valor da propriedade (sem espaços) ou nulo se ausente.
+     */
+    public String get(String key) {
+        String val = properties.getProperty(key);
+        return val == null ? null : val.trim();
+    }
+
+    /**
+     * Lê uma propriedade numérica, devolvendo o valor por omissão se estiver
+     * ausente ou mal formatada.
+     *
+     * @param key Nome da propriedade.
+     * @param def Valor por omissão.
+     * @return Valor lido.
+     */
+    public int getInt(String key, int def) {
+        String val = get(key);
+        if (val == null || val.isEmpty())
+            return def;
+        try {
+            return Integer.parseInt(val);
+        } catch (NumberFormatException e) {
+            Log.warn(ConfigSnapshot.class, "Valor inválido para " + key + ": " + val);
+            return def;
+        }
+    }
+
+    /**
+     * Compara o conteúdo de duas fotografias, ignorando o instante de carga.
+     *
+     * @param other Outra fotografia.
+     * @return Verdadeiro se as propriedades forem idênticas.
+     */
+    public boolean sameAs(ConfigSnapshot other) {
+        return other != null && Objects.equals(database, other.database) && properties.equals(other.properties);
+    }
+
+    private static SGBD parseSGBD(String val) {
+        if (val != null) {
+            for (SGBD s : SGBD.values())
+                if (s.name().equalsIgnoreCase(val.trim()))
+                    return s;
+            Log.warn(ConfigSnapshot.class, "SGBD desconhecido: " + val + ". A usar MySQL.");
+        }
+        return SGBD.MySQL;
+    }
+
+    private static String trim(String val, String def) {
+        return val == null ? def : val.trim();
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vigia o ficheiro de configuração e pede a {@link Configura} que carregue uma
+ * nova fotografia sempre que este é alterado. Corre numa thread daemon e
+ * agrupa alterações sucessivas (os editores costumam gravar em várias
+ * escritas) antes de recarregar.
+ */
+final class ConfigWatcher {
+
+    /** Tempo de acalmia após a última alteração antes de recarregar (ms). */
+    private static final long DEBOUNCE_MS = 500;
+
+    /** Instância ativa, se existir. */
+    private static ConfigWatcher ativo = null;
+
+    private final Path ficheiro;
+    private final WatchService service;
+    private final Thread thread;
+
+    private ConfigWatcher(Path ficheiro) throws IOException {
+        this.ficheiro = ficheiro.toAbsolutePath().normalize();
+        this.service = FileSystems.getDefault().newWatchService();
+        this.ficheiro.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "VetCare-ConfigWatcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Inicia a vigilância do ficheiro indicado, caso ainda não esteja ativa.
+     *
+     * @param ficheiro Caminho do ficheiro de configuração.
+     */
+    static synchronized void start(Path ficheiro) {
+        if (ativo != null || ficheiro == null || ficheiro.toAbsolutePath().getParent() == null)
+            return;
+        try {
+            ativo = new ConfigWatcher(ficheiro);
+            ativo.thread.start();
+        } catch (IOException e) {
+            Log.error(ConfigWatcher.class, "Impossível vigiar o ficheiro de configuração", e);
+        }
+    }
+
+    /**
+     * Termina a vigilância, se estiver ativa.
+     */
+    static synchronized void stop() {
+        if (ativo == null)
+            return;
+        try {
+            ativo.service.close();
+        } catch (IOException e) {
+            // Nada a fazer
+        }
+        ativo.thread.interrupt();
+        ativo = null;
+    }
+
+    private void run() {
+        Path nome = ficheiro.getFileName();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                boolean alterado = relevante(key, nome);
+                // Acalmia: absorve escritas consecutivas do mesmo gravar
+                while ((key = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null)
+                    alterado |= relevante(key, nome);
+                if (alterado)
+                    Configura.reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Vigilância terminada
+        }
+    }
+
+    private static boolean relevante(WatchKey key, Path nome) {
+        boolean alterado = false;
+        for (WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == StandardWatchEventKinds.OVERFLOW || nome.equals(ev.context()))
+                alterado = true;
+        }
+        key.reset();
+        return alterado;
+    }
+}
@@ -1,17 +1,10 @@
 package util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Driver;
-import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -19,7 +12,9 @@ import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Responsável pela configuração centralizada e gestão de ligações à base de
@@ -44,17 +39,32 @@ public class Configura {
 	/** Caminho absoluto em cache para o diretório de ficheiros da aplicação. */
 	private static String filePath = null;
 
-	/** Nome da base de dados por omissão. */
-	private static String database_ = "VetCare";
+	/**
+	 * Fotografia da configuração partilhada por todas as instâncias. É lida do
+	 * ficheiro uma única vez e substituída atomicamente quando este muda.
+	 */
+	private static final AtomicReference<ConfigSnapshot> SNAPSHOT = new AtomicReference<>();
+	/**
+	 * Nome da base de dados definido por {@link #setDTB_(String)}, aplicado a
+	 * cada configuração lida do ficheiro (nulo se não houver).
+	 */
+	private static volatile String databaseFixa = null;
+	/** Classes de drivers JDBC já carregadas. */
+	private static final Set<String> DRIVERS = ConcurrentHashMap.newKeySet();
+
+	/** Configuração em vigor quando a instância foi criada. */
+	private final ConfigSnapshot cfg;
 	/** Nome da base de dados da instância. */
-	private String database = database_;
+	private String database;
 	/** Endereço do servidor da base de dados. */
-	private String server = "localhost";
+	private String server;
 	/** Identificador do utilizador para acesso. */
-	private String usr = "root";
+	private String usr;
 	/** Credencial de acesso do utilizador. */
-	private String pwd = "Danone2005$";
+	private String pwd;
 
+	/** Dialeto SQL do SGBD selecionado. */
+	private SqlDialect dialect = null;
 	/** Classe do driver JDBC selecionado. */
 	private String drv = null;
 	/** URL de ligação formatada para o driver selecionado. */
@@ -63,10 +73,11 @@ public class Configura {
 	private SGBD sgbd = null;
 
 	/**
-	 * Construtor por omissão, inicializando a configuração para MySQL.
+	 * Construtor por omissão, inicializando a configuração para o SGBD definido
+	 * em {@code db.sgbd} (MySQL se ausente).
 	 */
 	public Configura() {
-		this(SGBD.MySQL);
+		this(snapshot().getSGBD());
 	}
 
 	/**
@@ -76,25 +87,24 @@ public class Configura {
 	 */
 	public Configura(SGBD sgbd) {
 		this.sgbd = sgbd;
+		this.dialect = SqlDialect.of(sgbd);
+		this.cfg = snapshot();
+		this.database = cfg.getDatabase();
+		this.server = cfg.getServer();
+		this.usr = cfg.getUser();
+		this.pwd = cfg.getPassword();
 		build();
-		loadProperties();
 		loadDriver();
 	}
 
 	/**
 	 * Constrói as strings de ligação e define os drivers com base no tipo de SGBD.
+	 * As propriedades {@code db.url} e {@code db.driver}, se definidas, têm
+	 * precedência (ex.: bases de dados embebidas usadas nos benchmarks).
 	 */
 	private synchronized void build() {
-		this.database = Configura.database_;
-		if (this.isSQLServer()) {
-			this.drv = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
-			this.url = "jdbc:sqlserver://" + this.server + ":1433;databaseName="
-					+ this.database + ";encrypt=true;trustServerCertificate=true;";
-		} else if (this.isMySQL()) {
-			this.drv = "com.mysql.cj.jdbc.Driver";
-			this.url = "jdbc:mysql://" + this.server + ":3306/" + this.database
-					+ "?useLegacyDatetimeCode=false&serverTimezone=Europe/Lisbon";
-		}
+		this.drv = cfg.getDriver() != null ? cfg.getDriver() : dialect.driver();
+		this.url = cfg.getUrl() != null ? cfg.getUrl() : dialect.url(this.server, cfg.getPort(), this.database);
 	}
 
 	/**
@@ -104,45 +114,147 @@ public class Configura {
 	 * @return Caminho absoluto para os recursos da aplicação.
 	 */
 	public String getRealPath() {
+		return resolveRealPath();
+	}
+
+	/**
+	 * Devolve o caminho real da raiz da aplicação. Num contentor web é definido
+	 * no arranque por {@link Bootstrap}; fora dele é resolvido pelo arranque em
+	 * modo consola.
+	 */
+	private static synchronized String resolveRealPath() {
 		if (filePath == null) {
-			filePath = "src/main/webapp/";
-			if (!new File(filePath).exists())
-				filePath = getWebRootPath(server);
+			if (isWebEnvironment())
+				Log.warn(Configura.class, "Configura utilizada antes do arranque da aplicação web.");
+			else
+				bootstrapConsole();
 		}
 		return filePath;
 	}
 
 	/**
-	 * Carrega os parâmetros de conexão definidos no ficheiro de propriedades
-	 * externo.
+	 * Arranque da aplicação: fixa a raiz da aplicação, carrega a configuração,
+	 * inicia a vigilância do ficheiro e prepara o pool de ligações.
+	 * 
+	 * @param realPath Caminho absoluto da raiz da aplicação.
 	 */
-	private void loadProperties() {
-		String filePath = getRealPath() + CONFIG_FILE;
-		Properties properties = new Properties();
-		try (FileInputStream fis = new FileInputStream(filePath)) {
-			properties.load(fis);
-			setSRV(properties.getProperty("db.server"));
-			setUSR(properties.getProperty("db.user"));
-			setPWD(properties.getProperty("db.password"));
-			setDTB(properties.getProperty("db.database"));
-		} catch (IOException e) {
-			System.err.println("Falha ao carregar o ficheiro de configuração.");
+	public static synchronized void bootstrap(String realPath) {
+		if (realPath == null || realPath.isEmpty()) {
+			Log.error(Configura.class, "Caminho da raiz da aplicação desconhecido.");
+			return;
 		}
+		if (!realPath.endsWith("/") && !realPath.endsWith(File.separator))
+			realPath += File.separator;
+		filePath = realPath;
+		ConfigWatcher.stop();
+		SNAPSHOT.set(null);
+		snapshot();
+		new Configura().getPool().warmUp();
+	}
+
+	/**
+	 * Arranque em modo consola (fora de um contentor web). A raiz da aplicação
+	 * é indicada pela propriedade de sistema {@code vetcare.webroot} ou, por
+	 * omissão, {@code src/main/webapp/} relativo ao diretório de trabalho.
+	 */
+	public static synchronized void bootstrapConsole() {
+		String raiz = System.getProperty("vetcare.webroot", "src/main/webapp/");
+		if (!new File(raiz).isDirectory()) {
+			Log.error(Configura.class, "Raiz da aplicação não encontrada: " + new File(raiz).getAbsolutePath());
+			return;
+		}
+		filePath = raiz.endsWith("/") || raiz.endsWith(File.separator) ? raiz : raiz + File.separator;
+	}
+
+	/**
+	 * Encerramento da aplicação: termina a vigilância da configuração e fecha
+	 * todas as ligações.
+	 */
+	public static void shutdown() {
+		ConfigWatcher.stop();
+		ConnectionPool.closeAll();
+		Log.flush();
+	}
+
+	/**
+	 * Devolve a configuração em vigor, carregando-a do ficheiro de propriedades
+	 * na primeira utilização e iniciando a vigilância de alterações.
+	 * 
+	 * @return Fotografia atual da configuração.
+	 */
+	public static ConfigSnapshot snapshot() {
+		ConfigSnapshot atual = SNAPSHOT.get();
+		if (atual != null)
+			return atual;
+		synchronized (SNAPSHOT) {
+			atual = SNAPSHOT.get();
+			if (atual == null) {
+				String ficheiro = configFile();
+				atual = load(ficheiro);
+				SNAPSHOT.set(atual);
+				Log.configure(atual);
+				if (ficheiro != null)
+					ConfigWatcher.start(Paths.get(ficheiro));
+			}
+		}
+		return atual;
+	}
+
+	/**
+	 * Volta a ler o ficheiro de propriedades e, se o conteúdo tiver mudado,
+	 * publica a nova configuração e drena os pools de ligações existentes. As
+	 * ligações em uso terminam normalmente e são encerradas quando devolvidas.
+	 * O nome da base de dados definido por {@link #setDTB_(String)} mantém-se.
+	 */
+	public static void reload() {
+		ConfigSnapshot nova, antiga;
+		synchronized (SNAPSHOT) {
+			nova = load(configFile());
+			antiga = SNAPSHOT.getAndSet(nova);
+		}
+		if (nova.sameAs(antiga))
+			return;
+		Log.configure(nova);
+		Log.info(Configura.class, "Configuração recarregada a partir de " + configFile());
+		ConnectionPool.drainAll();
+	}
+
+	/**
+	 * Lê o ficheiro de propriedades e aplica-lhe o nome da base de dados
+	 * definido por {@link #setDTB_(String)}, se existir.
+	 */
+	private static ConfigSnapshot load(String ficheiro) {
+		ConfigSnapshot lida = ConfigSnapshot.load(ficheiro);
+		String db = databaseFixa;
+		return db == null ? lida : lida.withDatabase(db);
+	}
+
+	/**
+	 * @return Caminho absoluto do ficheiro de propriedades ou nulo se a raiz da
+	 *         aplicação não for conhecida.
+	 */
+	private static String configFile() {
+		String raiz = resolveRealPath();
+		return raiz == null ? null : raiz + CONFIG_FILE;
 	}
 
 	/**
-	 * Efetua o carregamento dinâmico da classe do driver JDBC na memória.
+	 * Efetua o carregamento dinâmico da classe do driver JDBC na memória. Cada
+	 * driver é carregado apenas uma vez por processo.
 	 * 
 	 * @return Verdadeiro se o carregamento for bem-sucedido.
 	 */
 	public boolean loadDriver() {
+		if (DRIVERS.contains(this.drv))
+			return true;
 		try {
 			Class.forName(this.drv);
+			DRIVERS.add(this.drv);
 			return true;
 		} catch (ClassNotFoundException e) {
-			System.err.println("Driver JDBC não encontrado.");
+			Log.error(Configura.class, "Driver JDBC não encontrado: " + this.drv);
 		} catch (Exception e) {
-			System.err.println("Erro inesperado no carregamento do driver.");
+			Log.error(Configura.class, "Erro inesperado no carregamento do driver", e);
 		}
 		return false;
 	}
@@ -158,8 +270,9 @@ public class Configura {
 	}
 
 	/**
-	 * Estabelece uma ligação ativa permitindo o controlo manual da confirmação de
-	 * transações.
+	 * Obtém uma ligação do pool permitindo o controlo manual da confirmação de
+	 * transações. O encerramento da ligação devolve-a ao pool, repondo o modo de
+	 * confirmação e o nível de isolamento originais.
 	 * 
 	 * @param autocommit Define se as operações devem ser confirmadas
 	 *                   automaticamente.
@@ -168,16 +281,52 @@ public class Configura {
 	public Connection getConnection(boolean autocommit) {
 		Connection con = null;
 		try {
-			con = DriverManager.getConnection(this.url, this.usr, this.pwd);
+			con = getPool().getConnection();
+			if (cfg.isMetricsEnabled())
+				con = SqlMetrics.wrap(con, cfg.getSlowQueryMs());
 			if (!autocommit)
 				con.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
 			con.setAutoCommit(autocommit);
 		} catch (SQLException e) {
-			System.err.println("Impossível estabelecer ligação ao servidor SQL.");
+			Log.error(Configura.class, "Impossível estabelecer ligação ao servidor SQL", e);
+			close(con);
+			con = null;
 		}
 		return con;
 	}
 
+	/**
+	 * Obtém uma ligação só de leitura para consultas pesadas (relatórios,
+	 * exportações e listagens). Se estiver configurada uma réplica
+	 * ({@code db.replica.server} ou {@code db.replica.url}) e esta estiver
+	 * disponível e atualizada, a ligação é feita à réplica; caso contrário é
+	 * usada uma ligação normal ao primário.
+	 * 
+	 * @return Ligação estabelecida ou nulo em caso de erro.
+	 */
+	public Connection getReadOnlyConnection() {
+		if (!cfg.hasReplica())
+			return getConnection();
+		String replica = cfg.getReplicaUrl() != null ? cfg.getReplicaUrl()
+				: dialect.url(cfg.getReplicaServer(), cfg.getReplicaPort(), this.database);
+		Connection con = ReadReplica.connect(replica, cfg, dialect);
+		return con != null ? con : getConnection();
+	}
+
+	/**
+	 * @return Pool de ligações associado ao URL e utilizador desta instância.
+	 */
+	public ConnectionPool getPool() {
+		return ConnectionPool.of(this.url, this.usr, this.pwd, cfg.getPoolSettings());
+	}
+
+	/**
+	 * @return Estatísticas de utilização do pool de ligações desta instância.
+	 */
+	public ConnectionPool.Stats getPoolStats() {
+		return getPool().stats();
+	}
+
 	/**
 	 * Determina se a aplicação está a ser executada num contentor web.
 	 * 
@@ -194,52 +343,6 @@ public class Configura {
 		return false;
 	}
 
-	/**
-	 * Obtém o caminho da raiz web através de um pedido direto ao servlet de
-	 * mapeamento. Tenta múltiplas URLs para suportar diferentes contextos.
-	 * 
-	 * @param server Endereço do servidor onde a aplicação está alojada.
-	 * @return Caminho do sistema de ficheiros para a raiz da aplicação.
-	 */
-	public static String getWebRootPath(String server) {
-		String port = ":8080";
-		if (server.contains(":"))
-			port = "";
-
-		// Tentar múltiplas URLs (com e sem o contexto APP_ABR)
-		String[] urls = {
-				"http://" + server + port + "/" + APP_ABR + "/WebRootPath",
-				"http://" + server + port + "/WebRootPath"
-		};
-
-		for (String servletURL : urls) {
-			try {
-				URI uri = new URI(servletURL);
-				URL url = uri.toURL();
-				HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-				connection.setRequestMethod("GET");
-				connection.setConnectTimeout(2000);
-				if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-					try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-						String path = in.readLine();
-						if (path != null && !path.trim().isEmpty()) {
-							// Garantir que termina com o separador correto
-							if (!path.endsWith(File.separator) && !path.endsWith("/")) {
-								path += File.separator;
-							}
-							return path;
-						}
-					}
-				}
-			} catch (Exception e) {
-				// Ignorar erro e tentar a próxima URL
-			}
-		}
-
-		System.err.println("Erro na obtenção do caminho web real após tentar múltiplas localizações.");
-		return null;
-	}
-
 	/**
 	 * Verifica a validade e estado de uma ligação ativa.
 	 * 
@@ -266,7 +369,7 @@ public class Configura {
 			try {
 				con.close();
 			} catch (SQLException e) {
-				System.err.println("Erro ao encerrar ligação.");
+				Log.warn(Configura.class, "Erro ao encerrar ligação", e);
 			}
 		}
 	}
@@ -276,6 +379,11 @@ public class Configura {
 		return sgbd;
 	}
 
+	/** @return Dialeto SQL do SGBD configurado. */
+	public SqlDialect getDialect() {
+		return dialect;
+	}
+
 	/** @return Nome da base de dados ativa. */
 	public String getDTB() {
 		return database;
@@ -306,19 +414,28 @@ public class Configura {
 		return sgbd == SGBD.SQLServer;
 	}
 
-	/** @param str Define globalmente o nome da base de dados. */
-	public synchronized static void setDTB_(final String str) {
-		database_ = str.trim();
+	/**
+	 * Define globalmente o nome da base de dados, publicando atomicamente uma
+	 * nova configuração. Afeta apenas as instâncias criadas a seguir e
+	 * prevalece sobre o ficheiro nas recargas seguintes.
+	 * 
+	 * @param str Nome da base de dados.
+	 */
+	public static void setDTB_(final String str) {
+		snapshot();
+		synchronized (SNAPSHOT) {
+			databaseFixa = str;
+			SNAPSHOT.updateAndGet(atual -> atual.withDatabase(str));
+		}
 	}
 
 	/**
-	 * @param str Define o nome da base de dados para a instância e reconstrói o
-	 *            URL.
+	 * @param str Define o nome da base de dados apenas para esta instância e
+	 *            reconstrói o URL.
 	 */
 	public synchronized void setDTB(final String str) {
 		if (str != null) {
 			database = str.trim();
-			database_ = database;
 			build();
 		}
 	}
@@ -348,14 +465,13 @@ public class Configura {
 		LocalDate hoje = null;
 		String dtb = getDTB();
 		setDTB("");
-		String func = sgbd == SGBD.SQLServer ? "GETDATE()" : "CURDATE()";
 		try (Connection con = getConnection();
 				Statement stm = con.createStatement();
-				ResultSet rs = stm.executeQuery("SELECT " + func + " AS Today")) {
+				ResultSet rs = stm.executeQuery("SELECT " + dialect.currentDate() + " AS Today")) {
 			if (rs.next())
 				hoje = rs.getDate(1).toLocalDate();
 		} catch (SQLException e) {
-			System.err.println("Erro na obtenção da data do servidor.");
+			Log.error(Configura.class, "Erro na obtenção da data do servidor", e);
 		}
 		setDTB(dtb);
 		return hoje;
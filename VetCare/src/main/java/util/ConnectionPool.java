@@ -0,0 +1,552 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de ligações JDBC partilhado por todas as instâncias de
+ * {@link Configura}.
+ * Mantém um conjunto de ligações físicas reutilizáveis por URL/utilizador,
+ * evitando o custo de estabelecer uma nova ligação em cada operação DAO.
+ *
+ * As ligações entregues são representantes (proxies) cujo método
+ * {@code close()} devolve a ligação física ao pool em vez de a encerrar.
+ * Inclui dimensionamento mínimo/máximo, validação antes da entrega, deteção
+ * de fugas (ligações não devolvidas), remoção de ligações inativas e
+ * estatísticas de utilização.
+ */
+public final class ConnectionPool {
+
+    /** Intervalo entre execuções da tarefa de manutenção (ms). */
+    private static final long MANUTENCAO_MS = 5000;
+
+    /** Pools ativos, indexados por URL e utilizador. */
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    /** Tarefa de manutenção partilhada por todos os pools. */
+    private static ScheduledExecutorService manutencao = null;
+
+    /** URL de ligação JDBC. */
+    private final String url;
+    /** Utilizador de acesso. */
+    private final String usr;
+    /** Credencial de acesso. */
+    private final String pwd;
+    /** Parâmetros de dimensionamento e temporização. */
+    private final Settings settings;
+
+    /** Ligações disponíveis (a mais recente à cabeça). */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    /** Ligações atualmente entregues a quem as pediu. */
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    /** Limita o número de ligações entregues em simultâneo ao máximo do pool. */
+    private final Semaphore permits;
+
+    /** Número de ligações físicas abertas. */
+    private final AtomicInteger total = new AtomicInteger();
+    /** Número total de pedidos de ligação. */
+    private final AtomicLong pedidos = new AtomicLong();
+    /** Número de ligações físicas criadas. */
+    private final AtomicLong criadas = new AtomicLong();
+    /** Número de ligações físicas encerradas. */
+    private final AtomicLong destruidas = new AtomicLong();
+    /** Número de pedidos que excederam o tempo de espera. */
+    private final AtomicLong timeouts = new AtomicLong();
+    /** Número de fugas de ligações detetadas. */
+    private final AtomicLong fugas = new AtomicLong();
+    /** Número de ligações entregues com sucesso. */
+    private final AtomicLong entregues = new AtomicLong();
+    /** Tempo acumulado de espera por uma ligação (ns). */
+    private final AtomicLong esperaTotalNs = new AtomicLong();
+
+    /** Indica se o pool foi encerrado. */
+    private volatile boolean closed = false;
+
+    /**
+     * Parâmetros de configuração de um pool.
+     */
+    public static final class Settings {
+        /** Número mínimo de ligações mantidas abertas. */
+        final int min;
+        /** Número máximo de ligações em simultâneo. */
+        final int max;
+        /** Tempo máximo de espera por uma ligação livre (ms). */
+        final long timeoutMs;
+        /** Tempo de inatividade a partir do qual a ligação é validada (ms). */
+        final long validationMs;
+        /** Tempo após o qual uma ligação não devolvida é reportada (ms, 0 = desligado). */
+        final long leakMs;
+        /** Tempo de inatividade após o qual a ligação é encerrada (ms). */
+        final long idleMs;
+
+        /**
+         * @param min          Número mínimo de ligações.
+         * @param max          Número máximo de ligações.
+         * @param timeoutMs    Tempo máximo de espera por uma ligação.
+         * @param validationMs Inatividade que obriga a validação.
+         * @param leakMs       Limite para deteção de fugas (0 desliga).
+         * @param idleMs       Inatividade que provoca o encerramento.
+         */
+        public Settings(int min, int max, long timeoutMs, long validationMs, long leakMs, long idleMs) {
+            this.max = Math.max(1, max);
+            this.min = Math.max(0, Math.min(min, this.max));
+            this.timeoutMs = Math.max(0, timeoutMs);
+            this.validationMs = Math.max(0, validationMs);
+            this.leakMs = Math.max(0, leakMs);
+            this.idleMs = Math.max(1000, idleMs);
+        }
+    }
+
+    /**
+     * Fotografia das estatísticas de utilização de um pool.
+     */
+    public static final class Stats {
+        /** Ligações físicas abertas. */
+        public final int total;
+        /** Ligações entregues. */
+        public final int ativas;
+        /** Ligações disponíveis. */
+        public final int inativas;
+        /** Pedidos à espera de uma ligação. */
+        public final int emEspera;
+        /** Pedidos de ligação efetuados. */
+        public final long pedidos;
+        /** Ligações físicas criadas. */
+        public final long criadas;
+        /** Ligações físicas encerradas. */
+        public final long destruidas;
+        /** Pedidos que excederam o tempo de espera. */
+        public final long timeouts;
+        /** Fugas detetadas. */
+        public final long fugas;
+        /** Tempo médio de espera por ligação (ms). */
+        public final double esperaMediaMs;
+
+        private Stats(ConnectionPool p) {
+            this.ativas = p.borrowed.size();
+            this.inativas = p.idle.size();
+            this.total = p.total.get();
+            this.emEspera = p.permits.getQueueLength();
+            this.pedidos = p.pedidos.get();
+            this.criadas = p.criadas.get();
+            this.destruidas = p.destruidas.get();
+            this.timeouts = p.timeouts.get();
+            this.fugas = p.fugas.get();
+            long entregues = p.entregues.get();
+            this.esperaMediaMs = entregues == 0 ? 0 : p.esperaTotalNs.get() / 1e6 / entregues;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool [total=" + total + ", ativas=" + ativas + ", inativas=" + inativas + ", emEspera=" + emEspera
+                    + ", pedidos=" + pedidos + ", criadas=" + criadas + ", destruidas=" + destruidas
+                    + ", timeouts=" + timeouts + ", fugas=" + fugas
+                    + ", esperaMedia=" + String.format("%.3f", esperaMediaMs) + "ms]";
+        }
+    }
+
+    private ConnectionPool(String url, String usr, String pwd, Settings settings) {
+        this.url = url;
+        this.usr = usr;
+        this.pwd = pwd;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.max, true);
+    }
+
+    /**
+     * Obtém (ou cria) o pool associado a um URL e utilizador.
+     *
+     * @param url      URL de ligação JDBC.
+     * @param usr      Utilizador de acesso.
+     * @param pwd      Credencial de acesso.
+     * @param settings Parâmetros a usar caso o pool ainda não exista.
+     * @return Pool correspondente.
+     */
+    public static ConnectionPool of(String url, String usr, String pwd, Settings settings) {
+        String key = url + "|" + usr + "|" + (pwd == null ? 0 : pwd.hashCode());
+        ConnectionPool pool = POOLS.get(key);
+        if (pool == null || pool.closed) {
+            pool = POOLS.compute(key, (k, atual) -> (atual == null || atual.closed)
+                    ? new ConnectionPool(url, usr, pwd, settings)
+                    : atual);
+            startMaintenance();
+        }
+        return pool;
+    }
+
+    /**
+     * Encerra todos os pools e as respetivas ligações físicas.
+     */
+    public static void closeAll() {
+        for (ConnectionPool p : POOLS.values())
+            p.close();
+        POOLS.clear();
+        synchronized (ConnectionPool.class) {
+            if (manutencao != null) {
+                manutencao.shutdownNow();
+                manutencao = null;
+            }
+        }
+    }
+
+    /**
+     * Drena todos os pools existentes: deixam de entregar ligações, as inativas
+     * são encerradas de imediato e as que estão em uso são encerradas quando
+     * forem devolvidas. Os pedidos seguintes dão origem a pools novos, criados
+     * com a configuração em vigor.
+     */
+    public static void drainAll() {
+        for (Map.Entry<String, ConnectionPool> e : POOLS.entrySet()) {
+            e.getValue().close();
+            POOLS.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * @return Estatísticas de todos os pools ativos, indexadas por URL.
+     */
+    public static Map<String, Stats> allStats() {
+        Map<String, Stats> map = new java.util.LinkedHashMap<>();
+        for (ConnectionPool p : POOLS.values())
+            map.put(p.url, p.stats());
+        return map;
+    }
+
+    /**
+     * Inicia (uma única vez) a tarefa periódica de manutenção dos pools.
+     */
+    private static synchronized void startMaintenance() {
+        if (manutencao != null)
+            return;
+        manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "VetCare-ConnectionPool");
+            t.setDaemon(true);
+            return t;
+        });
+        manutencao.scheduleWithFixedDelay(() -> {
+            for (ConnectionPool p : POOLS.values()) {
+                try {
+                    p.maintain();
+                } catch (Exception e) {
+                    Log.error(ConnectionPool.class, "Erro na manutenção do pool de ligações", e);
+                }
+            }
+        }, MANUTENCAO_MS, MANUTENCAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Entrega uma ligação do pool, criando uma nova ligação física se
+     * necessário e se o máximo ainda não tiver sido atingido.
+     *
+     * @return Ligação pronta a usar; deve ser encerrada com {@code close()}.
+     * @throws SQLException Se o tempo de espera for excedido ou a ligação falhar.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("O pool de ligações foi encerrado.");
+        long inicio = System.nanoTime();
+        pedidos.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(settings.timeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Tempo de espera por uma ligação esgotado (" + settings.timeoutMs + "ms). "
+                        + stats());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido à espera de uma ligação.", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                long inativa = System.currentTimeMillis() - pc.lastUsed;
+                if (inativa < settings.validationMs || Configura.isConnectionValid(pc.physical))
+                    break;
+                destroy(pc);
+            }
+            if (pc == null)
+                pc = create();
+
+            Connection con = pc.borrow(settings.leakMs > 0);
+            borrowed.add(pc);
+            entregues.incrementAndGet();
+            long espera = System.nanoTime() - inicio;
+            esperaTotalNs.addAndGet(espera);
+            SqlMetrics.recordWait(espera);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Estatísticas atuais deste pool.
+     */
+    public Stats stats() {
+        return new Stats(this);
+    }
+
+    /**
+     * Encerra o pool: fecha as ligações inativas de imediato e as ligações
+     * entregues assim que forem devolvidas.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null)
+            destroy(pc);
+    }
+
+    /**
+     * Abre uma nova ligação física.
+     */
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, usr, pwd);
+        total.incrementAndGet();
+        criadas.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Encerra uma ligação física de forma silenciosa.
+     */
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destruidas.incrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            // A ligação já se encontrava inutilizável
+        }
+    }
+
+    /**
+     * Recebe uma ligação devolvida, repõe o seu estado e torna-a disponível.
+     */
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        boolean reutilizavel = !closed && pc.reset();
+        if (reutilizavel) {
+            pc.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } else {
+            destroy(pc);
+        }
+        permits.release();
+    }
+
+    /**
+     * Manutenção periódica: deteção de fugas, remoção de ligações inativas e
+     * reposição do número mínimo de ligações.
+     */
+    private void maintain() {
+        long agora = System.currentTimeMillis();
+
+        if (settings.leakMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && agora - pc.borrowedAt > settings.leakMs) {
+                    pc.leakReported = true;
+                    fugas.incrementAndGet();
+                    StringBuilder msg = new StringBuilder("Possível fuga de ligação: entregue há ")
+                            .append(agora - pc.borrowedAt).append("ms sem ser devolvida ao pool.");
+                    if (pc.origem != null)
+                        for (StackTraceElement el : pc.origem.getStackTrace())
+                            msg.append(System.lineSeparator()).append("\tat ").append(el);
+                    Log.warn(ConnectionPool.class, msg.toString());
+                }
+            }
+        }
+
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && total.get() > settings.min) {
+            PooledConnection pc = it.next();
+            if (agora - pc.lastUsed > settings.idleMs && idle.remove(pc))
+                destroy(pc);
+        }
+
+        fill();
+    }
+
+    /**
+     * Abre de imediato o número mínimo de ligações, evitando que os primeiros
+     * pedidos paguem o custo de estabelecer ligações físicas.
+     */
+    public void warmUp() {
+        fill();
+    }
+
+    /**
+     * Repõe o número mínimo de ligações inativas.
+     */
+    private synchronized void fill() {
+        while (!closed && total.get() < settings.min) {
+            try {
+                PooledConnection pc = create();
+                pc.lastUsed = System.currentTimeMillis();
+                idle.offerLast(pc);
+            } catch (SQLException e) {
+                Log.error(ConnectionPool.class, "Impossível repor o mínimo de ligações do pool", e);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Verifica se um comando já foi encerrado por quem o criou.
+     */
+    private static boolean isStatementClosed(Statement st) {
+        try {
+            return st.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Ligação física gerida pelo pool.
+     */
+    private final class PooledConnection {
+        /** Ligação física ao servidor. */
+        final Connection physical;
+        /** Nível de isolamento original da ligação. */
+        final int defaultIsolation;
+        /** Comandos abertos através desta ligação no empréstimo atual. */
+        final List<Statement> statements = new ArrayList<>();
+
+        /** Instante da última devolução ao pool. */
+        volatile long lastUsed = System.currentTimeMillis();
+        /** Instante em que foi entregue. */
+        volatile long borrowedAt;
+        /** Local onde foi obtida (apenas com deteção de fugas ativa). */
+        volatile Throwable origem;
+        /** Indica se a fuga já foi reportada. */
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.defaultIsolation = physical.getTransactionIsolation();
+        }
+
+        /**
+         * Marca a ligação como entregue e cria um novo representante, de modo a
+         * que referências a empréstimos anteriores deixem de ser utilizáveis.
+         *
+         * @return Representante a entregar.
+         */
+        Connection borrow(boolean rastrear) {
+            borrowedAt = System.currentTimeMillis();
+            origem = rastrear ? new Throwable("Ligação obtida em") : null;
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+
+        /**
+         * Encerra os comandos pendentes e repõe o estado transacional original.
+         *
+         * @return Verdadeiro se a ligação puder ser reutilizada.
+         */
+        boolean reset() {
+            synchronized (statements) {
+                for (Statement st : statements) {
+                    try {
+                        st.close();
+                    } catch (SQLException e) {
+                        // Ignorar: o comando já se encontrava encerrado
+                    }
+                }
+                statements.clear();
+            }
+            try {
+                if (physical.isClosed())
+                    return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.getTransactionIsolation() != defaultIsolation)
+                    physical.setTransactionIsolation(defaultIsolation);
+                if (physical.isReadOnly())
+                    physical.setReadOnly(false);
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Representante de um empréstimo de ligação. Delega na ligação física e
+     * interceta {@code close()} para a devolver ao pool.
+     */
+    private final class Handle implements InvocationHandler {
+        /** Ligação física emprestada. */
+        private final PooledConnection pc;
+        /** Indica se o empréstimo já terminou. */
+        private volatile boolean returned = false;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (returned)
+                            return null;
+                        returned = true;
+                    }
+                    release(pc);
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                default:
+                    break;
+            }
+            if (returned)
+                throw new SQLException("A ligação já foi devolvida ao pool.");
+            try {
+                Object result = method.invoke(pc.physical, args);
+                if (result instanceof Statement) {
+                    synchronized (pc.statements) {
+                        if (pc.statements.size() >= 64)
+                            pc.statements.removeIf(ConnectionPool::isStatementClosed);
+                        pc.statements.add((Statement) result);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -115,7 +115,7 @@ final public class DataFormatter {
                 LocalDate localDate = LocalDate.parse(data);
                 return java.sql.Date.valueOf(localDate);
             } catch (DateTimeParseException e2) {
-                System.err.println("Erro na conversão de data (formato inválido: " + data + ")");
+                Log.error(DataFormatter.class, "Erro na conversão de data (formato inválido: " + data + ")");
             }
         }
         return null;
@@ -431,7 +431,7 @@ final public class DataFormatter {
             }
             return Base64.getEncoder().encodeToString(baos.toByteArray());
         } catch (IOException e) {
-            System.err.println("Erro de E/S ao processar BLOB: " + e.getMessage());
+            Log.error(DataFormatter.class, "Erro de E/S ao processar BLOB", e);
         }
         return "";
     }
@@ -459,7 +459,7 @@ final public class DataFormatter {
             }
             return hexString.toString();
         } catch (IOException e) {
-            System.err.println("Erro de E/S ao processar BLOB: " + e.getMessage());
+            Log.error(DataFormatter.class, "Erro de E/S ao processar BLOB", e);
         }
         return "";
     }
@@ -473,18 +473,13 @@ final public class DataFormatter {
      * @return Comando SQL formatado (ex: UNHEX ou 0x) ou NULL.
      */
     public static String getBlobHex(ResultSet rs, int columnIndex) {
-        Configura cfg = new Configura();
         try {
             String hexValue = blobToHexString(rs, columnIndex);
             if (hexValue != null) {
-                if (cfg.isMySQL()) {
-                    return "UNHEX('" + hexValue + "')";
-                } else if (cfg.isSQLServer()) {
-                    return "0x" + hexValue;
-                }
+                return new Configura().getDialect().blobLiteral(hexValue);
             }
         } catch (SQLException e) {
-            System.err.println("Erro SQL ao processar BLOB: " + e.getMessage());
+            Log.error(DataFormatter.class, "Erro SQL ao processar BLOB", e);
         }
         return "NULL";
     }
@@ -534,4 +529,54 @@ final public class DataFormatter {
         }
         return original.substring(0, lastIndex) + replacement + original.substring(lastIndex + target.length());
     }
+
+    /**
+     * Escapa um texto para ser incluído em HTML (conteúdo ou valor de atributo).
+     * 
+     * @param s Texto (pode ser nulo).
+     * @return Texto escapado (vazio se nulo).
+     */
+    public static String escapeHtml(String s) {
+        if (s == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                case '\'' -> sb.append("&#39;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escapa um texto para ser incluído numa cadeia JavaScript (entre aspas
+     * simples ou duplas) dentro de um elemento {@code script}.
+     * 
+     * @param s Texto (pode ser nulo).
+     * @return Texto escapado (vazio se nulo).
+     */
+    public static String escapeJs(String s) {
+        if (s == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\'' || c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '\u2028' || c == '\u2029') {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
 }
\ No newline at end of file
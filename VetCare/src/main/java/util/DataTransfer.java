@@ -390,7 +390,7 @@ public final class DataTransfer {
         File file = new File(filePath);
 
         if (!file.exists()) {
-            System.err.println(" ERRO: Ficheiro SQL não encontrado no caminho: " + filePath);
+            Log.error(DataTransfer.class, "Ficheiro SQL não encontrado no caminho: " + filePath);
             return false;
         }
 
@@ -398,13 +398,13 @@ public final class DataTransfer {
             return importFromSql(tableName, stream);
 
         } catch (FileNotFoundException e) {
-            System.err.println(" ERRO de Ficheiro (FNF) ao importar SQL: " + e.getMessage());
+            Log.error(DataTransfer.class, "Ficheiro não encontrado ao importar SQL", e);
             return false;
         } catch (IOException e) {
-            System.err.println(" ERRO de I/O ao fechar o stream para SQL: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O ao fechar o stream para SQL", e);
             return false;
         } catch (Exception e) {
-            System.err.println(" ERRO geral durante a importação SQL (por ficheiro): " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro geral durante a importação SQL (por ficheiro)", e);
             return false;
         }
     }
@@ -418,7 +418,7 @@ public final class DataTransfer {
      */
 
     public static boolean importFromSql(String tableName, InputStream stream) {
-        System.out.println(" Iniciando importação SQL para a tabela " + tableName + ".");
+        Log.info(DataTransfer.class, "Iniciando importação SQL para a tabela " + tableName + ".");
         Connection con = null;
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
             con = new Configura().getConnection();
@@ -435,29 +435,29 @@ public final class DataTransfer {
 
                 stmt.executeBatch();
                 con.commit();
-                System.out.println(" Importação de SQL concluída.");
+                Log.info(DataTransfer.class, "Importação de SQL concluída.");
                 return true;
             }
 
         } catch (SQLException e) {
-            System.err.println(" ERRO SQL na importação SQL: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro SQL na importação SQL", e);
             if (con != null) {
                 try {
                     con.rollback();
                 } catch (SQLException ex) {
-                    System.err.println("Erro ao fazer rollback: " + ex.getMessage());
+                    Log.error(DataTransfer.class, "Erro ao fazer rollback", ex);
                 }
             }
             return false;
         } catch (IOException e) {
-            System.err.println(" ERRO IO na importação SQL: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O na importação SQL", e);
             return false;
         } finally {
             if (con != null) {
                 try {
                     con.close();
                 } catch (SQLException e) {
-                    System.err.println("Erro ao fechar conexão: " + e.getMessage());
+                    Log.error(DataTransfer.class, "Erro ao fechar conexão", e);
                 }
             }
         }
@@ -472,7 +472,7 @@ public final class DataTransfer {
      */
 
     public static boolean importFromCsv(String tableName, InputStream stream) {
-        System.out.println(" Iniciando importação CSV para a tabela " + tableName + " via STREAM.");
+        Log.info(DataTransfer.class, "Iniciando importação CSV para a tabela " + tableName + " via STREAM.");
 
         List<String[]> dataRows = new ArrayList<>();
         String[] columns = null;
@@ -483,7 +483,7 @@ public final class DataTransfer {
             if (headerLine != null) {
                 columns = headerLine.split(CSV_DELIMITER);
             } else {
-                System.out.println(" Aviso: Stream CSV está vazio ou sem cabeçalho válido.");
+                Log.warn(DataTransfer.class, "Stream CSV está vazio ou sem cabeçalho válido.");
                 return false;
             }
 
@@ -511,19 +511,18 @@ public final class DataTransfer {
             }
 
         } catch (IOException e) {
-            System.out.println(" Erro de I/O ao ler o stream CSV.");
-            System.err.println("Detalhes: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O ao ler o stream CSV.", e);
             return false;
         }
 
         if (columns != null && !dataRows.isEmpty()) {
             if (executeBatchInserts(tableName, columns, dataRows)) {
-                System.out.println(" Sucesso: Foram importadas " + dataRows.size() + " linhas para a tabela '"
+                Log.info(DataTransfer.class, "Foram importadas " + dataRows.size() + " linhas para a tabela '"
                         + tableName + "' via stream.");
                 return true;
             }
         } else {
-            System.out.println(" Aviso: Stream CSV processado, mas não continha dados válidos.");
+            Log.warn(DataTransfer.class, "Stream CSV processado, mas não continha dados válidos.");
         }
         return false;
     }
@@ -540,38 +539,37 @@ public final class DataTransfer {
         File inputFile = new File(inputFileName);
 
         if (!inputFile.exists()) {
-            System.out.println(" Aviso: Ficheiro não encontrado: '" + inputFileName + "'.");
+            Log.warn(DataTransfer.class, "Ficheiro não encontrado: '" + inputFileName + "'.");
             return false;
         }
 
         try (InputStream stream = new FileInputStream(inputFile)) {
-            System.out.println(" Chamando o método stream para importar o ficheiro CSV: " + inputFileName);
+            Log.info(DataTransfer.class, "Chamando o método stream para importar o ficheiro CSV: " + inputFileName);
             return importFromCsv(tableName, stream);
 
         } catch (FileNotFoundException e) {
-            System.err.println(" Erro de Ficheiro (FNF) ao abrir CSV: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de Ficheiro (FNF) ao abrir CSV", e);
             return false;
         } catch (IOException e) {
-            System.err.println(" Erro de I/O ao fechar o stream para CSV: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O ao fechar o stream para CSV", e);
             return false;
         }
     }
 
     @SuppressWarnings("unchecked")
     public static boolean importFromJson(String tableName, InputStream stream) {
-        System.out.println(" Iniciando importação JSON para a tabela " + tableName + " via STREAM.");
+        Log.info(DataTransfer.class, "Iniciando importação JSON para a tabela " + tableName + " via STREAM.");
 
         String jsonString = "";
         try (Scanner scanner = new Scanner(stream, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
             jsonString = scanner.hasNext() ? scanner.next().trim() : "";
         } catch (Exception e) {
-            System.out.println(" Erro de I/O ao ler o stream JSON.");
-            System.err.println("Exception: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O ao ler o stream JSON.", e);
             return false;
         }
 
         if (jsonString.isEmpty()) {
-            System.out.println(" Aviso: O stream JSON está vazio.");
+            Log.warn(DataTransfer.class, "O stream JSON está vazio.");
             return false;
         }
 
@@ -579,14 +577,13 @@ public final class DataTransfer {
         try {
             jsonArray = new JSONArray(jsonString);
         } catch (JSONException e) {
-            System.out.println(
-                    " Erro ao processar o stream JSON. Verifique a sintaxe (deve ser um array de objetos JSON).");
-            System.err.println("JSONException: " + e.getMessage());
+            Log.error(DataTransfer.class,
+                    "Erro ao processar o stream JSON. Verifique a sintaxe (deve ser um array de objetos JSON).", e);
             return false;
         }
 
         if (jsonArray.length() == 0) {
-            System.out.println(" Aviso: Não foram encontrados objetos (registos) válidos no stream JSON.");
+            Log.warn(DataTransfer.class, "Não foram encontrados objetos (registos) válidos no stream JSON.");
             return false;
         }
 
@@ -594,8 +591,7 @@ public final class DataTransfer {
         try {
             firstObject = jsonArray.getJSONObject(0);
         } catch (JSONException e) {
-            System.out.println(" Erro ao processar o stream JSON na dedução das colunas.");
-            System.err.println("JSONException: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro ao processar o stream JSON na dedução das colunas.", e);
             return false;
         }
 
@@ -609,19 +605,19 @@ public final class DataTransfer {
         String[] columnNames = columnList.toArray(new String[0]);
 
         if (columnNames.length == 0) {
-            System.out.println(" Aviso: O primeiro objeto JSON está vazio. Não foi possível deduzir as colunas.");
+            Log.warn(DataTransfer.class, "O primeiro objeto JSON está vazio. Não foi possível deduzir as colunas.");
             return false;
         }
 
         List<String[]> dataRows = new ArrayList<>();
-        System.out.println(" Colunas deduzidas (" + columnNames.length + "): " + String.join(", ", columnNames));
+        Log.info(DataTransfer.class, "Colunas deduzidas (" + columnNames.length + "): " + String.join(", ", columnNames));
 
         for (int i = 0; i < jsonArray.length(); i++) {
             JSONObject obj = null;
             try {
                 obj = jsonArray.getJSONObject(i);
             } catch (JSONException e) {
-                e.printStackTrace();
+                Log.error(DataTransfer.class, "Objeto JSON inválido na posição " + i, e);
             }
             String[] row = new String[columnNames.length];
 
@@ -638,11 +634,11 @@ public final class DataTransfer {
             dataRows.add(row);
         }
 
-        System.out
-                .println(" Preparando " + dataRows.size() + " registos para inserção na tabela '" + tableName + "'...");
+        Log.debug(DataTransfer.class,
+                "Preparando " + dataRows.size() + " registos para inserção na tabela '" + tableName + "'...");
         if (executeBatchInserts(tableName, columnNames, dataRows)) {
-            System.out.println(
-                    " Sucesso: Foram importadas " + dataRows.size() + " linhas para a tabela '" + tableName + "'.");
+            Log.info(DataTransfer.class,
+                    "Foram importadas " + dataRows.size() + " linhas para a tabela '" + tableName + "'.");
             return true;
         }
 
@@ -662,19 +658,19 @@ public final class DataTransfer {
         File file = new File(filePath);
 
         if (!file.exists()) {
-            System.out.println(" Aviso: Ficheiro não encontrado: '" + filePath + "'.");
+            Log.warn(DataTransfer.class, "Ficheiro não encontrado: '" + filePath + "'.");
             return false;
         }
 
         try (InputStream stream = new FileInputStream(file)) {
-            System.out.println(" Chamando o método stream para importar o ficheiro: " + fileName);
+            Log.info(DataTransfer.class, "Chamando o método stream para importar o ficheiro: " + fileName);
             return importFromJson(tableName, stream);
 
         } catch (FileNotFoundException e) {
-            System.err.println(" ERRO de Ficheiro (FNF) ao importar JSON: " + e.getMessage());
+            Log.error(DataTransfer.class, "Ficheiro não encontrado ao importar JSON", e);
             return false;
         } catch (IOException e) {
-            System.err.println(" ERRO de I/O ao fechar o stream para JSON: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O ao fechar o stream para JSON", e);
             return false;
         }
     }
@@ -688,7 +684,7 @@ public final class DataTransfer {
      */
 
     public static boolean importFromXml(String tableName, InputStream stream) {
-        System.out.println(" Iniciando importação XML para a tabela " + tableName + " via STREAM.");
+        Log.info(DataTransfer.class, "Iniciando importação XML para a tabela " + tableName + " via STREAM.");
 
         String rowTag = tableName.substring(0, 1).toUpperCase() + tableName.substring(1).toLowerCase();
 
@@ -704,7 +700,7 @@ public final class DataTransfer {
             NodeList rowNodes = doc.getElementsByTagName(rowTag);
 
             if (rowNodes.getLength() == 0) {
-                System.out.println(" Aviso: Não foram encontrados elementos de dados ('<" + rowTag
+                Log.warn(DataTransfer.class, "Não foram encontrados elementos de dados ('<" + rowTag
                         + ">') no ficheiro XML (Stream).");
                 return false;
             }
@@ -754,22 +750,19 @@ public final class DataTransfer {
 
             if (!dataRows.isEmpty()) {
                 if (executeBatchInserts(tableName, columns, dataRows)) {
-                    System.out.println(" Sucesso: Foram importadas " + dataRows.size() + " linhas para a tabela '"
+                    Log.info(DataTransfer.class, "Foram importadas " + dataRows.size() + " linhas para a tabela '"
                             + tableName + "' (via Stream).");
                     return true;
                 }
             } else {
-                System.out.println(" Aviso: XML lido via Stream, mas não foram extraídas linhas de dados válidas.");
+                Log.warn(DataTransfer.class, "XML lido via Stream, mas não foram extraídas linhas de dados válidas.");
             }
         } catch (ParserConfigurationException | SAXException e) {
-            System.out.println(" Erro de Configuração/Parsing XML: O ficheiro pode estar malformado.");
-            System.err.println("Detalhes: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de Configuração/Parsing XML: O ficheiro pode estar malformado.", e);
         } catch (IOException e) {
-            System.out.println(" Erro de I/O no Stream: Ocorreu um erro durante a leitura do fluxo de dados.");
-            System.err.println("Detalhes: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro de I/O no Stream: Ocorreu um erro durante a leitura do fluxo de dados.", e);
         } catch (Exception e) {
-            System.out.println(" Erro grave e inesperado durante a importação XML por stream.");
-            System.err.println("Detalhes: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro grave e inesperado durante a importação XML por stream.", e);
         }
         return false;
     }
@@ -787,18 +780,17 @@ public final class DataTransfer {
         File file = new File(filePath);
 
         if (!file.exists()) {
-            System.out.println(" Aviso: Ficheiro XML não encontrado: '" + filePath + "'.");
+            Log.warn(DataTransfer.class, "Ficheiro XML não encontrado: '" + filePath + "'.");
             return false;
         }
 
         try (InputStream stream = new FileInputStream(file)) {
-            System.out.println(" Chamando o método stream para importar o ficheiro: " + fileName);
+            Log.info(DataTransfer.class, "Chamando o método stream para importar o ficheiro: " + fileName);
             return importFromXml(tableName, stream);
 
         } catch (IOException e) {
-            System.out.println(
-                    " Erro de I/O de Ficheiro ao abrir o stream: Não foi possível ler o ficheiro '" + filePath + "'.");
-            System.err.println("Detalhes: " + e.getMessage());
+            Log.error(DataTransfer.class,
+                    "Erro de I/O de Ficheiro ao abrir o stream: Não foi possível ler o ficheiro '" + filePath + "'", e);
             return false;
         }
     }
@@ -817,7 +809,7 @@ public final class DataTransfer {
         try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(outputFileName)))) {
             return processExport(tableName, format, generator, writer);
         } catch (IOException e) {
-            System.err.println("Erro de E/S na exportação da tabela '" + tableName + "'.");
+            Log.error(DataTransfer.class, "Erro de E/S na exportação da tabela '" + tableName + "'.");
         }
         return false;
     }
@@ -835,15 +827,16 @@ public final class DataTransfer {
     private static boolean processExport(String tableName, String format, ContentGenerator generator,
             PrintWriter writer) {
         Configura configurador = new Configura();
-        String word = configurador.isSQLServer() ? "TOP" : "LIMIT";
-        String limite = (format.equals("pdf") || format.equals("txt") ? " " + word + " 900" : "");
-        try (Connection con = configurador.getConnection();
+        String sql = "SELECT * FROM " + tableName;
+        if (format.equals("pdf") || format.equals("txt"))
+            sql = configurador.getDialect().limit(sql, 900);
+        try (Connection con = configurador.getReadOnlyConnection();
                 Statement stm = con.createStatement();
-                ResultSet rs = stm.executeQuery("SELECT * FROM " + tableName + limite)) {
+                ResultSet rs = stm.executeQuery(sql)) {
             generator.generate(rs, writer, tableName);
             return true;
         } catch (SQLException e) {
-            System.err.println("Erro na exportação da tabela '" + tableName + "'.");
+            Log.error(DataTransfer.class, "Erro na exportação da tabela '" + tableName + "'.");
         }
         return false;
     }
@@ -859,7 +852,7 @@ public final class DataTransfer {
     private static boolean processDisplay(String tableName, ContentGenerator generator) {
         Configura configurador = new Configura();
         PrintWriter writer = new PrintWriter(System.out, true);
-        try (Connection con = configurador.getConnection();
+        try (Connection con = configurador.getReadOnlyConnection();
                 Statement stm = con.createStatement();
                 ResultSet rs = stm.executeQuery("SELECT * FROM " + tableName)) {
             generator.generate(rs, writer, tableName);
@@ -882,7 +875,7 @@ public final class DataTransfer {
         Configura configurador = new Configura();
         StringWriter sw = new StringWriter();
         try (PrintWriter pw = new PrintWriter(sw, true);
-                Connection con = configurador.getConnection();
+                Connection con = configurador.getReadOnlyConnection();
                 Statement stm = con.createStatement();
                 ResultSet rs = stm.executeQuery("SELECT * FROM " + tableName)) {
             generator.generate(rs, pw, tableName);
@@ -908,36 +901,30 @@ public final class DataTransfer {
         Configura configurador = new Configura();
         int rowsAffected = 0;
 
-        StringBuilder sqlPrefixBuilder = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
-        for (int i = 0; i < columns.length; i++) {
-            sqlPrefixBuilder.append(columns[i].trim());
-            if (i < columns.length - 1)
-                sqlPrefixBuilder.append(", ");
+        List<String[]> literais = new ArrayList<>(dataRows.size());
+        for (String[] row : dataRows) {
+            if (row.length != columns.length)
+                continue;
+            String[] rowValues = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                String value = row[i];
+                if (value == null || value.equalsIgnoreCase("NULL")) {
+                    rowValues[i] = "NULL";
+                } else if (SqlDialect.hexOf(value) != null) {
+                    rowValues[i] = value.trim();
+                } else {
+                    String safeValue = value.trim().replace("'", "''");
+                    rowValues[i] = "'" + safeValue + "'";
+                }
+            }
+            literais.add(rowValues);
         }
-        sqlPrefixBuilder.append(") VALUES (");
-        final String sqlPrefix = sqlPrefixBuilder.toString();
 
+        // Inserções com várias linhas por comando, no limite de cada SGBD
         try (Connection con = configurador.getConnection(false);
                 Statement stm = con.createStatement()) {
-            for (String[] row : dataRows) {
-                if (row.length != columns.length)
-                    continue;
-                StringBuilder rowValues = new StringBuilder();
-                for (int i = 0; i < columns.length; i++) {
-                    String value = row[i];
-                    if (value == null || value.equalsIgnoreCase("NULL")) {
-                        rowValues.append("NULL");
-                    } else if (value.toUpperCase().startsWith("UNHEX('") || value.toUpperCase().startsWith("0X")) {
-                        rowValues.append(value);
-                    } else {
-                        String safeValue = value.trim().replace("'", "''");
-                        rowValues.append("'").append(safeValue).append("'");
-                    }
-                    if (i < columns.length - 1)
-                        rowValues.append(", ");
-                }
-                stm.addBatch(sqlPrefix + rowValues.toString() + ")");
-            }
+            for (String sql : configurador.getDialect().bulkInsert(tableName, columns, literais))
+                stm.addBatch(sql);
             int[] results = stm.executeBatch();
             for (int r : results)
                 if (r > 0)
@@ -945,7 +932,7 @@ public final class DataTransfer {
             con.commit();
             return true;
         } catch (SQLException e) {
-            System.err.println("Erro na inserção em lote: " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro na inserção em lote", e);
         }
         return false;
     }
@@ -982,7 +969,8 @@ public final class DataTransfer {
 
         Configura cfg = new Configura();
         final String targetDB = cfg.isMySQL() ? "MYSQL" : (cfg.isSQLServer() ? "SQLSERVER" : "DESCONHECIDO");
-        final int actualBatchSize = (batchSize > 0) ? batchSize : 50;
+        final int actualBatchSize = Math.min((batchSize > 0) ? batchSize : 50,
+                cfg.getDialect().maxRowsPerInsert(columnCount));
 
         columnNames.append("(");
         for (int i = 1; i <= columnCount; i++) {
@@ -1058,7 +1046,6 @@ public final class DataTransfer {
             sb.append(DataFormatter.getBlobHex(rs, columnIndex));
         } else if (DataFormatter.isNumeric(columnType)) {
             sb.append(rs.getObject(columnIndex).toString());
-            sb.append(rs.getObject(columnIndex).toString());
         } else {
             String value = rs.getString(columnIndex);
             if (value != null) {
@@ -1141,7 +1128,7 @@ public final class DataTransfer {
                     .setTextAlignment(TextAlignment.LEFT));
             document.close();
         } catch (IOException e) {
-            System.err.println(" Erro de I/O ao gerar o PDF para stream: " + tableName);
+            Log.error(DataTransfer.class, "Erro de I/O ao gerar o PDF para stream: " + tableName);
             throw e;
         }
     }
@@ -1158,12 +1145,12 @@ public final class DataTransfer {
 
         try (java.io.FileOutputStream fos = new java.io.FileOutputStream(outputFileName)) {
             exportToPdf(tableName, fos);
-            System.out.println(" Os dados da tabela '" + tableName
+            Log.info(DataTransfer.class, "Os dados da tabela '" + tableName
                     + "' foram exportados, no formato PDF, para o ficheiro '" + outputFileName + "'.");
             return true;
         } catch (Exception e) {
-            System.err.println(" Erro ao exportar os dados da tabela '" + tableName
-                    + "', no formato PDF, para o ficheiro '" + outputFileName + "':" + e.getMessage());
+            Log.error(DataTransfer.class, "Erro ao exportar os dados da tabela '" + tableName
+                    + "', no formato PDF, para o ficheiro '" + outputFileName + "'", e);
             return false;
         }
     }
@@ -1484,23 +1471,15 @@ public final class DataTransfer {
      */
 
     private static String getBlobHex(ResultSet rs, int columnIndex) {
-        Configura cfg = new Configura();
         String hexValue = null;
 
         try {
             hexValue = DataFormatter.blobToHexString(rs, columnIndex);
             if (hexValue != null) {
-                if (cfg.isMySQL()) {
-                    return "UNHEX('" + hexValue + "')";
-                } else if (cfg.isSQLServer()) {
-                    return "0x" + hexValue;
-                } else {
-                    System.err.println("ERRO: SGBD desconhecido ao tentar formatar BLOB para SQL.");
-                    return "NULL /* ERRO: SGBD Desconhecido ou não suportado para BLOB */";
-                }
+                return new Configura().getDialect().blobLiteral(hexValue);
             }
         } catch (SQLException e) {
-            System.err.println("ERRO SQL ao processar BLOB na coluna " + columnIndex + ": " + e.getMessage());
+            Log.error(DataTransfer.class, "Erro SQL ao processar BLOB na coluna " + columnIndex, e);
         }
 
         return "NULL";
@@ -1542,7 +1521,7 @@ public final class DataTransfer {
 
         Configura configuradorBD = new Configura();
         String sql = "SELECT * FROM HistoricoClinico WHERE IDAnimal = ? ORDER BY DataHora DESC";
-        try (Connection con = configuradorBD.getConnection();
+        try (Connection con = configuradorBD.getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, animalId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -1618,7 +1597,7 @@ public final class DataTransfer {
             JSONArray history = new JSONArray();
             Configura configuradorBD = new Configura();
             String sql = "SELECT * FROM HistoricoClinico WHERE IDAnimal = ? ORDER BY DataHora DESC";
-            try (Connection con = configuradorBD.getConnection();
+            try (Connection con = configuradorBD.getReadOnlyConnection();
                     PreparedStatement ps = con.prepareStatement(sql)) {
                 ps.setInt(1, animalId);
                 try (ResultSet rs = ps.executeQuery()) {
@@ -1776,7 +1755,7 @@ public final class DataTransfer {
             }
             return "Importado com sucesso.";
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error(DataTransfer.class, "Erro técnico na importação XML", e);
             return "Erro técnico na importação XML: " + e.getMessage();
         }
     }
@@ -1909,8 +1888,7 @@ public final class DataTransfer {
             }
             return "Importado com sucesso.";
         } catch (Exception e) {
-            logDebug("Exception JSON: " + e.getMessage());
-            e.printStackTrace();
+            Log.error(DataTransfer.class, "Erro técnico na importação JSON", e);
             return "Erro técnico na importação JSON: " + e.getMessage();
         }
     }
@@ -1968,6 +1946,6 @@ public final class DataTransfer {
      * @param msg mensagem a registar
      */
     public static void logDebug(String msg) {
-        System.out.println("[DataTransfer] " + msg);
+        Log.debug(DataTransfer.class, msg);
     }
 }
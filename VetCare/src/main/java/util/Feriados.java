@@ -0,0 +1,297 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendário de feriados partilhado pela aplicação.
+ * Para cada ano é pré-calculado um mapa de bits (um bit por dia) com os
+ * feriados nacionais, fixos e móveis, e um por região com os dias de
+ * encerramento (fins de semana, feriados nacionais e o feriado municipal da
+ * região). As consultas por dia custam um acesso ao mapa e as contagens de
+ * dias úteis num intervalo reduzem-se a contar bits.
+ * Os anos próximos do atual são calculados no arranque e ficam guardados; os
+ * restantes (datas indicadas pelos utilizadores, que podem ser quaisquer)
+ * são calculados a cada pedido, para que a memória usada não cresça.
+ */
+public final class Feriados {
+
+    /** Anos guardados, antes e depois do ano atual. */
+    private static final int ANOS_ANTES = 1, ANOS_DEPOIS = 5;
+    /** Validade (ms) da associação das clínicas às regiões. */
+    private static final long VALIDADE_CLINICAS_MS = 5 * 60 * 1000L;
+
+    /** Feriados nacionais de data fixa. */
+    private static final Map<MonthDay, String> FIXOS = new HashMap<>();
+    /** Feriado municipal de cada região. */
+    private static final Map<Regiao, MonthDay> MUNICIPAIS = new EnumMap<>(Regiao.class);
+
+    static {
+        FIXOS.put(MonthDay.of(Month.JANUARY, 1), "Ano Novo");
+        FIXOS.put(MonthDay.of(Month.APRIL, 25), "Dia da Liberdade");
+        FIXOS.put(MonthDay.of(Month.MAY, 1), "Dia do Trabalhador");
+        FIXOS.put(MonthDay.of(Month.JUNE, 10), "Dia de Portugal");
+        FIXOS.put(MonthDay.of(Month.AUGUST, 15), "Assunção de Nossa Senhora");
+        FIXOS.put(MonthDay.of(Month.OCTOBER, 5), "Implantação da República");
+        FIXOS.put(MonthDay.of(Month.NOVEMBER, 1), "Todos os Santos");
+        FIXOS.put(MonthDay.of(Month.DECEMBER, 1), "Restauração da Independência");
+        FIXOS.put(MonthDay.of(Month.DECEMBER, 8), "Imaculada Conceição");
+        FIXOS.put(MonthDay.of(Month.DECEMBER, 25), "Natal");
+
+        MUNICIPAIS.put(Regiao.LISBOA, MonthDay.of(Month.JUNE, 13));
+        MUNICIPAIS.put(Regiao.PORTO, MonthDay.of(Month.JUNE, 24));
+        MUNICIPAIS.put(Regiao.BRAGA, MonthDay.of(Month.JUNE, 24));
+        MUNICIPAIS.put(Regiao.SINTRA, MonthDay.of(Month.JUNE, 29));
+        MUNICIPAIS.put(Regiao.EVORA, MonthDay.of(Month.JUNE, 29));
+    }
+
+    /** Anos já calculados, próximos do atual. */
+    private static final Map<Integer, Ano> ANOS = new ConcurrentHashMap<>();
+    /** Configurações de região inválidas já assinaladas no registo. */
+    private static final Set<String> AVISADAS = ConcurrentHashMap.newKeySet();
+    /** Região de cada clínica. */
+    private static volatile Map<Integer, Regiao> clinicas = Collections.emptyMap();
+    /** Instante (ms) da última leitura das clínicas. */
+    private static volatile long clinicasEm = 0;
+
+    static {
+        int atual = LocalDate.now().getYear();
+        for (int a = atual - ANOS_ANTES; a <= atual + ANOS_DEPOIS; a++)
+            ano(a);
+    }
+
+    private Feriados() {
+    }
+
+    /**
+     * Feriados e dias de encerramento de um ano, indexados pelo dia do ano
+     * (0 = 1 de janeiro). Imutável depois de construído.
+     */
+    private static final class Ano {
+        /** Feriados nacionais (fixos e móveis). */
+        final BitSet nacionais = new BitSet(366);
+        /** Dias de encerramento sem feriado municipal (fins de semana e nacionais). */
+        final BitSet encerrado = new BitSet(366);
+        /** Dias de encerramento por região (inclui o feriado municipal). */
+        final Map<Regiao, BitSet> porRegiao = new EnumMap<>(Regiao.class);
+        /** Descrição dos feriados nacionais. */
+        final Map<Integer, String> descricoes = new HashMap<>();
+        /** Número de dias do ano. */
+        final int dias;
+
+        Ano(int ano) {
+            LocalDate inicio = LocalDate.of(ano, 1, 1);
+            dias = inicio.lengthOfYear();
+            for (Map.Entry<MonthDay, String> f : FIXOS.entrySet())
+                marcar(f.getKey().atYear(ano), f.getValue());
+
+            LocalDate pascoa = Calendario.getDomingoPascoa(ano);
+            marcar(pascoa.minusDays(47), "Carnaval");
+            marcar(pascoa.minusDays(2), "Sexta-feira Santa");
+            marcar(pascoa, "Páscoa");
+            marcar(pascoa.plusDays(60), "Corpo de Deus");
+
+            encerrado.or(nacionais);
+            // Primeiro sábado e domingo do ano; os seguintes repetem-se a cada 7 dias
+            int sabado = (DayOfWeek.SATURDAY.getValue() - inicio.getDayOfWeek().getValue() + 7) % 7;
+            int domingo = (DayOfWeek.SUNDAY.getValue() - inicio.getDayOfWeek().getValue() + 7) % 7;
+            for (int d = sabado; d < dias; d += 7)
+                encerrado.set(d);
+            for (int d = domingo; d < dias; d += 7)
+                encerrado.set(d);
+
+            for (Regiao r : Regiao.values()) {
+                BitSet b = (BitSet) encerrado.clone();
+                MonthDay m = MUNICIPAIS.get(r);
+                if (m != null)
+                    b.set(m.atYear(ano).getDayOfYear() - 1);
+                porRegiao.put(r, b);
+            }
+        }
+
+        private void marcar(LocalDate d, String descricao) {
+            nacionais.set(d.getDayOfYear() - 1);
+            descricoes.putIfAbsent(d.getDayOfYear() - 1, descricao);
+        }
+
+        BitSet encerrado(Regiao r) {
+            return r == null ? encerrado : porRegiao.get(r);
+        }
+    }
+
+    private static Ano ano(int ano) {
+        Ano a = ANOS.get(ano);
+        if (a != null)
+            return a;
+        int atual = LocalDate.now().getYear();
+        if (ano < atual - ANOS_ANTES || ano > atual + ANOS_DEPOIS)
+            return new Ano(ano);
+        return ANOS.computeIfAbsent(ano, Ano::new);
+    }
+
+    /**
+     * @param data Data a verificar.
+     * @return Verdadeiro se for feriado nacional (fixo ou móvel).
+     */
+    public static boolean isFeriado(LocalDate data) {
+        return ano(data.getYear()).nacionais.get(data.getDayOfYear() - 1);
+    }
+
+    /**
+     * @param data   Data a verificar.
+     * @param regiao Região.
+     * @return Verdadeiro se for o feriado municipal da região.
+     */
+    public static boolean isMunicipal(LocalDate data, Regiao regiao) {
+        MonthDay m = regiao == null ? null : MUNICIPAIS.get(regiao);
+        return m != null && m.equals(MonthDay.from(data));
+    }
+
+    /**
+     * Indica se as clínicas de uma região estão encerradas num dia (fim de
+     * semana, feriado nacional ou feriado municipal da região).
+     *
+     * @param data   Data a verificar.
+     * @param regiao Região (nula para considerar apenas os feriados nacionais).
+     * @return Verdadeiro se for dia de encerramento.
+     */
+    public static boolean isEncerrado(LocalDate data, Regiao regiao) {
+        return ano(data.getYear()).encerrado(regiao).get(data.getDayOfYear() - 1);
+    }
+
+    /**
+     * @param data      Data a verificar.
+     * @param clinicaId Identificador da clínica.
+     * @return Verdadeiro se a clínica estiver encerrada nesse dia.
+     */
+    public static boolean isEncerrado(LocalDate data, int clinicaId) {
+        return isEncerrado(data, regiao(clinicaId));
+    }
+
+    /**
+     * Conta os dias úteis num intervalo.
+     *
+     * @param de     Primeiro dia (incluído).
+     * @param ate    Último dia (excluído).
+     * @param regiao Região (nula para considerar apenas os feriados nacionais).
+     * @return Número de dias úteis em [de, ate).
+     */
+    public static int diasUteis(LocalDate de, LocalDate ate, Regiao regiao) {
+        int total = 0;
+        for (int a = de.getYear(); a <= ate.getYear(); a++) {
+            Ano ano = ano(a);
+            int i = a == de.getYear() ? de.getDayOfYear() - 1 : 0;
+            int f = a == ate.getYear() ? ate.getDayOfYear() - 1 : ano.dias;
+            if (f > i)
+                total += (f - i) - ano.encerrado(regiao).get(i, f).cardinality();
+        }
+        return total;
+    }
+
+    /**
+     * @param data   Data de partida.
+     * @param regiao Região (nula para considerar apenas os feriados nacionais).
+     * @return O primeiro dia útil a partir da data (inclusive).
+     */
+    public static LocalDate proximoDiaUtil(LocalDate data, Regiao regiao) {
+        while (true) {
+            Ano ano = ano(data.getYear());
+            int d = ano.encerrado(regiao).nextClearBit(data.getDayOfYear() - 1);
+            if (d < ano.dias)
+                return LocalDate.ofYearDay(data.getYear(), d + 1);
+            data = LocalDate.of(data.getYear() + 1, 1, 1);
+        }
+    }
+
+    /**
+     * Descrição do feriado nacional ou, não o sendo, dos feriados municipais
+     * que calham na data.
+     *
+     * @param data Data a analisar.
+     * @return Descrição ou uma string vazia se não for feriado.
+     */
+    public static String descricao(LocalDate data) {
+        String d = ano(data.getYear()).descricoes.get(data.getDayOfYear() - 1);
+        if (d != null)
+            return d;
+        List<String> locais = new ArrayList<>();
+        for (Regiao r : Regiao.values())
+            if (isMunicipal(data, r))
+                locais.add(r.name());
+        return locais.isEmpty() ? "" : "Feriado Local: " + String.join(", ", locais);
+    }
+
+    /**
+     * Região de uma clínica. Pode ser definida em {@code clinica.<id>.regiao};
+     * caso contrário é deduzida da localidade da clínica.
+     *
+     * @param clinicaId Identificador da clínica.
+     * @return Região ou nulo se a localidade não corresponder a nenhuma.
+     */
+    public static Regiao regiao(int clinicaId) {
+        String cfg = Configura.snapshot().get("clinica." + clinicaId + ".regiao");
+        if (cfg != null && !cfg.isEmpty()) {
+            try {
+                return Regiao.valueOf(cfg.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                if (AVISADAS.add(clinicaId + "=" + cfg))
+                    Log.warn(Feriados.class, "Região desconhecida para a clínica " + clinicaId + ": " + cfg);
+            }
+        }
+        Map<Integer, Regiao> m = clinicas;
+        if (System.currentTimeMillis() - clinicasEm > VALIDADE_CLINICAS_MS
+                || (!m.containsKey(clinicaId) && System.currentTimeMillis() - clinicasEm > 1000))
+            m = carregarClinicas();
+        return m.get(clinicaId);
+    }
+
+    /**
+     * Lê a localidade das clínicas e associa-as às regiões.
+     */
+    private static synchronized Map<Integer, Regiao> carregarClinicas() {
+        Map<Integer, Regiao> m = new HashMap<>();
+        try (Connection con = new Configura().getConnection();
+                Statement st = con.createStatement();
+                ResultSet rs = st.executeQuery("SELECT IDClinica, Localidade FROM Clinica")) {
+            while (rs.next())
+                m.put(rs.getInt(1), regiao(rs.getString(2)));
+            clinicas = m;
+        } catch (SQLException e) {
+            Log.error(Feriados.class, "Erro ao ler as localidades das clínicas", e);
+            m = clinicas;
+        }
+        clinicasEm = System.currentTimeMillis();
+        return m;
+    }
+
+    /**
+     * @param localidade Localidade (ex.: "Évora").
+     * @return Região correspondente ou nulo.
+     */
+    public static Regiao regiao(String localidade) {
+        if (localidade == null)
+            return null;
+        String n = Normalizer.normalize(localidade.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .toUpperCase();
+        for (Regiao r : Regiao.values())
+            if (n.equals(r.name()) || n.startsWith(r.name() + " "))
+                return r;
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package util;
+
+import java.io.IOException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Marca a apresentação das páginas JSP, para que a instrumentação
+ * ({@link SqlMetrics}) assinale os acessos à base de dados feitos a partir da
+ * página em vez do servlet. Só tem efeito com {@code db.metrics} ativo.
+ */
+@WebFilter(urlPatterns = "*.jsp", dispatcherTypes = { DispatcherType.REQUEST, DispatcherType.FORWARD,
+        DispatcherType.INCLUDE })
+public class JspQueryFilter implements Filter {
+
+    /**
+     * Executa a página com a thread marcada.
+     *
+     * @param request  Pedido.
+     * @param response Resposta.
+     * @param chain    Restantes filtros e a página.
+     * @throws IOException      Em caso de erro de entrada/saída.
+     * @throws ServletException Em caso de erro no processamento da página.
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        Object incluida = request.getAttribute(RequestDispatcher.INCLUDE_SERVLET_PATH);
+        String pagina = incluida != null ? incluida.toString()
+                : request instanceof HttpServletRequest ? ((HttpServletRequest) request).getServletPath() : "?";
+        String anterior = SqlMetrics.enterView(pagina);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlMetrics.exitView(anterior);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências com intervalos em escala logarítmica (quatro por
+ * cada duplicação, de 1µs a cerca de 2 minutos). O registo é livre de
+ * bloqueios e os percentis são estimados pelo limite superior do intervalo,
+ * com erro relativo inferior a 20%.
+ */
+public final class LatencyHistogram {
+
+    /** Intervalos por cada duplicação do valor. */
+    private static final int SUB = 4;
+    /** Número de intervalos (1µs .. 2^27µs). */
+    private static final int BUCKETS = 27 * SUB + 1;
+    /** Limite superior de cada intervalo, em microssegundos. */
+    private static final double[] LIMITES = new double[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++)
+            LIMITES[i] = Math.pow(2, (double) i / SUB);
+    }
+
+    private final AtomicLongArray contagens = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder somaNs = new LongAdder();
+
+    /**
+     * Regista uma medição.
+     *
+     * @param nanos Duração em nanossegundos.
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        double micros = nanos / 1000.0;
+        int i = micros <= 1 ? 0 : (int) Math.ceil(Math.log(micros) / Math.log(2) * SUB);
+        contagens.incrementAndGet(Math.min(i, BUCKETS - 1));
+        total.increment();
+        somaNs.add(nanos);
+    }
+
+    /** @return Número de medições. */
+    public long count() {
+        return total.sum();
+    }
+
+    /** @return Soma das durações em segundos. */
+    public double sumSeconds() {
+        return somaNs.sum() / 1e9;
+    }
+
+    /**
+     * Estima um percentil.
+     *
+     * @param q Quantil entre 0 e 1 (ex.: 0.95).
+     * @return Duração estimada em segundos ou 0 sem medições.
+     */
+    public double quantileSeconds(double q) {
+        long[] c = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            c[i] = contagens.get(i);
+            n += c[i];
+        }
+        if (n == 0)
+            return 0;
+        long alvo = (long) Math.ceil(q * n);
+        long acumulado = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acumulado += c[i];
+            if (acumulado >= alvo)
+                return LIMITES[i] / 1e6;
+        }
+        return LIMITES[BUCKETS - 1] / 1e6;
+    }
+}
@@ -0,0 +1,296 @@
+package util;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registo estruturado e assíncrono da aplicação.
+ * As mensagens são colocadas num anel de capacidade fixa e escritas na
+ * consola por uma thread própria, pelo que quem regista nunca espera por I/O.
+ * Se o anel estiver cheio a mensagem é descartada e contabilizada.
+ *
+ * Formato de cada linha:
+ * {@code 2025-01-31T10:15:00.123 WARN [thread] Origem - mensagem chave=valor}
+ */
+public final class Log {
+
+    /** Níveis de registo, por ordem crescente de gravidade. */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /** Capacidade do anel (potência de 2). */
+    private static final int CAPACIDADE = 8192;
+    private static final int MASCARA = CAPACIDADE - 1;
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    /** Eventos pendentes. */
+    private static final AtomicReferenceArray<Event> ANEL = new AtomicReferenceArray<>(CAPACIDADE);
+    /** Número de sequência esperado em cada posição (fila limitada de Vyukov). */
+    private static final AtomicLongArray SEQUENCIA = new AtomicLongArray(CAPACIDADE);
+    /** Próxima posição a escrever. */
+    private static final AtomicLong CAUDA = new AtomicLong();
+    /** Próxima posição a ler (apenas a thread de escrita a altera). */
+    private static volatile long cabeca = 0;
+    /** Mensagens descartadas por o anel estar cheio. */
+    private static final AtomicLong DESCARTADAS = new AtomicLong();
+
+    /** Nível mínimo registado. */
+    private static volatile Level nivel = Level.INFO;
+    /** Thread de escrita. */
+    private static Thread escritor = null;
+
+    static {
+        for (int i = 0; i < CAPACIDADE; i++)
+            SEQUENCIA.set(i, i);
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Evento de registo.
+     */
+    private static final class Event {
+        final long instante = System.currentTimeMillis();
+        final String thread = Thread.currentThread().getName();
+        final Level nivel;
+        final String origem;
+        final String mensagem;
+        final Throwable erro;
+
+        Event(Level nivel, String origem, String mensagem, Throwable erro) {
+            this.nivel = nivel;
+            this.origem = origem;
+            this.mensagem = mensagem;
+            this.erro = erro;
+        }
+    }
+
+    /**
+     * Define o nível mínimo a partir da configuração ({@code log.level}).
+     *
+     * @param cfg Configuração em vigor.
+     */
+    static void configure(ConfigSnapshot cfg) {
+        String val = cfg.get("log.level");
+        if (val == null)
+            return;
+        try {
+            nivel = Level.valueOf(val.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            warn(Log.class, "Nível de registo desconhecido: " + val);
+        }
+    }
+
+    /**
+     * @param level Nível a verificar.
+     * @return Verdadeiro se as mensagens deste nível forem registadas.
+     */
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= nivel.ordinal();
+    }
+
+    /**
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     */
+    public static void debug(Class<?> origem, String msg) {
+        log(Level.DEBUG, origem, msg, null);
+    }
+
+    /**
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     */
+    public static void info(Class<?> origem, String msg) {
+        log(Level.INFO, origem, msg, null);
+    }
+
+    /**
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     */
+    public static void warn(Class<?> origem, String msg) {
+        log(Level.WARN, origem, msg, null);
+    }
+
+    /**
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     * @param erro   Exceção associada (pode ser nula).
+     */
+    public static void warn(Class<?> origem, String msg, Throwable erro) {
+        log(Level.WARN, origem, msg, erro);
+    }
+
+    /**
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     */
+    public static void error(Class<?> origem, String msg) {
+        log(Level.ERROR, origem, msg, null);
+    }
+
+    /**
+     * Regista um erro. Apenas a mensagem da exceção é escrita; o rasto completo
+     * só é incluído quando o nível DEBUG está ativo.
+     *
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     * @param erro   Exceção associada (pode ser nula).
+     */
+    public static void error(Class<?> origem, String msg, Throwable erro) {
+        log(Level.ERROR, origem, msg, erro);
+    }
+
+    /**
+     * Regista um evento com campos estruturados (pares chave/valor).
+     *
+     * @param level  Nível.
+     * @param origem Classe que regista.
+     * @param msg    Mensagem.
+     * @param campos Pares chave, valor, chave, valor...
+     */
+    public static void event(Level level, Class<?> origem, String msg, Object... campos) {
+        if (!isEnabled(level))
+            return;
+        StringBuilder sb = new StringBuilder(msg);
+        for (int i = 0; i + 1 < campos.length; i += 2) {
+            String v = String.valueOf(campos[i + 1]);
+            sb.append(' ').append(campos[i]).append('=');
+            if (v.indexOf(' ') >= 0 || v.indexOf('"') >= 0)
+                sb.append('"').append(v.replace("\"", "\\\"")).append('"');
+            else
+                sb.append(v);
+        }
+        log(level, origem, sb.toString(), null);
+    }
+
+    /**
+     * @return Número de mensagens descartadas por falta de espaço no anel.
+     */
+    public static long dropped() {
+        return DESCARTADAS.get();
+    }
+
+    private static void log(Level level, Class<?> origem, String msg, Throwable erro) {
+        if (!isEnabled(level))
+            return;
+        Event ev = new Event(level, origem == null ? "-" : origem.getSimpleName(), msg, erro);
+        if (!offer(ev))
+            DESCARTADAS.incrementAndGet();
+        else if (escritor == null)
+            start();
+    }
+
+    /**
+     * Coloca um evento no anel sem bloquear.
+     */
+    private static boolean offer(Event ev) {
+        long pos = CAUDA.get();
+        while (true) {
+            int i = (int) (pos & MASCARA);
+            long dif = SEQUENCIA.get(i) - pos;
+            if (dif == 0) {
+                if (CAUDA.compareAndSet(pos, pos + 1)) {
+                    ANEL.set(i, ev);
+                    SEQUENCIA.set(i, pos + 1);
+                    return true;
+                }
+                pos = CAUDA.get();
+            } else if (dif < 0) {
+                return false;
+            } else {
+                pos = CAUDA.get();
+            }
+        }
+    }
+
+    /**
+     * Retira o próximo evento do anel (apenas a thread de escrita).
+     */
+    private static Event poll() {
+        int i = (int) (cabeca & MASCARA);
+        if (SEQUENCIA.get(i) != cabeca + 1)
+            return null;
+        Event ev = ANEL.getAndSet(i, null);
+        SEQUENCIA.set(i, cabeca + CAPACIDADE);
+        cabeca++;
+        return ev;
+    }
+
+    private static synchronized void start() {
+        if (escritor != null)
+            return;
+        escritor = new Thread(Log::run, "VetCare-Log");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    private static void run() {
+        long avisadas = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!drain()) {
+                long d = DESCARTADAS.get();
+                if (d != avisadas) {
+                    System.err.println(LocalDateTime.now().format(FORMATO) + " WARN [VetCare-Log] Log - "
+                            + (d - avisadas) + " mensagens descartadas (anel cheio)");
+                    avisadas = d;
+                }
+                LockSupport.parkNanos(5_000_000L);
+            }
+        }
+    }
+
+    /**
+     * Escreve todos os eventos pendentes.
+     *
+     * @return Verdadeiro se algum evento tiver sido escrito.
+     */
+    private static synchronized boolean drain() {
+        Event ev;
+        boolean algum = false;
+        while ((ev = poll()) != null) {
+            write(ev);
+            algum = true;
+        }
+        if (algum) {
+            System.out.flush();
+            System.err.flush();
+        }
+        return algum;
+    }
+
+    /**
+     * Escreve de imediato as mensagens pendentes (ex.: no encerramento).
+     */
+    public static void flush() {
+        drain();
+    }
+
+    private static void write(Event ev) {
+        PrintStream out = ev.nivel.ordinal() >= Level.WARN.ordinal() ? System.err : System.out;
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(ev.instante), java.time.ZoneId.systemDefault())
+                .format(FORMATO))
+                .append(' ').append(ev.nivel).append(" [").append(ev.thread).append("] ").append(ev.origem)
+                .append(" - ").append(ev.mensagem);
+        if (ev.erro != null) {
+            sb.append(": ").append(ev.erro.getClass().getSimpleName()).append(": ").append(ev.erro.getMessage());
+            if (isEnabled(Level.DEBUG)) {
+                StringWriter sw = new StringWriter();
+                ev.erro.printStackTrace(new PrintWriter(sw));
+                sb.append(System.lineSeparator()).append(sw);
+            }
+        }
+        out.println(sb);
+    }
+}
@@ -0,0 +1,36 @@
+package util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Publica as métricas de acesso à base de dados (latência por modelo de SQL,
+ * linhas lidas, erros e estado do pool de ligações) em formato de texto
+ * Prometheus.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Devolve o estado atual das métricas.
+     * 
+     * @param request  Pedido HTTP.
+     * @param response Resposta HTTP.
+     * @throws ServletException Em caso de erro no processamento do servlet.
+     * @throws IOException      Em caso de erro de entrada/saída.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter out = response.getWriter();
+        SqlMetrics.writePrometheus(out);
+    }
+}
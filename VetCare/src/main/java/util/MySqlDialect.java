@@ -0,0 +1,141 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dialeto SQL do MySQL.
+ */
+final class MySqlDialect extends SqlDialect {
+
+    @Override
+    public SGBD getSGBD() {
+        return SGBD.MySQL;
+    }
+
+    @Override
+    public String driver() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    @Override
+    public String url(String server, int port, String database) {
+        return "jdbc:mysql://" + server + ":" + (port > 0 ? port : 3306) + "/" + database
+                + "?useLegacyDatetimeCode=false&serverTimezone=Europe/Lisbon";
+    }
+
+    @Override
+    public String limit(String select, int rows) {
+        return select + " LIMIT " + rows;
+    }
+
+    @Override
+    public String page(String select, int offset, int rows) {
+        return select + " LIMIT " + rows + " OFFSET " + offset;
+    }
+
+    @Override
+    public String currentDate() {
+        return "CURDATE()";
+    }
+
+    @Override
+    public String now() {
+        return "NOW()";
+    }
+
+    @Override
+    public String yearsBetween(String from, String to) {
+        return "TIMESTAMPDIFF(YEAR, " + from + ", " + to + ")";
+    }
+
+    @Override
+    public String addDays(String expr, int days) {
+        return "DATE_ADD(" + expr + ", INTERVAL " + days + " DAY)";
+    }
+
+    @Override
+    public String blobLiteral(String hex) {
+        return "UNHEX('" + hex + "')";
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String... keys) {
+        List<String> chaves = Arrays.asList(keys);
+        StringBuilder sb = new StringBuilder(insertValues(table, columns, 1)).append(" ON DUPLICATE KEY UPDATE ");
+        boolean primeiro = true;
+        for (String c : columns) {
+            if (chaves.contains(c))
+                continue;
+            sb.append(primeiro ? "" : ", ").append(c).append(" = VALUES(").append(c).append(")");
+            primeiro = false;
+        }
+        if (primeiro)
+            sb.append(keys[0]).append(" = ").append(keys[0]);
+        return sb.toString();
+    }
+
+    @Override
+    public int maxRowsPerInsert(int paramsPerRow) {
+        return Math.max(1, Math.min(1000, 65535 / Math.max(1, paramsPerRow)));
+    }
+
+    @Override
+    public String hour(String expr) {
+        return "HOUR(" + expr + ")";
+    }
+
+    @Override
+    public int streamingFetchSize() {
+        // Connector/J só lê linha a linha com este valor
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public String selectForUpdate(String table, String columns, String where) {
+        return "SELECT " + columns + " FROM " + table + " WHERE " + where + " FOR UPDATE";
+    }
+
+    @Override
+    public String addColumn(String table, String column, String definition) {
+        return "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition;
+    }
+
+    @Override
+    public String createTableIfNotExists(String table, String definition) {
+        return "CREATE TABLE IF NOT EXISTS " + table + " (" + definition + ")";
+    }
+
+    @Override
+    public String md5Hex(String expr) {
+        return "MD5(" + expr + ")";
+    }
+
+    /**
+     * Lê {@code Seconds_Behind_Source} (MySQL 8.0.22+) ou, em versões
+     * anteriores, {@code Seconds_Behind_Master}.
+     */
+    @Override
+    public long replicationLag(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            ResultSet rs;
+            String coluna = "Seconds_Behind_Source";
+            try {
+                rs = st.executeQuery("SHOW REPLICA STATUS");
+            } catch (SQLException e) {
+                rs = st.executeQuery("SHOW SLAVE STATUS");
+                coluna = "Seconds_Behind_Master";
+            }
+            try (ResultSet r = rs) {
+                if (!r.next())
+                    return 0;
+                long lag = r.getLong(coluna);
+                return r.wasNull() ? Long.MAX_VALUE : lag;
+            }
+        }
+    }
+}
@@ -39,8 +39,8 @@ public class Name {
     private static boolean resourcesLoaded = false;
     private static volatile boolean isInitialized = false;
 
-    private static ConcurrentHashMap<String, String> MAPA_CORR;
-    private static ConcurrentHashMap<String, String> MAPA_GENERO;
+    private static Map<String, String> MAPA_CORR;
+    private static Map<String, String> MAPA_GENERO;
 
     /**
      * Lista de conectores e artigos que devem permanecer em minúsculas
@@ -102,15 +102,14 @@ public class Name {
             if (Configura.isWebEnvironment())
                 System.out.println("Name.java inicializado com caminho: " + path);
 
-            MAPA_CORR.clear();
-            MAPA_CORR.putAll(getHardcodedCorrecoes());
-            MAPA_GENERO.clear();
+            Map<String, String> corr = new ConcurrentHashMap<>(getHardcodedCorrecoes());
+            Map<String, String> genero = new ConcurrentHashMap<>();
 
-            isInitialized = loadResources(path + CORR_FILE, MAPA_CORR) &&
-                    loadResources(path + GENERO_FILE, MAPA_GENERO);
+            isInitialized = loadResources(path + CORR_FILE, corr) &&
+                    loadResources(path + GENERO_FILE, genero);
 
-            MAPA_CORR = (ConcurrentHashMap<String, String>) Collections.unmodifiableMap(MAPA_CORR);
-            MAPA_GENERO = (ConcurrentHashMap<String, String>) Collections.unmodifiableMap(MAPA_GENERO);
+            MAPA_CORR = Collections.unmodifiableMap(corr);
+            MAPA_GENERO = Collections.unmodifiableMap(genero);
         }
     }
 
@@ -0,0 +1,137 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Execução em paralelo das consultas independentes de um pedido.
+ * Cada consulta corre numa thread virtual própria e o conjunto tem um
+ * orçamento de tempo: as que não terminarem dentro do prazo são abandonadas e
+ * substituídas pelo respetivo valor alternativo, pelo que a latência do pedido
+ * passa a ser a da consulta mais lenta e não a soma de todas.
+ *
+ * Exemplo:
+ *
+ * <pre>
+ * ParallelQueries q = new ParallelQueries();
+ * q.add("listaAnimais", AnimalDAO::getAll, List.of());
+ * q.add("listaClinicas", ClinicaDAO::getAll, List.of());
+ * q.run().forEach(request::setAttribute);
+ * </pre>
+ *
+ * As instâncias pertencem a um único pedido e não devem ser partilhadas.
+ */
+public final class ParallelQueries {
+
+    /** Orçamento por omissão (ms) quando {@code db.query.budgetMs} não está definido. */
+    private static final int BUDGET_MS = 5000;
+
+    /** Orçamento de tempo do pedido, em milissegundos. */
+    private final long budgetMs;
+    /** Consultas registadas, pela ordem de inserção. */
+    private final Map<String, Consulta<?>> consultas = new LinkedHashMap<>();
+    /** Nomes das consultas que não terminaram dentro do orçamento. */
+    private final List<String> expiradas = new ArrayList<>();
+
+    /**
+     * Consulta registada e o respetivo valor alternativo.
+     */
+    private static final class Consulta<T> {
+        final Supplier<T> fonte;
+        final T alternativa;
+
+        Consulta(Supplier<T> fonte, T alternativa) {
+            this.fonte = fonte;
+            this.alternativa = alternativa;
+        }
+    }
+
+    /**
+     * Cria um executor com o orçamento definido em {@code db.query.budgetMs}.
+     */
+    public ParallelQueries() {
+        this(Configura.snapshot().getInt("db.query.budgetMs", BUDGET_MS));
+    }
+
+    /**
+     * @param budgetMs Orçamento de tempo do pedido, em milissegundos.
+     */
+    public ParallelQueries(long budgetMs) {
+        this.budgetMs = Math.max(1, budgetMs);
+    }
+
+    /**
+     * Regista uma consulta.
+     *
+     * @param <T>         Tipo do resultado.
+     * @param nome        Nome do resultado (ex.: atributo do pedido).
+     * @param fonte       Consulta a executar.
+     * @param alternativa Valor usado se a consulta falhar ou exceder o prazo.
+     * @return Esta instância.
+     */
+    public <T> ParallelQueries add(String nome, Supplier<T> fonte, T alternativa) {
+        consultas.put(nome, new Consulta<>(fonte, alternativa));
+        return this;
+    }
+
+    /**
+     * Executa todas as consultas registadas e aguarda pelos resultados até ao
+     * fim do orçamento.
+     *
+     * @return Resultados por nome, pela ordem de registo.
+     */
+    public Map<String, Object> run() {
+        Map<String, Object> resultados = new LinkedHashMap<>();
+        Map<String, Future<?>> pendentes = new LinkedHashMap<>();
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+
+        ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (Map.Entry<String, Consulta<?>> c : consultas.entrySet())
+                pendentes.put(c.getKey(), exec.submit(c.getValue().fonte::get));
+
+            for (Map.Entry<String, Future<?>> p : pendentes.entrySet()) {
+                String nome = p.getKey();
+                Object valor = consultas.get(nome).alternativa;
+                try {
+                    valor = p.getValue().get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    p.getValue().cancel(false);
+                    expiradas.add(nome);
+                } catch (ExecutionException e) {
+                    Log.error(ParallelQueries.class, "Erro na consulta '" + nome + "'", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    p.getValue().cancel(false);
+                    expiradas.add(nome);
+                }
+                resultados.put(nome, valor);
+            }
+        } finally {
+            // Não se interrompem as consultas em curso (numa thread virtual isso fecharia
+            // o socket da ligação do pool) nem se usa close(), que esperaria por elas:
+            // terminam sozinhas e devolvem a ligação ao pool.
+            exec.shutdown();
+        }
+        if (!expiradas.isEmpty())
+            Log.warn(ParallelQueries.class, "Orçamento de " + budgetMs + "ms esgotado; sem resultado de " + expiradas);
+        return resultados;
+    }
+
+    /**
+     * @return Nomes das consultas que não terminaram dentro do orçamento na
+     *         última execução.
+     */
+    public List<String> getExpired() {
+        return expiradas;
+    }
+}
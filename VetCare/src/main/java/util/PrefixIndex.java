@@ -0,0 +1,319 @@
+package util;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Índice em memória para pesquisa por prefixo (sugestões enquanto se escreve)
+ * de nomes e identificadores, sem distinguir maiúsculas nem acentos.
+ * Cada entrada é indexada por cada palavra do nome e pelos termos
+ * adicionais (NIF, licença, transponder); uma pesquisa com várias palavras
+ * devolve as entradas em que todas são prefixo de algum termo.
+ * O índice é lido da base de dados na primeira pesquisa e relido quando
+ * expira ({@code search.reloadSeconds}), por uma só thread, enquanto as
+ * restantes continuam a pesquisar no índice anterior; entretanto é mantido
+ * pelos DAO, que chamam {@link #put(Entrada)} depois de cada gravação.
+ */
+public final class PrefixIndex {
+
+    /** Validade por omissão (s) do índice. */
+    private static final int TTL_S = 900;
+    /** Número de resultados por omissão de uma pesquisa. */
+    private static final int RESULTADOS = 10;
+    /** Número máximo de resultados que pode ser pedido. */
+    private static final int MAX_RESULTADOS = 50;
+    /** Número máximo de termos percorridos por pesquisa. */
+    private static final int MAX_PERCORRIDOS = 20000;
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Entrada do índice.
+     */
+    public static final class Entrada {
+        /** Identificador (chave na base de dados). */
+        public final String id;
+        /** Nome apresentado. */
+        public final String nome;
+        /** Grupo a que pertence (por exemplo o NIF do tutor), ou nulo. */
+        public final String grupo;
+        final String chave;
+        final List<String> termos;
+
+        /**
+         * @param id     Identificador.
+         * @param nome   Nome apresentado e indexado.
+         * @param grupo  Grupo a que pertence, ou nulo.
+         * @param outros Termos adicionais indexados (nulos são ignorados).
+         */
+        public Entrada(String id, String nome, String grupo, String... outros) {
+            this.id = id;
+            this.nome = nome == null ? "" : nome;
+            this.grupo = grupo;
+            this.chave = normalize(this.nome);
+            List<String> t = new ArrayList<>(termos(this.nome));
+            if (outros != null)
+                for (String o : outros)
+                    for (String s : termos(o))
+                        if (!t.contains(s))
+                            t.add(s);
+            this.termos = t;
+        }
+    }
+
+    /**
+     * Termos e entradas num dado momento.
+     */
+    private static final class Estado {
+        /** Entradas por termo; a chave é o termo seguido de {@code \0} e do identificador. */
+        final ConcurrentSkipListMap<String, Entrada> termos = new ConcurrentSkipListMap<>();
+        final Map<String, Entrada> porId = new ConcurrentHashMap<>();
+        final Map<String, Set<String>> porGrupo = new ConcurrentHashMap<>();
+
+        void put(Entrada e) {
+            Entrada antiga = porId.put(e.id, e);
+            if (antiga != null) {
+                for (String t : antiga.termos)
+                    termos.remove(t + '\0' + antiga.id);
+                if (antiga.grupo != null && !antiga.grupo.equals(e.grupo)) {
+                    Set<String> ids = porGrupo.get(antiga.grupo);
+                    if (ids != null)
+                        ids.remove(antiga.id);
+                }
+            }
+            for (String t : e.termos)
+                termos.put(t + '\0' + e.id, e);
+            if (e.grupo != null)
+                porGrupo.computeIfAbsent(e.grupo, g -> ConcurrentHashMap.newKeySet()).add(e.id);
+        }
+    }
+
+    private final String nome;
+    private final Supplier<List<Entrada>> carregar;
+    private volatile Estado estado;
+    /** Instante (ms) da última leitura completa, mesmo que vazia. */
+    private volatile long lido;
+    /** Entradas gravadas durante uma leitura completa, reaplicadas no fim. */
+    private List<Entrada> pendentes;
+    private final ReentrantLock leitura = new ReentrantLock();
+
+    /**
+     * @param nome     Nome do índice (para o registo).
+     * @param carregar Lê todas as entradas da base de dados.
+     */
+    public PrefixIndex(String nome, Supplier<List<Entrada>> carregar) {
+        this.nome = nome;
+        this.carregar = carregar;
+    }
+
+    /**
+     * Acrescenta ou substitui uma entrada. Sem efeito se o índice ainda não
+     * tiver sido lido.
+     *
+     * @param e Entrada gravada.
+     */
+    public synchronized void put(Entrada e) {
+        if (estado != null)
+            estado.put(e);
+        if (pendentes != null)
+            pendentes.add(e);
+    }
+
+    /**
+     * Pesquisa as entradas cujos termos começam pelas palavras indicadas.
+     *
+     * @param q     Texto escrito (vazio para todas as entradas do grupo).
+     * @param grupo Grupo a que se restringe a pesquisa, ou nulo.
+     * @param n     Número máximo de resultados.
+     * @return Entradas ordenadas pelo nome.
+     */
+    public List<Entrada> search(String q, String grupo, int n) {
+        Estado s = atual();
+        List<String> palavras = termos(q);
+        if (n <= 0 || (palavras.isEmpty() && grupo == null))
+            return List.of();
+        Map<String, Entrada> res = new LinkedHashMap<>();
+        if (palavras.isEmpty() || (grupo != null && s.porGrupo.containsKey(grupo)
+                && s.porGrupo.get(grupo).size() <= MAX_PERCORRIDOS)) {
+            for (String id : s.porGrupo.getOrDefault(grupo, Set.of())) {
+                Entrada e = s.porId.get(id);
+                if (e != null && corresponde(e, palavras))
+                    res.put(e.id, e);
+            }
+        } else {
+            // Percorre os termos da palavra mais longa (a mais seletiva)
+            String maior = Collections.max(palavras, Comparator.comparingInt(String::length));
+            int percorridos = 0;
+            for (Entrada e : s.termos.subMap(maior, maior + Character.MAX_VALUE).values()) {
+                if (++percorridos > MAX_PERCORRIDOS || res.size() >= n * 4)
+                    break;
+                if ((grupo == null || grupo.equals(e.grupo)) && corresponde(e, palavras))
+                    res.putIfAbsent(e.id, e);
+            }
+        }
+        List<Entrada> lista = new ArrayList<>(res.values());
+        lista.sort(Comparator.comparing((Entrada e) -> e.chave).thenComparing(e -> e.id));
+        return lista.size() > n ? lista.subList(0, n) : lista;
+    }
+
+    private static boolean corresponde(Entrada e, List<String> palavras) {
+        for (String p : palavras) {
+            boolean achou = false;
+            for (String t : e.termos)
+                if (t.startsWith(p)) {
+                    achou = true;
+                    break;
+                }
+            if (!achou)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Estado atual, lido (ou relido, se expirado) da base de dados. Só a
+     * primeira leitura bloqueia as pesquisas; quando o índice expira, é relido
+     * pela thread que o deteta e as restantes usam o índice anterior.
+     */
+    private Estado atual() {
+        Estado s = estado;
+        long ttl = Configura.snapshot().getInt("search.reloadSeconds", TTL_S) * 1000L;
+        if (s != null && System.currentTimeMillis() - lido < ttl)
+            return s;
+        if (s == null)
+            leitura.lock();
+        else if (!leitura.tryLock())
+            return s;
+        try {
+            s = estado;
+            if (s != null && System.currentTimeMillis() - lido < ttl)
+                return s;
+            synchronized (this) {
+                pendentes = new ArrayList<>();
+            }
+            long inicio = System.nanoTime();
+            List<Entrada> lidas = carregar.get();
+            Estado novo = new Estado();
+            for (Entrada e : lidas)
+                novo.put(e);
+            synchronized (this) {
+                for (Entrada e : pendentes)
+                    novo.put(e);
+                pendentes = null;
+                // Volta a ler só quando expirar, mesmo que a leitura tenha vindo vazia
+                lido = System.currentTimeMillis();
+                // Uma leitura vazia pode resultar de um erro: não substitui o índice
+                if (lidas.isEmpty() && s != null)
+                    return s;
+                estado = novo;
+            }
+            Log.event(Log.Level.DEBUG, PrefixIndex.class, "Índice de pesquisa carregado", "indice", nome,
+                    "entradas", novo.porId.size(), "ms", (System.nanoTime() - inicio) / 1_000_000);
+            return novo;
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Converte um texto para a forma usada no índice: minúsculas e sem acentos.
+     *
+     * @param s Texto.
+     * @return Texto normalizado (vazio se nulo).
+     */
+    public static String normalize(String s) {
+        if (s == null)
+            return "";
+        return MARCAS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> termos(String s) {
+        List<String> res = new ArrayList<>();
+        for (String t : SEPARADORES.split(normalize(s)))
+            if (!t.isEmpty())
+                res.add(t);
+        return res;
+    }
+
+    /**
+     * Interpreta o número de resultados pedido (parâmetro {@code n}).
+     *
+     * @param valor Valor do parâmetro (pode ser nulo).
+     * @return Número entre 1 e o máximo permitido.
+     */
+    public static int limit(String valor) {
+        try {
+            return valor == null || valor.isEmpty() ? RESULTADOS
+                    : Math.max(1, Math.min(Integer.parseInt(valor), MAX_RESULTADOS));
+        } catch (NumberFormatException e) {
+            return RESULTADOS;
+        }
+    }
+
+    /**
+     * Envia os resultados de uma pesquisa em JSON.
+     *
+     * @param response Resposta HTTP.
+     * @param lista    Resultados.
+     * @throws IOException Em caso de erro de entrada/saída.
+     */
+    public static void send(HttpServletResponse response, List<Entrada> lista) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(toJson(lista));
+    }
+
+    /**
+     * Converte os resultados para JSON: lista de objetos com {@code id},
+     * {@code nome} e {@code grupo}.
+     *
+     * @param lista Resultados.
+     * @return Texto JSON.
+     */
+    public static String toJson(List<Entrada> lista) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Entrada e : lista) {
+            if (sb.length() > 1)
+                sb.append(',');
+            sb.append("{\"id\":");
+            texto(sb, e.id);
+            sb.append(",\"nome\":");
+            texto(sb, e.nome);
+            if (e.grupo != null) {
+                sb.append(",\"grupo\":");
+                texto(sb, e.grupo);
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void texto(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20 || c == '<' || c == '>')
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,93 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encaminhamento das leituras pesadas (relatórios, exportações e listagens)
+ * para uma réplica só de leitura.
+ * O estado de cada réplica é verificado periodicamente por um único pedido de
+ * cada vez; enquanto estiver indisponível ou com um atraso de replicação
+ * superior a {@code db.replica.maxLag}, os pedidos são servidos pelo primário.
+ */
+final class ReadReplica {
+
+    /** Estado conhecido de cada réplica, por URL. */
+    private static final Map<String, Estado> ESTADOS = new ConcurrentHashMap<>();
+
+    private ReadReplica() {
+    }
+
+    /**
+     * Estado de uma réplica.
+     */
+    private static final class Estado {
+        /** Instante a partir do qual o estado deve ser verificado de novo. */
+        final AtomicLong proximaVerificacao = new AtomicLong();
+        /** Resultado da última verificação. */
+        volatile boolean disponivel = true;
+        /** Último atraso medido, em segundos. */
+        volatile long atraso = 0;
+    }
+
+    /**
+     * Obtém uma ligação só de leitura à réplica.
+     *
+     * @param url     URL da réplica.
+     * @param cfg     Configuração em vigor.
+     * @param dialect Dialeto do SGBD.
+     * @return Ligação à réplica ou nulo se esta não puder ser usada.
+     */
+    static Connection connect(String url, ConfigSnapshot cfg, SqlDialect dialect) {
+        Estado estado = ESTADOS.computeIfAbsent(url, k -> new Estado());
+        long agora = System.currentTimeMillis();
+        long proxima = estado.proximaVerificacao.get();
+        boolean verificar = agora >= proxima
+                && estado.proximaVerificacao.compareAndSet(proxima, agora + cfg.getReplicaCheckMs());
+        if (!estado.disponivel && !verificar)
+            return null;
+
+        Connection con = null;
+        try {
+            con = ConnectionPool.of(url, cfg.getReplicaUser(), cfg.getReplicaPassword(), cfg.getPoolSettings())
+                    .getConnection();
+            if (verificar) {
+                long atraso = dialect.replicationLag(con);
+                boolean disponivel = atraso <= cfg.getReplicaMaxLag();
+                if (disponivel != estado.disponivel)
+                    Log.warn(ReadReplica.class, disponivel ? "Réplica disponível: " + url
+                            : "Réplica com atraso de " + (atraso == Long.MAX_VALUE ? "?" : atraso)
+                                    + "s; leituras encaminhadas para o primário");
+                estado.atraso = atraso;
+                estado.disponivel = disponivel;
+                if (!disponivel) {
+                    Configura.close(con);
+                    return null;
+                }
+            }
+            con.setReadOnly(true);
+            return cfg.isMetricsEnabled() ? SqlMetrics.wrap(con, cfg.getSlowQueryMs()) : con;
+        } catch (SQLException e) {
+            if (estado.disponivel)
+                Log.warn(ReadReplica.class, "Réplica indisponível; leituras encaminhadas para o primário", e);
+            estado.disponivel = false;
+            estado.proximaVerificacao.set(agora + cfg.getReplicaCheckMs());
+            Configura.close(con);
+            return null;
+        }
+    }
+
+    /**
+     * @return Último atraso medido (segundos) de cada réplica usada, ou -1 para
+     *         as que estão indisponíveis.
+     */
+    static Map<String, Long> lags() {
+        Map<String, Long> lags = new TreeMap<>();
+        ESTADOS.forEach((url, e) -> lags.put(url, e.disponivel ? e.atraso : -1L));
+        return lags;
+    }
+}
@@ -0,0 +1,145 @@
+package util;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cache de uma tabela de referência (tipos de serviço, clínicas, horários,
+ * catálogo de espécies, veterinários), que muda raramente mas é lida em quase
+ * todos os formulários.
+ * Guarda uma cópia imutável da lista, partilhada por todos os pedidos, que é
+ * recarregada quando expira ({@code cache.referenceTtlSeconds}) ou é
+ * invalidada pelos métodos que alteram a tabela. Listas com mais de
+ * {@code cache.referenceMaxRows} linhas não são guardadas, e listas vazias
+ * também não (podem resultar de um erro de leitura). Enquanto a cópia é
+ * válida a leitura não bloqueia; quando expira, só uma thread a recarrega e as
+ * restantes esperam pelo resultado. A espera usa um {@link ReentrantLock} e
+ * não {@code synchronized}, para que uma thread virtual à espera da base de
+ * dados não prenda a thread de suporte.
+ *
+ * @param <T> Tipo dos elementos.
+ */
+public final class ReferenceCache<T> {
+
+    /** Validade por omissão (s) de uma cópia. */
+    private static final int TTL_S = 300;
+    /** Número máximo de linhas por omissão de uma cópia guardada. */
+    private static final int MAX_LINHAS = 5000;
+
+    /** Caches criadas, por nome, para publicação das métricas. */
+    private static final Map<String, ReferenceCache<?>> TODAS = new ConcurrentSkipListMap<>();
+
+    private final String nome;
+    private final Supplier<List<T>> carregar;
+    /** Cópia atual (nula se não houver). */
+    private volatile Copia<T> atual;
+    /** Incrementado a cada invalidação, para descartar leituras que a antecedem. */
+    private volatile long geracao;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder descartes = new LongAdder();
+    /** Garante uma única recarga de cada vez. */
+    private final ReentrantLock recarga = new ReentrantLock();
+
+    /**
+     * Lista guardada e instante da leitura.
+     */
+    private static final class Copia<T> {
+        final List<T> lista;
+        final long carregado = System.currentTimeMillis();
+
+        Copia(List<T> lista) {
+            this.lista = lista;
+        }
+    }
+
+    /**
+     * Cria e regista uma cache.
+     *
+     * @param nome     Nome publicado nas métricas.
+     * @param carregar Lê a tabela da base de dados.
+     */
+    public ReferenceCache(String nome, Supplier<List<T>> carregar) {
+        this.nome = nome;
+        this.carregar = carregar;
+        TODAS.put(nome, this);
+    }
+
+    /**
+     * Obtém a lista, da cópia guardada se ainda for válida.
+     *
+     * @return Lista imutável.
+     */
+    public List<T> get() {
+        Copia<T> c = atual;
+        if (c != null && !expirada(c)) {
+            acertos.increment();
+            return c.lista;
+        }
+        recarga.lock();
+        try {
+            c = atual;
+            if (c != null && !expirada(c)) {
+                acertos.increment();
+                return c.lista;
+            }
+            falhas.increment();
+            long g = geracao;
+            List<T> lista = List.copyOf(carregar.get());
+            if (lista.isEmpty() || lista.size() > Configura.snapshot().getInt("cache.referenceMaxRows", MAX_LINHAS)) {
+                if (atual != null)
+                    descartes.increment();
+                atual = null;
+            } else if (g == geracao) {
+                atual = new Copia<>(lista);
+            }
+            return lista;
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    /**
+     * Descarta a cópia guardada; a próxima leitura vai à base de dados.
+     */
+    public void invalidate() {
+        geracao++;
+        if (atual != null)
+            descartes.increment();
+        atual = null;
+    }
+
+    private static boolean expirada(Copia<?> c) {
+        long ttl = Configura.snapshot().getInt("cache.referenceTtlSeconds", TTL_S) * 1000L;
+        return System.currentTimeMillis() - c.carregado >= ttl;
+    }
+
+    /**
+     * Escreve as métricas de todas as caches em formato de texto Prometheus.
+     *
+     * @param out Destino.
+     */
+    static void writePrometheus(PrintWriter out) {
+        out.println("# HELP vetcare_cache_requests_total Leituras das tabelas de referência por resultado.");
+        out.println("# TYPE vetcare_cache_requests_total counter");
+        for (ReferenceCache<?> c : TODAS.values()) {
+            out.println("vetcare_cache_requests_total{cache=\"" + c.nome + "\",resultado=\"acerto\"} " + c.acertos.sum());
+            out.println("vetcare_cache_requests_total{cache=\"" + c.nome + "\",resultado=\"falha\"} " + c.falhas.sum());
+        }
+        out.println("# HELP vetcare_cache_evictions_total Cópias descartadas antes de expirarem.");
+        out.println("# TYPE vetcare_cache_evictions_total counter");
+        for (ReferenceCache<?> c : TODAS.values())
+            out.println("vetcare_cache_evictions_total{cache=\"" + c.nome + "\"} " + c.descartes.sum());
+        out.println("# HELP vetcare_cache_entries Linhas guardadas por cache.");
+        out.println("# TYPE vetcare_cache_entries gauge");
+        for (ReferenceCache<?> c : TODAS.values()) {
+            Copia<?> copia = c.atual;
+            out.println("vetcare_cache_entries{cache=\"" + c.nome + "\"} " + (copia == null ? 0 : copia.lista.size()));
+        }
+    }
+}
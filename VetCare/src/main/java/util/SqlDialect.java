@@ -0,0 +1,253 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Gera os fragmentos de SQL que diferem entre os SGBDs suportados: paginação,
+ * aritmética de datas, inserções múltiplas, upsert e literais binários.
+ * Os DAOs devem obter o dialeto através de {@link Configura#getDialect()} em
+ * vez de escreverem diretamente funções próprias de um SGBD.
+ */
+public abstract class SqlDialect {
+
+    private static final SqlDialect MYSQL = new MySqlDialect();
+    private static final SqlDialect SQLSERVER = new SqlServerDialect();
+
+    /**
+     * @param sgbd Tipo de SGBD.
+     * @return Dialeto correspondente.
+     */
+    public static SqlDialect of(SGBD sgbd) {
+        return sgbd == SGBD.SQLServer ? SQLSERVER : MYSQL;
+    }
+
+    /** @return SGBD a que o dialeto se aplica. */
+    public abstract SGBD getSGBD();
+
+    /** @return Classe do driver JDBC. */
+    public abstract String driver();
+
+    /**
+     * @param server   Endereço do servidor.
+     * @param port     Porto (0 para o porto por omissão).
+     * @param database Nome da base de dados.
+     * @return URL de ligação JDBC.
+     */
+    public abstract String url(String server, int port, String database);
+
+    /**
+     * Limita uma consulta às primeiras linhas.
+     *
+     * @param select Consulta SELECT completa.
+     * @param rows   Número máximo de linhas.
+     * @return Consulta limitada.
+     */
+    public abstract String limit(String select, int rows);
+
+    /**
+     * Devolve uma página de resultados. No SQL Server a consulta tem de ser
+     * ordenada; se não o for é acrescentada uma ordenação neutra.
+     *
+     * @param select Consulta SELECT completa.
+     * @param offset Número de linhas a ignorar.
+     * @param rows   Número máximo de linhas.
+     * @return Consulta paginada.
+     */
+    public abstract String page(String select, int offset, int rows);
+
+    /** @return Expressão da data atual (sem hora). */
+    public abstract String currentDate();
+
+    /** @return Expressão da data e hora atuais. */
+    public abstract String now();
+
+    /**
+     * @param from Expressão da data inicial.
+     * @param to   Expressão da data final.
+     * @return Expressão com o número de anos completos entre as duas datas.
+     */
+    public abstract String yearsBetween(String from, String to);
+
+    /**
+     * @param expr Expressão de data.
+     * @param days Número de dias a somar (pode ser negativo).
+     * @return Expressão da data deslocada.
+     */
+    public abstract String addDays(String expr, int days);
+
+    /**
+     * @param hex Conteúdo binário em hexadecimal.
+     * @return Literal binário.
+     */
+    public abstract String blobLiteral(String hex);
+
+    /**
+     * Comando parametrizado que insere uma linha ou, se a chave já existir,
+     * atualiza as restantes colunas. Os parâmetros seguem a ordem de
+     * {@code columns}.
+     *
+     * @param table   Tabela de destino.
+     * @param columns Colunas a escrever.
+     * @param keys    Colunas que identificam a linha.
+     * @return Comando SQL.
+     */
+    public abstract String upsert(String table, String[] columns, String... keys);
+
+    /**
+     * @param paramsPerRow Parâmetros (ou valores) por linha.
+     * @return Número máximo de linhas num único INSERT com várias linhas.
+     */
+    public abstract int maxRowsPerInsert(int paramsPerRow);
+
+    /**
+     * @param expr Expressão de data/hora.
+     * @return Expressão da hora (0-23) da data/hora.
+     */
+    public abstract String hour(String expr);
+
+    /**
+     * Consulta que lê linhas e as bloqueia para escrita até ao fim da
+     * transação, serializando as transações que disputam as mesmas linhas.
+     *
+     * @param table   Tabela.
+     * @param columns Colunas a ler.
+     * @param where   Condição (sem a palavra WHERE).
+     * @return Consulta SQL.
+     */
+    public abstract String selectForUpdate(String table, String columns, String where);
+
+    /**
+     * @param table      Tabela a alterar.
+     * @param column     Coluna a acrescentar.
+     * @param definition Tipo e restrições da coluna.
+     * @return Instrução que acrescenta a coluna à tabela.
+     */
+    public abstract String addColumn(String table, String column, String definition);
+
+    /**
+     * Tamanho de leitura a usar em consultas percorridas uma única vez do
+     * início ao fim, para que o controlador entregue as linhas à medida que
+     * chegam em vez de carregar todo o resultado em memória.
+     *
+     * @return Valor para {@link java.sql.Statement#setFetchSize(int)}.
+     */
+    public abstract int streamingFetchSize();
+
+    /**
+     * @param table      Tabela a criar.
+     * @param definition Definição das colunas e restrições (entre parênteses).
+     * @return Comando que cria a tabela apenas se ainda não existir.
+     */
+    public abstract String createTableIfNotExists(String table, String definition);
+
+    /**
+     * Resumo MD5 calculado pelo servidor, para identificar o conteúdo de uma
+     * coluna binária sem a transferir.
+     *
+     * @param expr Expressão binária.
+     * @return Expressão com o resumo em hexadecimal (32 caracteres).
+     */
+    public abstract String md5Hex(String expr);
+
+    /**
+     * Mede o atraso de replicação do servidor a que a ligação pertence.
+     *
+     * @param con Ligação à réplica.
+     * @return Atraso em segundos, 0 se o servidor não for uma réplica ou
+     *         {@link Long#MAX_VALUE} se a replicação estiver parada.
+     * @throws SQLException Se o estado não puder ser consultado.
+     */
+    public abstract long replicationLag(Connection con) throws SQLException;
+
+    /**
+     * Comando INSERT parametrizado com várias linhas.
+     *
+     * @param table   Tabela de destino.
+     * @param columns Colunas a escrever.
+     * @param rows    Número de linhas.
+     * @return Comando SQL.
+     */
+    public String insertValues(String table, String[] columns, int rows) {
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++)
+            row.append(i == 0 ? "?" : ", ?");
+        row.append(")");
+        StringBuilder sb = insertPrefix(table, columns);
+        for (int r = 0; r < rows; r++)
+            sb.append(r == 0 ? "" : ", ").append(row);
+        return sb.toString();
+    }
+
+    /**
+     * Agrupa linhas de valores já formatados como literais SQL em comandos
+     * INSERT com várias linhas, respeitando o limite do SGBD. Literais binários
+     * escritos para outro SGBD são convertidos para este dialeto.
+     *
+     * @param table   Tabela de destino.
+     * @param columns Colunas a escrever.
+     * @param rows    Linhas de literais (ex.: {@code 'abc'}, {@code NULL}).
+     * @return Comandos SQL prontos a executar.
+     */
+    public List<String> bulkInsert(String table, String[] columns, List<String[]> rows) {
+        List<String> comandos = new ArrayList<>();
+        int max = maxRowsPerInsert(columns.length);
+        StringBuilder sb = null;
+        int n = 0;
+        for (String[] row : rows) {
+            if (n == 0)
+                sb = insertPrefix(table, columns);
+            else
+                sb.append(", ");
+            sb.append("(");
+            for (int i = 0; i < row.length; i++) {
+                String hex = hexOf(row[i]);
+                sb.append(i == 0 ? "" : ", ").append(hex != null ? blobLiteral(hex) : row[i]);
+            }
+            sb.append(")");
+            if (++n >= max) {
+                comandos.add(sb.toString());
+                n = 0;
+            }
+        }
+        if (n > 0)
+            comandos.add(sb.toString());
+        return comandos;
+    }
+
+    /**
+     * Extrai o conteúdo hexadecimal de um literal binário de qualquer dialeto.
+     *
+     * @param literal Literal (ex.: {@code UNHEX('FF')} ou {@code 0xFF}).
+     * @return Conteúdo hexadecimal ou nulo se não for um literal binário.
+     */
+    public static String hexOf(String literal) {
+        if (literal == null)
+            return null;
+        String s = literal.trim();
+        String up = s.toUpperCase(Locale.ROOT);
+        if (up.startsWith("UNHEX('") && up.endsWith("')"))
+            return s.substring(7, s.length() - 2);
+        if (up.startsWith("0X") && s.length() > 2 && s.substring(2).chars().allMatch(c -> Character.digit(c, 16) >= 0))
+            return s.substring(2);
+        return null;
+    }
+
+    /**
+     * @param select Consulta SELECT.
+     * @return Verdadeiro se a consulta tiver uma cláusula ORDER BY.
+     */
+    protected static boolean hasOrderBy(String select) {
+        return select.toUpperCase(Locale.ROOT).contains("ORDER BY");
+    }
+
+    private static StringBuilder insertPrefix(String table, String[] columns) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++)
+            sb.append(i == 0 ? "" : ", ").append(columns[i].trim());
+        return sb.append(") VALUES ");
+    }
+}
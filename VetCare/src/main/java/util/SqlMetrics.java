@@ -0,0 +1,498 @@
+package util;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Instrumentação dos comandos SQL executados pela aplicação.
+ * As ligações entregues por {@link Configura#getConnection(boolean)} são
+ * envolvidas por representantes que medem, por modelo de SQL, o número de
+ * execuções, a distribuição das latências, as linhas devolvidas e os erros.
+ * Os valores são publicados em formato de texto Prometheus pelo
+ * {@link MetricsServlet}.
+ * Os comandos executados durante a apresentação de uma página JSP (ver
+ * {@link JspQueryFilter}) são contados por página e registados como aviso,
+ * porque os dados devem ser carregados pelo servlet antes do encaminhamento.
+ */
+public final class SqlMetrics {
+
+    /** Número máximo de modelos distintos, para limitar a memória usada. */
+    private static final int MAX_MODELOS = 500;
+    /** Modelo agregado quando o limite é atingido. */
+    private static final String OUTROS = "<outros>";
+    /** Comprimento máximo de um modelo publicado. */
+    private static final int MAX_COMPRIMENTO = 400;
+
+    private static final Pattern TEXTO = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern HEX = Pattern.compile("\\b0[xX][0-9a-fA-F]+\\b");
+    private static final Pattern NUMERO = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Pattern LINHAS = Pattern.compile("(?i)\\bVALUES\\s*\\([^()]*\\)(?:\\s*,\\s*\\([^()]*\\))*");
+    private static final Pattern EM = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern LISTA = Pattern.compile("\\?(?:\\s*,\\s*\\?){3,}");
+    private static final Pattern UNIAO = Pattern.compile("(?i)\\s+UNION\\s+ALL\\s+");
+
+    /** Estatísticas por modelo de SQL. */
+    private static final Map<String, Entry> MODELOS = new ConcurrentHashMap<>();
+    /** Texto original dos comandos preparados, para não os normalizar de novo. */
+    private static final Map<String, Entry> PREPARADOS = new ConcurrentHashMap<>();
+    /** Tempo de espera por uma ligação do pool. */
+    private static final LatencyHistogram ESPERA = new LatencyHistogram();
+    /** Página JSP em apresentação na thread atual (nula fora de uma página). */
+    private static final ThreadLocal<String> VISTA = new ThreadLocal<>();
+    /** Comandos executados durante a apresentação, por página. */
+    private static final Map<String, LongAdder> VISTAS = new ConcurrentHashMap<>();
+    /** Pares página/modelo já registados, para avisar uma única vez. */
+    private static final Set<String> AVISADOS = ConcurrentHashMap.newKeySet();
+
+    private SqlMetrics() {
+    }
+
+    /**
+     * Estatísticas acumuladas de um modelo de SQL.
+     */
+    public static final class Entry {
+        /** Modelo de SQL normalizado. */
+        public final String sql;
+        final LatencyHistogram latencia = new LatencyHistogram();
+        final LongAdder linhas = new LongAdder();
+        final LongAdder erros = new LongAdder();
+
+        Entry(String sql) {
+            this.sql = sql;
+        }
+
+        /** @return Histograma das latências. */
+        public LatencyHistogram getLatencia() {
+            return latencia;
+        }
+
+        /** @return Total de linhas lidas dos resultados. */
+        public long getLinhas() {
+            return linhas.sum();
+        }
+
+        /** @return Total de execuções falhadas. */
+        public long getErros() {
+            return erros.sum();
+        }
+    }
+
+    /**
+     * Envolve uma ligação com a instrumentação.
+     *
+     * @param con Ligação a instrumentar.
+     * @return Ligação instrumentada.
+     */
+    public static Connection wrap(Connection con) {
+        return wrap(con, 0);
+    }
+
+    /**
+     * Envolve uma ligação com a instrumentação e o registo de consultas lentas.
+     * As execuções que demorem pelo menos {@code lentaMs} são registadas com o
+     * modelo do comando, a forma dos parâmetros (tipo e, para textos e binários,
+     * o comprimento, nunca o valor) e o tempo decorrido.
+     *
+     * @param con     Ligação a instrumentar.
+     * @param lentaMs Limite em milissegundos (0 desativa o registo).
+     * @return Ligação instrumentada.
+     */
+    public static Connection wrap(Connection con, long lentaMs) {
+        if (con == null)
+            return null;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(con, lentaMs * 1_000_000L));
+    }
+
+    /**
+     * Regista o tempo de espera por uma ligação do pool.
+     *
+     * @param nanos Duração em nanossegundos.
+     */
+    public static void recordWait(long nanos) {
+        ESPERA.record(nanos);
+    }
+
+    /**
+     * Indica que a thread atual passa a apresentar uma página JSP.
+     *
+     * @param pagina Caminho da página.
+     * @return Página apresentada anteriormente (para {@link #exitView(String)}).
+     */
+    static String enterView(String pagina) {
+        String anterior = VISTA.get();
+        VISTA.set(pagina);
+        return anterior;
+    }
+
+    /**
+     * Termina a apresentação de uma página JSP.
+     *
+     * @param anterior Valor devolvido por {@link #enterView(String)}.
+     */
+    static void exitView(String anterior) {
+        if (anterior == null)
+            VISTA.remove();
+        else
+            VISTA.set(anterior);
+    }
+
+    /**
+     * Conta um comando executado durante a apresentação de uma página e avisa
+     * na primeira vez que o modelo aparece nessa página.
+     */
+    private static void viewQuery(String pagina, Entry e) {
+        LongAdder n = VISTAS.get(pagina);
+        if (n == null) {
+            if (VISTAS.size() >= MAX_MODELOS)
+                pagina = OUTROS;
+            n = VISTAS.computeIfAbsent(pagina, k -> new LongAdder());
+        }
+        n.increment();
+        if (AVISADOS.size() < MAX_MODELOS && AVISADOS.add(pagina + "\n" + e.sql))
+            Log.event(Log.Level.WARN, SqlMetrics.class, "Acesso à base de dados durante a apresentação de uma página",
+                    "pagina", pagina, "sql", e.sql, "origem", origem());
+    }
+
+    /**
+     * @return Primeiro método da aplicação na pilha atual, fora da
+     *         instrumentação e das bibliotecas.
+     */
+    private static String origem() {
+        for (StackTraceElement f : new Throwable().getStackTrace()) {
+            String c = f.getClassName();
+            if (c.startsWith(SqlMetrics.class.getName()) || c.startsWith("util.Configura")
+                    || c.startsWith("util.ConnectionPool") || c.startsWith("java.") || c.startsWith("javax.")
+                    || c.startsWith("jdk.") || c.startsWith("sun.") || c.startsWith("com.")
+                    || c.startsWith("jakarta.") || c.startsWith("org.") || c.startsWith("$Proxy")
+                    || c.contains(".$Proxy"))
+                continue;
+            return f.toString();
+        }
+        return "?";
+    }
+
+    /**
+     * @return Estatísticas de todos os modelos conhecidos.
+     */
+    public static List<Entry> entries() {
+        return new ArrayList<>(MODELOS.values());
+    }
+
+    /**
+     * Apaga todas as estatísticas acumuladas.
+     */
+    public static void reset() {
+        MODELOS.clear();
+        PREPARADOS.clear();
+        VISTAS.clear();
+        AVISADOS.clear();
+    }
+
+    /**
+     * Reduz um comando SQL ao seu modelo: literais substituídos por {@code ?},
+     * listas {@code IN}, linhas de {@code VALUES} e ramos repetidos de
+     * {@code UNION ALL} condensados e espaços normalizados. Comandos gerados
+     * para lotes de tamanhos diferentes têm assim o mesmo modelo.
+     *
+     * @param sql Comando SQL.
+     * @return Modelo do comando.
+     */
+    public static String template(String sql) {
+        if (sql == null)
+            return "";
+        String s = TEXTO.matcher(sql).replaceAll("?");
+        s = HEX.matcher(s).replaceAll("?");
+        s = NUMERO.matcher(s).replaceAll("?");
+        s = ESPACOS.matcher(s).replaceAll(" ").trim();
+        s = LINHAS.matcher(s).replaceAll("VALUES (...)");
+        s = EM.matcher(s).replaceAll("IN (...)");
+        s = LISTA.matcher(s).replaceAll("?, ...");
+        if (s.regionMatches(true, 0, "SELECT", 0, 6) && UNIAO.matcher(s).find()) {
+            // Ramos iguais (um por elemento do lote) contam uma só vez
+            Set<String> ramos = new LinkedHashSet<>(Arrays.asList(UNIAO.split(s)));
+            s = String.join(" UNION ALL ", ramos);
+        }
+        return s.length() > MAX_COMPRIMENTO ? s.substring(0, MAX_COMPRIMENTO) + "..." : s;
+    }
+
+    /**
+     * Obtém (ou cria) as estatísticas de um modelo.
+     *
+     * @param sql       Comando SQL.
+     * @param preparado Verdadeiro se for um comando preparado (o texto é
+     *                  guardado para não voltar a ser normalizado).
+     */
+    static Entry entry(String sql, boolean preparado) {
+        Entry e = preparado ? PREPARADOS.get(sql) : null;
+        if (e != null)
+            return e;
+        // Também os preparados: o texto varia com o tamanho das listas e lotes
+        String modelo = template(sql);
+        e = MODELOS.get(modelo);
+        if (e == null) {
+            if (MODELOS.size() >= MAX_MODELOS)
+                return MODELOS.computeIfAbsent(OUTROS, Entry::new);
+            e = MODELOS.computeIfAbsent(modelo, Entry::new);
+        }
+        if (preparado && PREPARADOS.size() < MAX_MODELOS)
+            PREPARADOS.putIfAbsent(sql, e);
+        return e;
+    }
+
+    /**
+     * Escreve todas as métricas em formato de texto Prometheus.
+     *
+     * @param out Destino.
+     */
+    public static void writePrometheus(PrintWriter out) {
+        List<Entry> lista = entries();
+
+        out.println("# HELP vetcare_sql_duration_seconds Latência dos comandos SQL por modelo.");
+        out.println("# TYPE vetcare_sql_duration_seconds summary");
+        for (Entry e : lista)
+            summary(out, "vetcare_sql_duration_seconds", "sql=\"" + escape(e.sql) + "\"", e.latencia);
+
+        out.println("# HELP vetcare_sql_rows_total Linhas lidas dos resultados por modelo.");
+        out.println("# TYPE vetcare_sql_rows_total counter");
+        for (Entry e : lista)
+            out.println("vetcare_sql_rows_total{sql=\"" + escape(e.sql) + "\"} " + e.linhas.sum());
+
+        out.println("# HELP vetcare_sql_errors_total Execuções falhadas por modelo.");
+        out.println("# TYPE vetcare_sql_errors_total counter");
+        for (Entry e : lista)
+            out.println("vetcare_sql_errors_total{sql=\"" + escape(e.sql) + "\"} " + e.erros.sum());
+
+        out.println("# HELP vetcare_sql_view_queries_total Comandos executados durante a apresentação de páginas JSP.");
+        out.println("# TYPE vetcare_sql_view_queries_total counter");
+        for (Map.Entry<String, LongAdder> v : VISTAS.entrySet())
+            out.println("vetcare_sql_view_queries_total{pagina=\"" + escape(v.getKey()) + "\"} " + v.getValue().sum());
+
+        out.println("# HELP vetcare_pool_wait_seconds Tempo de espera por uma ligação do pool.");
+        out.println("# TYPE vetcare_pool_wait_seconds summary");
+        summary(out, "vetcare_pool_wait_seconds", null, ESPERA);
+
+        Map<String, ConnectionPool.Stats> pools = ConnectionPool.allStats();
+        out.println("# HELP vetcare_pool_connections Ligações do pool por estado.");
+        out.println("# TYPE vetcare_pool_connections gauge");
+        for (Map.Entry<String, ConnectionPool.Stats> p : pools.entrySet()) {
+            String url = "url=\"" + escape(p.getKey()) + "\"";
+            out.println("vetcare_pool_connections{" + url + ",estado=\"ativas\"} " + p.getValue().ativas);
+            out.println("vetcare_pool_connections{" + url + ",estado=\"inativas\"} " + p.getValue().inativas);
+            out.println("vetcare_pool_connections{" + url + ",estado=\"emEspera\"} " + p.getValue().emEspera);
+        }
+        out.println("# HELP vetcare_pool_timeouts_total Pedidos de ligação que esgotaram o tempo de espera.");
+        out.println("# TYPE vetcare_pool_timeouts_total counter");
+        for (Map.Entry<String, ConnectionPool.Stats> p : pools.entrySet())
+            out.println("vetcare_pool_timeouts_total{url=\"" + escape(p.getKey()) + "\"} " + p.getValue().timeouts);
+
+        ReferenceCache.writePrometheus(out);
+
+        Map<String, Long> replicas = ReadReplica.lags();
+        if (!replicas.isEmpty()) {
+            out.println("# HELP vetcare_replica_lag_seconds Atraso de replicação medido (-1 se indisponível).");
+            out.println("# TYPE vetcare_replica_lag_seconds gauge");
+            for (Map.Entry<String, Long> r : replicas.entrySet())
+                out.println("vetcare_replica_lag_seconds{url=\"" + escape(r.getKey()) + "\"} " + r.getValue());
+        }
+        out.flush();
+    }
+
+    private static void summary(PrintWriter out, String nome, String labels, LatencyHistogram h) {
+        String prefixo = labels == null ? "" : labels + ",";
+        for (double q : new double[] { 0.5, 0.95, 0.99 })
+            out.println(nome + "{" + prefixo + "quantile=\"" + q + "\"} " + h.quantileSeconds(q));
+        String sufixo = labels == null ? "" : "{" + labels + "}";
+        out.println(nome + "_sum" + sufixo + " " + h.sumSeconds());
+        out.println(nome + "_count" + sufixo + " " + h.count());
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Representante da ligação: instrumenta os comandos que cria.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection con;
+        private final long lentaNs;
+
+        ConnectionHandler(Connection con, long lentaNs) {
+            this.con = con;
+            this.lentaNs = lentaNs;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(con, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> tipo = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { tipo },
+                        new StatementHandler((Statement) result, (Connection) proxy,
+                                sql == null ? null : entry(sql, true), lentaNs));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Representante do comando: mede cada execução.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement st;
+        private final Connection con;
+        private final Entry preparado;
+        private final long lentaNs;
+        /** Primeiro comando acrescentado ao lote de um Statement simples. */
+        private String lote;
+        /** Número de comandos no lote em curso. */
+        private int tamanhoLote;
+        /** Forma dos parâmetros associados, por posição (só com registo de lentas). */
+        private String[] formas;
+
+        StatementHandler(Statement st, Connection con, Entry preparado, long lentaNs) {
+            this.st = st;
+            this.con = con;
+            this.preparado = preparado;
+            this.lentaNs = lentaNs;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nome = method.getName();
+            if (nome.equals("getConnection"))
+                return con;
+            if (nome.equals("addBatch")) {
+                tamanhoLote++;
+                if (args != null && args.length == 1 && lote == null)
+                    lote = (String) args[0];
+            } else if (lentaNs > 0 && nome.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer) {
+                forma((Integer) args[0], nome, args[1]);
+            } else if (nome.equals("clearParameters")) {
+                formas = null;
+            } else if (nome.equals("clearBatch")) {
+                tamanhoLote = 0;
+            }
+            if (!nome.startsWith("execute") && !nome.equals("getResultSet"))
+                return delegate(method, args);
+
+            Entry e = preparado;
+            if (e == null) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : lote;
+                e = sql == null ? null : entry(sql, false);
+            }
+            int linhasLote = tamanhoLote;
+            if (nome.equals("executeBatch") || nome.equals("executeLargeBatch")) {
+                lote = null;
+                tamanhoLote = 0;
+            }
+            if (e == null || nome.equals("getResultSet"))
+                return wrapResult(delegate(method, args), e);
+            String pagina = VISTA.get();
+            if (pagina != null)
+                viewQuery(pagina, e);
+
+            long inicio = System.nanoTime();
+            boolean falhou = false;
+            try {
+                return wrapResult(delegate(method, args), e);
+            } catch (Throwable t) {
+                e.erros.increment();
+                falhou = true;
+                throw t;
+            } finally {
+                long duracao = System.nanoTime() - inicio;
+                e.latencia.record(duracao);
+                if (lentaNs > 0 && duracao >= lentaNs)
+                    Log.event(Log.Level.WARN, SqlMetrics.class, "Consulta lenta",
+                            "ms", duracao / 1_000_000, "sql", e.sql, "params", formas(),
+                            "lote", linhasLote, "erro", falhou);
+            }
+        }
+
+        /**
+         * Guarda o tipo (e o comprimento de textos e binários) de um parâmetro.
+         */
+        private void forma(int indice, String metodo, Object valor) {
+            if (indice < 1 || indice > 2100)
+                return;
+            if (formas == null || formas.length < indice)
+                formas = Arrays.copyOf(formas == null ? new String[0] : formas, Math.max(indice, 8));
+            String tipo = metodo.substring(3);
+            if (valor == null || metodo.equals("setNull"))
+                formas[indice - 1] = "null";
+            else if (valor instanceof String)
+                formas[indice - 1] = tipo + "(" + ((String) valor).length() + ")";
+            else if (valor instanceof byte[])
+                formas[indice - 1] = tipo + "(" + ((byte[]) valor).length + ")";
+            else
+                formas[indice - 1] = tipo;
+        }
+
+        private String formas() {
+            if (formas == null)
+                return "[]";
+            StringBuilder sb = new StringBuilder("[");
+            for (String f : formas) {
+                if (f == null)
+                    break;
+                if (sb.length() > 1)
+                    sb.append(',');
+                sb.append(f);
+            }
+            return sb.append(']').toString();
+        }
+
+        private Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(st, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        private static Object wrapResult(Object result, Entry e) {
+            if (e == null || !(result instanceof ResultSet))
+                return result;
+            ResultSet rs = (ResultSet) result;
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                    (p, m, a) -> {
+                        try {
+                            Object r = m.invoke(rs, a);
+                            if (Boolean.TRUE.equals(r) && m.getName().equals("next"))
+                                e.linhas.increment();
+                            return r;
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+    }
+}
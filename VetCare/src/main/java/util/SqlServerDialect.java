@@ -0,0 +1,160 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dialeto SQL do Microsoft SQL Server.
+ */
+final class SqlServerDialect extends SqlDialect {
+
+    /** Início de uma consulta, onde a cláusula TOP tem de ser inserida. */
+    private static final Pattern SELECT = Pattern.compile("^\\s*SELECT(\\s+DISTINCT)?\\s",
+            Pattern.CASE_INSENSITIVE);
+
+    /** Limite de parâmetros por comando imposto pelo SQL Server. */
+    private static final int MAX_PARAMS = 2100;
+
+    @Override
+    public SGBD getSGBD() {
+        return SGBD.SQLServer;
+    }
+
+    @Override
+    public String driver() {
+        return "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+    }
+
+    @Override
+    public String url(String server, int port, String database) {
+        return "jdbc:sqlserver://" + server + ":" + (port > 0 ? port : 1433) + ";databaseName=" + database
+                + ";encrypt=true;trustServerCertificate=true;";
+    }
+
+    @Override
+    public String limit(String select, int rows) {
+        Matcher m = SELECT.matcher(select);
+        if (!m.find())
+            return page(select, 0, rows);
+        return select.substring(0, m.end()) + "TOP " + rows + " " + select.substring(m.end());
+    }
+
+    @Override
+    public String page(String select, int offset, int rows) {
+        String sql = hasOrderBy(select) ? select : select + " ORDER BY (SELECT NULL)";
+        return sql + " OFFSET " + offset + " ROWS FETCH NEXT " + rows + " ROWS ONLY";
+    }
+
+    @Override
+    public String currentDate() {
+        return "CAST(GETDATE() AS DATE)";
+    }
+
+    @Override
+    public String now() {
+        return "GETDATE()";
+    }
+
+    @Override
+    public String yearsBetween(String from, String to) {
+        // DATEDIFF conta fronteiras de ano; desconta-se o ano ainda não completo
+        return "(DATEDIFF(YEAR, " + from + ", " + to + ") - CASE WHEN DATEADD(YEAR, DATEDIFF(YEAR, " + from + ", "
+                + to + "), " + from + ") > " + to + " THEN 1 ELSE 0 END)";
+    }
+
+    @Override
+    public String addDays(String expr, int days) {
+        return "DATEADD(DAY, " + days + ", " + expr + ")";
+    }
+
+    @Override
+    public String blobLiteral(String hex) {
+        return "0x" + hex;
+    }
+
+    @Override
+    public String upsert(String table, String[] columns, String... keys) {
+        List<String> chaves = Arrays.asList(keys);
+        StringBuilder params = new StringBuilder();
+        StringBuilder cols = new StringBuilder();
+        StringBuilder origem = new StringBuilder();
+        StringBuilder update = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            String c = columns[i];
+            params.append(i == 0 ? "?" : ", ?");
+            cols.append(i == 0 ? "" : ", ").append(c);
+            origem.append(i == 0 ? "" : ", ").append("s.").append(c);
+            if (!chaves.contains(c))
+                update.append(update.length() == 0 ? "" : ", ").append("d.").append(c).append(" = s.").append(c);
+        }
+        StringBuilder on = new StringBuilder();
+        for (String k : keys)
+            on.append(on.length() == 0 ? "" : " AND ").append("d.").append(k).append(" = s.").append(k);
+
+        StringBuilder sb = new StringBuilder("MERGE INTO ").append(table).append(" WITH (HOLDLOCK) AS d USING (VALUES (")
+                .append(params).append(")) AS s (").append(cols).append(") ON ").append(on);
+        if (update.length() > 0)
+            sb.append(" WHEN MATCHED THEN UPDATE SET ").append(update);
+        sb.append(" WHEN NOT MATCHED THEN INSERT (").append(cols).append(") VALUES (").append(origem).append(");");
+        return sb.toString();
+    }
+
+    @Override
+    public int maxRowsPerInsert(int paramsPerRow) {
+        return Math.max(1, Math.min(1000, (MAX_PARAMS - 1) / Math.max(1, paramsPerRow)));
+    }
+
+    @Override
+    public String hour(String expr) {
+        return "DATEPART(HOUR, " + expr + ")";
+    }
+
+    @Override
+    public int streamingFetchSize() {
+        return 256;
+    }
+
+    @Override
+    public String selectForUpdate(String table, String columns, String where) {
+        return "SELECT " + columns + " FROM " + table + " WITH (UPDLOCK, ROWLOCK) WHERE " + where;
+    }
+
+    @Override
+    public String addColumn(String table, String column, String definition) {
+        return "ALTER TABLE " + table + " ADD " + column + " " + definition;
+    }
+
+    @Override
+    public String createTableIfNotExists(String table, String definition) {
+        return "IF OBJECT_ID(N'" + table + "', N'U') IS NULL CREATE TABLE " + table + " (" + definition + ")";
+    }
+
+    @Override
+    public String md5Hex(String expr) {
+        // Sem limite de tamanho a partir do SQL Server 2016
+        return "CONVERT(VARCHAR(32), HASHBYTES('MD5', " + expr + "), 2)";
+    }
+
+    /**
+     * Numa réplica secundária legível de um grupo Always On, o atraso é o tempo
+     * decorrido desde a última transação aplicada.
+     */
+    @Override
+    public long replicationLag(Connection con) throws SQLException {
+        String sql = "SELECT DATEDIFF(SECOND, last_commit_time, SYSDATETIME()) FROM sys.dm_hadr_database_replica_states "
+                + "WHERE is_local = 1 AND database_id = DB_ID()";
+        try (Statement st = con.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            if (!rs.next())
+                return 0;
+            long lag = rs.getLong(1);
+            return rs.wasNull() ? Long.MAX_VALUE : Math.max(0, lag);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import jakarta.servlet.http.HttpServletRequest;
 
+import util.Log;
+
 /**
  * Representa os médicos veterinários pertencentes ao corpo clínico da VetCare.
  * A identificação unívoca é realizada através do número da licença
@@ -46,7 +48,7 @@ public class Veterinario {
             this.nLicenca = rs.getString("NLicenca");
             this.nome = rs.getString("Nome");
         } catch (SQLException e) {
-            System.err.println("Erro ao converter ResultSet para Veterinario: " + e.getMessage());
+            Log.error(Veterinario.class, "Erro ao converter ResultSet para Veterinario", e);
         }
     }
 
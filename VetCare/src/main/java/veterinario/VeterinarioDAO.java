@@ -7,6 +7,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import util.Configura;
+import util.Log;
+import util.PrefixIndex;
+import util.ReferenceCache;
 
 /**
  * Responsável pela persistência e gestão dos dados do corpo clínico
@@ -17,6 +20,12 @@ import util.Configura;
  */
 public class VeterinarioDAO {
 
+    /** Veterinários, partilhados pelos formulários. */
+    private static final ReferenceCache<Veterinario> VETERINARIOS = new ReferenceCache<>("veterinarios",
+            VeterinarioDAO::lerTodos);
+    /** Índice de pesquisa por nome ou licença. */
+    private static final PrefixIndex NOMES = new PrefixIndex("veterinarios", VeterinarioDAO::lerNomes);
+
     /**
      * Regista um novo médico veterinário no sistema.
      * 
@@ -31,9 +40,12 @@ public class VeterinarioDAO {
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, v.getNLicenca());
             ps.setString(2, v.getNome());
-            return ps.executeUpdate();
+            int n = ps.executeUpdate();
+            VETERINARIOS.invalidate();
+            NOMES.put(new PrefixIndex.Entrada(v.getNLicenca(), v.getNome(), null, v.getNLicenca()));
+            return n;
         } catch (SQLException e) {
-            System.err.println("Erro ao gravar veterinário: " + e.getMessage());
+            Log.error(VeterinarioDAO.class, "Erro ao gravar veterinário", e);
             return -1;
         }
     }
@@ -54,7 +66,7 @@ public class VeterinarioDAO {
                     return new Veterinario(rs);
             }
         } catch (SQLException e) {
-            System.err.println("Erro ao obter veterinário: " + e.getMessage());
+            Log.error(VeterinarioDAO.class, "Erro ao obter veterinário", e);
         }
         return null;
     }
@@ -62,22 +74,45 @@ public class VeterinarioDAO {
     /**
      * Lista todos os médicos veterinários registados no sistema.
      * 
-     * @return Lista de objetos Veterinario ordenados por nome.
+     * @return Lista imutável de objetos Veterinario ordenados por nome.
      */
     public static List<Veterinario> getAll() {
+        return VETERINARIOS.get();
+    }
+
+    private static List<Veterinario> lerTodos() {
         List<Veterinario> list = new ArrayList<>();
         String sql = "SELECT * FROM Veterinario ORDER BY Nome";
-        try (Connection con = new Configura().getConnection();
+        try (Connection con = new Configura().getReadOnlyConnection();
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
             while (rs.next())
                 list.add(new Veterinario(rs));
         } catch (SQLException e) {
-            System.err.println("Erro ao listar veterinários: " + e.getMessage());
+            Log.error(VeterinarioDAO.class, "Erro ao listar veterinários", e);
         }
         return list;
     }
 
+    /**
+     * Pesquisa veterinários pelo início do nome ou da licença, sem distinguir
+     * maiúsculas nem acentos, sem consultar a base de dados.
+     * 
+     * @param q Texto escrito.
+     * @param n Número máximo de resultados.
+     * @return Licença e nome dos veterinários encontrados.
+     */
+    public static List<PrefixIndex.Entrada> searchByPrefix(String q, int n) {
+        return NOMES.search(q, null, n);
+    }
+
+    private static List<PrefixIndex.Entrada> lerNomes() {
+        List<PrefixIndex.Entrada> list = new ArrayList<>();
+        for (Veterinario v : getAll())
+            list.add(new PrefixIndex.Entrada(v.getNLicenca(), v.getNome(), null, v.getNLicenca()));
+        return list;
+    }
+
     /**
      * Atualiza os dados de um médico veterinário existente.
      * 
@@ -92,9 +127,12 @@ public class VeterinarioDAO {
                 PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setString(1, v.getNome());
             ps.setString(2, v.getNLicenca());
-            return ps.executeUpdate();
+            int n = ps.executeUpdate();
+            VETERINARIOS.invalidate();
+            NOMES.put(new PrefixIndex.Entrada(v.getNLicenca(), v.getNome(), null, v.getNLicenca()));
+            return n;
         } catch (SQLException e) {
-            System.err.println("Erro ao atualizar veterinário: " + e.getMessage());
+            Log.error(VeterinarioDAO.class, "Erro ao atualizar veterinário", e);
             return -1;
         }
     }
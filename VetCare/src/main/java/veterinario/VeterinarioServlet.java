@@ -6,6 +6,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import util.PrefixIndex;
 
 /**
  * Controlador responsável pela gestão do corpo clínico veterinário.
@@ -18,7 +19,8 @@ public class VeterinarioServlet extends HttpServlet {
 
     /**
      * Processa pedidos GET para visualização da lista ou formulário de edição de
-     * veterinários.
+     * veterinários. Com {@code p=pesquisa} devolve em JSON os veterinários
+     * cujo nome ou licença começa por {@code q}.
      * 
      * @param request  Pedido HTTP.
      * @param response Resposta HTTP.
@@ -39,6 +41,9 @@ public class VeterinarioServlet extends HttpServlet {
                 request.setAttribute("vet", VeterinarioDAO.getByLicenca(licenca));
             }
             request.getRequestDispatcher("vets/edita.jsp").forward(request, response);
+        } else if ("pesquisa".equals(action)) {
+            PrefixIndex.send(response, VeterinarioDAO.searchByPrefix(request.getParameter("q"),
+                    PrefixIndex.limit(request.getParameter("n"))));
         } else {
             request.setAttribute("listaVets", VeterinarioDAO.getAll());
             request.getRequestDispatcher("vets/lista.jsp").forward(request, response);
@@ -2,10 +2,14 @@
 <%--
     Lista de agendamentos do sistema.
     Apresenta as marcações com indicação visual de estado (Pendente, Confirmado, Cancelado).
-    Permite ações de gestão dependendo do estado do agendamento.
+    Permite ações de gestão dependendo do estado do agendamento, individualmente,
+    sobre os selecionados ou sobre todos os de uma clínica num dia.
+    As alterações feitas noutros postos são recebidas por Server-Sent Events e
+    aplicadas à lista sem a recarregar.
 --%>
 <%@ page import="java.util.List" %>
 <%@ page import="agendamento.*" %>
+<%@ page import="util.DataFormatter" %>
 <!DOCTYPE html>
 <html>
 <head>
@@ -36,15 +40,71 @@
                 <a href="agendamentos?p=new" class="btn btn-primary">+ Novo Agendamento</a>
             </div>
 
+            <%
+            List<String> resultadoLote = (List<String>) session.getAttribute("resultadoLote");
+            if (resultadoLote != null) {
+                session.removeAttribute("resultadoLote");
+            %>
+                <div class="alert">
+                    <strong>Resultado da operação:</strong>
+                    <ul>
+                    <% for (String r : resultadoLote) { %>
+                        <li><%= r %></li>
+                    <% } %>
+                    </ul>
+                </div>
+            <% } %>
+
             <% if ("invalid_tutor".equals(request.getParameter("error"))) { %>
                 <div class="alert alert-danger">
                     <strong>Erro:</strong> O animal selecionado não pertence ao tutor escolhido.
                 </div>
             <% } %>
 
-            <table>
+            <%
+            FiltroAgendamento filtro = (FiltroAgendamento) request.getAttribute("filtro");
+            if (filtro == null) filtro = new FiltroAgendamento();
+            java.util.List<clinica.Clinica> clinicas = (java.util.List<clinica.Clinica>) request.getAttribute("listaClinicas");
+            %>
+            <form action="agendamentos" method="get" style="display:flex; gap:10px; flex-wrap:wrap; align-items:flex-end; margin-bottom:15px;">
+                <% if (filtro.getVeterinario() != null) { %>
+                    <input type="hidden" name="vet" value="<%= DataFormatter.escapeHtml(filtro.getVeterinario()) %>">
+                <% } %>
+                <div>
+                    <label>Clínica:</label>
+                    <select name="clinica" class="form-control">
+                        <option value="">Todas</option>
+                        <% if (clinicas != null) for (clinica.Clinica c : clinicas) { %>
+                            <option value="<%= c.getIdClinica() %>" <%= c.getIdClinica().equals(filtro.getClinicaId()) ? "selected" : "" %>><%= c.getLocalidade() %></option>
+                        <% } %>
+                    </select>
+                </div>
+                <div>
+                    <label>Estado:</label>
+                    <select name="status" class="form-control">
+                        <option value="">Todos</option>
+                        <% for (String st : FiltroAgendamento.ESTADOS) { %>
+                            <option value="<%= st %>" <%= st.equals(filtro.getStatus()) ? "selected" : "" %>><%= st %></option>
+                        <% } %>
+                    </select>
+                </div>
+                <div>
+                    <label>De:</label>
+                    <input type="date" name="de" class="form-control" value="<%= filtro.getDe() != null ? filtro.getDe() : "" %>">
+                </div>
+                <div>
+                    <label>Até:</label>
+                    <input type="date" name="ate" class="form-control" value="<%= filtro.getAte() != null ? filtro.getAte() : "" %>">
+                </div>
+                <button type="submit" class="btn btn-primary">Filtrar</button>
+                <a href="agendamentos" class="btn">Limpar</a>
+            </form>
+
+            <form action="agendamentos?p=estado" method="post">
+            <table id="agendamentos">
                 <thead>
                     <tr>
+                        <th></th>
                         <th>Data/Hora</th>
                         <th>Motivo</th>
                         <th>Animal (ID)</th>
@@ -60,13 +120,18 @@
                     if (lista != null) {
                         for (Agendamento a : lista) {
                     %>
-                    <tr>
+                    <tr id="ag-<%= a.getIdAgendamento() %>">
+                        <td>
+                            <% if (!"Cancelado".equals(a.getStatus()) && !"Rejeitado".equals(a.getStatus())) { %>
+                                <input type="checkbox" name="sel" value="<%= a.getIdAgendamento() %><%= a.getVersao() != null ? ":" + a.getVersao() : "" %>">
+                            <% } %>
+                        </td>
                         <td><%= a.getDataHoraInicio() %></td>
                         <td><%= a.getMotivo() %></td>
                         <td><%= (a.getAnimalId() != null ? a.getAnimalId() : "-") %></td>
                         <td><%= a.getClienteNif() %></td>
                         <td><span class="badge"><%= (a.getStatus()!=null?a.getStatus():"Agendado") %></span></td>
-                        <td>
+                        <td class="acoes">
                             <% if (!"Cancelado".equals(a.getStatus()) && !"Rejeitado".equals(a.getStatus())) { %>
                                 <a href="agendamentos?p=cancel&id=<%= a.getIdAgendamento() %>" class="btn btn-sm btn-danger" onclick="return confirm('Confirmar cancelamento?')">Cancelar</a>
                                 <a href="agendamentos?p=reject&id=<%= a.getIdAgendamento() %>" class="btn btn-sm btn-secondary" onclick="return confirm('Confirmar rejeição?')">Rejeitar</a>
@@ -78,12 +143,138 @@
                         }
                     } else {
                     %>
-                    <tr><td colspan="6">Sem agendamentos.</td></tr>
+                    <tr><td colspan="7">Sem agendamentos.</td></tr>
                     <% } %>
                 </tbody>
             </table>
+            <div style="margin-top:10px; display:flex; gap:10px;">
+                <button type="submit" name="status" value="Confirmado" class="btn btn-sm">Confirmar selecionados</button>
+                <button type="submit" name="status" value="Cancelado" class="btn btn-sm btn-danger" onclick="return confirm('Cancelar os agendamentos selecionados?')">Cancelar selecionados</button>
+                <button type="submit" name="status" value="Rejeitado" class="btn btn-sm btn-secondary" onclick="return confirm('Rejeitar os agendamentos selecionados?')">Rejeitar selecionados</button>
+            </div>
+            </form>
+
+            <div style="margin-top:15px;">
+                <% if (request.getParameter("apos") != null) { %>
+                    <a href="agendamentos?<%= filtro.toQuery().isEmpty() ? "" : filtro.toQuery().substring(1) %>" class="btn">&laquo; Início</a>
+                <% } %>
+                <% String proxima = (String) request.getAttribute("proximaPagina");
+                   if (proxima != null) { %>
+                    <a href="agendamentos?apos=<%= proxima %><%= filtro.toQuery() %>" class="btn">Seguinte &raquo;</a>
+                <% } %>
+            </div>
+        </div>
+
+        <div class="card">
+            <h3>Encerramento de um dia</h3>
+            <p>Altera o estado de todos os agendamentos ativos de uma clínica num dia.</p>
+            <form action="agendamentos?p=estado" method="post" style="display:flex; gap:10px; flex-wrap:wrap; align-items:flex-end;"
+                  onsubmit="return confirm('Alterar todos os agendamentos ativos deste dia?')">
+                <div>
+                    <label>Clínica:</label>
+                    <select name="clinica" class="form-control" required>
+                        <% if (clinicas != null) for (clinica.Clinica c : clinicas) { %>
+                            <option value="<%= c.getIdClinica() %>" <%= c.getIdClinica().equals(filtro.getClinicaId()) ? "selected" : "" %>><%= c.getLocalidade() %></option>
+                        <% } %>
+                    </select>
+                </div>
+                <div>
+                    <label>Dia:</label>
+                    <input type="date" name="dia" class="form-control" required>
+                </div>
+                <button type="submit" name="status" value="Cancelado" class="btn btn-danger">Cancelar todos</button>
+                <button type="submit" name="status" value="Rejeitado" class="btn btn-secondary">Rejeitar todos</button>
+            </form>
         </div>
     </div>
 
+    <script>
+        // Atualização em tempo real: aplica à lista as alterações recebidas do servidor
+        (function () {
+            if (!window.EventSource)
+                return;
+            var primeiraPagina = <%= request.getParameter("apos") == null && filtro.getVeterinario() == null %>;
+            var status = '<%= DataFormatter.escapeJs(filtro.getStatus()) %>';
+            var de = '<%= filtro.getDe() != null ? filtro.getDe() : "" %>';
+            var ate = '<%= filtro.getAte() != null ? filtro.getAte() : "" %>';
+            var fonte = new EventSource('agendamentos/eventos<%= filtro.getClinicaId() != null ? "?clinica=" + filtro.getClinicaId() : "" %>');
+
+            function destacar(tr) {
+                tr.style.background = '#fef3c7';
+                setTimeout(function () { tr.style.background = ''; }, 3000);
+            }
+
+            function celula(tr, texto) {
+                var td = document.createElement('td');
+                td.textContent = texto;
+                tr.appendChild(td);
+                return td;
+            }
+
+            function acao(td, href, classe, texto, pergunta) {
+                var a = document.createElement('a');
+                a.href = href;
+                a.className = 'btn btn-sm ' + classe;
+                a.textContent = texto;
+                if (pergunta)
+                    a.onclick = function () { return confirm(pergunta); };
+                td.appendChild(a);
+                td.appendChild(document.createTextNode(' '));
+            }
+
+            fonte.addEventListener('estado', function (ev) {
+                var d = JSON.parse(ev.data);
+                var tr = document.getElementById('ag-' + d.id);
+                if (!tr)
+                    return;
+                tr.querySelector('.badge').textContent = d.status;
+                var sel = tr.querySelector('input[name=sel]');
+                if (d.status === 'Cancelado' || d.status === 'Rejeitado') {
+                    if (sel)
+                        sel.remove();
+                    tr.querySelector('.acoes').textContent = '';
+                } else if (sel && d.versao !== undefined) {
+                    sel.value = d.id + ':' + d.versao;
+                }
+                destacar(tr);
+            });
+
+            fonte.addEventListener('novo', function (ev) {
+                var d = JSON.parse(ev.data);
+                var dia = (d.inicio || '').substring(0, 10);
+                if (!primeiraPagina || document.getElementById('ag-' + d.id)
+                        || (status && status !== d.status) || (de && dia < de) || (ate && dia > ate))
+                    return;
+                var tr = document.createElement('tr');
+                tr.id = 'ag-' + d.id;
+                var sel = document.createElement('input');
+                sel.type = 'checkbox';
+                sel.name = 'sel';
+                sel.value = d.id + (d.versao !== undefined ? ':' + d.versao : '');
+                celula(tr, '').appendChild(sel);
+                celula(tr, d.inicio);
+                celula(tr, d.motivo || '');
+                celula(tr, d.animal !== undefined ? d.animal : '-');
+                celula(tr, d.cliente || '');
+                var badge = document.createElement('span');
+                badge.className = 'badge';
+                badge.textContent = d.status;
+                celula(tr, '').appendChild(badge);
+                var td = celula(tr, '');
+                td.className = 'acoes';
+                acao(td, 'agendamentos?p=cancel&id=' + d.id, 'btn-danger', 'Cancelar', 'Confirmar cancelamento?');
+                acao(td, 'agendamentos?p=reject&id=' + d.id, 'btn-secondary', 'Rejeitar', 'Confirmar rejeição?');
+                acao(td, 'agendamentos?p=resched&id=' + d.id, '', 'Reagendar');
+                var corpo = document.querySelector('#agendamentos tbody');
+                corpo.insertBefore(tr, corpo.firstChild);
+                destacar(tr);
+            });
+
+            fonte.addEventListener('recarregar', function () {
+                location.reload();
+            });
+        })();
+    </script>
+
 </body>
 </html>
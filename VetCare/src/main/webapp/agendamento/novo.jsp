@@ -2,12 +2,11 @@
 <%--
     Página de registo de novos agendamentos.
     Permite selecionar o cliente, animal, serviço e data/hora.
-    Inclui validação de dias úteis e filtragem dinâmica de animais por tutor.
+    Inclui validação de dias úteis; clientes e animais são pesquisados no
+    servidor à medida que se escreve, em vez de listados na página.
 --%>
 <%@ page import="java.util.List" %>
 <%@ page import="clinica.TipoServico" %>
-<%@ page import="cliente.Cliente" %>
-<%@ page import="animal.Animal" %>
 <!DOCTYPE html>
 <html>
 <head>
@@ -16,42 +15,116 @@
 <link rel="stylesheet" href="${pageContext.request.contextPath}/css/style.css">
 <script>
 /**
- * Filtra a lista de animais no dropdown para mostrar apenas os que pertencem ao tutor selecionado.
+ * Sugere clientes cujo nome ou NIF começa pelo texto escrito.
+ * @param texto O texto escrito no campo do cliente.
+ */
+let pesquisaClientes = null;
+function searchClients(texto) {
+    clearTimeout(pesquisaClientes);
+    pesquisaClientes = setTimeout(() => {
+        if (texto.trim().length < 2) return;
+        fetch('clientes?' + new URLSearchParams({ p: 'pesquisa', q: texto, n: 15 }))
+            .then(r => r.ok ? r.json() : [])
+            .then(lista => {
+                const dl = document.getElementById('lista-clientes');
+                dl.innerHTML = '';
+                lista.forEach(c => {
+                    const o = document.createElement('option');
+                    o.value = c.id;
+                    o.label = c.nome;
+                    o.textContent = c.nome;
+                    dl.appendChild(o);
+                });
+            })
+            .catch(() => {});
+    }, 200);
+}
+
+/**
+ * Carrega os animais do tutor selecionado.
  * @param nif O NIF do cliente/tutor selecionado no momento.
+ * @param selecionado Identificador do animal a selecionar (opcional).
  */
-function filterAnimals(nif) {
+function loadAnimals(nif, selecionado) {
     const animalSelect = document.getElementsByName('Animal_IDAnimal')[0];
-    const options = animalSelect.options;
-
-    let firstMatch = -1;
-    for (let i = 0; i < options.length; i++) {
-        const option = options[i];
-
-        // Mantém a opção de "Selecione..." sempre visível
-        if (option.value === "") {
-            option.style.display = 'block';
-            continue;
-        }
+    const nome = document.getElementById('nome-cliente');
+    animalSelect.length = 1;
+    nome.textContent = '';
+    if (!nif) return Promise.resolve();
+    const o = Array.from(document.getElementById('lista-clientes').options).find(o => o.value === nif);
+    if (o) nome.textContent = o.label;
+    return fetch('animais?' + new URLSearchParams({ p: 'pesquisa', tutor: nif, n: 50 }))
+        .then(r => r.ok ? r.json() : [])
+        .then(lista => {
+            lista.forEach(a => {
+                const op = new Option(a.nome, a.id, false, a.id === selecionado);
+                op.setAttribute('data-tutor', a.grupo);
+                animalSelect.add(op);
+            });
+        })
+        .catch(() => {});
+}
 
-        // Verifica se o atributo data-tutor (embebido no JSP) coincide com o NIF
-        const tutorNif = option.getAttribute('data-tutor');
-        if (tutorNif === nif) {
-            option.style.display = 'block';
-            if (firstMatch === -1) firstMatch = i;
-        } else {
-            option.style.display = 'none';
-        }
+/**
+ * Pede ao servidor as próximas vagas livres para a clínica, serviço e animal
+ * selecionados e apresenta-as como sugestões que preenchem o campo de data/hora.
+ */
+function suggestSlots() {
+    const form = document.forms[0];
+    const box = document.getElementById('sugestoes');
+    const params = new URLSearchParams({
+        p: 'slots',
+        ClinicaID: form.ClinicaID.value,
+        TipoServico: form.TipoServico.value,
+        Animal_IDAnimal: form.Animal_IDAnimal.value,
+        n: 6
+    });
+    if (!params.get('ClinicaID') || !params.get('TipoServico')) {
+        box.innerHTML = '';
+        return;
     }
+    fetch('agendamentos?' + params)
+        .then(r => r.ok ? r.json() : [])
+        .then(vagas => {
+            box.innerHTML = '';
+            if (vagas.length === 0) return;
+            box.appendChild(document.createTextNode('Próximas vagas: '));
+            vagas.forEach(v => {
+                const b = document.createElement('button');
+                b.type = 'button';
+                b.className = 'btn';
+                b.style.margin = '2px';
+                b.textContent = v.replace('T', ' ');
+                b.onclick = () => { form.DataHoraInicio.value = v; };
+                box.appendChild(b);
+            });
+        })
+        .catch(() => { box.innerHTML = ''; });
+}
 
-    // Se a seleção atual ficar escondida após a mudança de tutor, reseta para a primeira opção válida
-    if (options[animalSelect.selectedIndex].style.display === 'none') {
-        animalSelect.selectedIndex = (firstMatch !== -1) ? firstMatch : 0;
+/**
+ * Se estiver assinalada a opção de marcar todos os animais do tutor, acrescenta
+ * ao formulário um campo por cada animal visível além do selecionado.
+ */
+function addAllAnimals(form) {
+    if (!form.TodosAnimais.checked) return true;
+    const nif = form.Cliente_NIF.value;
+    const sel = form.Animal_IDAnimal;
+    for (const o of sel.options) {
+        if (o.value !== "" && o.value !== sel.value && o.getAttribute('data-tutor') === nif) {
+            const h = document.createElement('input');
+            h.type = 'hidden';
+            h.name = 'Animal_IDAnimal';
+            h.value = o.value;
+            form.appendChild(h);
+        }
     }
+    return true;
 }
 </script>
 </head>
-<%-- Inicializa o filtro assim que a página carrega --%>
-<body onload="filterAnimals(document.getElementsByName('Cliente_NIF')[0].value)">
+<%-- Carrega os animais do cliente pré-selecionado assim que a página carrega --%>
+<body onload="loadAnimals(document.getElementsByName('Cliente_NIF')[0].value, '<%= request.getAttribute("selectedAnimalId") != null ? request.getAttribute("selectedAnimalId") : "" %>').then(suggestSlots)">
 
     <div class="header">
         <div class="container">
@@ -88,12 +161,16 @@ function filterAnimals(nif) {
                 <div style="background-color: #fee2e2; border: 1px solid #ef4444; color: #b91c1c; padding: 10px; border-radius: 4px; margin-bottom: 20px;">
                     Erro: Já foi agendado esse serviço para este horário. Por favor, selecione outro horário (considere intervalos de 30min).
                 </div>
+            <% } else if ("bulk_too_large".equals(request.getParameter("error"))) { %>
+                <div style="background-color: #fee2e2; border: 1px solid #ef4444; color: #b91c1c; padding: 10px; border-radius: 4px; margin-bottom: 20px;">
+                    Erro: A marcação tem demasiadas ocorrências (máximo 100 por pedido).
+                </div>
             <% } %>
 
-            <form action="agendamentos" method="post">
+            <form action="agendamentos" method="post" onsubmit="return addAllAnimals(this)">
                 <div style="margin-bottom:15px;">
                     <label>Clínica:</label>
-                    <select name="ClinicaID" class="form-control" required>
+                    <select name="ClinicaID" class="form-control" required onchange="suggestSlots()">
                         <% 
                         java.util.List<clinica.Clinica> clinicas = (java.util.List<clinica.Clinica>) request.getAttribute("listaClinicas");
                         if(clinicas != null) {
@@ -110,6 +187,7 @@ function filterAnimals(nif) {
                 <div style="margin-bottom:15px;">
                     <label>Data e Hora:</label>
                     <input type="datetime-local" name="DataHoraInicio" required class="form-control">
+                    <div id="sugestoes" style="margin-top:5px;"></div>
                 </div>
 
                 <div style="margin-bottom:15px;">
@@ -119,36 +197,31 @@ function filterAnimals(nif) {
 
                 <div style="margin-bottom:15px;">
                     <label>Cliente:</label>
-                    <select name="Cliente_NIF" required class="form-control" onchange="filterAnimals(this.value)">
-                        <%
-                           String selNif = (String) request.getAttribute("selectedClienteNif");
-                           List<Cliente> clientes = (List<Cliente>) request.getAttribute("listaClientes");
-                           if(clientes!=null) for(Cliente c : clientes) {
-                                boolean sel = c.getNif().equals(selNif);
-                        %>
-                           <option value="<%= c.getNif() %>" <%= sel ? "selected" : "" %>><%= c.getNomeCompleto() %></option>
+                    <%
+                       cliente.Cliente selCliente = (cliente.Cliente) request.getAttribute("selectedCliente");
+                    %>
+                    <input type="text" name="Cliente_NIF" required class="form-control" list="lista-clientes" autocomplete="off"
+                        placeholder="Nome ou NIF do cliente..." value="<%= selCliente != null ? selCliente.getNif() : "" %>"
+                        oninput="searchClients(this.value)" onchange="loadAnimals(this.value).then(suggestSlots)">
+                    <datalist id="lista-clientes">
+                        <% if (selCliente != null) { %>
+                           <option value="<%= selCliente.getNif() %>" label="<%= selCliente.getNomeCompleto() %>"><%= selCliente.getNomeCompleto() %></option>
                         <% } %>
-                    </select>
+                    </datalist>
+                    <small id="nome-cliente"></small>
                 </div>
 
                 <div style="margin-bottom:15px;">
                     <label>Animal:</label>
-                    <select name="Animal_IDAnimal" class="form-control">
+                    <select name="Animal_IDAnimal" class="form-control" onchange="suggestSlots()">
                         <option value="">(Selecione se aplicável)</option>
-                        <%
-                           Integer selAnimal = (Integer) request.getAttribute("selectedAnimalId");
-                           List<Animal> animais = (List<Animal>) request.getAttribute("listaAnimais");
-                           if(animais!=null) for(Animal a : animais) {
-                                boolean sel = a.getIdAnimal().equals(selAnimal);
-                        %>
-                           <option value="<%= a.getIdAnimal() %>" data-tutor="<%= a.getClienteNif() %>" <%= sel ? "selected" : "" %>><%= a.getNome() %></option>
-                        <% } %>
                     </select>
+                    <label style="font-weight:normal;"><input type="checkbox" name="TodosAnimais" value="1"> Marcar todos os animais do tutor (em vagas consecutivas)</label>
                 </div>
 
                 <div style="margin-bottom:15px;">
                     <label>Serviço:</label>
-                    <select name="TipoServico" required>
+                    <select name="TipoServico" required onchange="suggestSlots()">
                         <% List<TipoServico> tipos = (List<TipoServico>) request.getAttribute("listaTipos");
                            if(tipos!=null) for(TipoServico t : tipos) { %>
                            <option value="<%= t.getIdServico() %>"><%= t.getNome() %></option>
@@ -156,6 +229,12 @@ function filterAnimals(nif) {
                     </select>
                 </div>
 
+                <div style="margin-bottom:15px;">
+                    <label>Repetir:</label>
+                    <input type="number" name="Repeticoes" value="1" min="1" max="52" style="width:70px"> vez(es), a cada
+                    <input type="number" name="IntervaloDias" value="21" min="1" style="width:70px"> dias
+                </div>
+
                 <button type="submit" class="btn btn-primary">Agendar</button>
                 <a href="agendamentos" class="btn" style="background-color: #6c757d; color: white; text-decoration: none; margin-left: 10px;">Cancelar</a>
             </form>
@@ -145,10 +145,9 @@
                 <div style="margin-bottom:15px;">
                     <label>Fotografia:</label>
                     <div style="display: flex; gap: 15px; align-items: center; margin-top: 5px;">
-                        <% String base64 = (a != null) ? a.getFotografiaBase64() : null;
-                           if (base64 != null) { %>
+                        <% if (a != null && a.getIdAnimal() != null && a.hasFotografia()) { %>
                             <div style="text-align: center;">
-                                <img src="<%= base64 %>" 
+                                <img src="${pageContext.request.contextPath}/animais/foto?id=<%= a.getIdAnimal() %>" 
                                      alt="Foto atual" style="width: 100px; height: 100px; object-fit: cover; border-radius: 4px; border: 1px solid #ddd;">
                                 <br><small>Foto atual</small>
                             </div>
@@ -5,14 +5,37 @@
 --%>
 <%@ page import="java.util.List" %>
 <%@ page import="animal.Animal" %>
-<%@ page import="cliente.Cliente" %>
-<%@ page import="cliente.ClienteDAO" %>
 <!DOCTYPE html>
 <html>
 <head>
 <meta charset="UTF-8">
 <title>VetCare - Animais</title>
 <link rel="stylesheet" href="${pageContext.request.contextPath}/css/style.css">
+<script>
+/**
+ * Sugere nomes de tutores começados pelo texto escrito, pesquisados no servidor.
+ * @param texto O texto escrito no campo de pesquisa.
+ */
+let pesquisaTutores = null;
+function searchTutors(texto) {
+    clearTimeout(pesquisaTutores);
+    pesquisaTutores = setTimeout(() => {
+        if (texto.trim().length < 2) return;
+        fetch('clientes?' + new URLSearchParams({ p: 'pesquisa', q: texto, n: 15 }))
+            .then(r => r.ok ? r.json() : [])
+            .then(lista => {
+                const dl = document.getElementById('tutoresList');
+                dl.innerHTML = '';
+                lista.forEach(c => {
+                    const o = document.createElement('option');
+                    o.value = c.nome;
+                    dl.appendChild(o);
+                });
+            })
+            .catch(() => {});
+    }, 200);
+}
+</script>
 </head>
 <body>
 
@@ -36,14 +59,8 @@
                 <h2>Lista de Animais</h2>
                 <div style="display:flex; gap:10px;">
                     <form action="animais" method="get" style="display:flex;">
-                        <input type="text" name="search" list="tutoresList" placeholder="Pesquisar por Tutor..." style="padding:5px;">
-                        <datalist id="tutoresList">
-                            <%
-                            List<Cliente> allClients = ClienteDAO.getAll();
-                            if(allClients!=null) for(Cliente c : allClients) { %>
-                                <option value="<%= c.getNomeCompleto() %>">
-                            <% } %>
-                        </datalist>
+                        <input type="text" name="search" list="tutoresList" placeholder="Pesquisar por Tutor..." style="padding:5px;" autocomplete="off" oninput="searchTutors(this.value)">
+                        <datalist id="tutoresList"></datalist>
                         <button type="submit" class="btn btn-sm btn-secondary" style="margin-left:5px;">Pesquisar</button>
                     </form>
                     <a href="animais?p=edit" class="btn btn-primary">+ Novo Animal</a>
@@ -80,12 +97,11 @@
                     List<Animal> lista = (List<Animal>) request.getAttribute("listaAnimais");
                     if (lista != null) {
                         for (Animal a : lista) {
-                            String base64 = a.getFotografiaBase64();
                     %>
                      <tr>
                         <td style="width: 50px; text-align: center;">
-                            <% if (base64 != null) { %>
-                                <img src="<%= base64 %>" 
+                            <% if (a.hasFotografia()) { %>
+                                <img src="${pageContext.request.contextPath}/animais/foto?id=<%= a.getIdAnimal() %>" loading="lazy"
                                      style="width: 40px; height: 40px; object-fit: cover; border-radius: 50%; border: 1px solid #ddd;">
                             <% } else { %>
                                 <div style="width: 40px; height: 40px; border-radius: 50%; background: #eee; display: flex; align-items: center; justify-content: center; font-size: 10px; color: #999;">N/A</div>
@@ -11,6 +11,33 @@
 <meta charset="UTF-8">
 <title>VetCare - Gestão</title>
 <link rel="stylesheet" href="${pageContext.request.contextPath}/css/style.css">
+<script>
+/**
+ * Sugere animais cujo nome ou transponder começa pelo texto escrito, pesquisados no servidor.
+ * @param texto O texto escrito no campo do animal.
+ */
+let pesquisaAnimais = null;
+function searchAnimals(texto) {
+    clearTimeout(pesquisaAnimais);
+    pesquisaAnimais = setTimeout(() => {
+        if (texto.trim().length < 2) return;
+        fetch('animais?' + new URLSearchParams({ p: 'pesquisa', q: texto, n: 15 }))
+            .then(r => r.ok ? r.json() : [])
+            .then(lista => {
+                const dl = document.getElementById('lista-animais');
+                dl.innerHTML = '';
+                lista.forEach(a => {
+                    const o = document.createElement('option');
+                    o.value = a.id;
+                    o.label = a.nome + ' (Tutor NIF: ' + a.grupo + ')';
+                    o.textContent = o.label;
+                    dl.appendChild(o);
+                });
+            })
+            .catch(() => {});
+    }, 200);
+}
+</script>
 </head>
 <body>
 
@@ -21,18 +48,32 @@
                 <a href="${pageContext.request.contextPath}/" class="nav-link">Home</a>
                 <a href="${pageContext.request.contextPath}/manager" class="nav-link">Dashboard</a>
                 <a href="${pageContext.request.contextPath}/manager?p=horarios" class="nav-link">Gerir Escalas</a>
+                <a href="${pageContext.request.contextPath}/manager?p=ocupacao" class="nav-link">Ocupação</a>
             </nav>
         </div>
     </div>
 
     <div class="container">
 
+        <% List<String> expiradas = (List<String>) request.getAttribute("consultasExpiradas");
+           if (expiradas != null && !expiradas.isEmpty()) { %>
+            <div style="margin-bottom:10px; padding:10px; background:#fff3cd; color:#856404; border-radius:4px;">
+                Alguns indicadores demoraram demasiado a calcular e não são apresentados. Atualize a página mais tarde.
+            </div>
+        <% } %>
+
         <div class="card" style="background: #eef2ff; border-left: 5px solid #4f46e5;">
             <h3>Gestão de Escalonamento</h3>
             <p>Atribuição de veterinários aos horários de funcionamento e serviços da clínica.</p>
             <a href="${pageContext.request.contextPath}/manager?p=horarios" class="btn btn-primary">Ir para Gestão de Escalas</a>
         </div>
 
+        <div class="card" style="background: #ecfdf5; border-left: 5px solid #059669;">
+            <h3>Mapa de Ocupação</h3>
+            <p>Taxa de ocupação por dia da semana e hora, face ao horário de funcionamento de cada clínica.</p>
+            <a href="${pageContext.request.contextPath}/manager?p=ocupacao" class="btn btn-primary">Ver Mapa de Ocupação</a>
+        </div>
+
         <div class="card">
             <h3>Animais com Expectativa de Vida Excedida</h3>
             <ul>
@@ -70,12 +111,10 @@
 
                 <div style="flex:1;">
                     <label>Animal:</label>
-                    <select name="id" required style="width:100%; padding: 5px; border-radius: 4px; border: 1px solid #ddd;">
-                        <% List<Animal> animalsForExport = animal.AnimalDAO.getAll();
-                           if(animalsForExport!=null) for(Animal a : animalsForExport) { %>
-                           <option value="<%= a.getIdAnimal() %>"><%= a.getNome() %> (Tutor NIF: <%= a.getClienteNif() %>)</option>
-                        <% } %>
-                    </select>
+                    <input type="text" name="id" required list="lista-animais" autocomplete="off" pattern="\d+"
+                        title="Escreva o nome ou o transponder e escolha o animal" placeholder="Nome ou transponder..."
+                        oninput="searchAnimals(this.value)" style="width:100%; padding: 5px; border-radius: 4px; border: 1px solid #ddd;">
+                    <datalist id="lista-animais"></datalist>
                 </div>
                 <button type="submit" name="p" value="xml" class="btn btn-secondary">Exportar XML</button>
                 <button type="submit" name="p" value="json" class="btn btn-secondary">Exportar JSON</button>
@@ -165,6 +165,50 @@
             </form>
         </div>
 
+        <div class="card">
+            <h3>Atribuir Escala da Semana</h3>
+            <p>Atribui ao veterinário todos os horários e serviços selecionados de uma só vez.</p>
+            <form action="manager" method="post">
+                <input type="hidden" name="action" value="atribuirLote">
+                <input type="hidden" name="filterClinica" value="<%= selClinicaId != null ? selClinicaId : "" %>">
+                <div style="display:flex; gap:20px; align-items:flex-start; flex-wrap:wrap;">
+                    <div>
+                        <label>Veterinário:</label><br>
+                        <select name="NLicenca" required class="form-control">
+                             <% if(vets!=null) for(Veterinario v : vets) { %>
+                                <option value="<%= v.getNLicenca() %>"><%= v.getNome() %></option>
+                             <% } %>
+                        </select>
+                    </div>
+                    <div>
+                        <label>Horários:</label><br>
+                        <% if(filteredHoras != null) for(Horario h : filteredHoras) { %>
+                            <label style="display:block; font-weight:normal;">
+                                <input type="checkbox" name="IDHorario" value="<%= h.getIdHorario() %>">
+                                <%= h.getDiaSemana() %>: <%= h.getHoraInicio().toString().substring(0,5) %> - <%= h.getHoraFim().toString().substring(0,5) %>
+                            </label>
+                        <% } %>
+                    </div>
+                    <div>
+                        <label>Serviços:</label><br>
+                        <% if(tipos!=null) for(TipoServico t : tipos) { %>
+                            <label style="display:block; font-weight:normal;">
+                                <input type="checkbox" name="IDServico" value="<%= t.getIdServico() %>"> <%= t.getNome() %>
+                            </label>
+                        <% } %>
+                    </div>
+                    <button type="submit" class="btn btn-primary">Publicar Escala</button>
+                </div>
+            </form>
+            <form action="manager" method="post" style="margin-top:15px;"
+                  onsubmit="return confirm('Preencher automaticamente todos os turnos sem veterinário, em todas as clínicas?')">
+                <input type="hidden" name="action" value="gerarEscala">
+                <input type="hidden" name="filterClinica" value="<%= selClinicaId != null ? selClinicaId : "" %>">
+                <button type="submit" class="btn btn-secondary">Gerar Escala Automaticamente</button>
+                <small>Mantém as atribuições existentes e equilibra as horas entre veterinários.</small>
+            </form>
+        </div>
+
         <div class="card">
             <h3>Horários Atribuídos</h3>
             <table style="width:100%">
@@ -186,22 +230,8 @@
                         <td><%= e.servicoNome %></td>
                         <td><%= e.vetNome %></td>
                         <td>
-                            <% 
-                                // Fetch all hours to lookup clinic IDs for the edit button
-                                // This is necessary because the table shows all assignments, not just the filtered ones.
-                                List<Horario> allLookUp = agendamento.AgendamentoDAO.getAllHorarios();
-                                int eClinicaId = 0;
-                                if(allLookUp != null) {
-                                    for(Horario h : allLookUp) {
-                                        if(h.getIdHorario() == e.idHorario) {
-                                            eClinicaId = h.getClinicaId();
-                                            break;
-                                        }
-                                    }
-                                }
-                            %>
                             <button type="button" class="btn btn-warning" style="padding: 2px 8px; font-size: 0.8rem;" 
-                                onclick="fillForm('<%= e.idHorario %>', '<%= e.idServico %>', '<%= e.nLicenca %>', '<%= eClinicaId %>')">
+                                onclick="fillForm('<%= e.idHorario %>', '<%= e.idServico %>', '<%= e.nLicenca %>', '<%= e.idClinica %>')">
                                 Editar
                             </button>
                         </td>
@@ -0,0 +1,119 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%--
+    Mapa de ocupação.
+    Apresenta a taxa de ocupação por dia da semana e hora, face ao horário de funcionamento,
+    para uma clínica e serviço num intervalo de datas.
+--%>
+<%@ page import="java.util.*" %>
+<%@ page import="java.time.DayOfWeek" %>
+<%@ page import="manager.MapaOcupacao" %>
+<%@ page import="clinica.TipoServico" %>
+<!DOCTYPE html>
+<html>
+<head>
+<meta charset="UTF-8">
+<title>VetCare - Mapa de Ocupação</title>
+<link rel="stylesheet" href="${pageContext.request.contextPath}/css/style.css">
+<style>
+    .mapa td, .mapa th { text-align: center; padding: 6px; font-size: 0.85em; }
+</style>
+</head>
+<body>
+
+    <div class="header">
+        <div class="container">
+            <h1>VetCare Manager - Mapa de Ocupação</h1>
+            <nav>
+                <a href="${pageContext.request.contextPath}/" class="nav-link">Home</a>
+                <a href="${pageContext.request.contextPath}/manager" class="nav-link">Dashboard</a>
+                <a href="${pageContext.request.contextPath}/manager?p=horarios" class="nav-link">Gerir Escalas</a>
+            </nav>
+        </div>
+    </div>
+
+    <div class="container">
+        <%
+        MapaOcupacao mapa = (MapaOcupacao) request.getAttribute("mapa");
+        Integer clinicaId = (Integer) request.getAttribute("clinicaId");
+        Integer servicoId = (Integer) request.getAttribute("servicoId");
+        List<clinica.Clinica> clinicas = (List<clinica.Clinica>) request.getAttribute("listaClinicas");
+        List<TipoServico> tipos = (List<TipoServico>) request.getAttribute("listaTipos");
+        String[] nomesDias = { "Segunda", "Terça", "Quarta", "Quinta", "Sexta", "Sábado", "Domingo" };
+        %>
+
+        <div class="card">
+            <form action="manager" method="get" style="display:flex; gap:10px; flex-wrap:wrap; align-items:flex-end;">
+                <input type="hidden" name="p" value="ocupacao">
+                <div>
+                    <label>Clínica:</label>
+                    <select name="clinica" class="form-control">
+                        <option value="">Todas</option>
+                        <% if (clinicas != null) for (clinica.Clinica c : clinicas) { %>
+                            <option value="<%= c.getIdClinica() %>" <%= c.getIdClinica().equals(clinicaId) ? "selected" : "" %>><%= c.getLocalidade() %></option>
+                        <% } %>
+                    </select>
+                </div>
+                <div>
+                    <label>Serviço:</label>
+                    <select name="servico" class="form-control">
+                        <option value="">Todos</option>
+                        <% if (tipos != null) for (TipoServico t : tipos) { %>
+                            <option value="<%= t.getIdServico() %>" <%= t.getIdServico().equals(servicoId) ? "selected" : "" %>><%= t.getNome() %></option>
+                        <% } %>
+                    </select>
+                </div>
+                <div>
+                    <label>De:</label>
+                    <input type="date" name="de" class="form-control" value="<%= mapa.getDe() %>">
+                </div>
+                <div>
+                    <label>Até:</label>
+                    <input type="date" name="ate" class="form-control" value="<%= mapa.getAte() %>">
+                </div>
+                <button type="submit" class="btn btn-primary">Ver</button>
+            </form>
+        </div>
+
+        <div class="card">
+            <h3>Ocupação de <%= mapa.getDe() %> a <%= mapa.getAte() %></h3>
+            <% int[] horas = mapa.getHoras();
+               if (horas[1] < 0) { %>
+                <p>Sem horário de funcionamento nem marcações no período.</p>
+            <% } else { %>
+            <table class="mapa">
+                <thead>
+                    <tr>
+                        <th></th>
+                        <% for (int h = horas[0]; h <= horas[1]; h++) { %>
+                            <th><%= String.format("%02d:00", h) %></th>
+                        <% } %>
+                    </tr>
+                </thead>
+                <tbody>
+                    <% for (DayOfWeek dia : DayOfWeek.values()) { %>
+                    <tr>
+                        <th><%= nomesDias[dia.getValue() - 1] %></th>
+                        <% for (int h = horas[0]; h <= horas[1]; h++) {
+                               double r = mapa.getRacio(dia, h);
+                               if (r < 0) { %>
+                            <td style="background:#f3f4f6; color:#9ca3af;">-</td>
+                        <%     } else {
+                                   // Verde (livre) a vermelho (cheio)
+                                   int tom = (int) Math.round(120 * (1 - Math.min(1, r)));
+                        %>
+                            <td style="background:hsl(<%= tom %>, 70%, 80%);" title="<%= mapa.getMarcados(dia, h) %> de <%= mapa.getCapacidade(dia, h) %> min"><%= Math.round(r * 100) %>%</td>
+                        <%     }
+                           } %>
+                    </tr>
+                    <% } %>
+                </tbody>
+            </table>
+            <% } %>
+            <p style="margin-top:10px;">
+                <a href="manager?p=ocupacao&formato=json&de=<%= mapa.getDe() %>&ate=<%= mapa.getAte() %><%= clinicaId != null ? "&clinica=" + clinicaId : "" %><%= servicoId != null ? "&servico=" + servicoId : "" %>">Obter em JSON</a>
+            </p>
+        </div>
+    </div>
+
+</body>
+</html>
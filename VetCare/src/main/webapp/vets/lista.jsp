@@ -54,6 +54,7 @@
                         <td><%= v.getNome() %></td>
                         <td>
                             <a href="vets?p=edit&id=<%= v.getNLicenca() %>" class="btn btn-sm">Editar</a>
+                            <a href="agenda.ics?vet=<%= java.net.URLEncoder.encode(v.getNLicenca(), "UTF-8") %>" class="btn btn-sm" title="Subscrever a agenda numa aplicação de calendário">Agenda (.ics)</a>
                         </td>
                     </tr>
                     <%